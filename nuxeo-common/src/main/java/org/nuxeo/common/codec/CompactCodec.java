@@ -0,0 +1,345 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary codec for {@link Serializable} objects, using a compact versioned format for objects implementing
+ * {@link CompactSerializable} and Java serialization for the others.
+ * <p>
+ * The compact format is:
+ * <ul>
+ * <li>the two magic bytes {@code 'N' 'C'} (Java serialization streams start with {@code 0xAC 0xED}),</li>
+ * <li>the format version byte,</li>
+ * <li>the class name,</li>
+ * <li>the version returned by {@link CompactSerializable#getCompactVersion},</li>
+ * <li>the data written by {@link CompactSerializable#writeCompact}.</li>
+ * </ul>
+ * {@link #decode} accepts both formats, so that data written by Java serialization can still be read.
+ * <p>
+ * Static helpers are provided to write common values compactly.
+ *
+ * @since 8.2
+ */
+public class CompactCodec {
+
+    protected static final byte MAGIC_0 = 'N';
+
+    protected static final byte MAGIC_1 = 'C';
+
+    protected static final byte FORMAT_VERSION = 1;
+
+    protected static final byte TYPE_NULL = 0;
+
+    protected static final byte TYPE_STRING = 1;
+
+    protected static final byte TYPE_LONG = 2;
+
+    protected static final byte TYPE_BOOLEAN = 3;
+
+    protected static final byte TYPE_SERIALIZED = 4;
+
+    protected static final Map<String, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<>();
+
+    protected static final Map<Class<?>, Boolean> COMPACT_CLASSES = new ConcurrentHashMap<>();
+
+    private CompactCodec() {
+        // utility class
+    }
+
+    /**
+     * Encodes an object, using the compact format if its class implements {@link CompactSerializable}, declares
+     * {@link CompactSerializable#writeCompact writeCompact} and {@link CompactSerializable#readCompact readCompact}
+     * itself and has a no-arg constructor.
+     */
+    public static byte[] encode(Serializable object) throws IOException {
+        return encode(object, true);
+    }
+
+    /**
+     * Encodes an object.
+     *
+     * @param compact {@code false} to always use Java serialization
+     */
+    public static byte[] encode(Serializable object, boolean compact) throws IOException {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream(256);
+        if (compact && isCompactClass(object.getClass())) {
+            CompactSerializable cs = (CompactSerializable) object;
+            DataOutputStream out = new DataOutputStream(baout);
+            out.writeByte(MAGIC_0);
+            out.writeByte(MAGIC_1);
+            out.writeByte(FORMAT_VERSION);
+            writeString(out, cs.getClass().getName());
+            writeVarInt(out, cs.getCompactVersion());
+            cs.writeCompact(out);
+            out.flush();
+        } else {
+            try (ObjectOutputStream out = new ObjectOutputStream(baout)) {
+                out.writeObject(object);
+            }
+        }
+        return baout.toByteArray();
+    }
+
+    /**
+     * Checks if instances of the class can be written in the compact format.
+     * <p>
+     * The class itself must declare {@link CompactSerializable#writeCompact writeCompact} and
+     * {@link CompactSerializable#readCompact readCompact}: when they are only inherited, the fields added by the class
+     * would be silently lost, so Java serialization is used instead.
+     */
+    public static boolean isCompactClass(Class<?> klass) {
+        return COMPACT_CLASSES.computeIfAbsent(klass, k -> {
+            if (!CompactSerializable.class.isAssignableFrom(k)) {
+                return Boolean.FALSE;
+            }
+            try {
+                k.getDeclaredMethod("writeCompact", DataOutput.class);
+                k.getDeclaredMethod("readCompact", DataInput.class, int.class);
+            } catch (NoSuchMethodException e) {
+                // subclass not overriding the compact methods, its own state would not be written
+                return Boolean.FALSE;
+            }
+            try {
+                k.getDeclaredConstructor();
+                return Boolean.TRUE;
+            } catch (NoSuchMethodException e) {
+                // subclass without no-arg constructor, cannot be instantiated when decoding
+                return Boolean.FALSE;
+            }
+        }).booleanValue();
+    }
+
+    /**
+     * Checks if the bytes were encoded in the compact format.
+     */
+    public static boolean isCompact(byte[] bytes) {
+        return bytes.length > 2 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    /**
+     * Decodes an object encoded by {@link #encode}, or by Java serialization.
+     */
+    public static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (!isCompact(bytes)) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return in.readObject();
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+        int format = in.readByte();
+        if (format != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unknown compact format version: " + format);
+        }
+        String className = readString(in);
+        int version = readVarInt(in);
+        CompactSerializable object = newInstance(className);
+        object.readCompact(in, version);
+        return object;
+    }
+
+    protected static CompactSerializable newInstance(String className) throws IOException, ClassNotFoundException {
+        Constructor<?> constructor = CONSTRUCTORS.get(className);
+        if (constructor == null) {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            if (cl == null) {
+                cl = CompactCodec.class.getClassLoader();
+            }
+            Class<?> klass = Class.forName(className, false, cl);
+            if (!CompactSerializable.class.isAssignableFrom(klass)) {
+                throw new InvalidClassException(className, "Not a " + CompactSerializable.class.getSimpleName());
+            }
+            try {
+                constructor = klass.getDeclaredConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new InvalidClassException(className, "No no-arg constructor");
+            }
+            constructor.setAccessible(true);
+            CONSTRUCTORS.put(className, constructor);
+        }
+        try {
+            return (CompactSerializable) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Cannot instantiate: " + className, e);
+        }
+    }
+
+    /**
+     * Writes a non-negative int using 1 to 5 bytes.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid varint");
+    }
+
+    /**
+     * Writes a non-negative long using 1 to 10 bytes.
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid varlong");
+    }
+
+    /**
+     * Writes a string, which may be {@code null}, as UTF-8 (without the 64KB limit of {@link DataOutput#writeUTF}).
+     */
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes a list of strings, which may be {@code null}.
+     */
+    public static void writeStringList(DataOutput out, List<String> list) throws IOException {
+        if (list == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, list.size() + 1);
+        for (String string : list) {
+            writeString(out, string);
+        }
+    }
+
+    public static List<String> readStringList(DataInput in) throws IOException {
+        int size = readVarInt(in) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    /**
+     * Writes a value, which may be {@code null}. Strings, longs and booleans are written compactly, other values use
+     * {@link #encode}.
+     */
+    public static void writeSerializable(DataOutput out, Serializable value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(((Long) value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else {
+            out.writeByte(TYPE_SERIALIZED);
+            byte[] bytes = encode(value);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static Serializable readSerializable(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_STRING:
+            return readString(in);
+        case TYPE_LONG:
+            return Long.valueOf(in.readLong());
+        case TYPE_BOOLEAN:
+            return Boolean.valueOf(in.readBoolean());
+        case TYPE_SERIALIZED:
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            try {
+                return (Serializable) decode(bytes);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        default:
+            throw new StreamCorruptedException("Unknown value type: " + type);
+        }
+    }
+
+}
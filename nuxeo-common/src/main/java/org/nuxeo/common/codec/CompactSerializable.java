@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.codec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A {@link Serializable} object that can also be written by the {@link CompactCodec}, which is much smaller and faster
+ * than Java serialization.
+ * <p>
+ * Implementations must have a no-arg constructor (which may be non-public), used to create the instance before calling
+ * {@link #readCompact}. Each concrete class written in the compact format must declare both {@link #writeCompact} and
+ * {@link #readCompact} itself, calling the superclass methods if needed; the {@link CompactCodec} falls back to Java
+ * serialization for a subclass that only inherits them.
+ *
+ * @since 8.2
+ */
+public interface CompactSerializable extends Serializable {
+
+    /**
+     * Gets the version of the format written by {@link #writeCompact}. It is passed back to {@link #readCompact}, so
+     * that data written by a previous version can still be read after an upgrade.
+     */
+    int getCompactVersion();
+
+    /**
+     * Writes the state of this object.
+     */
+    void writeCompact(DataOutput out) throws IOException;
+
+    /**
+     * Reads the state of this object, as written by {@link #writeCompact} with the given version.
+     */
+    void readCompact(DataInput in, int version) throws IOException;
+
+}
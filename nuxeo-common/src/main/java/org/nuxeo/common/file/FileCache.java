@@ -93,4 +93,12 @@ public interface FileCache {
      */
     void clear();
 
+    /**
+     * Closes the cache, releasing its resources. The files are not cleared.
+     *
+     * @since 8.2
+     */
+    default void close() {
+    }
+
 }
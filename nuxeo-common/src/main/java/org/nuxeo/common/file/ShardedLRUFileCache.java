@@ -0,0 +1,389 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A LRU cache of {@link File}s with maximum filesystem size, designed for large caches.
+ * <p>
+ * Unlike {@link LRUFileCache}, the files are spread over 256 shard subdirectories, and the cache entries are tracked by
+ * an in-memory LRU index, so getting the size or number of items and evicting entries never needs to list the
+ * directories. Access times are only recorded in the index, not on the filesystem.
+ * <p>
+ * The index is saved on {@link #close} and reloaded on construction, so that restarting on an existing cache directory
+ * doesn't need to scan it. If the index wasn't saved (for instance after a crash), the directory is scanned once.
+ * <p>
+ * The cache keys are restricted to a subset of ASCII: letters, digits and dashes. Usually a MD5 or SHA1 hash is used.
+ *
+ * @since 8.2
+ */
+public class ShardedLRUFileCache implements FileCache {
+
+    private static final Log log = LogFactory.getLog(ShardedLRUFileCache.class);
+
+    protected static final String TMP_DIR = "tmp";
+
+    protected static final String TMP_PREFIX = "nxbin_";
+
+    protected static final String TMP_SUFFIX = ".tmp";
+
+    protected static final String INDEX_FILE = "index";
+
+    protected static final int INDEX_VERSION = 1;
+
+    protected static final int SHARDS = 256;
+
+    protected static class Entry {
+
+        protected final long size;
+
+        protected long time;
+
+        protected Entry(long size, long time) {
+            this.size = size;
+            this.time = time;
+        }
+    }
+
+    protected final Path dir;
+
+    protected final Path tmpDir;
+
+    protected final long maxSize;
+
+    protected final long maxCount;
+
+    protected final long minAgeMillis;
+
+    /** Index of the cache entries, in access order (least recently used first). Protected by its own lock. */
+    protected final LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected long size;
+
+    /**
+     * Constructs a cache in the given directory with the given maximum size (in bytes).
+     *
+     * @param dir the directory to use to store cached files
+     * @param maxSize the maximum size of the cache (in bytes)
+     * @param maxCount the maximum number of files in the cache
+     * @param minAge the minimum age of a file in the cache to be eligible for removal (in seconds)
+     */
+    public ShardedLRUFileCache(File dir, long maxSize, long maxCount, long minAge) {
+        this.dir = dir.toPath();
+        this.maxSize = maxSize;
+        this.maxCount = maxCount;
+        this.minAgeMillis = minAge * 1000;
+        tmpDir = this.dir.resolve(TMP_DIR);
+        try {
+            FileUtils.deleteDirectory(tmpDir.toFile());
+            Files.createDirectories(tmpDir);
+            for (int i = 0; i < SHARDS; i++) {
+                Files.createDirectories(this.dir.resolve(getShard(i)));
+            }
+            if (!loadIndex()) {
+                scan();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected static String getShard(int i) {
+        return String.format("%02x", Integer.valueOf(i));
+    }
+
+    protected Path getPath(String key) {
+        return dir.resolve(getShard(key.hashCode() & (SHARDS - 1))).resolve(key);
+    }
+
+    /**
+     * Loads the index saved by {@link #close}. The saved index is deleted, as it will not be valid anymore once the
+     * cache is modified.
+     *
+     * @return {@code true} if the index was loaded
+     */
+    protected boolean loadIndex() throws IOException {
+        Path indexPath = dir.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != INDEX_VERSION) {
+                return false;
+            }
+            int n = in.readInt();
+            synchronized (index) {
+                for (int i = 0; i < n; i++) {
+                    String key = in.readUTF();
+                    Entry entry = new Entry(in.readLong(), in.readLong());
+                    index.put(key, entry);
+                    size += entry.size;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            log.error("Cannot read file cache index: " + indexPath + ", scanning cache", e);
+            synchronized (index) {
+                index.clear();
+                size = 0;
+            }
+            return false;
+        } finally {
+            Files.deleteIfExists(indexPath);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the files in the cache directory, using their modification time as access time.
+     */
+    protected void scan() throws IOException {
+        List<SimpleEntry<String, Entry>> entries = new ArrayList<>();
+        for (int i = 0; i < SHARDS; i++) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir.resolve(getShard(i)))) {
+                for (Path path : ds) {
+                    if (Files.isRegularFile(path)) {
+                        Entry entry = new Entry(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+                        entries.add(new SimpleEntry<>(path.getFileName().toString(), entry));
+                    }
+                }
+            }
+        }
+        // least recently used first
+        entries.sort((a, b) -> Long.compare(a.getValue().time, b.getValue().time));
+        synchronized (index) {
+            for (SimpleEntry<String, Entry> es : entries) {
+                index.put(es.getKey(), es.getValue());
+                size += es.getValue().size;
+            }
+        }
+    }
+
+    /**
+     * Saves the index, so that the cache can be reopened without scanning it.
+     * <p>
+     * The cache must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        Path indexPath = dir.resolve(INDEX_FILE);
+        Path tmp = tmpDir.resolve(INDEX_FILE);
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                synchronized (index) {
+                    out.writeInt(INDEX_VERSION);
+                    out.writeInt(index.size());
+                    for (Map.Entry<String, Entry> es : index.entrySet()) {
+                        out.writeUTF(es.getKey());
+                        out.writeLong(es.getValue().size);
+                        out.writeLong(es.getValue().time);
+                    }
+                }
+            }
+            Files.move(tmp, indexPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Cannot save file cache index: " + indexPath, e);
+        }
+    }
+
+    @Override
+    public long getSize() {
+        synchronized (index) {
+            return size;
+        }
+    }
+
+    @Override
+    public int getNumberOfItems() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    @Override
+    public void clear() {
+        List<String> keys;
+        synchronized (index) {
+            keys = new ArrayList<>(index.keySet());
+            index.clear();
+            size = 0;
+        }
+        for (String key : keys) {
+            delete(key);
+        }
+    }
+
+    protected void delete(String key) {
+        try {
+            Files.deleteIfExists(getPath(key));
+        } catch (IOException e) {
+            log.error(e, e);
+        }
+    }
+
+    /**
+     * Records a new or accessed entry, then evicts the least recently used entries that are old enough if the cache is
+     * bigger than its maximum size.
+     */
+    protected void recordAccess(String key, long length) {
+        long now = System.currentTimeMillis();
+        long threshold = now - minAgeMillis;
+        List<String> evicted = new ArrayList<>();
+        synchronized (index) {
+            Entry entry = index.get(key);
+            if (entry == null) {
+                index.put(key, new Entry(length, now));
+                size += length;
+            } else {
+                entry.time = now;
+            }
+            for (Iterator<Map.Entry<String, Entry>> it = index.entrySet().iterator(); it.hasNext();) {
+                if (size <= maxSize && index.size() <= maxCount) {
+                    break;
+                }
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getValue().time >= threshold) {
+                    // all the others are more recent
+                    break;
+                }
+                it.remove();
+                size -= eldest.getValue().size;
+                evicted.add(eldest.getKey());
+            }
+        }
+        for (String k : evicted) {
+            delete(k);
+        }
+    }
+
+    @Override
+    public File getTempFile() throws IOException {
+        return Files.createTempFile(tmpDir, TMP_PREFIX, TMP_SUFFIX).toFile();
+    }
+
+    protected void checkKey(String key) throws IllegalArgumentException {
+        if (!LRUFileCache.SIMPLE_ASCII.matcher(key).matches() || ".".equals(key) || "..".equals(key)) {
+            throw new IllegalArgumentException("Invalid key: " + key);
+        }
+    }
+
+    @Override
+    public File putFile(String key, InputStream in) throws IOException {
+        File tmp;
+        try {
+            // check the cache
+            File file = getFile(key);
+            if (file != null) {
+                return file;
+            }
+
+            // store the stream in a temporary file
+            tmp = getTempFile();
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                IOUtils.copy(in, out);
+            }
+        } finally {
+            in.close();
+        }
+        return putFile(key, tmp);
+    }
+
+    @Override
+    public File putFile(String key, File file) throws IllegalArgumentException, IOException {
+        Path source = file.toPath();
+        checkKey(key);
+        Path path = getPath(key);
+        try {
+            long length = Files.size(source);
+            Files.move(source, path);
+            recordAccess(key, length);
+        } catch (FileAlreadyExistsException faee) {
+            // already something there
+            long length;
+            try {
+                length = Files.size(path);
+            } catch (NoSuchFileException e) {
+                // evicted concurrently
+                return putFile(key, file);
+            }
+            recordAccess(key, length);
+            // remove unused tmp file
+            try {
+                Files.delete(source);
+            } catch (IOException e) {
+                log.error(e, e);
+            }
+        }
+        return path.toFile();
+    }
+
+    @Override
+    public File getFile(String key) {
+        checkKey(key);
+        boolean present;
+        synchronized (index) {
+            Entry entry = index.get(key); // records access order
+            present = entry != null;
+            if (present) {
+                entry.time = System.currentTimeMillis();
+            }
+        }
+        if (!present) {
+            return null;
+        }
+        Path path = getPath(key);
+        if (!Files.exists(path)) {
+            // removed concurrently
+            synchronized (index) {
+                Entry entry = index.remove(key);
+                if (entry != null) {
+                    size -= entry.size;
+                }
+            }
+            return null;
+        }
+        return path.toFile();
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.codec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class TestCompactCodec {
+
+    public static class Base implements CompactSerializable {
+
+        private static final long serialVersionUID = 1L;
+
+        public String name;
+
+        public Base() {
+        }
+
+        @Override
+        public int getCompactVersion() {
+            return 1;
+        }
+
+        @Override
+        public void writeCompact(DataOutput out) throws IOException {
+            CompactCodec.writeString(out, name);
+        }
+
+        @Override
+        public void readCompact(DataInput in, int version) throws IOException {
+            name = CompactCodec.readString(in);
+        }
+    }
+
+    /** Subclass adding state but not overriding the compact methods. */
+    public static class Inheriting extends Base {
+
+        private static final long serialVersionUID = 1L;
+
+        public String extra;
+    }
+
+    /** Subclass adding state and overriding the compact methods. */
+    public static class Overriding extends Base {
+
+        private static final long serialVersionUID = 1L;
+
+        public String extra;
+
+        @Override
+        public void writeCompact(DataOutput out) throws IOException {
+            super.writeCompact(out);
+            CompactCodec.writeString(out, extra);
+        }
+
+        @Override
+        public void readCompact(DataInput in, int version) throws IOException {
+            super.readCompact(in, version);
+            extra = CompactCodec.readString(in);
+        }
+    }
+
+    @Test
+    public void testCompactClass() throws Exception {
+        Base object = new Base();
+        object.name = "foo";
+        byte[] bytes = CompactCodec.encode(object);
+        assertTrue(CompactCodec.isCompact(bytes));
+        assertEquals("foo", ((Base) CompactCodec.decode(bytes)).name);
+    }
+
+    @Test
+    public void testSubclassOverridingCompactMethods() throws Exception {
+        Overriding object = new Overriding();
+        object.name = "foo";
+        object.extra = "bar";
+        byte[] bytes = CompactCodec.encode(object);
+        assertTrue(CompactCodec.isCompact(bytes));
+        Overriding decoded = (Overriding) CompactCodec.decode(bytes);
+        assertEquals("foo", decoded.name);
+        assertEquals("bar", decoded.extra);
+    }
+
+    @Test
+    public void testSubclassInheritingCompactMethods() throws Exception {
+        assertFalse(CompactCodec.isCompactClass(Inheriting.class));
+        Inheriting object = new Inheriting();
+        object.name = "foo";
+        object.extra = "bar";
+        // Java serialization is used, so that the subclass state is not lost
+        byte[] bytes = CompactCodec.encode(object);
+        assertFalse(CompactCodec.isCompact(bytes));
+        Inheriting decoded = (Inheriting) CompactCodec.decode(bytes);
+        assertEquals("foo", decoded.name);
+        assertEquals("bar", decoded.extra);
+    }
+
+}
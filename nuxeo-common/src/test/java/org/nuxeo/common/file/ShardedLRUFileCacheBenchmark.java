@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Compares {@link ShardedLRUFileCache} with {@link LRUFileCache} under eviction pressure. Not a unit test, run it
+ * manually:
+ *
+ * <pre>
+ * java -cp ... org.nuxeo.common.file.ShardedLRUFileCacheBenchmark [n]
+ * </pre>
+ *
+ * @since 8.2
+ */
+public class ShardedLRUFileCacheBenchmark {
+
+    protected static final int DEFAULT_N = 5000;
+
+    protected static final int ROUNDS = 2;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_N;
+        int maxCount = n / 2;
+        File dir = Files.createTempDirectory("nxbenchfilecache.").toFile();
+        long clearOldEntriesInterval = LRUFileCache.CLEAR_OLD_ENTRIES_INTERVAL_MILLIS;
+        LRUFileCache.CLEAR_OLD_ENTRIES_INTERVAL_MILLIS = 0; // evict on each put, like the sharded cache
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                File lruDir = new File(dir, "lru" + round);
+                File shardedDir = new File(dir, "sharded" + round);
+                lruDir.mkdir();
+                shardedDir.mkdir();
+                long lru = benchmark(new LRUFileCache(lruDir, Long.MAX_VALUE, maxCount, 0), n);
+                long sharded = benchmark(new ShardedLRUFileCache(shardedDir, Long.MAX_VALUE, maxCount, 0), n);
+                System.out.println(String.format("%d puts + %d gets, max %d files: LRUFileCache %d ms, "
+                        + "ShardedLRUFileCache %d ms", n, n, maxCount, lru, sharded));
+            }
+        } finally {
+            LRUFileCache.CLEAR_OLD_ENTRIES_INTERVAL_MILLIS = clearOldEntriesInterval;
+            FileUtils.deleteQuietly(dir);
+        }
+    }
+
+    protected static long benchmark(FileCache cache, int n) throws IOException {
+        byte[] buf = new byte[100];
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            cache.putFile("key" + i, new ByteArrayInputStream(buf));
+            cache.getFile("key" + (i / 2));
+        }
+        return (System.nanoTime() - t0) / 1000000;
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestShardedLRUFileCache {
+
+    public File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = File.createTempFile("nxtestshardedfilecache.", "", new File(System.getProperty("java.io.tmpdir")));
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteQuietly(dir);
+    }
+
+    @Test
+    public void testShardedLRUFileCache() throws Exception {
+        ShardedLRUFileCache cache = new ShardedLRUFileCache(dir, 100, 9999, 0); // 100 bytes max
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getNumberOfItems());
+
+        byte[] buf = new byte[30];
+        File f1 = cache.putFile("1", new ByteArrayInputStream(buf));
+        assertEquals(1, cache.getNumberOfItems());
+        assertEquals(30, cache.getSize());
+        assertTrue(f1.exists());
+        assertFalse(new File(dir, "1").exists()); // in a shard
+
+        Thread.sleep(10);
+        File f2 = cache.putFile("2", new ByteArrayInputStream(buf));
+        Thread.sleep(10);
+        File f3 = cache.putFile("3", new ByteArrayInputStream(buf));
+        assertEquals(3, cache.getNumberOfItems());
+        assertEquals(90, cache.getSize());
+
+        // access 1 so that 2 is the least recently used
+        Thread.sleep(10);
+        assertNotNull(cache.getFile("1"));
+        Thread.sleep(10);
+        File f4 = cache.putFile("4", new ByteArrayInputStream(buf));
+        assertEquals(3, cache.getNumberOfItems());
+        assertEquals(90, cache.getSize());
+        assertTrue(f1.exists());
+        assertFalse(f2.exists());
+        assertNull(cache.getFile("2"));
+        assertTrue(f3.exists());
+        assertTrue(f4.exists());
+
+        // store something bigger than the whole cache
+        Thread.sleep(10);
+        File f5 = cache.putFile("5", new ByteArrayInputStream(new byte[150]));
+        assertEquals(1, cache.getNumberOfItems());
+        assertEquals(150, cache.getSize());
+        assertFalse(f1.exists());
+        assertTrue(f5.exists());
+
+        // clear
+        cache.clear();
+        assertEquals(0, cache.getNumberOfItems());
+        assertEquals(0, cache.getSize());
+        assertFalse(f5.exists());
+    }
+
+    @Test
+    public void testMinAge() throws Exception {
+        ShardedLRUFileCache cache = new ShardedLRUFileCache(dir, 10000, 2, 3600);
+        for (int i = 0; i < 5; i++) {
+            cache.putFile(String.valueOf(i), new ByteArrayInputStream(new byte[10]));
+        }
+        // too recent to be evicted
+        assertEquals(5, cache.getNumberOfItems());
+    }
+
+    @Test
+    public void testPersistentIndex() throws Exception {
+        ShardedLRUFileCache cache = new ShardedLRUFileCache(dir, 100, 9999, 0);
+        cache.putFile("a", new ByteArrayInputStream(new byte[30]));
+        Thread.sleep(10);
+        cache.putFile("b", new ByteArrayInputStream(new byte[30]));
+        Thread.sleep(10);
+        cache.getFile("a");
+        cache.close();
+
+        // reopen from saved index
+        cache = new ShardedLRUFileCache(dir, 100, 9999, 0);
+        assertEquals(2, cache.getNumberOfItems());
+        assertEquals(60, cache.getSize());
+        assertFalse(new File(dir, ShardedLRUFileCache.INDEX_FILE).exists());
+        // LRU order was kept: b is evicted first
+        Thread.sleep(10);
+        cache.putFile("c", new ByteArrayInputStream(new byte[30]));
+        Thread.sleep(10);
+        cache.putFile("d", new ByteArrayInputStream(new byte[30]));
+        assertNull(cache.getFile("b"));
+        assertNotNull(cache.getFile("a"));
+
+        // reopen without saved index (crash): directory is scanned
+        cache = new ShardedLRUFileCache(dir, 100, 9999, 0);
+        assertEquals(3, cache.getNumberOfItems());
+        assertEquals(90, cache.getSize());
+        assertNotNull(cache.getFile("c"));
+    }
+
+}
@@ -20,6 +20,10 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * The nuxeo cache interface that define generic methods to use cache technologies
@@ -79,4 +83,64 @@ public interface Cache {
      */
     public boolean hasEntry(String key);
 
+    /**
+     * Gets the values of several keys at once. Implementations may do it in a single round trip.
+     *
+     * @param keys the string keys, null keys are ignored
+     * @return a map of the keys present in the cache to their values, the missing keys are not in the map
+     * @since 8.2
+     */
+    public default Map<String, Serializable> getAll(Collection<String> keys) {
+        Map<String, Serializable> values = new HashMap<>();
+        for (String key : keys) {
+            Serializable value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stores several values at once. Implementations may do it in a single round trip.
+     *
+     * @param values a map of the string keys to the values to store
+     * @since 8.2
+     */
+    public default void putAll(Map<String, Serializable> values) {
+        for (Entry<String, Serializable> en : values.entrySet()) {
+            put(en.getKey(), en.getValue());
+        }
+    }
+
+    /**
+     * Invalidates several keys at once. Implementations may do it in a single round trip.
+     *
+     * @param keys the keys to remove from the cache
+     * @since 8.2
+     */
+    public default void invalidateAll(Collection<String> keys) {
+        for (String key : keys) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * Gets the statistics of the cache.
+     *
+     * @return the statistics, or {@code null} if not supported by the implementation
+     * @since 8.2
+     */
+    public default CacheStatistics getStatistics() {
+        return null;
+    }
+
+    /**
+     * Stops the cache, releasing the resources it holds outside of its entries. The cache must not be used afterwards.
+     *
+     * @since 8.2
+     */
+    public default void stop() {
+    }
+
 }
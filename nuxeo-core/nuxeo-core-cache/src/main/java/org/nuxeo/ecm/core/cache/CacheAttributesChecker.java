@@ -20,6 +20,10 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Class to implement mandatory check attributes before calling implementation of cache This enable to have the same
@@ -80,4 +84,44 @@ public class CacheAttributesChecker extends AbstractCache {
         return cache.hasEntry(key);
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        if (keys.contains(null)) {
+            keys = withoutNull(keys);
+        }
+        return cache.getAll(keys);
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        if (values.containsKey(null)) {
+            throw new IllegalArgumentException(String.format("Can't put a null key for the cache '%s'!", name));
+        }
+        cache.putAll(values);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        if (keys.contains(null)) {
+            throw new IllegalArgumentException(String.format("Can't invalidate a null key for the cache '%s'!", name));
+        }
+        cache.invalidateAll(keys);
+    }
+
+    @Override
+    public CacheStatistics getStatistics() {
+        return cache.getStatistics();
+    }
+
+    @Override
+    public void stop() {
+        cache.stop();
+    }
+
+    protected static Collection<String> withoutNull(Collection<String> keys) {
+        List<String> list = new ArrayList<>(keys);
+        list.removeIf(key -> key == null);
+        return list;
+    }
+
 }
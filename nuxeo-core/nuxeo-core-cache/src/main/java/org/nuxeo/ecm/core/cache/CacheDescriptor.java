@@ -103,6 +103,7 @@ public class CacheDescriptor {
         if (cacheChecker == null) {
             return;
         }
+        cacheChecker.stop();
         cacheChecker.cache = null;
         cacheChecker = null;
     }
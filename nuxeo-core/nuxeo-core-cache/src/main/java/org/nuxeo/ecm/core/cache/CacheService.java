@@ -20,6 +20,8 @@
  */
 package org.nuxeo.ecm.core.cache;
 
+import java.util.List;
+
 /**
  * Nuxeo cache interface
  *
@@ -37,4 +39,13 @@ public interface CacheService {
      * @since 8.2
      */
     public void registerCache(String name, int size, int timeout);
+
+    /**
+     * Gets the statistics of the registered caches supporting them: number of entries and estimated bytes held in
+     * memory, hit ratio and evictions.
+     *
+     * @since 8.2
+     */
+    public List<CacheStatistics> getStatistics();
+
 }
@@ -138,6 +138,21 @@ public class CacheServiceImpl extends DefaultComponent implements CacheService {
         }
     }
 
+    @Override
+    public List<CacheStatistics> getStatistics() {
+        List<CacheStatistics> statistics = new ArrayList<>();
+        for (CacheAttributesChecker cache : cacheRegistry.getCaches()) {
+            if (cache == null || cache.getCache() == null) {
+                continue;
+            }
+            CacheStatistics stats = cache.getStatistics();
+            if (stats != null) {
+                statistics.add(stats);
+            }
+        }
+        return statistics;
+    }
+
     @Override
     public void unregisterExtension(Extension extension) throws RuntimeException {
         Object[] contribs = extension.getContributions();
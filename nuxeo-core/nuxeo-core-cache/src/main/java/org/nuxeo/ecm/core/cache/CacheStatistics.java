@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.cache;
+
+/**
+ * Statistics of a cache, as reported by {@link CacheService#getStatistics}.
+ * <p>
+ * Values not known by the cache implementation are {@code -1}.
+ *
+ * @since 8.2
+ */
+public class CacheStatistics {
+
+    protected final String name;
+
+    protected final long size;
+
+    protected final long estimatedBytes;
+
+    protected final long hitCount;
+
+    protected final long missCount;
+
+    protected final long evictionCount;
+
+    public CacheStatistics(String name, long size, long estimatedBytes, long hitCount, long missCount,
+            long evictionCount) {
+        this.name = name;
+        this.size = size;
+        this.estimatedBytes = estimatedBytes;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of entries held in memory.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the estimated number of bytes held in memory.
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the ratio of hits to lookups, {@code 1} if there was no lookup.
+     */
+    public double getHitRatio() {
+        long count = hitCount + missCount;
+        return count == 0 ? 1.0 : (double) hitCount / count;
+    }
+
+    /**
+     * Gets the number of entries evicted because of the size or weight limit.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + name + ", size=" + size + ", estimatedBytes=" + estimatedBytes
+                + ", hitRatio=" + getHitRatio() + ", evictions=" + evictionCount + ")";
+    }
+
+}
@@ -20,32 +20,133 @@
 package org.nuxeo.ecm.core.cache;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoException;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 
 /**
  * Default in memory implementation for cache management based on guava
+ * <p>
+ * The cache is bounded either by number of entries with the {@value #MAX_SIZE_OPTION} option, or since 8.2 by
+ * estimated memory with the {@value #MAX_WEIGHT_BYTES_OPTION} option. The weight of an entry is computed by a
+ * {@link SerializedSizeWeigher} unless another {@link Weigher} class is given with the {@value #WEIGHER_OPTION}
+ * option. The weight of the entries is also added up for the {@linkplain #getStatistics statistics}, so it is computed
+ * on each put and each removal even if the cache is not bounded by memory.
  *
  * @since 6.0
  */
 public class InMemoryCacheImpl extends AbstractCache {
 
+    /** @since 8.2 */
+    public static final String MAX_SIZE_OPTION = "maxSize";
+
+    /**
+     * Option for the maximum estimated number of bytes held by the cache. Takes precedence over
+     * {@value #MAX_SIZE_OPTION}.
+     *
+     * @since 8.2
+     */
+    public static final String MAX_WEIGHT_BYTES_OPTION = "maxWeightBytes";
+
+    /**
+     * Option for the class of the {@link Weigher Weigher&lt;String, Serializable&gt;} estimating the bytes held by
+     * an entry.
+     *
+     * @since 8.2
+     */
+    public static final String WEIGHER_OPTION = "weigher";
+
+    /** @since 8.2 */
+    protected final Weigher<String, Serializable> weigher;
+
+    /**
+     * Running total of the weight of the entries, increased on put and decreased on removal.
+     *
+     * @since 8.2
+     */
+    protected final AtomicLong weight = new AtomicLong();
+
+    /**
+     * Whether the Guava cache calls the weigher itself on put, in which case the weight is added there.
+     *
+     * @since 8.2
+     */
+    protected final boolean weighedByCache;
+
     public InMemoryCacheImpl(CacheDescriptor desc) {
         super(desc);
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
         builder = builder.expireAfterWrite(desc.ttl, TimeUnit.MINUTES);
+        builder = builder.recordStats();
         if (desc.options.containsKey("concurrencyLevel")) {
             builder = builder.concurrencyLevel(Integer.valueOf(desc.options.get("concurrencyLevel")).intValue());
         }
-        if (desc.options.containsKey("maxSize")) {
-            builder = builder.maximumSize(Integer.valueOf(desc.options.get("maxSize")).intValue());
+        weigher = newWeigher(desc.options.get(WEIGHER_OPTION));
+        CacheBuilder<String, Serializable> typedBuilder = builder.removalListener(this::onRemoval);
+        if (desc.options.containsKey(MAX_WEIGHT_BYTES_OPTION)) {
+            if (desc.options.containsKey(MAX_SIZE_OPTION)) {
+                log.warn(String.format("Option %s ignored in favor of %s for the cache '%s'", MAX_SIZE_OPTION,
+                        MAX_WEIGHT_BYTES_OPTION, name));
+            }
+            long maxWeight = Long.parseLong(desc.options.get(MAX_WEIGHT_BYTES_OPTION));
+            weighedByCache = true;
+            cache = typedBuilder.maximumWeight(maxWeight).weigher(this::weighAndAdd).build();
+            return;
+        }
+        weighedByCache = false;
+        if (desc.options.containsKey(MAX_SIZE_OPTION)) {
+            typedBuilder = typedBuilder.maximumSize(Integer.valueOf(desc.options.get(MAX_SIZE_OPTION)).intValue());
+        }
+        cache = typedBuilder.build();
+    }
+
+    /**
+     * Weighs an entry being put, and adds its weight to the running total.
+     *
+     * @since 8.2
+     */
+    protected int weighAndAdd(String key, Serializable value) {
+        int w = weigher.weigh(key, value);
+        weight.addAndGet(w);
+        return w;
+    }
+
+    /**
+     * Subtracts the weight of a removed, replaced, expired or evicted entry from the running total.
+     *
+     * @since 8.2
+     */
+    protected void onRemoval(RemovalNotification<String, Serializable> notification) {
+        String key = notification.getKey();
+        Serializable value = notification.getValue();
+        if (key != null && value != null) {
+            weight.addAndGet(-weigher.weigh(key, value));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected Weigher<String, Serializable> newWeigher(String className) {
+        if (className == null) {
+            return new SerializedSizeWeigher();
+        }
+        try {
+            return (Weigher<String, Serializable>) Class.forName(className).newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new NuxeoException("Cannot instantiate weigher " + className + " for the cache " + name, e);
         }
-        cache = builder.build();
     }
 
     protected static final Log log = LogFactory.getLog(InMemoryCacheImpl.class);
@@ -88,6 +189,9 @@ public class InMemoryCacheImpl extends AbstractCache {
     @Override
     public void put(String key, Serializable value) {
         if (key != null && value != null) {
+            if (!weighedByCache) {
+                weighAndAdd(key, value);
+            }
             cache.put(key, value);
         } else {
             log.warn(String.format("Can't put a null key nor a null value in the cache '%s'!", name));
@@ -99,4 +203,42 @@ public class InMemoryCacheImpl extends AbstractCache {
         return cache.asMap().containsKey(key);
     }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        return cache.getAllPresent(keys);
+    }
+
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        Map<String, Serializable> map = new HashMap<>(values.size());
+        for (Entry<String, Serializable> en : values.entrySet()) {
+            if (en.getKey() != null && en.getValue() != null) {
+                if (!weighedByCache) {
+                    weighAndAdd(en.getKey(), en.getValue());
+                }
+                map.put(en.getKey(), en.getValue());
+            } else {
+                log.warn(String.format("Can't put a null key nor a null value in the cache '%s'!", name));
+            }
+        }
+        cache.putAll(map);
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        cache.invalidateAll(keys);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The estimated bytes are the running total maintained on put and removal, the entries are not weighed again.
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        CacheStats stats = cache.stats();
+        return new CacheStatistics(name, cache.size(), weight.get(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount());
+    }
+
 }
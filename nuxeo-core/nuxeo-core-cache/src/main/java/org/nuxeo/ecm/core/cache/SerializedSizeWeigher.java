@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.cache;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.google.common.cache.Weigher;
+
+/**
+ * Default weigher of the {@link InMemoryCacheImpl} entries: estimates the memory held by an entry as the size of its
+ * serialized value plus the size of its key.
+ * <p>
+ * The value is serialized to a counting stream, so no buffer is allocated, but the serialization time is paid on each
+ * put.
+ *
+ * @since 8.2
+ */
+public class SerializedSizeWeigher implements Weigher<String, Serializable> {
+
+    private static final Log log = LogFactory.getLog(SerializedSizeWeigher.class);
+
+    /** Weight of values that cannot be serialized. */
+    protected static final int DEFAULT_WEIGHT = 1024;
+
+    protected static class CountingOutputStream extends OutputStream {
+
+        protected long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    @Override
+    public int weigh(String key, Serializable value) {
+        long weight = 2L * key.length();
+        CountingOutputStream out = new CountingOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(value);
+            oos.flush();
+            weight += out.count;
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Cannot serialize value of key: " + key + ", using default weight", e);
+            }
+            weight += DEFAULT_WEIGHT;
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+}
@@ -23,6 +23,10 @@ package org.nuxeo.ecm.core.cache;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -98,4 +102,23 @@ public class CacheComplianceFixture {
         Assert.assertNull(defaultCache.get("key2"));
     }
 
+    @Test
+    public void bulkPutGetInvalidate() throws IOException {
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("key2", "val2");
+        values.put("key3", "val3");
+        defaultCache.putAll(values);
+        Map<String, Serializable> cached = defaultCache.getAll(
+                Arrays.asList(CacheFeature.KEY, "key2", "key3", "key-not-exist"));
+        Assert.assertEquals(3, cached.size());
+        Assert.assertEquals(CacheFeature.VAL, cached.get(CacheFeature.KEY));
+        Assert.assertEquals("val2", cached.get("key2"));
+        Assert.assertEquals("val3", cached.get("key3"));
+        Assert.assertFalse(cached.containsKey("key-not-exist"));
+        defaultCache.invalidateAll(Arrays.asList(CacheFeature.KEY, "key2"));
+        Assert.assertNull(defaultCache.get(CacheFeature.KEY));
+        Assert.assertNull(defaultCache.get("key2"));
+        Assert.assertEquals("val3", defaultCache.get("key3"));
+    }
+
 }
@@ -0,0 +1,156 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TestInMemoryCacheWeight {
+
+    /** Weigher counting its calls. */
+    public static class CountingWeigher extends SerializedSizeWeigher {
+
+        protected static final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public int weigh(String key, Serializable value) {
+            calls.incrementAndGet();
+            return super.weigh(key, value);
+        }
+    }
+
+    protected static InMemoryCacheImpl newCache(long maxWeightBytes) {
+        CacheDescriptor desc = new CacheDescriptor();
+        desc.name = "test";
+        desc.options.put("concurrencyLevel", "1");
+        desc.options.put(InMemoryCacheImpl.MAX_WEIGHT_BYTES_OPTION, String.valueOf(maxWeightBytes));
+        return new InMemoryCacheImpl(desc);
+    }
+
+    protected static String value(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append('x');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testWeigher() {
+        SerializedSizeWeigher weigher = new SerializedSizeWeigher();
+        int small = weigher.weigh("key", value(10));
+        int large = weigher.weigh("key", value(10000));
+        assertTrue(String.valueOf(small), small > 10 && small < 100);
+        assertTrue(String.valueOf(large), large > 10000 && large < 10100);
+    }
+
+    @Test
+    public void testEvictionByWeight() {
+        InMemoryCacheImpl cache = newCache(50000);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, value(10000));
+        }
+        CacheStatistics stats = cache.getStatistics();
+        assertTrue(stats.toString(), stats.getEstimatedBytes() <= 50000);
+        assertTrue(stats.toString(), stats.getEvictionCount() >= 5);
+        assertEquals(10 - stats.getEvictionCount(), stats.getSize());
+        assertNull(cache.get("key0"));
+    }
+
+    @Test
+    public void testStatistics() {
+        InMemoryCacheImpl cache = newCache(1000000);
+        cache.put("key", "val");
+        assertEquals("val", cache.get("key"));
+        assertEquals("val", cache.get("key"));
+        assertNull(cache.get("missing"));
+        CacheStatistics stats = cache.getStatistics();
+        assertEquals("test", stats.getName());
+        assertEquals(1, stats.getSize());
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(2.0 / 3, stats.getHitRatio(), 0.001);
+        assertEquals(0, stats.getEvictionCount());
+        assertEquals(new SerializedSizeWeigher().weigh("key", "val"), stats.getEstimatedBytes());
+    }
+
+    protected static int weigh(String key, Serializable value) {
+        return new SerializedSizeWeigher().weigh(key, value);
+    }
+
+    protected void checkRunningWeight(InMemoryCacheImpl cache) {
+        cache.put("key1", value(100));
+        cache.put("key2", value(200));
+        assertEquals(weigh("key1", value(100)) + weigh("key2", value(200)),
+                cache.getStatistics().getEstimatedBytes());
+        // replaced
+        cache.put("key1", value(300));
+        assertEquals(weigh("key1", value(300)) + weigh("key2", value(200)),
+                cache.getStatistics().getEstimatedBytes());
+        // removed
+        cache.invalidate("key2");
+        assertEquals(weigh("key1", value(300)), cache.getStatistics().getEstimatedBytes());
+        Map<String, Serializable> values = new HashMap<>();
+        values.put("key3", value(10));
+        values.put("key4", value(20));
+        cache.putAll(values);
+        assertEquals(weigh("key1", value(300)) + weigh("key3", value(10)) + weigh("key4", value(20)),
+                cache.getStatistics().getEstimatedBytes());
+        cache.invalidateAll();
+        assertEquals(0, cache.getStatistics().getEstimatedBytes());
+    }
+
+    @Test
+    public void testRunningWeight() {
+        checkRunningWeight(newCache(1000000));
+    }
+
+    @Test
+    public void testRunningWeightNotBoundedByWeight() {
+        CacheDescriptor desc = new CacheDescriptor();
+        desc.name = "test";
+        desc.options.put(InMemoryCacheImpl.MAX_SIZE_OPTION, "100");
+        checkRunningWeight(new InMemoryCacheImpl(desc));
+    }
+
+    @Test
+    public void testStatisticsDoNotWeigh() {
+        CacheDescriptor desc = new CacheDescriptor();
+        desc.name = "test";
+        desc.options.put(InMemoryCacheImpl.MAX_WEIGHT_BYTES_OPTION, "1000000");
+        desc.options.put(InMemoryCacheImpl.WEIGHER_OPTION, CountingWeigher.class.getName());
+        InMemoryCacheImpl cache = new InMemoryCacheImpl(desc);
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, value(100));
+        }
+        int calls = CountingWeigher.calls.get();
+        cache.getStatistics();
+        cache.getStatistics();
+        assertEquals(calls, CountingWeigher.calls.get());
+    }
+
+}
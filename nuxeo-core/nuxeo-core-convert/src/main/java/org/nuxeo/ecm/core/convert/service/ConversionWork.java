@@ -19,10 +19,23 @@
 
 package org.nuxeo.ecm.core.convert.service;
 
+import static org.nuxeo.common.codec.CompactCodec.readSerializable;
+import static org.nuxeo.common.codec.CompactCodec.readString;
+import static org.nuxeo.common.codec.CompactCodec.readVarInt;
+import static org.nuxeo.common.codec.CompactCodec.writeSerializable;
+import static org.nuxeo.common.codec.CompactCodec.writeString;
+import static org.nuxeo.common.codec.CompactCodec.writeVarInt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.common.codec.CompactSerializable;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
 import org.nuxeo.ecm.core.transientstore.work.TransientStoreWork;
@@ -33,7 +46,7 @@ import org.nuxeo.runtime.api.Framework;
  *
  * @since 7.4
  */
-public class ConversionWork extends TransientStoreWork {
+public class ConversionWork extends TransientStoreWork implements CompactSerializable {
 
     private static final long serialVersionUID = 14593653977944460L;
 
@@ -61,6 +74,47 @@ public class ConversionWork extends TransientStoreWork {
         storeInputBlobHolder(blobHolder);
     }
 
+    /**
+     * Constructor used by the {@link CompactCodec}.
+     *
+     * @since 8.2
+     */
+    protected ConversionWork() {
+    }
+
+    @Override
+    public int getCompactVersion() {
+        return 1;
+    }
+
+    @Override
+    public void writeCompact(DataOutput out) throws IOException {
+        writeCompactState(out);
+        writeString(out, entryKey);
+        writeString(out, converterName);
+        writeString(out, destinationMimeType);
+        writeVarInt(out, parameters.size());
+        for (Entry<String, Serializable> es : parameters.entrySet()) {
+            writeString(out, es.getKey());
+            writeSerializable(out, es.getValue());
+        }
+        writeString(out, inputEntryKey);
+    }
+
+    @Override
+    public void readCompact(DataInput in, int version) throws IOException {
+        readCompactState(in);
+        entryKey = readString(in);
+        converterName = readString(in);
+        destinationMimeType = readString(in);
+        int size = readVarInt(in);
+        parameters = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            parameters.put(readString(in), readSerializable(in));
+        }
+        inputEntryKey = readString(in);
+    }
+
     protected void storeInputBlobHolder(BlobHolder blobHolder) {
         inputEntryKey = entryKey + "_input";
         putBlobHolder(inputEntryKey, blobHolder);
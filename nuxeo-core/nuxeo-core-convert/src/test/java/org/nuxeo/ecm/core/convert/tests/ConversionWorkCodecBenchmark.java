@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.convert.tests;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.convert.service.ConversionWork;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.transientstore.test.TransientStoreFeature;
+
+/**
+ * Compares the payload size and encode/decode throughput of the compact codec and Java serialization for a
+ * {@link ConversionWork}. The work stores its input in the transient store, so this needs the test runtime; its name is
+ * not matched by the surefire includes, run it manually:
+ *
+ * <pre>
+ * mvn test -Dtest=ConversionWorkCodecBenchmark
+ * </pre>
+ *
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ ConvertFeature.class, TransientStoreFeature.class })
+public class ConversionWorkCodecBenchmark {
+
+    protected static final int N = 20000;
+
+    protected static final int ROUNDS = 3;
+
+    @Test
+    public void benchmark() throws Exception {
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put("width", Long.valueOf(100));
+        parameters.put("format", "png");
+        ConversionWork work = new ConversionWork("identity", null, new SimpleBlobHolder(Blobs.createBlob("foo")),
+                parameters);
+        for (int round = 0; round < ROUNDS; round++) {
+            for (boolean compact : new boolean[] { true, false }) {
+                byte[] bytes = null;
+                long t0 = System.nanoTime();
+                for (int i = 0; i < N; i++) {
+                    bytes = CompactCodec.encode(work, compact);
+                }
+                long t1 = System.nanoTime();
+                for (int i = 0; i < N; i++) {
+                    CompactCodec.decode(bytes);
+                }
+                long t2 = System.nanoTime();
+                System.out.println(String.format("ConversionWork %s: %d bytes, encode %d/s, decode %d/s",
+                        compact ? "compact" : "java", bytes.length, N * 1000000000L / (t1 - t0),
+                        N * 1000000000L / (t2 - t1)));
+            }
+        }
+    }
+
+}
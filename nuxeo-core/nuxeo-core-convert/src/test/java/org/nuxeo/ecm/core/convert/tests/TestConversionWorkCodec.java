@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.convert.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.convert.service.ConversionWork;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.transientstore.test.TransientStoreFeature;
+
+/**
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ ConvertFeature.class, TransientStoreFeature.class })
+public class TestConversionWorkCodec {
+
+    protected ConversionWork newWork() {
+        Map<String, Serializable> parameters = new HashMap<>();
+        parameters.put("width", Long.valueOf(100));
+        parameters.put("format", "png");
+        return new ConversionWork("identity", null, new SimpleBlobHolder(Blobs.createBlob("foo")), parameters);
+    }
+
+    @Test
+    public void testCodec() throws Exception {
+        ConversionWork work = newWork();
+        byte[] bytes = CompactCodec.encode(work);
+        assertTrue(CompactCodec.isCompact(bytes));
+        ConversionWork decoded = (ConversionWork) CompactCodec.decode(bytes);
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(work.getTitle(), decoded.getTitle());
+        assertEquals(work.getWorkInstanceResult(), decoded.getWorkInstanceResult());
+        assertEquals(work.getSchedulingTime(), decoded.getSchedulingTime());
+        assertTrue(bytes.length < CompactCodec.encode(work, false).length);
+    }
+
+}
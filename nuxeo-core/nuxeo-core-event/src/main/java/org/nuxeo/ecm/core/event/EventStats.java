@@ -32,4 +32,21 @@ public interface EventStats {
 
     void logSyncExec(EventListenerDescriptor desc, long delta);
 
+    /**
+     * Logs the number of inline listeners an event was dispatched to.
+     *
+     * @since 8.2
+     */
+    default void logInlineFanOut(String eventName, int listeners) {
+    }
+
+    /**
+     * Logs the number of post-commit listeners (synchronous and asynchronous) an event of a committed bundle was
+     * dispatched to.
+     *
+     * @since 8.2
+     */
+    default void logPostCommitFanOut(String eventName, int listeners) {
+    }
+
 }
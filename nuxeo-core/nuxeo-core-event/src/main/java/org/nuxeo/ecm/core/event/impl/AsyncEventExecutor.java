@@ -46,7 +46,11 @@ public class AsyncEventExecutor {
 
     private static final Log log = LogFactory.getLog(AsyncEventExecutor.class);
 
+    /** @since 8.2 */
+    protected final ListenerWorkCoalescer coalescer;
+
     public AsyncEventExecutor() {
+        coalescer = new ListenerWorkCoalescer(this);
     }
 
     public WorkManager getWorkManager() {
@@ -61,6 +65,7 @@ public class AsyncEventExecutor {
     }
 
     public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        coalescer.shutdown();
         WorkManager workManager = getWorkManager();
         if (workManager == null) {
             return true;
@@ -69,6 +74,7 @@ public class AsyncEventExecutor {
     }
 
     public boolean waitForCompletion(long timeoutMillis) throws InterruptedException {
+        coalescer.flushAll();
         WorkManager workManager = getWorkManager();
         return workManager.awaitCompletion(timeoutMillis, TimeUnit.MILLISECONDS);
     }
@@ -82,13 +88,17 @@ public class AsyncEventExecutor {
             // This may be called in a transaction if event.isCommitEvent() is true or at transaction commit
             // in other cases. If the transaction has been marked rollback-only, then scheduling must discard
             // so we schedule "after commit"
+            if (listener.isCoalesce()) {
+                coalescer.addAfterCommit(listener, filtered);
+                continue;
+            }
             getWorkManager().schedule(new ListenerWork(listener, filtered), true);
         }
     }
 
     public int getUnfinishedCount() {
         WorkManager workManager = getWorkManager();
-        int n = 0;
+        int n = coalescer.getPendingCount();
         for (String queueId : workManager.getWorkQueueIds()) {
             n += workManager.getQueueSize(queueId, State.SCHEDULED) + workManager.getQueueSize(queueId, State.RUNNING);
         }
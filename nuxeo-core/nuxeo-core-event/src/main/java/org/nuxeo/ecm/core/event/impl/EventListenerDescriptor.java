@@ -93,6 +93,37 @@ public class EventListenerDescriptor {
     @XNode("@singlethread")
     protected boolean singleThreaded = false;
 
+    /**
+     * Applies only for async post commit listeners: bundles committed in a short time window are merged into a single
+     * work for this listener.
+     *
+     * @since 8.2
+     */
+    @XNode("@coalesce")
+    protected Boolean coalesce;
+
+    /**
+     * The maximum time (in milliseconds) a bundle waits for other bundles to be coalesced with.
+     *
+     * @since 8.2
+     */
+    @XNode("@coalesceWindow")
+    protected Integer coalesceWindow;
+
+    /**
+     * The maximum number of events in a coalesced bundle.
+     *
+     * @since 8.2
+     */
+    @XNode("@coalesceSize")
+    protected Integer coalesceSize;
+
+    /** @since 8.2 */
+    public static final int DEFAULT_COALESCE_WINDOW = 1000; // 1s
+
+    /** @since 8.2 */
+    public static final int DEFAULT_COALESCE_SIZE = 1000;
+
     protected Set<String> events;
 
     protected RuntimeContext rc;
@@ -234,6 +265,18 @@ public class EventListenerDescriptor {
         if (other.retryCount != null) {
             this.retryCount = other.retryCount;
         }
+
+        if (other.coalesce != null) {
+            this.coalesce = other.coalesce;
+        }
+
+        if (other.coalesceWindow != null) {
+            this.coalesceWindow = other.coalesceWindow;
+        }
+
+        if (other.coalesceSize != null) {
+            this.coalesceSize = other.coalesceSize;
+        }
     }
 
     public final boolean acceptEvent(String eventName) {
@@ -252,6 +295,21 @@ public class EventListenerDescriptor {
         return singleThreaded;
     }
 
+    /** @since 8.2 */
+    public boolean isCoalesce() {
+        return coalesce == null ? false : coalesce.booleanValue();
+    }
+
+    /** @since 8.2 */
+    public int getCoalesceWindow() {
+        return coalesceWindow == null ? DEFAULT_COALESCE_WINDOW : coalesceWindow.intValue();
+    }
+
+    /** @since 8.2 */
+    public int getCoalesceSize() {
+        return coalesceSize == null ? DEFAULT_COALESCE_SIZE : coalesceSize.intValue();
+    }
+
     /**
      * Filters the event bundle to only keep events of interest to this listener.
      *
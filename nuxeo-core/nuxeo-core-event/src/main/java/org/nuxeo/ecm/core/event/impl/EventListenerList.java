@@ -22,10 +22,13 @@
 package org.nuxeo.ecm.core.event.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.nuxeo.ecm.core.event.EventListener;
 import org.nuxeo.ecm.core.event.PostCommitEventListener;
@@ -49,12 +52,98 @@ public class EventListenerList {
 
     protected volatile List<EventListenerDescriptor> enabledAsyncPostCommitListenersDescriptors = null;
 
+    protected volatile DispatchTable inlineDispatchTable;
+
+    protected volatile DispatchTable syncPostCommitDispatchTable;
+
+    protected volatile DispatchTable asyncPostCommitDispatchTable;
+
     protected final Map<String, EventListenerDescriptor> descriptors = new HashMap<String, EventListenerDescriptor>();
 
+    /**
+     * Precomputed lists of the listeners accepting each event name, in priority order.
+     * <p>
+     * Listeners accepting all events are in the wildcard list, which is also the result for event names no listener
+     * explicitly declares.
+     *
+     * @since 8.2
+     */
+    protected static class DispatchTable {
+
+        protected final List<EventListenerDescriptor> all;
+
+        protected final List<EventListenerDescriptor> wildcard;
+
+        protected final Map<String, List<EventListenerDescriptor>> byEventName;
+
+        protected DispatchTable(List<EventListenerDescriptor> enabled) {
+            all = Collections.unmodifiableList(new ArrayList<>(enabled));
+            List<EventListenerDescriptor> wc = new ArrayList<>();
+            Map<String, List<EventListenerDescriptor>> map = new HashMap<>();
+            for (EventListenerDescriptor desc : enabled) {
+                Set<String> events = desc.getEvents();
+                if (events == null) {
+                    wc.add(desc);
+                    // also add to the event names already known
+                    for (List<EventListenerDescriptor> list : map.values()) {
+                        list.add(desc);
+                    }
+                } else {
+                    for (String event : events) {
+                        List<EventListenerDescriptor> list = map.get(event);
+                        if (list == null) {
+                            // start with the wildcard listeners preceding this one
+                            list = new ArrayList<>(wc);
+                            map.put(event, list);
+                        }
+                        list.add(desc);
+                    }
+                }
+            }
+            wildcard = Collections.unmodifiableList(wc);
+            byEventName = new HashMap<>();
+            for (Map.Entry<String, List<EventListenerDescriptor>> es : map.entrySet()) {
+                byEventName.put(es.getKey(), Collections.unmodifiableList(es.getValue()));
+            }
+        }
+
+        protected List<EventListenerDescriptor> get(String eventName) {
+            List<EventListenerDescriptor> list = byEventName.get(eventName);
+            return list == null ? wildcard : list;
+        }
+
+        /**
+         * Gets the listeners accepting at least one of the event names, in priority order.
+         */
+        protected List<EventListenerDescriptor> get(Collection<String> eventNames) {
+            if (eventNames.size() == 1) {
+                return new ArrayList<>(get(eventNames.iterator().next()));
+            }
+            Map<EventListenerDescriptor, Boolean> accepting = new IdentityHashMap<>();
+            for (String eventName : eventNames) {
+                for (EventListenerDescriptor desc : get(eventName)) {
+                    accepting.put(desc, Boolean.TRUE);
+                }
+            }
+            List<EventListenerDescriptor> list = new ArrayList<>(accepting.size());
+            if (!accepting.isEmpty()) {
+                for (EventListenerDescriptor desc : all) {
+                    if (accepting.containsKey(desc)) {
+                        list.add(desc);
+                    }
+                }
+            }
+            return list;
+        }
+    }
+
     protected synchronized void flushCache() {
         enabledAsyncPostCommitListenersDescriptors = null;
         enabledInlineListenersDescriptors = null;
         enabledSyncPostCommitListenersDescriptors = null;
+        inlineDispatchTable = null;
+        syncPostCommitDispatchTable = null;
+        asyncPostCommitDispatchTable = null;
     }
 
     public void add(EventListenerDescriptor descriptor) {
@@ -167,6 +256,101 @@ public class EventListenerList {
                 enabledInlineListenersDescriptors.add(desc);
             }
         }
+        asyncPostCommitDispatchTable = new DispatchTable(enabledAsyncPostCommitListenersDescriptors);
+        syncPostCommitDispatchTable = new DispatchTable(enabledSyncPostCommitListenersDescriptors);
+        inlineDispatchTable = new DispatchTable(enabledInlineListenersDescriptors);
+    }
+
+    protected DispatchTable getInlineDispatchTable() {
+        DispatchTable table = inlineDispatchTable;
+        if (table == null) {
+            synchronized (this) {
+                if (inlineDispatchTable == null) {
+                    recomputeEnabledListeners();
+                }
+                table = inlineDispatchTable;
+            }
+        }
+        return table;
+    }
+
+    protected DispatchTable getSyncPostCommitDispatchTable() {
+        DispatchTable table = syncPostCommitDispatchTable;
+        if (table == null) {
+            synchronized (this) {
+                if (syncPostCommitDispatchTable == null) {
+                    recomputeEnabledListeners();
+                }
+                table = syncPostCommitDispatchTable;
+            }
+        }
+        return table;
+    }
+
+    protected DispatchTable getAsyncPostCommitDispatchTable() {
+        DispatchTable table = asyncPostCommitDispatchTable;
+        if (table == null) {
+            synchronized (this) {
+                if (asyncPostCommitDispatchTable == null) {
+                    recomputeEnabledListeners();
+                }
+                table = asyncPostCommitDispatchTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Gets the enabled inline listeners accepting the given event, in priority order.
+     * <p>
+     * The returned list is precomputed and must not be modified.
+     *
+     * @since 8.2
+     */
+    public List<EventListenerDescriptor> getEnabledInlineListenersDescriptors(String eventName) {
+        return getInlineDispatchTable().get(eventName);
+    }
+
+    /**
+     * Gets the enabled synchronous post-commit listeners accepting the given event, in priority order.
+     * <p>
+     * The returned list is precomputed and must not be modified.
+     *
+     * @since 8.2
+     */
+    public List<EventListenerDescriptor> getEnabledSyncPostCommitListenersDescriptors(String eventName) {
+        return getSyncPostCommitDispatchTable().get(eventName);
+    }
+
+    /**
+     * Gets the enabled asynchronous post-commit listeners accepting the given event, in priority order.
+     * <p>
+     * The returned list is precomputed and must not be modified.
+     *
+     * @since 8.2
+     */
+    public List<EventListenerDescriptor> getEnabledAsyncPostCommitListenersDescriptors(String eventName) {
+        return getAsyncPostCommitDispatchTable().get(eventName);
+    }
+
+    /**
+     * Gets the enabled synchronous post-commit listeners accepting at least one of the given events, in priority
+     * order.
+     *
+     * @since 8.2
+     */
+    public List<EventListenerDescriptor> getEnabledSyncPostCommitListenersDescriptors(Collection<String> eventNames) {
+        return getSyncPostCommitDispatchTable().get(eventNames);
+    }
+
+    /**
+     * Gets the enabled asynchronous post-commit listeners accepting at least one of the given events, in priority
+     * order.
+     *
+     * @since 8.2
+     */
+    public List<EventListenerDescriptor> getEnabledAsyncPostCommitListenersDescriptors(Collection<String> eventNames) {
+        return getAsyncPostCommitDispatchTable().get(eventNames);
     }
 
     public synchronized List<EventListenerDescriptor> getEnabledInlineListenersDescriptors() {
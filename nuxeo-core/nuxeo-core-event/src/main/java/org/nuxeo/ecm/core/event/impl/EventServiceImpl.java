@@ -24,6 +24,7 @@ import java.rmi.dgc.VMID;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -190,10 +191,11 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
 
         String ename = event.getName();
         EventStats stats = Framework.getService(EventStats.class);
-        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledInlineListenersDescriptors()) {
-            if (!desc.acceptEvent(ename)) {
-                continue;
-            }
+        List<EventListenerDescriptor> inlineListeners = listenerDescriptors.getEnabledInlineListenersDescriptors(ename);
+        if (stats != null) {
+            stats.logInlineFanOut(ename, inlineListeners.size());
+        }
+        for (EventListenerDescriptor desc : inlineListeners) {
             try {
                 long t0 = System.currentTimeMillis();
                 SequenceTracer.start("Fire sync event " + event.getName());
@@ -270,8 +272,18 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
             }
         }
 
-        List<EventListenerDescriptor> postCommitSync = listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors();
-        List<EventListenerDescriptor> postCommitAsync = listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors();
+        // only keep the listeners interested in at least one of the events
+        Set<String> eventNames = getEventNames(event);
+        List<EventListenerDescriptor> postCommitSync = listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors(eventNames);
+        List<EventListenerDescriptor> postCommitAsync = listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors(eventNames);
+        EventStats stats = Framework.getService(EventStats.class);
+        if (stats != null) {
+            for (String eventName : eventNames) {
+                stats.logPostCommitFanOut(eventName,
+                        listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors(eventName).size()
+                                + listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors(eventName).size());
+            }
+        }
 
         if (bulkModeEnabled) {
             // run all listeners synchronously in one transaction
@@ -315,12 +327,26 @@ public class EventServiceImpl implements EventService, EventServiceAdmin, Synchr
         }
     }
 
+    /**
+     * Gets the distinct names of the events of a bundle.
+     *
+     * @since 8.2
+     */
+    protected static Set<String> getEventNames(EventBundle bundle) {
+        Set<String> eventNames = new LinkedHashSet<>();
+        for (Event event : bundle) {
+            eventNames.add(event.getName());
+        }
+        return eventNames;
+    }
+
     @Override
     public void fireEventBundleSync(EventBundle event) {
-        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors()) {
+        Set<String> eventNames = getEventNames(event);
+        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledSyncPostCommitListenersDescriptors(eventNames)) {
             desc.asPostCommitListener().handleEvent(event);
         }
-        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors()) {
+        for (EventListenerDescriptor desc : listenerDescriptors.getEnabledAsyncPostCommitListenersDescriptors(eventNames)) {
             desc.asPostCommitListener().handleEvent(event);
         }
     }
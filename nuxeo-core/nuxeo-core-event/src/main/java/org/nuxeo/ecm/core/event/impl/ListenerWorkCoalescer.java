@@ -0,0 +1,278 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import java.rmi.dgc.VMID;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.impl.AsyncEventExecutor.ListenerWork;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Merges the committed bundles of async listeners declared with {@code coalesce="true"} into fewer
+ * {@link ListenerWork}s.
+ * <p>
+ * The events of the bundles received for a listener are accumulated in order, and a single work is scheduled when the
+ * listener's coalescing window has elapsed since the first pending bundle, or when the pending events reach the
+ * listener's coalescing size.
+ * <p>
+ * Events are only merged with events of the same repository and the same source node, as a work reconnects its bundle
+ * to a single repository and handles it as local or remote as a whole.
+ *
+ * @since 8.2
+ */
+public class ListenerWorkCoalescer {
+
+    private static final Log log = LogFactory.getLog(ListenerWorkCoalescer.class);
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final AsyncEventExecutor executor;
+
+    protected final ScheduledExecutorService timer;
+
+    /** Pending bundles by listener, repository and source. Protected by this. */
+    protected final Map<PendingKey, Pending> pending = new HashMap<>();
+
+    protected final Counter bundlesCount;
+
+    protected final Counter scheduledCount;
+
+    /** The events that can be merged in a single work. */
+    protected static class PendingKey {
+
+        protected final String listenerName;
+
+        protected final String repositoryName;
+
+        protected final VMID sourceVMID;
+
+        protected PendingKey(String listenerName, String repositoryName, VMID sourceVMID) {
+            this.listenerName = listenerName;
+            this.repositoryName = repositoryName;
+            this.sourceVMID = sourceVMID;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(listenerName, repositoryName, sourceVMID);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey other = (PendingKey) obj;
+            return listenerName.equals(other.listenerName) && Objects.equals(repositoryName, other.repositoryName)
+                    && Objects.equals(sourceVMID, other.sourceVMID);
+        }
+
+        @Override
+        public String toString() {
+            return listenerName + "/" + repositoryName + "/" + sourceVMID;
+        }
+    }
+
+    protected static class Pending {
+
+        protected EventListenerDescriptor listener;
+
+        protected final EventBundleImpl bundle;
+
+        protected ScheduledFuture<?> flush;
+
+        protected Pending(VMID sourceVMID) {
+            bundle = new EventBundleImpl(sourceVMID);
+        }
+    }
+
+    public ListenerWorkCoalescer(AsyncEventExecutor executor) {
+        this.executor = executor;
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "Nuxeo-ListenerWorkCoalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // don't keep an idle thread when no listener coalesces
+        stpe.setKeepAliveTime(1, TimeUnit.MINUTES);
+        stpe.allowCoreThreadTimeOut(true);
+        timer = stpe;
+        bundlesCount = registry.counter(MetricRegistry.name("nuxeo", "works", "coalescing", "bundles"));
+        scheduledCount = registry.counter(MetricRegistry.name("nuxeo", "works", "coalescing", "scheduled"));
+        String ratioName = MetricRegistry.name("nuxeo", "works", "coalescing", "ratio");
+        if (!registry.getGauges().containsKey(ratioName)) {
+            registry.register(ratioName, new RatioGauge() {
+                @Override
+                protected Ratio getRatio() {
+                    // number of committed bundles per scheduled work
+                    return Ratio.of(bundlesCount.getCount(), scheduledCount.getCount());
+                }
+            });
+        }
+    }
+
+    /**
+     * Adds a bundle for the listener once the current transaction (if any) is committed.
+     */
+    public void addAfterCommit(EventListenerDescriptor listener, EventBundle bundle) {
+        if (TransactionHelper.isTransactionMarkedRollback()) {
+            return;
+        }
+        if (TransactionHelper.isTransactionActive()) {
+            TransactionHelper.registerSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == Status.STATUS_COMMITTED) {
+                        add(listener, bundle);
+                    }
+                }
+            });
+        } else {
+            add(listener, bundle);
+        }
+    }
+
+    /**
+     * Adds a bundle for the listener.
+     */
+    public void add(EventListenerDescriptor listener, EventBundle bundle) {
+        String name = listener.getName();
+        VMID sourceVMID = bundle.getSourceVMID();
+        List<Pending> full = new ArrayList<>(1);
+        synchronized (this) {
+            Map<PendingKey, Pending> added = new LinkedHashMap<>(2);
+            for (Event event : bundle) {
+                PendingKey key = new PendingKey(name, event.getContext().getRepositoryName(), sourceVMID);
+                Pending p = pending.get(key);
+                if (p == null) {
+                    p = new Pending(sourceVMID);
+                    pending.put(key, p);
+                    p.flush = timer.schedule(() -> flush(key), listener.getCoalesceWindow(), TimeUnit.MILLISECONDS);
+                }
+                p.listener = listener;
+                p.bundle.push(event);
+                added.put(key, p);
+            }
+            bundlesCount.inc();
+            for (Entry<PendingKey, Pending> es : added.entrySet()) {
+                Pending p = es.getValue();
+                if (p.bundle.size() >= listener.getCoalesceSize()) {
+                    pending.remove(es.getKey());
+                    p.flush.cancel(false);
+                    full.add(p);
+                }
+            }
+        }
+        for (Pending p : full) {
+            schedule(p);
+        }
+    }
+
+    /**
+     * Schedules the works for the pending bundles of a listener.
+     */
+    public void flush(String listenerName) {
+        for (PendingKey key : getPendingKeys()) {
+            if (key.listenerName.equals(listenerName)) {
+                flush(key);
+            }
+        }
+    }
+
+    protected void flush(PendingKey key) {
+        Pending p;
+        synchronized (this) {
+            p = pending.remove(key);
+        }
+        if (p != null) {
+            p.flush.cancel(false);
+            schedule(p);
+        }
+    }
+
+    /**
+     * Schedules the works for all the pending bundles.
+     */
+    public void flushAll() {
+        for (PendingKey key : getPendingKeys()) {
+            flush(key);
+        }
+    }
+
+    protected synchronized List<PendingKey> getPendingKeys() {
+        return new ArrayList<>(pending.keySet());
+    }
+
+    /**
+     * Gets the number of works not yet scheduled for the pending bundles.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    protected void schedule(Pending p) {
+        WorkManager workManager = executor.getWorkManager();
+        if (workManager == null) {
+            log.error("No WorkManager, dropping " + p.bundle.size() + " events for listener " + p.listener.getName());
+            return;
+        }
+        workManager.schedule(new ListenerWork(p.listener, p.bundle));
+        scheduledCount.inc();
+    }
+
+    /**
+     * Schedules all pending bundles before shutdown.
+     */
+    public void shutdown() {
+        flushAll();
+    }
+
+}
@@ -84,13 +84,7 @@ public class ReconnectedEventBundleImpl implements ReconnectedEventBundle {
 
     protected CoreSession getReconnectedCoreSession(String repoName) {
         if (reconnectedCoreSession == null) {
-            try {
-                loginCtx = Framework.login();
-            } catch (LoginException e) {
-                log.error("Cannot log in", e);
-                return null;
-            }
-            reconnectedCoreSession = CoreInstance.openCoreSessionSystem(repoName);
+            reconnectedCoreSession = openCoreSession(repoName);
         } else {
             // Sanity Check
             if (!reconnectedCoreSession.getRepositoryName().equals(repoName)) {
@@ -102,6 +96,22 @@ public class ReconnectedEventBundleImpl implements ReconnectedEventBundle {
         return reconnectedCoreSession;
     }
 
+    /**
+     * Logs in and opens a system session on the repository.
+     *
+     * @return the session, or {@code null} if login failed
+     * @since 8.2
+     */
+    protected CoreSession openCoreSession(String repoName) {
+        try {
+            loginCtx = Framework.login();
+        } catch (LoginException e) {
+            log.error("Cannot log in", e);
+            return null;
+        }
+        return CoreInstance.openCoreSessionSystem(repoName);
+    }
+
     protected List<Event> getReconnectedEvents() {
         if (reconnectedEvents == null) {
             reconnectedEvents = new ArrayList<Event>();
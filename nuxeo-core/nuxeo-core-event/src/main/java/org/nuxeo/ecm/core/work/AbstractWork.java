@@ -18,8 +18,18 @@
  */
 package org.nuxeo.ecm.core.work;
 
+import static org.nuxeo.common.codec.CompactCodec.readString;
+import static org.nuxeo.common.codec.CompactCodec.readStringList;
+import static org.nuxeo.common.codec.CompactCodec.readVarLong;
+import static org.nuxeo.common.codec.CompactCodec.writeString;
+import static org.nuxeo.common.codec.CompactCodec.writeStringList;
+import static org.nuxeo.common.codec.CompactCodec.writeVarLong;
 import static org.nuxeo.ecm.core.work.api.Work.Progress.PROGRESS_INDETERMINATE;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,6 +40,7 @@ import javax.security.auth.login.LoginException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.codec.CompactSerializable;
 import org.nuxeo.common.logging.SequenceTracer;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.api.CoreInstance;
@@ -67,6 +78,9 @@ public abstract class AbstractWork implements Work {
 
     protected static final Random RANDOM = new Random();
 
+    /** @since 8.2 */
+    protected static final int COMPACT_STATE_VERSION = 1;
+
     protected String id;
 
     /** Suspend requested by the work manager. */
@@ -112,6 +126,13 @@ public abstract class AbstractWork implements Work {
 
     protected String status;
 
+    /**
+     * The priority of this work, {@code null} for {@link Priority#NORMAL}.
+     *
+     * @since 8.2
+     */
+    protected Priority priority;
+
     protected long schedulingTime;
 
     protected long startTime;
@@ -184,6 +205,20 @@ public abstract class AbstractWork implements Work {
         this.originatingUsername = originatingUsername;
     }
 
+    /**
+     * Sets the priority of this work, used by queues configured with priority scheduling.
+     *
+     * @since 8.2
+     */
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public Priority getPriority() {
+        return priority == null ? Priority.NORMAL : priority;
+    }
+
     @Override
     public void setWorkInstanceSuspending() {
         suspending = true;
@@ -606,6 +641,77 @@ public abstract class AbstractWork implements Work {
         return TransactionHelper.startTransaction();
     }
 
+    /**
+     * Writes the state of this base class, for subclasses implementing {@link CompactSerializable}. The schedule path,
+     * only used for debugging, is not written.
+     *
+     * @since 8.2
+     */
+    protected void writeCompactState(DataOutput out) throws IOException {
+        out.writeByte(COMPACT_STATE_VERSION);
+        writeString(out, id);
+        writeString(out, state == null ? null : state.name());
+        if (progress == null) {
+            out.writeByte(0);
+        } else if (progress.getIsWithPercent()) {
+            out.writeByte(1);
+            out.writeFloat(progress.getPercent());
+        } else {
+            out.writeByte(2);
+            out.writeLong(progress.getCurrent());
+            out.writeLong(progress.getTotal());
+        }
+        writeString(out, repositoryName);
+        writeString(out, docId);
+        writeStringList(out, docIds);
+        out.writeBoolean(isTree);
+        writeString(out, originatingUsername);
+        writeString(out, status);
+        writeString(out, priority == null ? null : priority.name());
+        writeVarLong(out, schedulingTime);
+        writeVarLong(out, startTime);
+        writeVarLong(out, completionTime);
+        writeString(out, callerThread);
+    }
+
+    /**
+     * Reads the state written by {@link #writeCompactState}.
+     *
+     * @since 8.2
+     */
+    protected void readCompactState(DataInput in) throws IOException {
+        int version = in.readByte();
+        if (version != COMPACT_STATE_VERSION) {
+            throw new StreamCorruptedException("Unknown work state version: " + version);
+        }
+        id = readString(in);
+        String stateName = readString(in);
+        state = stateName == null ? null : State.valueOf(stateName);
+        switch (in.readByte()) {
+        case 0:
+            progress = null;
+            break;
+        case 1:
+            progress = new Progress(in.readFloat());
+            break;
+        default:
+            progress = new Progress(in.readLong(), in.readLong());
+            break;
+        }
+        repositoryName = readString(in);
+        docId = readString(in);
+        docIds = readStringList(in);
+        isTree = in.readBoolean();
+        originatingUsername = readString(in);
+        status = readString(in);
+        String priorityName = readString(in);
+        priority = priorityName == null ? null : Priority.valueOf(priorityName);
+        schedulingTime = readVarLong(in);
+        startTime = readVarLong(in);
+        completionTime = readVarLong(in);
+        callerThread = readString(in);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (!(other instanceof Work)) {
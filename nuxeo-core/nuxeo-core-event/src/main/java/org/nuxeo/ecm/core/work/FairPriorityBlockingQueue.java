@@ -0,0 +1,261 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Priority;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+
+/**
+ * Memory-based {@link java.util.concurrent.BlockingQueue BlockingQueue} for queues configured with priority
+ * scheduling.
+ * <p>
+ * Work instances are returned by decreasing {@link Work#getPriority priority}. Inside a given priority, the work
+ * instances are shared between their fairness keys using weighted fair queuing: each work instance gets a virtual
+ * finish time, which is the finish time of the previous work instance with the same key (or the current virtual time
+ * if later) plus the inverse of the key's weight, and work instances are returned by increasing finish time. A key
+ * submitting many work instances at once therefore doesn't delay the work instances of the other keys.
+ * <p>
+ * The same algorithm is used by the Redis implementation.
+ *
+ * @since 8.2
+ */
+public class FairPriorityBlockingQueue extends NuxeoBlockingQueue {
+
+    /** Above this number of fairness keys, the ones not having pending work are forgotten. */
+    protected static final int MAX_KEYS = 1000;
+
+    protected static class Entry implements Comparable<Entry> {
+
+        protected final Runnable runnable;
+
+        protected final double finish;
+
+        protected final long seq;
+
+        protected Entry(Runnable runnable, double finish, long seq) {
+            this.runnable = runnable;
+            this.finish = finish;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int c = Double.compare(finish, other.finish);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+
+    /** The pending work instances of a given priority. */
+    protected static class Level {
+
+        protected final PriorityQueue<Entry> entries = new PriorityQueue<>();
+
+        /** Finish time of the last work instance scheduled for each key. */
+        protected final Map<String, Double> lastFinish = new HashMap<>();
+
+        /** Finish time of the last work instance returned. */
+        protected double virtualTime;
+    }
+
+    protected final WorkQueueDescriptor descriptor;
+
+    protected final Level[] levels;
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected final Condition notEmpty = lock.newCondition();
+
+    // @GuardedBy("lock")
+    protected long seq;
+
+    // @GuardedBy("lock")
+    protected int size;
+
+    public FairPriorityBlockingQueue(WorkQueueDescriptor descriptor) {
+        this.descriptor = descriptor;
+        levels = new Level[Priority.values().length];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Level();
+        }
+    }
+
+    @Override
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putElement(Runnable r) {
+        Priority priority = Priority.NORMAL;
+        String key = "";
+        if (r instanceof WorkHolder) {
+            Work work = WorkHolder.getWork(r);
+            priority = work.getPriority();
+            key = descriptor.getFairnessKey(work);
+        }
+        double cost = 1.0 / descriptor.getWeight(key);
+        lock.lock();
+        try {
+            Level level = levels[priority.ordinal()];
+            Double last = level.lastFinish.get(key);
+            double start = last == null ? level.virtualTime : Math.max(level.virtualTime, last.doubleValue());
+            double finish = start + cost;
+            level.lastFinish.put(key, Double.valueOf(finish));
+            level.entries.add(new Entry(r, finish, seq++));
+            size++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable pollElement() {
+        lock.lock();
+        try {
+            for (Level level : levels) {
+                Entry entry = level.entries.poll();
+                if (entry != null) {
+                    size--;
+                    level.virtualTime = entry.finish;
+                    if (level.entries.isEmpty()) {
+                        // no more pending work, forget the keys
+                        level.lastFinish.clear();
+                        level.virtualTime = 0;
+                    } else if (level.lastFinish.size() > MAX_KEYS) {
+                        // keys whose last finish time is passed behave as unknown keys
+                        double virtualTime = level.virtualTime;
+                        level.lastFinish.values().removeIf(finish -> finish.doubleValue() <= virtualTime);
+                    }
+                    return entry.runnable;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        for (;;) {
+            Runnable r = poll(1, TimeUnit.DAYS);
+            if (r != null) {
+                return r;
+            }
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        nanos = awaitActivation(nanos);
+        if (nanos <= 0) {
+            return null;
+        }
+        lock.lockInterruptibly();
+        try {
+            for (;;) {
+                Runnable r = pollElement();
+                if (r != null) {
+                    return r;
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Iterates on a snapshot, in priority order. Used to remove a given work instance.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Entry> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Level level : levels) {
+                List<Entry> entries = new ArrayList<>(level.entries);
+                entries.sort(null);
+                snapshot.addAll(entries);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Itr(snapshot.iterator());
+    }
+
+    private class Itr implements Iterator<Runnable> {
+
+        private final Iterator<Entry> it;
+
+        private Entry last;
+
+        public Itr(Iterator<Entry> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public Runnable next() {
+            last = it.next();
+            return last.runnable;
+        }
+
+        @Override
+        public void remove() {
+            lock.lock();
+            try {
+                for (Level level : levels) {
+                    if (level.entries.remove(last)) {
+                        size--;
+                        break;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+}
@@ -140,6 +140,9 @@ public class MemoryWorkQueuing implements WorkQueuing {
     }
 
     protected BlockingQueue<Runnable> newBlockingQueue(WorkQueueDescriptor workQueueDescriptor) {
+        if (workQueueDescriptor.isPriorityScheduling()) {
+            return new FairPriorityBlockingQueue(workQueueDescriptor);
+        }
         int capacity = workQueueDescriptor.getCapacity();
         if (capacity <= 0) {
             capacity = -1; // unbounded
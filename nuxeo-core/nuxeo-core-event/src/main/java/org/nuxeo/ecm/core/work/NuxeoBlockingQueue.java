@@ -36,7 +36,8 @@ public abstract class NuxeoBlockingQueue extends AbstractQueue<Runnable> impleme
 
     /*
      * ThreadPoolExecutor uses a BlockingQueue but the Java 7 implementation only calls these methods on it: - isEmpty()
-     * - size() - poll(timeout, unit): not used, as core pool size = max size and no core thread timeout - take() -
+     * - size() - poll(timeout, unit): used by threads above the core pool size (elastic queues) or with core thread
+     * timeout (I/O execution mode) - take() -
      * offer(e) - remove(e) - toArray(), toArray(a): for purge and shutdown - drainTo(c) - iterator() : hasNext(),
      * next(), remove() (called by toArray)
      */
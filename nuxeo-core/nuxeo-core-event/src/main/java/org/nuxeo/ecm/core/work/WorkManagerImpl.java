@@ -23,9 +23,12 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -47,6 +50,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.logging.SequenceTracer;
 import org.nuxeo.ecm.core.event.EventServiceComponent;
 import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Priority;
 import org.nuxeo.ecm.core.work.api.Work.State;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
@@ -62,6 +66,7 @@ import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
@@ -88,6 +93,20 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected static final String THREAD_PREFIX = "Nuxeo-Work-";
 
+    /**
+     * Stack size of the threads of queues in I/O execution mode, which don't need deep stacks.
+     *
+     * @since 8.2
+     */
+    protected static final long IO_THREAD_STACK_SIZE = 256 * 1024;
+
+    /**
+     * Time after which idle threads of queues in I/O execution mode are released.
+     *
+     * @since 8.2
+     */
+    protected static final long IO_KEEP_ALIVE_SECONDS = 60;
+
     protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
 
     // @GuardedBy("itself")
@@ -98,6 +117,13 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected WorkQueuing queuing = newWorkQueuing(MemoryWorkQueuing.class);
 
+    /**
+     * Resizes the pools of elastic queues.
+     *
+     * @since 8.2
+     */
+    protected WorkPoolSizer poolSizer;
+
     /**
      * Simple synchronizer to wake up when an in-JVM work is completed. Does not wake up on work completion from
      * another node in cluster mode.
@@ -200,10 +226,28 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         if (executor == null) {
             ThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + id + "-");
             int maxPoolSize = workQueueDescriptor.getMaxThreads();
-            executor = new WorkThreadPoolExecutor(id, maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS, threadFactory);
-            // prestart all core threads so that direct additions to the queue
-            // (from another Nuxeo instance) can be seen
-            executor.prestartAllCoreThreads();
+            if (workQueueDescriptor.isIoExecution()) {
+                // threads started on demand by submit, and by the pool sizer for work added by other nodes
+                int concurrency = workQueueDescriptor.getConcurrency();
+                threadFactory = new NamedThreadFactory(THREAD_PREFIX + id + "-io-", IO_THREAD_STACK_SIZE);
+                executor = new WorkThreadPoolExecutor(id, concurrency, concurrency, IO_KEEP_ALIVE_SECONDS,
+                        TimeUnit.SECONDS, threadFactory);
+                executor.allowCoreThreadTimeOut(true);
+                getPoolSizer().start();
+            } else if (workQueueDescriptor.isElastic()) {
+                // starts small, resized by the pool sizer
+                executor = new WorkThreadPoolExecutor(id, workQueueDescriptor.getMinThreads(), maxPoolSize,
+                        getPoolSizer().getInterval(), TimeUnit.MILLISECONDS, threadFactory);
+                getPoolSizer().start();
+            } else {
+                executor = new WorkThreadPoolExecutor(id, maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS,
+                        threadFactory);
+            }
+            if (!workQueueDescriptor.isIoExecution()) {
+                // prestart all core threads so that direct additions to the queue
+                // (from another Nuxeo instance) can be seen
+                executor.prestartAllCoreThreads();
+            }
             executors.put(id, executor);
         }
         NuxeoBlockingQueue queue = (NuxeoBlockingQueue) executor.getQueue();
@@ -213,6 +257,13 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         log.info("Activated work queue " + id + " " + workQueueDescriptor.toEffectiveString());
     }
 
+    protected synchronized WorkPoolSizer getPoolSizer() {
+        if (poolSizer == null) {
+            poolSizer = new WorkPoolSizer(this);
+        }
+        return poolSizer;
+    }
+
     public void deactivateQueue(WorkQueueDescriptor workQueueDescriptor) {
         if (WorkQueueDescriptor.ALL_QUEUES.equals(workQueueDescriptor.id)) {
             return;
@@ -384,6 +435,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
     @Override
     public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
         shutdownInProgress = true;
+        if (poolSizer != null) {
+            poolSizer.stop();
+        }
         try {
             return shutdownExecutors(executors.values(), timeout, unit);
         } finally {
@@ -446,16 +500,27 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
         private final String prefix;
 
+        private final long stackSize;
+
         public NamedThreadFactory(String prefix) {
+            this(prefix, 0);
+        }
+
+        /**
+         * @param stackSize the stack size, or {@code 0} for the default
+         * @since 8.2
+         */
+        public NamedThreadFactory(String prefix, long stackSize) {
             SecurityManager sm = System.getSecurityManager();
             group = sm == null ? Thread.currentThread().getThreadGroup() : sm.getThreadGroup();
             this.prefix = prefix;
+            this.stackSize = stackSize;
         }
 
         @Override
         public Thread newThread(Runnable r) {
             String name = prefix + threadNumber.incrementAndGet();
-            Thread thread = new Thread(group, r, name);
+            Thread thread = new Thread(group, r, name, stackSize);
             // do not set daemon
             thread.setPriority(Thread.NORM_PRIORITY);
             thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
@@ -501,6 +566,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
         protected final Timer workTimer;
 
+        // Time spent by work instances in the queue before running, by priority
+        protected final Map<Priority, Histogram> waitHistograms = new EnumMap<>(Priority.class);
+
         protected WorkThreadPoolExecutor(String queueId, int corePoolSize, int maximumPoolSize, long keepAliveTime,
                                          TimeUnit unit, ThreadFactory threadFactory) {
             super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queuing.initWorkQueue(queueId), threadFactory);
@@ -511,6 +579,10 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             runningCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "running"));
             completedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "completed"));
             workTimer = registry.timer(MetricRegistry.name("nuxeo", "works", queueId, "total"));
+            for (Priority priority : Priority.values()) {
+                waitHistograms.put(priority, registry.histogram(
+                        MetricRegistry.name("nuxeo", "works", queueId, "wait", priority.name().toLowerCase())));
+            }
         }
 
         public int getScheduledOrRunningSize() {
@@ -550,9 +622,34 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
                 queuing.removeScheduled(queueId, work.getId());
                 throw new RuntimeException("queue should have blocked");
             }
+            if (allowsCoreThreadTimeOut()) {
+                // I/O execution mode, start a thread for this work if under the concurrency limit
+                startIdleThreads(1);
+            }
             // DO NOT super.execute(new WorkHolder(work));
         }
 
+        /**
+         * Executes the given tasks sometime in the future, submitting them together to the queuing implementation.
+         *
+         * @param works the works to execute
+         * @since 8.2
+         */
+        public void execute(List<Work> works) {
+            scheduledCount.inc(works.size());
+            boolean added = queuing.workSchedule(queueId, works);
+            if (!added) {
+                for (Work work : works) {
+                    queuing.removeScheduled(queueId, work.getId());
+                }
+                throw new RuntimeException("queue should have blocked");
+            }
+            if (allowsCoreThreadTimeOut()) {
+                // I/O execution mode
+                startIdleThreads(works.size());
+            }
+        }
+
         @Override
         protected void beforeExecute(Thread t, Runnable r) {
             Work work = WorkHolder.getWork(r);
@@ -565,6 +662,7 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             queuing.workRunning(queueId, work);
             running.add(work);
             runningCount.inc();
+            waitHistograms.get(work.getPriority()).update(System.currentTimeMillis() - work.getSchedulingTime());
         }
 
         @Override
@@ -586,6 +684,20 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             }
         }
 
+        /**
+         * Starts threads up to the core pool size, for pools whose threads are started on demand.
+         *
+         * @param n the maximum number of threads to start
+         * @since 8.2
+         */
+        protected void startIdleThreads(int n) {
+            for (int i = 0; i < n && getPoolSize() - getActiveCount() < getQueue().size(); i++) {
+                if (!prestartCoreThread()) {
+                    break;
+                }
+            }
+        }
+
         // called during shutdown
         // with tasks from the queue if new tasks are submitted
         // or with tasks drained from the queue
@@ -653,6 +765,26 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         schedule(work, Scheduling.ENQUEUE, afterCommit);
     }
 
+    @Override
+    public void schedule(List<Work> works) {
+        Map<String, List<Work>> worksByQueue = new LinkedHashMap<>();
+        for (Work work : works) {
+            String queueId = getCategoryQueueId(work.getCategory());
+            if (!isQueuingEnabled(queueId)) {
+                continue;
+            }
+            work.setWorkInstanceState(State.SCHEDULED);
+            WorkSchedulePath.newInstance(work);
+            if (log.isDebugEnabled()) {
+                log.debug("Scheduling work: " + work + " using queue: " + queueId);
+            }
+            worksByQueue.computeIfAbsent(queueId, k -> new ArrayList<>()).add(work);
+        }
+        for (Entry<String, List<Work>> es : worksByQueue.entrySet()) {
+            getExecutor(es.getKey()).execute(es.getValue());
+        }
+    }
+
     @Override
     public void schedule(Work work, Scheduling scheduling) {
         schedule(work, scheduling, false);
@@ -0,0 +1,279 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.work.WorkManagerImpl.WorkThreadPoolExecutor;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Periodically resizes the thread pools of the elastic work queues (whose {@code minThreads} is lower than their
+ * {@code maxThreads}) according to their backlog and work duration, within a node-wide thread budget.
+ * <p>
+ * The number of threads needed by a queue is estimated from Little's law: the number of work instances completed
+ * during the last interval multiplied by their mean duration, plus the threads needed to drain the current backlog
+ * within one interval. Pools grow at once to the needed size but shrink by at most one thread per interval, to avoid
+ * oscillations. When the total number of threads would exceed the budget, the threads above the minimums are shared
+ * between the elastic queues in proportion of their needs.
+ * <p>
+ * For queues in I/O execution mode, threads are started for work added to the queue by other nodes.
+ *
+ * @since 8.2
+ */
+public class WorkPoolSizer {
+
+    private static final Log log = LogFactory.getLog(WorkPoolSizer.class);
+
+    /**
+     * Framework property for the maximum number of work threads on this node, {@code 0} (the default) for no limit.
+     */
+    public static final String BUDGET_PROP = "nuxeo.work.threads.budget";
+
+    /**
+     * Framework property for the interval between two resizes, in milliseconds.
+     */
+    public static final String INTERVAL_PROP = "nuxeo.work.threads.resize.interval";
+
+    public static final long DEFAULT_INTERVAL = 5000;
+
+    /**
+     * The state of a pool at a given time, and the size decided for it.
+     */
+    public static class PoolState {
+
+        public final String queueId;
+
+        public final int min;
+
+        public final int max;
+
+        public final int current;
+
+        public final int active;
+
+        public final int backlog;
+
+        /** Number of work instances completed since the previous resize. */
+        public final long completed;
+
+        /** Mean duration of a work instance in milliseconds, or 0 if unknown. */
+        public final double meanDuration;
+
+        public int target;
+
+        public PoolState(String queueId, int min, int max, int current, int active, int backlog, long completed,
+                double meanDuration) {
+            this.queueId = queueId;
+            this.min = min;
+            this.max = max;
+            this.current = current;
+            this.active = active;
+            this.backlog = backlog;
+            this.completed = completed;
+            this.meanDuration = meanDuration;
+        }
+    }
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final WorkManagerImpl mgr;
+
+    protected final int budget;
+
+    protected final long interval;
+
+    protected final Map<String, Long> lastCompleted = new HashMap<>();
+
+    protected final Counter throttledCount;
+
+    protected ScheduledExecutorService timer;
+
+    public WorkPoolSizer(WorkManagerImpl mgr) {
+        this.mgr = mgr;
+        budget = Integer.parseInt(Framework.getProperty(BUDGET_PROP, "0"));
+        interval = Long.parseLong(Framework.getProperty(INTERVAL_PROP, String.valueOf(DEFAULT_INTERVAL)));
+        throttledCount = registry.counter(MetricRegistry.name("nuxeo", "works", "resize", "throttled"));
+    }
+
+    /**
+     * Gets the interval between two resizes, in milliseconds. Also used as the keep-alive time of the threads above the
+     * size of an elastic pool.
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Nuxeo-Work-PoolSizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(this::resizeSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (timer == null) {
+            return;
+        }
+        timer.shutdownNow();
+        timer = null;
+        lastCompleted.clear();
+    }
+
+    protected void resizeSafely() {
+        try {
+            resize();
+        } catch (RuntimeException e) {
+            log.error("Cannot resize work pools", e);
+        }
+    }
+
+    protected void resize() {
+        List<WorkThreadPoolExecutor> executors;
+        synchronized (mgr) {
+            executors = new ArrayList<>(mgr.executors.values());
+        }
+        int fixed = 0;
+        List<PoolState> states = new ArrayList<>();
+        Map<String, WorkThreadPoolExecutor> byId = new HashMap<>();
+        for (WorkThreadPoolExecutor executor : executors) {
+            if (executor.isShutdown()) {
+                continue;
+            }
+            WorkQueueDescriptor descriptor = mgr.getWorkQueueDescriptor(executor.queueId);
+            if (descriptor != null && descriptor.isIoExecution()) {
+                // threads started on demand, but work may have been added by other nodes
+                executor.startIdleThreads(executor.getQueue().size());
+                fixed += executor.getPoolSize();
+                continue;
+            }
+            if (descriptor == null || !descriptor.isElastic()) {
+                fixed += executor.getCorePoolSize();
+                continue;
+            }
+            long completed = executor.completedCount.getCount();
+            Long last = lastCompleted.put(executor.queueId, Long.valueOf(completed));
+            double meanDuration = executor.workTimer.getSnapshot().getMean() / 1000000; // ns -> ms
+            states.add(new PoolState(executor.queueId, descriptor.getMinThreads(), descriptor.getMaxThreads(),
+                    executor.getCorePoolSize(), executor.getActiveCount(), executor.getQueue().size(),
+                    last == null ? 0 : Math.max(0, completed - last.longValue()), meanDuration));
+            byId.put(executor.queueId, executor);
+        }
+        if (computeSizes(states, budget - fixed, budget > 0, interval)) {
+            throttledCount.inc();
+        }
+        for (PoolState state : states) {
+            WorkThreadPoolExecutor executor = byId.get(state.queueId);
+            registerGauge(state.queueId);
+            if (state.target == state.current) {
+                continue;
+            }
+            String event = state.target > state.current ? "grow" : "shrink";
+            registry.counter(MetricRegistry.name("nuxeo", "works", state.queueId, "resize", event)).inc();
+            if (log.isDebugEnabled()) {
+                log.debug("Resizing work queue " + state.queueId + " from " + state.current + " to " + state.target
+                        + " threads, active=" + state.active + " backlog=" + state.backlog + " completed="
+                        + state.completed + " meanDuration=" + state.meanDuration);
+            }
+            executor.setCorePoolSize(state.target);
+            // threads must be running to see work added by other nodes
+            executor.prestartAllCoreThreads();
+        }
+    }
+
+    protected void registerGauge(String queueId) {
+        String name = MetricRegistry.name("nuxeo", "works", queueId, "threads");
+        if (registry.getGauges().containsKey(name)) {
+            return;
+        }
+        registry.register(name, (Gauge<Integer>) () -> {
+            WorkThreadPoolExecutor executor;
+            synchronized (mgr) {
+                executor = mgr.executors.get(queueId);
+            }
+            return Integer.valueOf(executor == null ? 0 : executor.getCorePoolSize());
+        });
+    }
+
+    /**
+     * Computes the number of threads needed by a pool.
+     */
+    protected static int needed(PoolState state, long interval) {
+        if (state.meanDuration <= 0) {
+            // no completed work yet, one thread per pending work
+            return state.active + state.backlog;
+        }
+        double busy = state.completed * state.meanDuration / interval;
+        double drain = state.backlog * state.meanDuration / interval;
+        return Math.max(state.active, (int) Math.ceil(busy + drain));
+    }
+
+    /**
+     * Computes the {@link PoolState#target target} size of each pool.
+     *
+     * @param states the pools
+     * @param available the number of threads available to these pools, if limited
+     * @param limited whether the number of available threads is limited
+     * @param interval the interval between two resizes, in milliseconds
+     * @return {@code true} if the budget prevented some pool from getting the threads it needs
+     */
+    public static boolean computeSizes(List<PoolState> states, int available, boolean limited, long interval) {
+        int extra = 0;
+        for (PoolState state : states) {
+            int target = Math.max(state.min, Math.min(state.max, needed(state, interval)));
+            if (target < state.current) {
+                // shrink slowly
+                target = Math.max(target, state.current - 1);
+            }
+            state.target = target;
+            available -= state.min;
+            extra += target - state.min;
+        }
+        if (!limited || extra <= available) {
+            return false;
+        }
+        // share what is above the minimums in proportion of the needs
+        double ratio = Math.max(0, available) / (double) extra;
+        for (PoolState state : states) {
+            state.target = state.min + (int) Math.floor((state.target - state.min) * ratio);
+        }
+        return true;
+    }
+
+}
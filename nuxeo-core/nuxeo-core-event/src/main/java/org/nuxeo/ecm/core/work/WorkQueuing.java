@@ -66,6 +66,23 @@ public interface WorkQueuing {
      */
     boolean workSchedule(String queueId, Work work);
 
+    /**
+     * Submit several works to the {@link ThreadPoolExecutor} and put them in the scheduled set.
+     * <p>
+     * Implementations may do it more efficiently than one by one.
+     *
+     * @param queueId the queue id
+     * @param works the work instances
+     * @since 8.2
+     */
+    default boolean workSchedule(String queueId, List<Work> works) {
+        boolean added = true;
+        for (Work work : works) {
+            added = workSchedule(queueId, work) && added;
+        }
+        return added;
+    }
+
     /**
      * Put the work instance into the running set.
      *
@@ -100,6 +100,28 @@ public interface Work extends Serializable {
         FAILED,
     }
 
+    /**
+     * The priority of a {@link Work} instance, used by queues configured with priority scheduling.
+     * <p>
+     * Work instances of a higher priority are always run before work instances of a lower priority in the same queue.
+     *
+     * @since 8.2
+     */
+    enum Priority {
+        /**
+         * Interactive work, for which a user is waiting.
+         */
+        HIGH,
+        /**
+         * Default priority.
+         */
+        NORMAL,
+        /**
+         * Background or bulk work.
+         */
+        LOW,
+    }
+
     /**
      * A progress report about a work instance.
      * <p>
@@ -300,6 +322,18 @@ public interface Work extends Serializable {
      */
     String getCategory();
 
+    /**
+     * Gets the priority of this work.
+     * <p>
+     * Only used by queues configured with priority scheduling.
+     *
+     * @return the priority
+     * @since 8.2
+     */
+    default Priority getPriority() {
+        return Priority.NORMAL;
+    }
+
     /**
      * Gets a human-readable name for this work instance.
      *
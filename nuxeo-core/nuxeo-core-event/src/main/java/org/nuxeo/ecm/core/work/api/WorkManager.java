@@ -164,6 +164,17 @@ public interface WorkManager {
      */
     void schedule(Work work, Scheduling scheduling, boolean afterCommit);
 
+    /**
+     * Schedules several work instances for execution at a later time.
+     * <p>
+     * This is equivalent to calling {@link #schedule(Work)} for each work, but the work instances going to the same
+     * queue are submitted together, which allows the queuing implementation to save round-trips.
+     *
+     * @param works the work instances to execute
+     * @since 8.2
+     */
+    void schedule(List<Work> works);
+
     /**
      * Finds a work instance.
      *
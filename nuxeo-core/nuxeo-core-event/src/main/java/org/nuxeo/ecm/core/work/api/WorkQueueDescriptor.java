@@ -19,11 +19,14 @@
 package org.nuxeo.ecm.core.work.api;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
+import org.nuxeo.common.xmap.annotation.XNodeMap;
 import org.nuxeo.common.xmap.annotation.XObject;
 
 /**
@@ -42,6 +45,33 @@ public class WorkQueueDescriptor {
 
     public static final int DEFAULT_CAPACITY = -1;
 
+    /** @since 8.2 */
+    public static final String SCHEDULING_FIFO = "fifo";
+
+    /** @since 8.2 */
+    public static final String SCHEDULING_PRIORITY = "priority";
+
+    /** @since 8.2 */
+    public static final String FAIRNESS_CATEGORY = "category";
+
+    /** @since 8.2 */
+    public static final String FAIRNESS_USER = "user";
+
+    /** @since 8.2 */
+    public static final String FAIRNESS_NONE = "none";
+
+    /** @since 8.2 */
+    public static final int DEFAULT_WEIGHT = 1;
+
+    /** @since 8.2 */
+    public static final String EXECUTION_THREADS = "threads";
+
+    /** @since 8.2 */
+    public static final String EXECUTION_IO = "io";
+
+    /** @since 8.2 */
+    public static final int DEFAULT_CONCURRENCY = 64;
+
     @XNode("@id")
     public String id;
 
@@ -75,6 +105,62 @@ public class WorkQueueDescriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /**
+     * The minimum number of threads of an elastic queue. When lower than {@link #maxThreads}, the number of threads
+     * varies between the two according to the backlog of the queue.
+     *
+     * @since 8.2
+     */
+    @XNode("minThreads")
+    public Integer minThreads;
+
+    /**
+     * Gets the minimum number of threads, which is the maximum number of threads if the queue is not elastic.
+     *
+     * @since 8.2
+     */
+    public int getMinThreads() {
+        int max = getMaxThreads();
+        return minThreads == null ? max : Math.max(0, Math.min(minThreads.intValue(), max));
+    }
+
+    /**
+     * Whether the number of threads of this queue varies according to its backlog.
+     *
+     * @since 8.2
+     */
+    public boolean isElastic() {
+        return !isIoExecution() && getMinThreads() < getMaxThreads();
+    }
+
+    /**
+     * The execution mode of the queue, {@link #EXECUTION_THREADS} (the default) or {@link #EXECUTION_IO}.
+     * <p>
+     * The I/O mode is meant for work instances that spend most of their time waiting on I/O (external commands,
+     * remote services): instead of a fixed number of threads, up to {@link #concurrency} lightweight threads are started
+     * on demand and released when idle.
+     *
+     * @since 8.2
+     */
+    @XNode("execution")
+    public String execution;
+
+    public boolean isIoExecution() {
+        return EXECUTION_IO.equals(execution);
+    }
+
+    /**
+     * The maximum number of work instances running at the same time in I/O execution mode.
+     *
+     * @since 8.2
+     */
+    @XNode("concurrency")
+    public Integer concurrency;
+
+    public int getConcurrency() {
+        return concurrency == null ? DEFAULT_CONCURRENCY : concurrency.intValue();
+    }
+
     @XNode("clearCompletedAfterSeconds")
     public Integer clearCompletedAfterSeconds;
 
@@ -98,6 +184,70 @@ public class WorkQueueDescriptor {
         return capacity == null ? DEFAULT_CAPACITY : capacity.intValue();
     }
 
+    /**
+     * The scheduling mode of the queue, {@link #SCHEDULING_FIFO} (the default) or {@link #SCHEDULING_PRIORITY}.
+     * <p>
+     * With priority scheduling, work instances are run by decreasing {@link Work#getPriority priority}, and work
+     * instances of the same priority are shared fairly between their fairness keys (category or user, see
+     * {@link #fairness}) according to the configured weights.
+     *
+     * @since 8.2
+     */
+    @XNode("scheduling")
+    public String scheduling;
+
+    public boolean isPriorityScheduling() {
+        return SCHEDULING_PRIORITY.equals(scheduling);
+    }
+
+    /**
+     * What work instances are fairly shared on in priority scheduling mode: {@link #FAIRNESS_CATEGORY} (the default),
+     * {@link #FAIRNESS_USER} or {@link #FAIRNESS_NONE}.
+     *
+     * @since 8.2
+     */
+    @XNode("fairness")
+    public String fairness;
+
+    public String getFairness() {
+        return fairness == null ? FAIRNESS_CATEGORY : fairness;
+    }
+
+    /**
+     * The weights of the fairness keys in priority scheduling mode. A key with weight 2 gets twice as many work
+     * instances run as a key with weight 1 when both have pending work.
+     *
+     * @since 8.2
+     */
+    @XNodeMap(value = "weight", key = "@key", type = HashMap.class, componentType = Integer.class)
+    public Map<String, Integer> weights = new HashMap<>();
+
+    public int getWeight(String key) {
+        Integer weight = key == null ? null : weights.get(key);
+        return weight == null || weight.intValue() <= 0 ? DEFAULT_WEIGHT : weight.intValue();
+    }
+
+    /**
+     * Gets the key on which a work instance is fairly shared, according to the {@link #fairness} configuration.
+     *
+     * @since 8.2
+     */
+    public String getFairnessKey(Work work) {
+        String key;
+        switch (getFairness()) {
+        case FAIRNESS_USER:
+            key = work.getOriginatingUsername();
+            break;
+        case FAIRNESS_NONE:
+            key = null;
+            break;
+        default:
+            key = work.getCategory();
+            break;
+        }
+        return key == null ? "" : key;
+    }
+
     @Override
     public WorkQueueDescriptor clone() {
         WorkQueueDescriptor o = new WorkQueueDescriptor();
@@ -106,8 +256,14 @@ public class WorkQueueDescriptor {
         o.processing = processing;
         o.name = name;
         o.maxThreads = maxThreads;
+        o.minThreads = minThreads;
+        o.execution = execution;
+        o.concurrency = concurrency;
         o.clearCompletedAfterSeconds = clearCompletedAfterSeconds;
         o.capacity = capacity;
+        o.scheduling = scheduling;
+        o.fairness = fairness;
+        o.weights = new HashMap<>(weights);
         o.categories = new HashSet<String>(categories);
         return o;
     }
@@ -125,12 +281,28 @@ public class WorkQueueDescriptor {
         if (other.maxThreads != null) {
             maxThreads = other.maxThreads;
         }
+        if (other.minThreads != null) {
+            minThreads = other.minThreads;
+        }
+        if (other.execution != null) {
+            execution = other.execution;
+        }
+        if (other.concurrency != null) {
+            concurrency = other.concurrency;
+        }
         if (other.clearCompletedAfterSeconds != null) {
             clearCompletedAfterSeconds = other.clearCompletedAfterSeconds;
         }
         if (other.capacity != null) {
             capacity = other.capacity;
         }
+        if (other.scheduling != null) {
+            scheduling = other.scheduling;
+        }
+        if (other.fairness != null) {
+            fairness = other.fairness;
+        }
+        weights.putAll(other.weights);
         categories.addAll(other.categories);
     }
 
@@ -153,6 +325,18 @@ public class WorkQueueDescriptor {
             buf.append(" maxThreads=");
             buf.append(maxThreads);
         }
+        if (minThreads != null) {
+            buf.append(" minThreads=");
+            buf.append(minThreads);
+        }
+        if (execution != null) {
+            buf.append(" execution=");
+            buf.append(execution);
+        }
+        if (concurrency != null) {
+            buf.append(" concurrency=");
+            buf.append(concurrency);
+        }
         if (capacity != null) {
             buf.append(" capacity=");
             buf.append(capacity);
@@ -161,6 +345,18 @@ public class WorkQueueDescriptor {
             buf.append(" clearCompletedAfterSeconds=");
             buf.append(clearCompletedAfterSeconds);
         }
+        if (scheduling != null) {
+            buf.append(" scheduling=");
+            buf.append(scheduling);
+        }
+        if (fairness != null) {
+            buf.append(" fairness=");
+            buf.append(fairness);
+        }
+        if (!weights.isEmpty()) {
+            buf.append(" weights=");
+            buf.append(weights);
+        }
         buf.append("]");
         return buf.toString();
     }
@@ -175,12 +371,31 @@ public class WorkQueueDescriptor {
         buf.append(isQueuingEnabled());
         buf.append(" processing=");
         buf.append(isProcessingEnabled());
-        buf.append(" maxThreads=");
-        buf.append(getMaxThreads());
+        if (isIoExecution()) {
+            buf.append(" execution=");
+            buf.append(execution);
+            buf.append(" concurrency=");
+            buf.append(getConcurrency());
+        } else {
+            buf.append(" maxThreads=");
+            buf.append(getMaxThreads());
+            if (isElastic()) {
+                buf.append(" minThreads=");
+                buf.append(getMinThreads());
+            }
+        }
         buf.append(" capacity=");
         buf.append(getCapacity());
         buf.append(" clearCompletedAfterSeconds=");
         buf.append(getClearCompletedAfterSeconds());
+        if (isPriorityScheduling()) {
+            buf.append(" scheduling=");
+            buf.append(scheduling);
+            buf.append(" fairness=");
+            buf.append(getFairness());
+            buf.append(" weights=");
+            buf.append(weights);
+        }
         buf.append(")");
         return buf.toString();
     }
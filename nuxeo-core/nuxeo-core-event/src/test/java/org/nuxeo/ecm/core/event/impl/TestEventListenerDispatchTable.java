@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.event.impl.EventListenerList.DispatchTable;
+
+public class TestEventListenerDispatchTable {
+
+    protected static EventListenerDescriptor desc(String name, String... events) {
+        EventListenerDescriptor desc = new EventListenerDescriptor();
+        desc.name = name;
+        desc.setEvents(new HashSet<>(Arrays.asList(events)));
+        return desc;
+    }
+
+    protected static List<String> names(List<EventListenerDescriptor> descs) {
+        List<String> names = new ArrayList<>();
+        for (EventListenerDescriptor desc : descs) {
+            names.add(desc.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void testDispatchTable() {
+        // in priority order
+        List<EventListenerDescriptor> enabled = Arrays.asList( //
+                desc("a", "create"), //
+                desc("all1"), //
+                desc("b", "create", "modify"), //
+                desc("c", "remove"), //
+                desc("all2"));
+        DispatchTable table = new DispatchTable(enabled);
+
+        assertEquals(Arrays.asList("a", "all1", "b", "all2"), names(table.get("create")));
+        assertEquals(Arrays.asList("all1", "b", "all2"), names(table.get("modify")));
+        assertEquals(Arrays.asList("all1", "c", "all2"), names(table.get("remove")));
+        assertEquals(Arrays.asList("all1", "all2"), names(table.get("unknown")));
+
+        // same result as filtering with acceptEvent
+        for (String event : Arrays.asList("create", "modify", "remove", "unknown")) {
+            List<EventListenerDescriptor> expected = new ArrayList<>();
+            for (EventListenerDescriptor desc : enabled) {
+                if (desc.acceptEvent(event)) {
+                    expected.add(desc);
+                }
+            }
+            assertEquals(expected, table.get(event));
+        }
+
+        // several events, keeps priority order
+        assertEquals(Arrays.asList("a", "all1", "b", "c", "all2"),
+                names(table.get(Arrays.asList("remove", "create"))));
+        assertEquals(Arrays.asList("all1", "c", "all2"), names(table.get(Collections.singleton("remove"))));
+
+        // no wildcard listeners
+        table = new DispatchTable(Arrays.asList(desc("a", "create"), desc("b", "modify")));
+        assertEquals(Collections.emptyList(), table.get("remove"));
+        assertEquals(Collections.emptyList(), table.get(Arrays.asList("remove", "other")));
+        assertEquals(Arrays.asList("a", "b"), names(table.get(Arrays.asList("modify", "create"))));
+    }
+
+}
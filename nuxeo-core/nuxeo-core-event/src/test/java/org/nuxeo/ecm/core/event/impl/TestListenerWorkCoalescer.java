@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.event.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.rmi.dgc.VMID;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.impl.ListenerWorkCoalescer.Pending;
+
+public class TestListenerWorkCoalescer {
+
+    /** Records the scheduled bundles instead of scheduling works. */
+    protected static class RecordingCoalescer extends ListenerWorkCoalescer {
+
+        protected final List<List<String>> scheduled = Collections.synchronizedList(new ArrayList<>());
+
+        protected final List<Pending> scheduledPending = Collections.synchronizedList(new ArrayList<>());
+
+        protected RecordingCoalescer() {
+            super(null);
+        }
+
+        @Override
+        protected void schedule(Pending p) {
+            List<String> names = new ArrayList<>();
+            for (Event event : p.bundle) {
+                names.add(event.getName());
+            }
+            scheduled.add(names);
+            scheduledPending.add(p);
+        }
+    }
+
+    /** Reconnects to fake sessions, checking that a single repository is used. */
+    protected static class TestReconnectedEventBundle extends ReconnectedEventBundleImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        protected TestReconnectedEventBundle(EventBundle bundle) {
+            super(bundle, "l");
+        }
+
+        @Override
+        protected CoreSession openCoreSession(String repoName) {
+            return (CoreSession) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { CoreSession.class }, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                        case "getRepositoryName":
+                            return repoName;
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    protected static EventListenerDescriptor desc(String name, int window, int size) {
+        EventListenerDescriptor desc = new EventListenerDescriptor();
+        desc.name = name;
+        desc.coalesce = Boolean.TRUE;
+        desc.coalesceWindow = Integer.valueOf(window);
+        desc.coalesceSize = Integer.valueOf(size);
+        return desc;
+    }
+
+    protected static EventBundle bundle(String... names) {
+        return bundle(new EventBundleImpl(), null, names);
+    }
+
+    protected static EventBundle bundle(EventBundleImpl bundle, String repositoryName, String... names) {
+        for (String name : names) {
+            EventContextImpl ctx = new EventContextImpl(null, null);
+            ctx.setRepositoryName(repositoryName);
+            bundle.push(new EventImpl(name, ctx));
+        }
+        return bundle;
+    }
+
+    @Test
+    public void testCoalesceBySize() {
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        EventListenerDescriptor listener = desc("l", 60000, 4);
+        coalescer.add(listener, bundle("e1", "e2"));
+        coalescer.add(listener, bundle("e3"));
+        assertEquals(0, coalescer.scheduled.size());
+        assertEquals(1, coalescer.getPendingCount());
+        coalescer.add(listener, bundle("e4", "e5"));
+        // events kept in commit order
+        assertEquals(Collections.singletonList(Arrays.asList("e1", "e2", "e3", "e4", "e5")), coalescer.scheduled);
+        assertEquals(0, coalescer.getPendingCount());
+    }
+
+    @Test
+    public void testCoalesceByWindow() throws Exception {
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        coalescer.add(desc("l1", 100, 1000), bundle("e1"));
+        coalescer.add(desc("l2", 100, 1000), bundle("f1"));
+        coalescer.add(desc("l1", 100, 1000), bundle("e2"));
+        for (int i = 0; i < 50 && coalescer.scheduled.size() < 2; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(2, coalescer.scheduled.size());
+        assertEquals(0, coalescer.getPendingCount());
+        List<List<String>> scheduled = new ArrayList<>(coalescer.scheduled);
+        scheduled.sort((a, b) -> a.get(0).compareTo(b.get(0)));
+        assertEquals(Arrays.asList(Arrays.asList("e1", "e2"), Arrays.asList("f1")), scheduled);
+    }
+
+    @Test
+    public void testCoalescePerRepositoryAndSource() {
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        EventListenerDescriptor listener = desc("l", 60000, 1000);
+        VMID remote = new VMID();
+        coalescer.add(listener, bundle(new EventBundleImpl(), "repo1", "a1"));
+        coalescer.add(listener, bundle(new EventBundleImpl(), "repo2", "b1"));
+        coalescer.add(listener, bundle(new EventBundleImpl(remote), "repo1", "r1"));
+        coalescer.add(listener, bundle(new EventBundleImpl(), "repo1", "a2"));
+        coalescer.add(listener, bundle(new EventBundleImpl(), "repo2", "b2", "b3"));
+        // a bundle spanning two repositories is split
+        EventBundleImpl mixed = new EventBundleImpl();
+        bundle(mixed, "repo1", "a3");
+        bundle(mixed, "repo2", "b4");
+        coalescer.add(listener, mixed);
+        assertEquals(3, coalescer.getPendingCount());
+        coalescer.flush("l");
+        assertEquals(0, coalescer.getPendingCount());
+
+        List<List<String>> scheduled = new ArrayList<>(coalescer.scheduled);
+        scheduled.sort((a, b) -> a.get(0).compareTo(b.get(0)));
+        assertEquals(Arrays.asList(Arrays.asList("a1", "a2", "a3"), Arrays.asList("b1", "b2", "b3", "b4"),
+                Arrays.asList("r1")), scheduled);
+
+        Map<String, String> reconnected = new HashMap<>();
+        for (Pending p : coalescer.scheduledPending) {
+            TestReconnectedEventBundle bundle = new TestReconnectedEventBundle(p.bundle);
+            // would throw IllegalStateException if the bundle was tied to several repositories
+            for (Event event : bundle) {
+                String repositoryName = event.getContext().getCoreSession().getRepositoryName();
+                assertEquals(repositoryName, event.getContext().getRepositoryName());
+                reconnected.put(event.getName(), repositoryName + (bundle.hasRemoteSource() ? "/remote" : ""));
+            }
+            bundle.disconnect();
+        }
+        Map<String, String> expected = new HashMap<>();
+        for (String name : Arrays.asList("a1", "a2", "a3")) {
+            expected.put(name, "repo1");
+        }
+        for (String name : Arrays.asList("b1", "b2", "b3", "b4")) {
+            expected.put(name, "repo2");
+        }
+        expected.put("r1", "repo1/remote");
+        assertEquals(expected, reconnected);
+    }
+
+    @Test
+    public void testFlushAll() {
+        RecordingCoalescer coalescer = new RecordingCoalescer();
+        coalescer.add(desc("l", 60000, 1000), bundle("e1"));
+        coalescer.shutdown();
+        assertEquals(Collections.singletonList(Arrays.asList("e1")), coalescer.scheduled);
+    }
+
+}
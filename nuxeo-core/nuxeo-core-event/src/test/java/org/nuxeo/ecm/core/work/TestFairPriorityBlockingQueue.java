@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Priority;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+
+public class TestFairPriorityBlockingQueue {
+
+    protected static class TestWork extends AbstractWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final String category;
+
+        public TestWork(String id, String category, Priority priority) {
+            super(id);
+            this.category = category;
+            setPriority(priority);
+        }
+
+        @Override
+        public String getCategory() {
+            return category;
+        }
+
+        @Override
+        public String getTitle() {
+            return getId();
+        }
+
+        @Override
+        public void work() {
+        }
+    }
+
+    protected WorkQueueDescriptor descriptor;
+
+    protected FairPriorityBlockingQueue queue;
+
+    @Before
+    public void setUp() {
+        descriptor = new WorkQueueDescriptor();
+        descriptor.id = "test";
+        descriptor.scheduling = WorkQueueDescriptor.SCHEDULING_PRIORITY;
+        queue = new FairPriorityBlockingQueue(descriptor);
+    }
+
+    protected void add(String id, String category, Priority priority) {
+        queue.offer(new WorkHolder(new TestWork(id, category, priority)));
+    }
+
+    protected List<String> drain() {
+        List<String> ids = new ArrayList<>();
+        Runnable r;
+        while ((r = queue.poll()) != null) {
+            ids.add(WorkHolder.getWork(r).getId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testPriority() {
+        add("low", "c", Priority.LOW);
+        add("normal1", "c", Priority.NORMAL);
+        add("high", "c", Priority.HIGH);
+        add("normal2", "c", Priority.NORMAL);
+        assertEquals(4, queue.size());
+        assertEquals("[high, normal1, normal2, low]", drain().toString());
+        assertEquals(0, queue.size());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testFairness() {
+        // a bulk category floods the queue before another category schedules work
+        for (int i = 0; i < 4; i++) {
+            add("bulk" + i, "bulk", Priority.NORMAL);
+        }
+        add("other0", "other", Priority.NORMAL);
+        add("other1", "other", Priority.NORMAL);
+        assertEquals("[bulk0, other0, bulk1, other1, bulk2, bulk3]", drain().toString());
+    }
+
+    @Test
+    public void testWeights() {
+        descriptor.weights.put("bulk", Integer.valueOf(1));
+        descriptor.weights.put("other", Integer.valueOf(2));
+        for (int i = 0; i < 3; i++) {
+            add("bulk" + i, "bulk", Priority.NORMAL);
+        }
+        for (int i = 0; i < 4; i++) {
+            add("other" + i, "other", Priority.NORMAL);
+        }
+        assertEquals("[other0, bulk0, other1, other2, bulk1, other3, bulk2]", drain().toString());
+    }
+
+    @Test
+    public void testUserFairness() {
+        descriptor.fairness = WorkQueueDescriptor.FAIRNESS_USER;
+        TestWork work;
+        for (int i = 0; i < 2; i++) {
+            work = new TestWork("bob" + i, "c", Priority.NORMAL);
+            work.setOriginatingUsername("bob");
+            queue.offer(new WorkHolder(work));
+        }
+        work = new TestWork("alice0", "c", Priority.NORMAL);
+        work.setOriginatingUsername("alice");
+        queue.offer(new WorkHolder(work));
+        assertEquals("[bob0, alice0, bob1]", drain().toString());
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        add("a", "c", Priority.NORMAL);
+        add("b", "c", Priority.HIGH);
+        add("c", "c", Priority.NORMAL);
+        for (Iterator<Runnable> it = queue.iterator(); it.hasNext();) {
+            Work work = WorkHolder.getWork(it.next());
+            if (work.getId().equals("a")) {
+                it.remove();
+            }
+        }
+        assertEquals(2, queue.size());
+        assertEquals("[b, c]", drain().toString());
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.WorkPoolSizer.PoolState;
+
+public class TestWorkPoolSizer {
+
+    protected static final long INTERVAL = 1000;
+
+    protected static int size(PoolState state) {
+        assertFalse(WorkPoolSizer.computeSizes(Collections.singletonList(state), 0, false, INTERVAL));
+        return state.target;
+    }
+
+    @Test
+    public void testIdle() {
+        assertEquals(1, size(new PoolState("q", 1, 8, 1, 0, 0, 0, 0)));
+    }
+
+    @Test
+    public void testGrowWithoutStats() {
+        // no duration known yet, one thread per pending work
+        assertEquals(4, size(new PoolState("q", 1, 8, 1, 1, 3, 0, 0)));
+        assertEquals(8, size(new PoolState("q", 1, 8, 1, 1, 100, 0, 0)));
+    }
+
+    @Test
+    public void testGrowWithStats() {
+        // 10 works of 200ms completed in 1s keep 2 threads busy, 20 more pending need 4 more
+        assertEquals(6, size(new PoolState("q", 1, 8, 2, 2, 20, 10, 200)));
+    }
+
+    @Test
+    public void testShrinkSlowly() {
+        assertEquals(5, size(new PoolState("q", 1, 8, 6, 0, 0, 1, 100)));
+        assertEquals(2, size(new PoolState("q", 2, 8, 2, 0, 0, 0, 100)));
+    }
+
+    @Test
+    public void testBudget() {
+        PoolState a = new PoolState("a", 1, 8, 1, 1, 100, 0, 0);
+        PoolState b = new PoolState("b", 1, 8, 1, 1, 2, 0, 0);
+        // 6 threads for both: 4 above the minimums, shared 7:2
+        assertTrue(WorkPoolSizer.computeSizes(Arrays.asList(a, b), 6, true, INTERVAL));
+        assertEquals(4, a.target);
+        assertEquals(1, b.target);
+
+        a = new PoolState("a", 1, 8, 1, 1, 2, 0, 0);
+        b = new PoolState("b", 1, 8, 1, 1, 2, 0, 0);
+        assertFalse(WorkPoolSizer.computeSizes(Arrays.asList(a, b), 6, true, INTERVAL));
+        assertEquals(3, a.target);
+        assertEquals(3, b.target);
+    }
+
+}
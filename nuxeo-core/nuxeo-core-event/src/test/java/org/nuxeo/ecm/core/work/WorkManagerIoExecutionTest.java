@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.work.api.Work.State.COMPLETED;
+import static org.nuxeo.ecm.core.work.api.Work.State.RUNNING;
+import static org.nuxeo.ecm.core.work.api.Work.State.SCHEDULED;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.WorkManagerImpl.WorkThreadPoolExecutor;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+/**
+ * Tests a work queue in I/O execution mode.
+ *
+ * @since 8.2
+ */
+public class WorkManagerIoExecutionTest extends NXRuntimeTestCase {
+
+    protected static final String CATEGORY = "IoSleepWork";
+
+    protected static final String QUEUE = "IoSleepWork";
+
+    protected static final int CONCURRENCY = 3;
+
+    /**
+     * Sleep work recording the name of the thread running it.
+     */
+    protected static class IoSleepWork extends SleepWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected static final Queue<String> threadNames = new ConcurrentLinkedQueue<>();
+
+        public IoSleepWork(long durationMillis) {
+            super(durationMillis, CATEGORY, false);
+        }
+
+        @Override
+        public void work() {
+            threadNames.add(Thread.currentThread().getName());
+            super.work();
+        }
+    }
+
+    protected WorkManagerImpl service;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        deployBundle("org.nuxeo.ecm.core.event");
+        deployContrib("org.nuxeo.ecm.core.event.test", "test-workmanager-io.xml");
+        fireFrameworkStarted();
+        service = (WorkManagerImpl) Framework.getLocalService(WorkManager.class);
+        IoSleepWork.threadNames.clear();
+    }
+
+    @Override
+    @After
+    public void tearDown() throws Exception {
+        if (service != null) {
+            service.clearCompletedWork(0);
+        }
+        super.tearDown();
+    }
+
+    @Test
+    public void testConfig() {
+        assertEquals(QUEUE, service.getCategoryQueueId(CATEGORY));
+        WorkQueueDescriptor qd = service.getWorkQueueDescriptor(QUEUE);
+        assertTrue(qd.isIoExecution());
+        assertFalse(qd.isElastic());
+        assertEquals(CONCURRENCY, qd.getConcurrency());
+    }
+
+    @Test
+    public void testThreadsStartedOnDemand() throws Exception {
+        WorkThreadPoolExecutor executor = service.getExecutor(QUEUE);
+        assertEquals(CONCURRENCY, executor.getCorePoolSize());
+        assertEquals(CONCURRENCY, executor.getMaximumPoolSize());
+        assertTrue(executor.allowsCoreThreadTimeOut());
+        // no thread prestarted
+        assertEquals(0, executor.getPoolSize());
+        // nothing to do for the pool sizer
+        executor.startIdleThreads(CONCURRENCY);
+        assertEquals(0, executor.getPoolSize());
+
+        // a thread is started for the first work
+        service.schedule(new IoSleepWork(500));
+        assertEquals(1, executor.getPoolSize());
+
+        // up to the concurrency
+        List<IoSleepWork> works = new ArrayList<>();
+        for (int i = 0; i < 2 * CONCURRENCY; i++) {
+            IoSleepWork work = new IoSleepWork(500);
+            works.add(work);
+            service.schedule(work);
+            assertTrue(executor.getPoolSize() <= CONCURRENCY);
+        }
+        assertEquals(CONCURRENCY, executor.getPoolSize());
+        Thread.sleep(200);
+        assertEquals(CONCURRENCY, service.getQueueSize(QUEUE, RUNNING));
+        assertEquals(2 * CONCURRENCY + 1 - CONCURRENCY, service.getQueueSize(QUEUE, SCHEDULED));
+
+        assertTrue(service.awaitCompletion(QUEUE, 10, TimeUnit.SECONDS));
+        assertEquals(2 * CONCURRENCY + 1, service.getQueueSize(QUEUE, COMPLETED));
+        for (IoSleepWork work : works) {
+            assertEquals(COMPLETED, service.getWorkState(work.getId()));
+        }
+        assertEquals(2 * CONCURRENCY + 1, IoSleepWork.threadNames.size());
+        for (String name : IoSleepWork.threadNames) {
+            assertTrue(name, name.startsWith(WorkManagerImpl.THREAD_PREFIX + QUEUE + "-io-"));
+        }
+        // idle threads are kept until their keep alive
+        assertEquals(CONCURRENCY, executor.getPoolSize());
+    }
+
+}
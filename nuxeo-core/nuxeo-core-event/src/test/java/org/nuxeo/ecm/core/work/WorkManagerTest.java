@@ -44,6 +44,7 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.nuxeo.common.logging.SequenceTracer;
+import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
@@ -187,6 +188,27 @@ public class WorkManagerTest extends NXRuntimeTestCase {
         // assertTrue(work.getCompletionTime() - work.getStartTime() > 0);
     }
 
+    @Test
+    public void testWorkManagerScheduleBatch() throws Exception {
+        deployAndStart();
+
+        int duration = 3000; // ms
+        List<Work> works = Arrays.asList(new SleepWork(duration, false, "1"), new SleepWork(duration, false, "2"),
+                new SleepWork(duration, false, "3"));
+        service.schedule(works);
+
+        Thread.sleep(duration / 2);
+        assertEquals(RUNNING, service.getWorkState("1"));
+        assertEquals(RUNNING, service.getWorkState("2"));
+        assertEquals(SCHEDULED, service.getWorkState("3"));
+        assertEquals(1, service.getQueueSize(QUEUE, SCHEDULED));
+        assertEquals(2, service.getQueueSize(QUEUE, RUNNING));
+
+        assertTrue(service.awaitCompletion(duration * 3, TimeUnit.MILLISECONDS));
+        assertEquals(3, service.getQueueSize(QUEUE, COMPLETED));
+        assertEquals(COMPLETED, service.getWorkState("3"));
+    }
+
     @Test
     public void testWorkManagerScheduling() throws Exception {
         deployAndStart();
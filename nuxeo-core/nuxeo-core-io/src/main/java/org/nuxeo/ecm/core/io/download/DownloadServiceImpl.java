@@ -18,12 +18,17 @@
  */
 package org.nuxeo.ecm.core.io.download;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -86,6 +91,25 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     private static final String FORCE_NO_CACHE_ON_MSIE = "org.nuxeo.download.force.nocache.msie";
 
+    /**
+     * Framework property to let the servlet container send local files itself using sendfile, when it supports it.
+     * <p>
+     * The file is sent after the request has been processed, so this must only be enabled if the binary files are
+     * never removed during a download (no binary garbage collection or file cache eviction in progress).
+     *
+     * @since 8.2
+     */
+    public static final String SENDFILE_PROP = "org.nuxeo.download.sendfile";
+
+    // Tomcat sendfile request attributes
+    protected static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    protected static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    protected static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    protected static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private static final String XP = "permissions";
 
     private static final String RUN_FUNCTION = "run";
@@ -200,7 +224,7 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
         final Blob fblob = blob;
         downloadBlob(request, response, doc, xpath, blob, filename, reason, extendedInfos, inline,
-                byteRange -> transferBlobWithByteRange(fblob, byteRange, response));
+                byteRange -> transferBlobWithByteRange(fblob, byteRange, request, response));
     }
 
     @Override
@@ -306,6 +330,29 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Transfers the blob to the response, letting the servlet container send the file itself if it is local and
+     * sendfile is enabled and supported.
+     *
+     * @since 8.2
+     */
+    protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletRequest request,
+            HttpServletResponse response) throws UncheckedIOException {
+        if (Framework.isBooleanPropertyTrue(SENDFILE_PROP)
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            File file = blob.getFile();
+            if (file != null && file.isFile()) {
+                long start = byteRange == null ? 0 : byteRange.getStart();
+                long end = byteRange == null ? file.length() : byteRange.getEnd() + 1; // exclusive
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START_ATTR, Long.valueOf(start));
+                request.setAttribute(SENDFILE_END_ATTR, Long.valueOf(end));
+                return;
+            }
+        }
+        transferBlobWithByteRange(blob, byteRange, response);
+    }
+
     protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletResponse response)
             throws UncheckedIOException {
         transferBlobWithByteRange(blob, byteRange, () -> {
@@ -325,6 +372,11 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
     @Override
     public void transferBlobWithByteRange(Blob blob, ByteRange byteRange, Supplier<OutputStream> outputStreamSupplier)
             throws UncheckedIOException {
+        File file = blob.getFile();
+        if (file != null && file.isFile()) {
+            transferFileWithByteRange(file, byteRange, outputStreamSupplier);
+            return;
+        }
         try (InputStream in = blob.getStream()) {
             @SuppressWarnings("resource")
             OutputStream out = outputStreamSupplier.get(); // not ours to close
@@ -340,6 +392,37 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Copies a local file at the given byte range into the supplied {@link OutputStream}, using
+     * {@link FileChannel#transferTo} from the requested position so that no stream skipping or intermediate heap
+     * buffer is needed. Each call uses its own channel, so concurrent ranged requests on the same file are independent.
+     *
+     * @since 8.2
+     */
+    protected void transferFileWithByteRange(File file, ByteRange byteRange,
+            Supplier<OutputStream> outputStreamSupplier) throws UncheckedIOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            @SuppressWarnings("resource")
+            OutputStream out = outputStreamSupplier.get(); // not ours to close
+            BufferingServletOutputStream.stopBuffering(out);
+            @SuppressWarnings("resource")
+            WritableByteChannel target = Channels.newChannel(out); // closing it would close out
+            long position = byteRange == null ? 0 : byteRange.getStart();
+            long count = byteRange == null ? channel.size() : byteRange.getLength();
+            while (count > 0) {
+                long n = channel.transferTo(position, count, target);
+                if (n <= 0) {
+                    break; // file truncated
+                }
+                position += n;
+                count -= n;
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     protected String fixXPath(String xpath) {
         // Hack for Flash Url wich doesn't support ':' char
         return xpath == null ? null : xpath.replace(';', ':');
@@ -28,6 +28,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
@@ -39,6 +40,7 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.Blob;
@@ -48,6 +50,8 @@ import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.impl.UserPrincipal;
 import org.nuxeo.ecm.core.api.local.ClientLoginModule;
 import org.nuxeo.ecm.core.api.local.LoginStack;
+import org.nuxeo.ecm.core.io.download.DownloadService.ByteRange;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -94,6 +98,32 @@ public class TestDownloadService {
         assertEquals(blobValue, out.toString());
     }
 
+    @Test
+    public void testFileBlobByteRange() throws Exception {
+        // file-backed blob to download
+        String blobValue = "Hello World";
+        File file = Framework.createTempFile("nxdownload-", ".txt");
+        file.deleteOnExit();
+        FileUtils.writeStringToFile(file, blobValue);
+        Blob fileBlob = Blobs.createBlob(file);
+
+        // full file
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.transferBlobWithByteRange(fileBlob, null, () -> out);
+        assertEquals(blobValue, out.toString());
+
+        // byte ranges, concurrently on the same file
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream();
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream();
+        Thread t = new Thread(
+                () -> downloadService.transferBlobWithByteRange(fileBlob, new ByteRange(6, 10), () -> out2));
+        t.start();
+        downloadService.transferBlobWithByteRange(fileBlob, new ByteRange(0, 4), () -> out1);
+        t.join();
+        assertEquals("Hello", out1.toString());
+        assertEquals("World", out2.toString());
+    }
+
     @Test
     public void testETagHeaderNone() throws Exception {
         doTestETagHeader(null);
@@ -25,6 +25,10 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 /**
  * Helper class to store statistics about listeners calls.
@@ -33,6 +37,9 @@ import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
  */
 public class EventStatsHolder {
 
+    protected static final MetricRegistry registry = SharedMetricRegistries.getOrCreate(
+            MetricsService.class.getName());
+
     protected static boolean collectAsyncHandlersExecTime = false;
 
     protected static boolean collectSyncHandlersExecTime = false;
@@ -106,6 +113,18 @@ public class EventStatsHolder {
         }
     }
 
+    /**
+     * Records in a histogram the number of listeners an event was dispatched to.
+     *
+     * @param eventName the event name
+     * @param kind {@code inline} or {@code postcommit}
+     * @param listeners the number of listeners
+     * @since 8.2
+     */
+    public static void logFanOut(String eventName, String kind, int listeners) {
+        registry.histogram(MetricRegistry.name("nuxeo", "events", eventName, kind, "fanout")).update(listeners);
+    }
+
     public static String getAsyncHandlersExecTime() {
         return getStringSummary(aSyncStats);
     }
@@ -36,4 +36,14 @@ public class EventStatsImpl implements EventStats {
         EventStatsHolder.logSyncExec(desc, delta);
     }
 
+    @Override
+    public void logInlineFanOut(String eventName, int listeners) {
+        EventStatsHolder.logFanOut(eventName, "inline", listeners);
+    }
+
+    @Override
+    public void logPostCommitFanOut(String eventName, int listeners) {
+        EventStatsHolder.logFanOut(eventName, "postcommit", listeners);
+    }
+
 }
@@ -26,6 +26,7 @@ import org.nuxeo.ecm.core.work.api.Work;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -133,6 +134,24 @@ public class RedisBlockingQueue extends NuxeoBlockingQueue {
         }
     }
 
+    /**
+     * Adds several work instances with a single Redis round-trip, and wakes up the threads waiting for work.
+     *
+     * @since 8.2
+     */
+    public void putElements(List<Work> works) {
+        lock.lock();
+        try {
+            queuing.addScheduledWork(queueId, works);
+            notEmpty.signalAll();
+        } catch (IOException e) {
+            log.error("Failed to add " + works.size() + " Work to queue: " + queueId, e);
+            throw new RuntimeException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public Runnable pollElement() {
         try {
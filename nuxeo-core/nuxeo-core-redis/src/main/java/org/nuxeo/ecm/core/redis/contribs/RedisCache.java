@@ -26,21 +26,41 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.cache.AbstractCache;
 import org.nuxeo.ecm.core.cache.CacheDescriptor;
+import org.nuxeo.ecm.core.cache.CacheStatistics;
+import org.nuxeo.ecm.core.cache.InMemoryCacheImpl;
 import org.nuxeo.ecm.core.redis.RedisAdmin;
 import org.nuxeo.ecm.core.redis.RedisCallable;
 import org.nuxeo.ecm.core.redis.RedisExecutor;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
 
 /**
  * Cache implementation on top of Redis
+ * <p>
+ * Since 8.2, a near cache can be enabled with the {@value #NEAR_CACHE_MAX_SIZE_OPTION} option: a bounded local
+ * {@link InMemoryCacheImpl} is then consulted before Redis, and kept consistent with the other nodes through Redis
+ * pubsub invalidations (see {@link RedisCacheInvalidator}). Hit rates of both tiers are reported as metrics.
  *
  * @since 6.0
  */
@@ -54,10 +74,176 @@ public class RedisCache extends AbstractCache {
 
     protected final String namespace;
 
+    /**
+     * Option for the maximum number of entries of the near cache, which enables it.
+     *
+     * @since 8.2
+     */
+    public static final String NEAR_CACHE_MAX_SIZE_OPTION = "nearCacheMaxSize";
+
+    /**
+     * Option for the time to live in minutes of the near cache entries, by default the ttl of the cache.
+     *
+     * @since 8.2
+     */
+    public static final String NEAR_CACHE_TTL_OPTION = "nearCacheTtl";
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 8.2 */
+    protected final InMemoryCacheImpl nearCache;
+
+    /** @since 8.2 */
+    protected final RedisCacheInvalidator invalidator;
+
+    /**
+     * Lock guarding the changes of the near cache and of {@link #nearGeneration}.
+     *
+     * @since 8.2
+     */
+    protected final Object nearLock = new Object();
+
+    /**
+     * Incremented on each change of the near cache, to avoid caching a value read from Redis before a concurrent
+     * invalidation. Guarded by {@link #nearLock}.
+     *
+     * @since 8.2
+     */
+    protected long nearGeneration;
+
+    protected final Counter nearHits;
+
+    protected final Counter nearMisses;
+
+    protected final Counter remoteHits;
+
+    protected final Counter remoteMisses;
+
     public RedisCache(CacheDescriptor desc) {
         super(desc);
         executor = Framework.getService(RedisExecutor.class);
         namespace = Framework.getService(RedisAdmin.class).namespace("cache", name);
+        remoteHits = registry.counter(MetricRegistry.name("nuxeo", "cache", name, "remote", "hits"));
+        remoteMisses = registry.counter(MetricRegistry.name("nuxeo", "cache", name, "remote", "misses"));
+        registerRatioGauge(MetricRegistry.name("nuxeo", "cache", name, "remote", "hit-ratio"), remoteHits,
+                remoteMisses);
+        String maxSize = desc.options.get(NEAR_CACHE_MAX_SIZE_OPTION);
+        if (maxSize == null) {
+            nearCache = null;
+            invalidator = null;
+            nearHits = null;
+            nearMisses = null;
+            return;
+        }
+        nearCache = new InMemoryCacheImpl(newNearCacheDescriptor(desc));
+        nearHits = registry.counter(MetricRegistry.name("nuxeo", "cache", name, "near", "hits"));
+        nearMisses = registry.counter(MetricRegistry.name("nuxeo", "cache", name, "near", "misses"));
+        registerRatioGauge(MetricRegistry.name("nuxeo", "cache", name, "near", "hit-ratio"), nearHits, nearMisses);
+        invalidator = getInvalidator();
+        invalidator.register(this);
+    }
+
+    /**
+     * Creates the descriptor of the near cache, bounded by the {@value #NEAR_CACHE_MAX_SIZE_OPTION} option.
+     *
+     * @since 8.2
+     */
+    protected CacheDescriptor newNearCacheDescriptor(CacheDescriptor desc) {
+        CacheDescriptor nearDesc = new CacheDescriptor();
+        nearDesc.name = name;
+        String nearTtl = desc.options.get(NEAR_CACHE_TTL_OPTION);
+        nearDesc.ttl = nearTtl == null ? ttl : Integer.parseInt(nearTtl);
+        nearDesc.options.put(InMemoryCacheImpl.MAX_SIZE_OPTION, desc.options.get(NEAR_CACHE_MAX_SIZE_OPTION));
+        return nearDesc;
+    }
+
+    protected void registerRatioGauge(String gaugeName, Counter hits, Counter misses) {
+        if (registry.getGauges().containsKey(gaugeName)) {
+            return;
+        }
+        registry.register(gaugeName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                long h = hits.getCount();
+                return Ratio.of(h, h + misses.getCount());
+            }
+        });
+    }
+
+    /**
+     * Gets the invalidator propagating the near cache invalidations to the other nodes.
+     *
+     * @since 8.2
+     */
+    protected RedisCacheInvalidator getInvalidator() {
+        return RedisCacheInvalidator.getInstance();
+    }
+
+    /**
+     * Invalidates a key of the near cache, after a change done by another node.
+     *
+     * @param key the key, or {@code null} for all keys
+     * @since 8.2
+     */
+    protected void invalidateNear(String key) {
+        if (nearCache == null) {
+            return;
+        }
+        synchronized (nearLock) {
+            nearGeneration++;
+            if (key == null) {
+                nearCache.invalidateAll();
+            } else {
+                nearCache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Gets the current generation of the near cache, to be passed to {@link #putNearIfUnchanged} after a read from
+     * Redis.
+     *
+     * @since 8.2
+     */
+    protected long getNearGeneration() {
+        synchronized (nearLock) {
+            return nearGeneration;
+        }
+    }
+
+    /**
+     * Stores values read from Redis in the near cache, unless the near cache was changed since the read started, in
+     * which case the values may be stale.
+     * <p>
+     * The check and the put are done under the lock taken by the invalidations, so that an invalidation cannot happen
+     * between them.
+     *
+     * @since 8.2
+     */
+    protected void putNearIfUnchanged(long generation, Map<String, Serializable> values) {
+        synchronized (nearLock) {
+            if (nearGeneration == generation) {
+                nearCache.putAll(values);
+            }
+        }
+    }
+
+    /**
+     * Applies local writes to the near cache, a {@code null} value being an invalidation.
+     *
+     * @since 8.2
+     */
+    protected void putNear(Map<String, Serializable> values) {
+        synchronized (nearLock) {
+            nearGeneration++;
+            for (Entry<String, Serializable> en : values.entrySet()) {
+                if (en.getValue() == null) {
+                    nearCache.invalidate(en.getKey());
+                } else {
+                    nearCache.put(en.getKey(), en.getValue());
+                }
+            }
+        }
     }
 
     protected String formatKey(String key) {
@@ -89,7 +275,26 @@ public class RedisCache extends AbstractCache {
 
     @Override
     public Serializable get(final String key) {
-        return executor.execute(new RedisCallable<Serializable>() {
+        if (nearCache == null) {
+            return getRemote(key);
+        }
+        Serializable value = nearCache.get(key);
+        if (value != null) {
+            nearHits.inc();
+            return value;
+        }
+        nearMisses.inc();
+        long generation = getNearGeneration();
+        value = getRemote(key);
+        if (value != null) {
+            putNearIfUnchanged(generation, Collections.singletonMap(key, value));
+        }
+        return value;
+    }
+
+    /** @since 8.2 */
+    protected Serializable getRemote(final String key) {
+        Serializable value = executor.execute(new RedisCallable<Serializable>() {
             @Override
             public Serializable call(Jedis jedis) {
                 try {
@@ -100,7 +305,71 @@ public class RedisCache extends AbstractCache {
                 }
             }
         });
+        if (value == null) {
+            remoteMisses.inc();
+        } else {
+            remoteHits.inc();
+        }
+        return value;
+    }
 
+    @Override
+    public Map<String, Serializable> getAll(Collection<String> keys) {
+        if (nearCache == null) {
+            return getAllRemote(keys);
+        }
+        Map<String, Serializable> values = new HashMap<>(nearCache.getAll(keys));
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            if (!values.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+        nearHits.inc(values.size());
+        if (missing.isEmpty()) {
+            return values;
+        }
+        nearMisses.inc(missing.size());
+        long generation = getNearGeneration();
+        Map<String, Serializable> remoteValues = getAllRemote(missing);
+        if (!remoteValues.isEmpty()) {
+            putNearIfUnchanged(generation, remoteValues);
+        }
+        values.putAll(remoteValues);
+        return values;
+    }
+
+    /**
+     * Gets several values from Redis in a single MGET.
+     *
+     * @since 8.2
+     */
+    protected Map<String, Serializable> getAllRemote(Collection<String> keys) {
+        Map<String, Serializable> values = new HashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        List<String> keyList = new ArrayList<>(keys);
+        byte[][] bkeys = new byte[keyList.size()][];
+        for (int i = 0; i < bkeys.length; i++) {
+            bkeys[i] = bytes(formatKey(keyList.get(i)));
+        }
+        List<byte[]> bvalues = executor.execute(jedis -> jedis.mget(bkeys));
+        for (int i = 0; i < bkeys.length; i++) {
+            Serializable value;
+            try {
+                value = deserializeValue(bvalues.get(i));
+            } catch (IOException e) {
+                log.error(e);
+                value = null;
+            }
+            if (value != null) {
+                values.put(keyList.get(i), value);
+            }
+        }
+        remoteHits.inc(values.size());
+        remoteMisses.inc(bkeys.length - values.size());
+        return values;
     }
 
     protected byte[] serializeValue(Serializable value) throws IOException {
@@ -114,10 +383,18 @@ public class RedisCache extends AbstractCache {
 
     @Override
     public void invalidate(final String key) {
+        invalidateNear(key);
         executor.execute(new RedisCallable<Void>() {
             @Override
             public Void call(Jedis jedis) {
-                jedis.del(new String[] { formatKey(key) });
+                if (invalidator == null) {
+                    jedis.del(new String[] { formatKey(key) });
+                    return null;
+                }
+                Pipeline pipeline = jedis.pipelined();
+                pipeline.del(formatKey(key));
+                invalidator.send(pipeline, name, key);
+                pipeline.sync();
                 return null;
             }
         });
@@ -125,20 +402,35 @@ public class RedisCache extends AbstractCache {
 
     @Override
     public void invalidateAll() {
+        invalidateNear(null);
         Framework.getService(RedisAdmin.class).clear(formatKey("*"));
+        if (invalidator != null) {
+            invalidator.send(name, null);
+        }
     }
 
     @Override
     public void put(final String key, final Serializable value) {
+        if (nearCache != null) {
+            putNear(Collections.singletonMap(key, value));
+        }
         executor.execute(new RedisCallable<Void>() {
             @Override
             public Void call(Jedis jedis) {
                 try {
                     byte[] bkey = bytes(formatKey(key));
-                    jedis.set(bkey, serializeValue(value));
                     // Redis set in second ttl but descriptor set as mn
                     int ttlKey = ttl * 60;
-                    jedis.expire(bkey, ttlKey);
+                    if (invalidator == null) {
+                        jedis.set(bkey, serializeValue(value));
+                        jedis.expire(bkey, ttlKey);
+                        return null;
+                    }
+                    Pipeline pipeline = jedis.pipelined();
+                    pipeline.set(bkey, serializeValue(value));
+                    pipeline.expire(bkey, ttlKey);
+                    invalidator.send(pipeline, name, key);
+                    pipeline.sync();
                     return null;
                 } catch (IOException e) {
                     throw new NuxeoException(e);
@@ -147,8 +439,64 @@ public class RedisCache extends AbstractCache {
         });
     }
 
+    @Override
+    public void putAll(Map<String, Serializable> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        if (nearCache != null) {
+            putNear(values);
+        }
+        executor.execute((RedisCallable<Void>) jedis -> {
+            try {
+                // Redis set in second ttl but descriptor set as mn
+                int ttlKey = ttl * 60;
+                Pipeline pipeline = jedis.pipelined();
+                for (Entry<String, Serializable> en : values.entrySet()) {
+                    byte[] bkey = bytes(formatKey(en.getKey()));
+                    pipeline.set(bkey, serializeValue(en.getValue()));
+                    pipeline.expire(bkey, ttlKey);
+                    if (invalidator != null) {
+                        invalidator.send(pipeline, name, en.getKey());
+                    }
+                }
+                pipeline.sync();
+                return null;
+            } catch (IOException e) {
+                throw new NuxeoException(e);
+            }
+        });
+    }
+
+    @Override
+    public void invalidateAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (nearCache != null) {
+            synchronized (nearLock) {
+                nearGeneration++;
+                nearCache.invalidateAll(keys);
+            }
+        }
+        executor.execute((RedisCallable<Void>) jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            for (String key : keys) {
+                pipeline.del(formatKey(key));
+                if (invalidator != null) {
+                    invalidator.send(pipeline, name, key);
+                }
+            }
+            pipeline.sync();
+            return null;
+        });
+    }
+
     @Override
     public boolean hasEntry(final String key) {
+        if (nearCache != null && nearCache.hasEntry(key)) {
+            return true;
+        }
         return (Boolean) executor.execute(new RedisCallable<Serializable>() {
             @Override
             public Serializable call(Jedis jedis) {
@@ -157,4 +505,34 @@ public class RedisCache extends AbstractCache {
         });
     }
 
+    /**
+     * Stops receiving the invalidations of the other nodes.
+     *
+     * @since 8.2
+     */
+    @Override
+    public void stop() {
+        if (invalidator != null) {
+            invalidator.unregister(this);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The size, estimated bytes and evictions are the ones of the near cache, as the entries stored in Redis don't
+     * use the memory of this node; they are unknown without near cache.
+     *
+     * @since 8.2
+     */
+    @Override
+    public CacheStatistics getStatistics() {
+        if (nearCache == null) {
+            return new CacheStatistics(name, -1, -1, remoteHits.getCount(), remoteMisses.getCount(), -1);
+        }
+        CacheStatistics near = nearCache.getStatistics();
+        return new CacheStatistics(name, near.getSize(), near.getEstimatedBytes(),
+                nearHits.getCount() + remoteHits.getCount(), remoteMisses.getCount(), near.getEvictionCount());
+    }
+
 }
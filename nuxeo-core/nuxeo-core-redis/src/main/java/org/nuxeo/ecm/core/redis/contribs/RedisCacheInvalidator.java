@@ -0,0 +1,237 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.redis.contribs;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.redis.RedisAdmin;
+import org.nuxeo.ecm.core.redis.RedisExecutor;
+import org.nuxeo.runtime.api.Framework;
+
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+
+/**
+ * Propagates the invalidations of the {@link RedisCache} near caches to the other nodes.
+ * <p>
+ * A single pubsub channel is shared by all caches of all nodes, and a single subscriber thread per node dispatches
+ * the received invalidations to the registered caches. A message is made of the sending node id, the cache name, and
+ * the invalidated key ({@code k} followed by the key) or {@code *} for all the keys, separated by newlines.
+ * <p>
+ * If the subscription is lost, all the near caches are cleared as they may have missed invalidations. The subscriber
+ * thread is stopped when the last cache is unregistered, and started again by the next registration.
+ *
+ * @since 8.2
+ */
+public class RedisCacheInvalidator {
+
+    private static final Log log = LogFactory.getLog(RedisCacheInvalidator.class);
+
+    // PubSub channel: nuxeo:cache:inval
+    protected static final String INVALIDATION_CHANNEL = "inval";
+
+    protected static final String ALL_KEYS = "*";
+
+    protected static final char KEY_PREFIX = 'k';
+
+    // Max delay to wait for a channel subscription
+    protected static final long TIMEOUT_SUBSCRIBE_SECOND = 10;
+
+    // Delay before subscribing again after a failure
+    protected static final long RETRY_DELAY_MILLIS = 1000;
+
+    protected static RedisCacheInvalidator instance;
+
+    protected final String nodeId = UUID.randomUUID().toString();
+
+    protected final Map<String, RedisCache> caches = new ConcurrentHashMap<>();
+
+    protected final String channel;
+
+    protected Thread subscriberThread;
+
+    protected CountDownLatch subscribeLatch;
+
+    protected volatile JedisPubSub pubSub;
+
+    protected RedisCacheInvalidator() {
+        channel = Framework.getService(RedisAdmin.class).namespace("cache") + INVALIDATION_CHANNEL;
+    }
+
+    public static synchronized RedisCacheInvalidator getInstance() {
+        if (instance == null) {
+            instance = new RedisCacheInvalidator();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a cache to receive the invalidations sent by other nodes, replacing a previous cache with the same
+     * name.
+     */
+    public synchronized void register(RedisCache cache) {
+        caches.put(cache.getName(), cache);
+        startSubscriber();
+    }
+
+    /**
+     * Unregisters a cache, unless it has already been replaced by another one with the same name. Stops the subscriber
+     * thread if no cache remains.
+     */
+    public synchronized void unregister(RedisCache cache) {
+        caches.remove(cache.getName(), cache);
+        if (caches.isEmpty()) {
+            stopSubscriber();
+        }
+    }
+
+    protected synchronized void startSubscriber() {
+        if (subscriberThread != null) {
+            return;
+        }
+        subscribeLatch = new CountDownLatch(1);
+        subscriberThread = new Thread(this::subscribeLoop, "RedisCacheInvalidatorSubscriber:" + nodeId);
+        subscriberThread.setDaemon(true);
+        subscriberThread.setUncaughtExceptionHandler((t, e) -> log.error("Uncaught error on thread " + t.getName(), e));
+        subscriberThread.start();
+        try {
+            if (!subscribeLatch.await(TIMEOUT_SUBSCRIBE_SECOND, TimeUnit.SECONDS)) {
+                log.error("Redis channel subscription timeout after " + TIMEOUT_SUBSCRIBE_SECOND
+                        + "s, continuing but near caches may miss invalidations");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected synchronized void stopSubscriber() {
+        if (subscriberThread == null) {
+            return;
+        }
+        Thread thread = subscriberThread;
+        subscriberThread = null;
+        thread.interrupt();
+        JedisPubSub ps = pubSub;
+        if (ps != null && ps.isSubscribed()) {
+            ps.unsubscribe();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SUBSCRIBE_SECOND));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        if (thread.isAlive()) {
+            log.warn("Subscriber thread did not stop: " + thread.getName());
+        }
+    }
+
+    protected void subscribeLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                log.debug("Subscribing to channel: " + channel);
+                RedisExecutor executor = Framework.getService(RedisExecutor.class);
+                pubSub = new JedisPubSub() {
+                    @Override
+                    public void onSubscribe(String channel, int subscribedChannels) {
+                        super.onSubscribe(channel, subscribedChannels);
+                        subscribeLatch.countDown();
+                        if (Thread.currentThread().isInterrupted()) {
+                            // stopped before the subscription was done
+                            unsubscribe();
+                        }
+                    }
+
+                    @Override
+                    public void onMessage(String channel, String message) {
+                        receive(message);
+                    }
+                };
+                executor.execute(jedis -> {
+                    jedis.subscribe(pubSub, channel);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                log.warn("Lost subscription to channel: " + channel + ", clearing near caches", e);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            // invalidations may have been missed
+            for (RedisCache cache : caches.values()) {
+                cache.invalidateNear(null);
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    protected void receive(String message) {
+        String[] parts = message.split("\n", 3);
+        if (parts.length != 3) {
+            log.error("Fail to read message: " + message);
+            return;
+        }
+        if (nodeId.equals(parts[0])) {
+            return;
+        }
+        RedisCache cache = caches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+        String key = parts[2];
+        cache.invalidateNear(ALL_KEYS.equals(key) ? null : key.substring(1));
+    }
+
+    /**
+     * Sends an invalidation to the other nodes, as part of a pipeline.
+     *
+     * @param key the invalidated key, or {@code null} for all the keys
+     */
+    public void send(Pipeline pipeline, String cacheName, String key) {
+        pipeline.publish(channel, message(cacheName, key));
+    }
+
+    protected String message(String cacheName, String key) {
+        return nodeId + '\n' + cacheName + '\n' + (key == null ? ALL_KEYS : KEY_PREFIX + key);
+    }
+
+    /**
+     * Sends an invalidation to the other nodes.
+     *
+     * @param key the invalidated key, or {@code null} for all the keys
+     */
+    public void send(String cacheName, String key) {
+        Framework.getService(RedisExecutor.class).execute(jedis -> jedis.publish(channel, message(cacheName, key)));
+    }
+
+}
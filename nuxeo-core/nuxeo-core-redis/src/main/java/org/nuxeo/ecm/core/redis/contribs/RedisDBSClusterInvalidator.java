@@ -0,0 +1,263 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.redis.contribs;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.redis.RedisAdmin;
+import org.nuxeo.ecm.core.redis.RedisExecutor;
+import org.nuxeo.ecm.core.storage.dbs.DBSClusterInvalidator;
+import org.nuxeo.ecm.core.storage.dbs.DBSInvalidations;
+import org.nuxeo.runtime.api.Framework;
+
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * Redis implementation of {@link DBSClusterInvalidator}.
+ * <p>
+ * Uses a single channel pubsub to send invalidations, like {@link RedisClusterInvalidator} does for VCS. The message
+ * is the sender node id followed by the comma-separated document ids, or {@code *} to invalidate everything.
+ *
+ * @since 8.2
+ */
+public class RedisDBSClusterInvalidator implements DBSClusterInvalidator {
+
+    private static final Log log = LogFactory.getLog(RedisDBSClusterInvalidator.class);
+
+    protected static final String PREFIX = "invaldbs";
+
+    // PubSub channel: nuxeo:invaldbs:<repositoryName>:channel
+    protected static final String INVALIDATION_CHANNEL = "channel";
+
+    // Node HSET key: nuxeo:invaldbs:<repositoryName>:nodes:<nodeId>
+    protected static final String CLUSTER_NODES_KEY = "nodes";
+
+    // Keep info about a cluster node for one day
+    protected static final int TIMEOUT_REGISTER_SECOND = 24 * 3600;
+
+    // Max delay to wait for a channel subscription
+    protected static final long TIMEOUT_SUBSCRIBE_SECOND = 10;
+
+    protected static final String STARTED_FIELD = "started";
+
+    protected static final String LAST_INVAL_FIELD = "lastInvalSent";
+
+    protected static final String ALL = "*";
+
+    protected static final char SEP = ',';
+
+    protected String nodeId;
+
+    protected String repositoryName;
+
+    protected RedisExecutor redisExecutor;
+
+    protected DBSInvalidations receivedInvals;
+
+    protected Thread subscriberThread;
+
+    protected String namespace;
+
+    private CountDownLatch subscribeLatch;
+
+    private String registerSha;
+
+    private String sendSha;
+
+    @Override
+    public void initialize(String nodeId, String repositoryName) {
+        this.nodeId = nodeId;
+        this.repositoryName = repositoryName;
+        redisExecutor = Framework.getLocalService(RedisExecutor.class);
+        RedisAdmin redisAdmin = Framework.getService(RedisAdmin.class);
+        namespace = redisAdmin.namespace(PREFIX, repositoryName);
+        try {
+            registerSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "register-node-inval");
+            sendSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "send-inval");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        receivedInvals = new DBSInvalidations();
+        createSubscriberThread();
+        registerNode();
+    }
+
+    protected void createSubscriberThread() {
+        subscribeLatch = new CountDownLatch(1);
+        String name = "RedisDBSClusterInvalidatorSubscriber:" + repositoryName + ":" + nodeId;
+        subscriberThread = new Thread(this::subscribeToInvalidationChannel, name);
+        subscriberThread.setUncaughtExceptionHandler((t, e) -> log.error("Uncaught error on thread " + t.getName(), e));
+        subscriberThread.setPriority(Thread.NORM_PRIORITY);
+        subscriberThread.start();
+        try {
+            if (!subscribeLatch.await(TIMEOUT_SUBSCRIBE_SECOND, TimeUnit.SECONDS)) {
+                log.error("Redis channel subscripion timeout after " + TIMEOUT_SUBSCRIBE_SECOND
+                        + "s, continuing but this node may not receive cluster invalidations");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected void subscribeToInvalidationChannel() {
+        log.info("Subscribing to channel: " + getChannelName());
+        redisExecutor.execute(jedis -> {
+            jedis.subscribe(new JedisPubSub() {
+                @Override
+                public void onSubscribe(String channel, int subscribedChannels) {
+                    super.onSubscribe(channel, subscribedChannels);
+                    if (subscribeLatch != null) {
+                        subscribeLatch.countDown();
+                    }
+                    log.debug("Subscribed to channel: " + getChannelName());
+                }
+
+                @Override
+                public void onMessage(String channel, String message) {
+                    try {
+                        DBSInvalidations invals = deserialize(nodeId, message);
+                        if (invals == null) {
+                            // sent by this node
+                            return;
+                        }
+                        if (log.isTraceEnabled()) {
+                            log.trace("Receive invalidations: " + invals);
+                        }
+                        synchronized (RedisDBSClusterInvalidator.this) {
+                            receivedInvals.add(invals);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        log.error("Fail to read message: " + message, e);
+                    }
+                }
+            }, getChannelName());
+            return null;
+        });
+    }
+
+    protected String getChannelName() {
+        return namespace + INVALIDATION_CHANNEL;
+    }
+
+    protected void registerNode() {
+        List<String> keys = Arrays.asList(getNodeKey());
+        List<String> args = Arrays.asList(STARTED_FIELD, getCurrentDateTime(),
+                Integer.valueOf(TIMEOUT_REGISTER_SECOND).toString());
+        log.debug("Registering node: " + nodeId);
+        redisExecutor.execute(jedis -> {
+            jedis.evalsha(registerSha, keys, args);
+            log.info("Node registered: " + nodeId);
+            return null;
+        });
+    }
+
+    protected String getNodeKey() {
+        return namespace + CLUSTER_NODES_KEY + ":" + nodeId;
+    }
+
+    @Override
+    public void close() {
+        log.debug("Closing");
+        subscriberThread.interrupt();
+        // The Jedis pool is already closed when the repository is shutdowned
+        receivedInvals.clear();
+    }
+
+    @Override
+    public DBSInvalidations receiveInvalidations() {
+        DBSInvalidations newInvals = new DBSInvalidations();
+        DBSInvalidations ret;
+        synchronized (this) {
+            ret = receivedInvals;
+            receivedInvals = newInvals;
+        }
+        return ret;
+    }
+
+    @Override
+    public void sendInvalidations(DBSInvalidations invals) {
+        String message = serialize(nodeId, invals);
+        if (log.isTraceEnabled()) {
+            log.trace("Sending invalidations: " + invals);
+        }
+        List<String> keys = Arrays.asList(getChannelName(), getNodeKey());
+        List<String> args = Arrays.asList(message, STARTED_FIELD, getCurrentDateTime(), LAST_INVAL_FIELD,
+                getCurrentDateTime(), Integer.valueOf(TIMEOUT_REGISTER_SECOND).toString());
+        redisExecutor.execute(jedis -> {
+            jedis.evalsha(sendSha, keys, args);
+            if (log.isTraceEnabled()) {
+                log.trace("invals sent");
+            }
+            return null;
+        });
+    }
+
+    protected String getCurrentDateTime() {
+        return LocalDateTime.now().toString();
+    }
+
+    /**
+     * Serializes invalidations into a pubsub message.
+     */
+    public static String serialize(String nodeId, DBSInvalidations invals) {
+        StringBuilder sb = new StringBuilder(nodeId);
+        sb.append(':');
+        if (invals.all) {
+            sb.append(ALL);
+        } else if (invals.ids != null) {
+            sb.append(StringUtils.join(invals.ids, SEP));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Deserializes a pubsub message into invalidations.
+     *
+     * @return the invalidations, or {@code null} if the message was sent by the receiver node itself
+     */
+    public static DBSInvalidations deserialize(String receiverNodeId, String message) {
+        if (message == null || !message.contains(":")) {
+            throw new IllegalArgumentException("Invalid message: " + message);
+        }
+        String[] parts = message.split(":", 2);
+        if (receiverNodeId.equals(parts[0])) {
+            // only decode if it is a remote node
+            return null;
+        }
+        String payload = parts[1];
+        if (ALL.equals(payload)) {
+            return new DBSInvalidations(true);
+        }
+        DBSInvalidations invals = new DBSInvalidations();
+        if (!payload.isEmpty()) {
+            invals.addAll(Arrays.asList(StringUtils.split(payload, SEP)));
+        }
+        return invals;
+    }
+
+}
@@ -19,14 +19,11 @@
 package org.nuxeo.ecm.core.redis.contribs;
 
 import org.apache.commons.codec.binary.Base64;
+import org.nuxeo.common.codec.CompactCodec;
 import org.nuxeo.ecm.core.storage.sql.Invalidations;
+import org.nuxeo.runtime.api.Framework;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 
 /**
  * invalidations and nodeId serializer/unserializer.
@@ -58,9 +55,8 @@ public class RedisInvalidations {
     }
 
     private Invalidations deserializeInvalidations(String invalsStr) {
-        InputStream bain = new ByteArrayInputStream(Base64.decodeBase64(invalsStr));
-        try (ObjectInputStream in = new ObjectInputStream(bain)) {
-            return (Invalidations) in.readObject();
+        try {
+            return (Invalidations) CompactCodec.decode(Base64.decodeBase64(invalsStr));
         } catch (IOException | ClassNotFoundException cause) {
             throw new IllegalArgumentException("Cannot deserialize invalidations", cause);
         }
@@ -75,13 +71,10 @@ public class RedisInvalidations {
     }
 
     private String serializeInvalidations(Invalidations invals) throws IOException {
-        ByteArrayOutputStream baout = new ByteArrayOutputStream();
-        ObjectOutputStream out = new ObjectOutputStream(baout);
-        out.writeObject(invals);
-        out.flush();
-        out.close();
+        boolean compact = !Framework.isBooleanPropertyFalse(RedisWorkQueuing.COMPACT_CODEC_PROP);
+        byte[] bytes = CompactCodec.encode(invals, compact);
         // use base64 because Jedis don't have onMessage with bytes
-        return Base64.encodeBase64String(baout.toByteArray());
+        return Base64.encodeBase64String(bytes);
     }
 
     @Override
@@ -19,6 +19,8 @@
  */
 package org.nuxeo.ecm.core.redis.contribs;
 
+import java.util.List;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.NuxeoException;
@@ -67,4 +69,20 @@ public class RedisUIDSequencer extends AbstractUIDSequencer {
         }
     }
 
+    @Override
+    protected List<Integer> reserveBlock(String key, int size) {
+        RedisExecutor executor = Framework.getService(RedisExecutor.class);
+        try {
+            int last = executor.execute(new RedisCallable<Long>() {
+                @Override
+                public Long call(Jedis jedis) {
+                    return jedis.incrBy(namespace + key, size);
+                }
+            }).intValue();
+            return range(last, size);
+        } catch (JedisException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
 }
@@ -18,16 +18,12 @@
  */
 package org.nuxeo.ecm.core.redis.contribs;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -38,6 +34,7 @@ import java.util.concurrent.BlockingQueue;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.codec.CompactCodec;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.redis.RedisAdmin;
 import org.nuxeo.ecm.core.redis.RedisCallable;
@@ -47,7 +44,9 @@ import org.nuxeo.ecm.core.work.WorkManagerImpl;
 import org.nuxeo.ecm.core.work.WorkQueueDescriptorRegistry;
 import org.nuxeo.ecm.core.work.WorkQueuing;
 import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Priority;
 import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.runtime.api.Framework;
 
 import redis.clients.jedis.Jedis;
@@ -68,6 +67,14 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected static final String UTF_8 = "UTF-8";
 
+    /**
+     * Framework property to disable the compact serialization of works, for instance during a rolling upgrade of a
+     * cluster where some nodes cannot read it yet.
+     *
+     * @since 8.2
+     */
+    public static final String COMPACT_CODEC_PROP = "nuxeo.redis.codec.compact";
+
     /**
      * Global hash of Work instance id -> serialized Work instance.
      */
@@ -104,6 +111,22 @@ public class RedisWorkQueuing implements WorkQueuing {
      */
     protected static final String KEY_COMPLETED_PREFIX = "done:";
 
+    /**
+     * Per-queue and per-priority sorted set of scheduled Work instance ids, by virtual finish time. Used instead of the
+     * {@value #KEY_QUEUE_PREFIX} list for queues with priority scheduling.
+     *
+     * @since 8.2
+     */
+    protected static final String KEY_PRIORITY_QUEUE_PREFIX = "pqueue:";
+
+    /**
+     * Per-queue and per-priority hash of fairness key -> last virtual finish time, also holding the current virtual
+     * time.
+     *
+     * @since 8.2
+     */
+    protected static final String KEY_PRIORITY_FINISH_PREFIX = "pfinish:";
+
     protected static final byte STATE_SCHEDULED_B = 'Q';
 
     protected static final byte STATE_CANCELED_B = 'X';
@@ -122,6 +145,9 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected final WorkManagerImpl mgr;
 
+    /** @since 8.2 */
+    protected final WorkQueueDescriptorRegistry workQueueDescriptors;
+
     // @GuardedBy("this")
     protected Map<String, BlockingQueue<Runnable>> allQueued = new HashMap<String, BlockingQueue<Runnable>>();
 
@@ -131,14 +157,20 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected String redisNamespace;
 
+    /** @since 8.2 */
+    protected boolean compactCodec;
+
     // lua scripts
     protected String schedulingWorkSha;
     protected String runningWorkSha;
     protected String completedWorkSha;
     protected String cleanCompletedWorkSha;
+    protected String schedulingWorkPrioritySha;
+    protected String popWorkPrioritySha;
 
     public RedisWorkQueuing(WorkManagerImpl mgr, WorkQueueDescriptorRegistry workQueueDescriptors) {
         this.mgr = mgr;
+        this.workQueueDescriptors = workQueueDescriptors;
     }
 
     @Override
@@ -146,24 +178,39 @@ public class RedisWorkQueuing implements WorkQueuing {
         redisExecutor = Framework.getLocalService(RedisExecutor.class);
         redisAdmin = Framework.getService(RedisAdmin.class);
         redisNamespace = redisAdmin.namespace("work");
-        try {
-            for (String queueId : getSuspendedQueueIds()) {
-                int n = scheduleSuspendedWork(queueId);
-                log.info("Re-scheduling " + n + " work instances suspended from queue: " + queueId);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        compactCodec = !Framework.isBooleanPropertyFalse(COMPACT_CODEC_PROP);
+        // scripts are needed to re-schedule suspended work in priority queues
         try {
             schedulingWorkSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "scheduling-work");
             runningWorkSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "running-work");
             completedWorkSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "completed-work");
             cleanCompletedWorkSha = redisAdmin.load("org.nuxeo.ecm.core.redis", "clean-completed-work");
+            schedulingWorkPrioritySha = redisAdmin.load("org.nuxeo.ecm.core.redis", "scheduling-work-priority");
+            popWorkPrioritySha = redisAdmin.load("org.nuxeo.ecm.core.redis", "pop-work-priority");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        try {
+            for (String queueId : getSuspendedQueueIds()) {
+                int n = scheduleSuspendedWork(queueId);
+                log.info("Re-scheduling " + n + " work instances suspended from queue: " + queueId);
+            }
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Gets the descriptor of a queue if it uses priority scheduling.
+     *
+     * @return the descriptor, or {@code null} if the queue uses FIFO scheduling
+     * @since 8.2
+     */
+    protected WorkQueueDescriptor getPriorityDescriptor(String queueId) {
+        WorkQueueDescriptor descriptor = workQueueDescriptors == null ? null : workQueueDescriptors.get(queueId);
+        return descriptor != null && descriptor.isPriorityScheduling() ? descriptor : null;
+    }
+
     @Override
     public BlockingQueue<Runnable> initWorkQueue(String queueId) {
         if (allQueued.containsKey(queueId)) {
@@ -179,6 +226,12 @@ public class RedisWorkQueuing implements WorkQueuing {
         return getWorkQueue(queueId).offer(new WorkHolder(work));
     }
 
+    @Override
+    public boolean workSchedule(String queueId, List<Work> works) {
+        ((RedisBlockingQueue) getWorkQueue(queueId)).putElements(works);
+        return true;
+    }
+
     public BlockingQueue<Runnable> getWorkQueue(String queueId) {
         if (!allQueued.containsKey(queueId)) {
             throw new IllegalStateException(queueId + " was not configured yet");
@@ -242,6 +295,9 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected List<Work> listScheduled(String queueId) {
         try {
+            if (getPriorityDescriptor(queueId) != null) {
+                return listWorkSet(scheduledKey(queueId));
+            }
             return listWorkList(queuedKey(queueId));
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -266,6 +322,9 @@ public class RedisWorkQueuing implements WorkQueuing {
 
     protected List<String> listScheduledIds(String queueId) {
         try {
+            if (getPriorityDescriptor(queueId) != null) {
+                return listWorkIdsSet(scheduledKey(queueId));
+            }
             return listWorkIdsList(queuedKey(queueId));
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -425,6 +484,16 @@ public class RedisWorkQueuing implements WorkQueuing {
         return keyBytes(KEY_QUEUE_PREFIX, queueId);
     }
 
+    /** @since 8.2 */
+    protected byte[] priorityQueuedKey(String queueId, Priority priority) {
+        return keyBytes(KEY_PRIORITY_QUEUE_PREFIX, queueId + ':' + priority.name().toLowerCase());
+    }
+
+    /** @since 8.2 */
+    protected byte[] priorityFinishKey(String queueId, Priority priority) {
+        return keyBytes(KEY_PRIORITY_FINISH_PREFIX, queueId + ':' + priority.name().toLowerCase());
+    }
+
     protected byte[] runningKey(String queueId) {
         return keyBytes(KEY_RUNNING_PREFIX, queueId);
     }
@@ -458,21 +527,15 @@ public class RedisWorkQueuing implements WorkQueuing {
     }
 
     protected byte[] serializeWork(Work work) throws IOException {
-        ByteArrayOutputStream baout = new ByteArrayOutputStream();
-        ObjectOutputStream out = new ObjectOutputStream(baout);
-        out.writeObject(work);
-        out.flush();
-        out.close();
-        return baout.toByteArray();
+        return CompactCodec.encode(work, compactCodec);
     }
 
     protected Work deserializeWork(byte[] workBytes) {
         if (workBytes == null) {
             return null;
         }
-        InputStream bain = new ByteArrayInputStream(workBytes);
-        try (ObjectInputStream in = new ObjectInputStream(bain)) {
-            return (Work) in.readObject();
+        try {
+            return (Work) CompactCodec.decode(workBytes);
         } catch (RuntimeException cause) {
             throw cause;
         } catch (IOException | ClassNotFoundException cause) {
@@ -511,17 +574,72 @@ public class RedisWorkQueuing implements WorkQueuing {
      * @throws IOException
      */
     public void addScheduledWork(final String queueId, Work work) throws IOException {
-        final byte[] workId = bytes(work.getId());
-        final byte[] workData = serializeWork(work);
-        final List<byte[]> keys = Arrays.asList(dataKey(), stateKey(), scheduledKey(queueId),queuedKey(queueId));
-        final List<byte[]> args = Arrays.asList(workId, workData, STATE_SCHEDULED);
+        addScheduledWork(queueId, Collections.singletonList(work));
+    }
+
+    /**
+     * Persists work instances and adds them to the scheduled queue, using one Redis call per batch.
+     *
+     * @param queueId the queue id
+     * @param works the work instances
+     * @since 8.2
+     */
+    public void addScheduledWork(String queueId, List<Work> works) throws IOException {
+        for (int i = 0; i < works.size(); i += SCHEDULING_BATCH_SIZE) {
+            addScheduledWorkBatch(queueId, works.subList(i, Math.min(i + SCHEDULING_BATCH_SIZE, works.size())));
+        }
+    }
+
+    /**
+     * Persists work instances and adds them to the scheduled queue, or for priority queues to the sorted sets of their
+     * priority with a virtual finish time computed from their fairness key.
+     *
+     * @since 8.2
+     */
+    protected void addScheduledWorkBatch(String queueId, List<Work> works) throws IOException {
+        WorkQueueDescriptor descriptor = getPriorityDescriptor(queueId);
+        final String sha;
+        final List<byte[]> keys;
+        final List<byte[]> args;
+        if (descriptor == null) {
+            sha = schedulingWorkSha;
+            keys = Arrays.asList(dataKey(), stateKey(), scheduledKey(queueId), queuedKey(queueId));
+            args = new ArrayList<>(3 * works.size());
+            for (Work work : works) {
+                args.add(bytes(work.getId()));
+                args.add(serializeWork(work));
+                args.add(STATE_SCHEDULED);
+            }
+        } else {
+            sha = schedulingWorkPrioritySha;
+            keys = new ArrayList<>(3 + 2 * Priority.values().length);
+            keys.add(dataKey());
+            keys.add(stateKey());
+            keys.add(scheduledKey(queueId));
+            for (Priority priority : Priority.values()) {
+                keys.add(priorityQueuedKey(queueId, priority));
+                keys.add(priorityFinishKey(queueId, priority));
+            }
+            args = new ArrayList<>(1 + 5 * works.size());
+            args.add(STATE_SCHEDULED);
+            for (Work work : works) {
+                String fairnessKey = descriptor.getFairnessKey(work);
+                args.add(bytes(work.getId()));
+                args.add(serializeWork(work));
+                args.add(bytes(String.valueOf(work.getPriority().ordinal() + 1)));
+                args.add(bytes(fairnessKey));
+                args.add(bytes(String.valueOf(1.0 / descriptor.getWeight(fairnessKey))));
+            }
+        }
         redisExecutor.execute(new RedisCallable<Void>() {
 
             @Override
             public Void call(Jedis jedis) {
-                jedis.evalsha(schedulingWorkSha.getBytes(), keys, args);
+                jedis.evalsha(sha.getBytes(), keys, args);
                 if (log.isDebugEnabled()) {
-                    log.debug("Add scheduled " + work);
+                    for (Work work : works) {
+                        log.debug("Add scheduled " + work);
+                    }
                 }
                 return null;
             }
@@ -587,6 +705,9 @@ public class RedisWorkQueuing implements WorkQueuing {
      * @since 5.8
      */
     public int scheduleSuspendedWork(final String queueId) throws IOException {
+        if (getPriorityDescriptor(queueId) != null) {
+            return schedulePrioritySuspendedWork(queueId);
+        }
         return redisExecutor.execute(new RedisCallable<Integer>() {
             @Override
             public Integer call(Jedis jedis) {
@@ -601,6 +722,37 @@ public class RedisWorkQueuing implements WorkQueuing {
         }).intValue();
     }
 
+    /**
+     * Resumes all suspended work instances of a priority queue, which must be scheduled again to compute their virtual
+     * finish time.
+     *
+     * @since 8.2
+     */
+    protected int schedulePrioritySuspendedWork(final String queueId) throws IOException {
+        List<Work> works = redisExecutor.execute(new RedisCallable<List<Work>>() {
+
+            @Override
+            public List<Work> call(Jedis jedis) {
+                List<Work> works = new ArrayList<>();
+                for (;;) {
+                    byte[] workIdBytes = jedis.rpop(suspendedKey(queueId));
+                    if (workIdBytes == null) {
+                        return works;
+                    }
+                    Work work = deserializeWork(jedis.hget(dataKey(), workIdBytes));
+                    if (work == null) {
+                        log.error("Missing data for suspended work: " + string(workIdBytes));
+                        continue;
+                    }
+                    works.add(work);
+                }
+            }
+
+        });
+        addScheduledWork(queueId, works);
+        return works.size();
+    }
+
     /**
      * Suspends all scheduled work instances by moving them to the suspended queue.
      *
@@ -613,6 +765,22 @@ public class RedisWorkQueuing implements WorkQueuing {
 
             @Override
             public Integer call(Jedis jedis) {
+                if (getPriorityDescriptor(queueId) != null) {
+                    int n = 0;
+                    for (Priority priority : Priority.values()) {
+                        byte[] key = priorityQueuedKey(queueId, priority);
+                        for (byte[] workIdBytes : jedis.zrange(key, 0, -1)) {
+                            // may have been concurrently taken by another node
+                            Long removed = jedis.zrem(key, workIdBytes);
+                            if (removed != null && removed.longValue() > 0) {
+                                jedis.lpush(suspendedKey(queueId), workIdBytes);
+                                n++;
+                            }
+                        }
+                        jedis.del(priorityFinishKey(queueId, priority));
+                    }
+                    return n;
+                }
                 for (int n = 0;; n++) {
                     byte[] workIdBytes = jedis.rpoplpush(queuedKey(queueId), suspendedKey(queueId));
                     if (workIdBytes == null) {
@@ -802,6 +970,9 @@ public class RedisWorkQueuing implements WorkQueuing {
      * @return the work, or {@code null} if the scheduled queue is empty
      */
     protected Work getWorkFromQueue(final String queueId) throws IOException {
+        if (getPriorityDescriptor(queueId) != null) {
+            return getWorkFromPriorityQueue(queueId);
+        }
         return redisExecutor.execute(new RedisCallable<Work>() {
 
             @Override
@@ -819,6 +990,29 @@ public class RedisWorkQueuing implements WorkQueuing {
         });
     }
 
+    /**
+     * Removes the work with the highest priority and lowest virtual finish time from a priority queue.
+     *
+     * @since 8.2
+     */
+    protected Work getWorkFromPriorityQueue(final String queueId) throws IOException {
+        final List<byte[]> keys = new ArrayList<>(1 + 2 * Priority.values().length);
+        keys.add(dataKey());
+        for (Priority priority : Priority.values()) {
+            keys.add(priorityQueuedKey(queueId, priority));
+            keys.add(priorityFinishKey(queueId, priority));
+        }
+        return redisExecutor.execute(new RedisCallable<Work>() {
+
+            @Override
+            public Work call(Jedis jedis) {
+                Object workBytes = jedis.evalsha(popWorkPrioritySha.getBytes(), keys, Collections.emptyList());
+                return deserializeWork((byte[]) workBytes);
+            }
+
+        });
+    }
+
     /**
      * Removes a given work from queue, move the work from scheduled to completed set.
      *
@@ -831,8 +1025,17 @@ public class RedisWorkQueuing implements WorkQueuing {
             @Override
             public Work call(Jedis jedis) {
                 // remove from queue
-                Long n = jedis.lrem(queuedKey(queueId), 0, workIdBytes);
-                if (n == null || n.intValue() == 0) {
+                long n;
+                if (getPriorityDescriptor(queueId) != null) {
+                    n = 0;
+                    for (Priority priority : Priority.values()) {
+                        n += jedis.zrem(priorityQueuedKey(queueId, priority), workIdBytes).longValue();
+                    }
+                } else {
+                    Long r = jedis.lrem(queuedKey(queueId), 0, workIdBytes);
+                    n = r == null ? 0 : r.longValue();
+                }
+                if (n == 0) {
                     return null;
                 }
                 // remove from set
@@ -903,6 +1106,11 @@ public class RedisWorkQueuing implements WorkQueuing {
      */
     private static final int BATCH_SIZE = 5000;
 
+    /**
+     * Number of work instances scheduled by a single Lua call, each taking up to 5 parameters.
+     */
+    private static final int SCHEDULING_BATCH_SIZE = BATCH_SIZE / 5;
+
     protected void removeAllCompletedWork(final String queueId) throws IOException {
         removeCompletedWork(queueId, 0);
     }
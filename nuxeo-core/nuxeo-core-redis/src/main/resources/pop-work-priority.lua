@@ -0,0 +1,23 @@
+--
+-- Pop the next work from a priority queue
+--
+local dataKey = KEYS[1]
+
+-- then pairs of queue key and finish key, by decreasing priority
+for i = 2, #KEYS, 2 do
+  local queueKey = KEYS[i]
+  local finishKey = KEYS[i + 1]
+  local first = redis.call('ZRANGE', queueKey, 0, 0, 'WITHSCORES')
+  if #first > 0 then
+    local workId = first[1]
+    redis.call('ZREM', queueKey, workId)
+    if redis.call('ZCARD', queueKey) == 0 then
+      -- no more pending work, forget the fairness keys
+      redis.call('DEL', finishKey)
+    else
+      redis.call('HSET', finishKey, '@vtime', first[2])
+    end
+    return redis.call('HGET', dataKey, workId)
+  end
+end
+return false
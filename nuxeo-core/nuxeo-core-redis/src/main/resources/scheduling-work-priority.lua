@@ -0,0 +1,31 @@
+--
+-- Schedule works in a priority queue, using weighted fair queuing between fairness keys
+--
+local dataKey = KEYS[1]
+local stateKey = KEYS[2]
+local scheduledKey = KEYS[3]
+-- then pairs of queue key and finish key, by decreasing priority
+
+local state = ARGV[1]
+
+-- for each work: id, data, priority index (1 is the highest), fairness key, cost
+for i = 2, #ARGV, 5 do
+  local workId = ARGV[i]
+  local workData = ARGV[i + 1]
+  local priority = tonumber(ARGV[i + 2])
+  local fairnessKey = 'k:' .. ARGV[i + 3]
+  local cost = tonumber(ARGV[i + 4])
+  local queueKey = KEYS[2 + 2 * priority]
+  local finishKey = KEYS[3 + 2 * priority]
+
+  -- virtual finish time: after the previous work of the same key, but not before the current virtual time
+  local vtime = tonumber(redis.call('HGET', finishKey, '@vtime') or 0)
+  local last = tonumber(redis.call('HGET', finishKey, fairnessKey) or 0)
+  local finish = math.max(vtime, last) + cost
+
+  redis.call('HSET', dataKey, workId, workData)
+  redis.call('SADD', scheduledKey, workId)
+  redis.call('HSET', stateKey, workId, state)
+  redis.call('HSET', finishKey, fairnessKey, finish)
+  redis.call('ZADD', queueKey, finish, workId)
+end
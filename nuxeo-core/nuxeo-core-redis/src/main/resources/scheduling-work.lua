@@ -1,16 +1,19 @@
 --
--- Schedule a work
+-- Schedule works
 --
 local dataKey = KEYS[1]
 local stateKey = KEYS[2]
 local scheduledKey = KEYS[3]
 local queueKey = KEYS[4]
 
-local workId = ARGV[1]
-local workData = ARGV[2]
-local state = ARGV[3]
+-- for each work: id, data, state
+for i = 1, #ARGV, 3 do
+  local workId = ARGV[i]
+  local workData = ARGV[i + 1]
+  local state = ARGV[i + 2]
 
-redis.call('HSET', dataKey, workId, workData)
-redis.call('SADD', scheduledKey, workId)
-redis.call('HSET', stateKey, workId, state)
-redis.call('LPUSH', queueKey, workId)
\ No newline at end of file
+  redis.call('HSET', dataKey, workId, workData)
+  redis.call('SADD', scheduledKey, workId)
+  redis.call('HSET', stateKey, workId, state)
+  redis.call('LPUSH', queueKey, workId)
+end
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.redis.contribs.RedisDBSClusterInvalidator;
+import org.nuxeo.ecm.core.storage.dbs.DBSInvalidations;
+
+/**
+ * @since 8.2
+ */
+public class TestRedisDBSInvalidations {
+
+    @Test
+    public void testSerializeIds() throws Exception {
+        DBSInvalidations invals = new DBSInvalidations();
+        invals.add("id1");
+        invals.add("id2");
+        String message = RedisDBSClusterInvalidator.serialize("node1", invals);
+
+        assertNull(RedisDBSClusterInvalidator.deserialize("node1", message));
+
+        DBSInvalidations received = RedisDBSClusterInvalidator.deserialize("node2", message);
+        assertFalse(received.all);
+        assertEquals(new HashSet<>(Arrays.asList("id1", "id2")), received.ids);
+    }
+
+    @Test
+    public void testSerializeAll() throws Exception {
+        String message = RedisDBSClusterInvalidator.serialize("node1", new DBSInvalidations(true));
+        DBSInvalidations received = RedisDBSClusterInvalidator.deserialize("node2", message);
+        assertTrue(received.all);
+        assertNull(received.ids);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMessage() throws Exception {
+        RedisDBSClusterInvalidator.deserialize("node1", "garbage");
+    }
+
+}
@@ -23,6 +23,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import javax.inject.Inject;
 
 import org.junit.Test;
@@ -56,4 +58,24 @@ public class TestRedisUIDSequencer {
         assertEquals(2, sequencer.getNext("B"));
     }
 
+    @Test
+    public void testRedisUIDSequencerBlock() throws Exception {
+        RedisUIDSequencer sequencer = (RedisUIDSequencer) service.getSequencer("redisSequencer");
+        sequencer.init();
+
+        assertEquals(1, sequencer.getNext("C"));
+        assertEquals(Arrays.asList(2, 3, 4), sequencer.getNextBlock("C", 3));
+        assertEquals(5, sequencer.getNext("C"));
+
+        // the remainder of a reserved block serves the next calls
+        sequencer.setBlockSize(10);
+        try {
+            assertEquals(Arrays.asList(6, 7), sequencer.getNextBlock("C", 2));
+            assertEquals(16, sequencer.getNext("C"));
+            assertEquals(Arrays.asList(8, 9, 10), sequencer.getNextBlock("C", 3));
+        } finally {
+            sequencer.setBlockSize(1);
+        }
+    }
+
 }
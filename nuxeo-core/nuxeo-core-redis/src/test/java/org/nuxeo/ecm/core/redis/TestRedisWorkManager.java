@@ -18,9 +18,19 @@
  */
 package org.nuxeo.ecm.core.redis;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.work.api.Work.State.RUNNING;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Ignore;
 import org.junit.Test;
+import org.nuxeo.ecm.core.work.SleepWork;
 import org.nuxeo.ecm.core.work.WorkManagerTest;
+import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -67,6 +77,24 @@ public class TestRedisWorkManager extends WorkManagerTest {
         }
     }
 
+    @Test
+    public void testWorkManagerScheduleBatchWakesUpIdleThreads() throws Exception {
+        deployAndStart();
+        // let the threads go idle, waiting for the next remote poll
+        Thread.sleep(1500);
+
+        int duration = 2000; // ms
+        List<Work> works = Arrays.asList(new SleepWork(duration, false, "1"), new SleepWork(duration, false, "2"));
+        service.schedule(works);
+
+        // much less than the remote poll interval
+        Thread.sleep(300);
+        assertEquals(RUNNING, service.getWorkState("1"));
+        assertEquals(RUNNING, service.getWorkState("2"));
+
+        assertTrue(service.awaitCompletion(duration * 3, TimeUnit.MILLISECONDS));
+    }
+
     private void stopMonitorRedis() {
         monitorRedis = false;
         if (redisExecutor != null) {
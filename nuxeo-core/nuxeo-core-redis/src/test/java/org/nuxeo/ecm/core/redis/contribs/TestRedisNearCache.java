@@ -0,0 +1,215 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.redis.contribs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.cache.CacheDescriptor;
+import org.nuxeo.ecm.core.redis.RedisFeature;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Tests the near cache of {@link RedisCache}, which needs a true Redis server for pipelines and pubsub.
+ *
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RedisFeature.class)
+public class TestRedisNearCache {
+
+    protected static final String CACHE_NAME = "near-test-cache";
+
+    protected static final int NEAR_MAX_SIZE = 3;
+
+    /**
+     * Cache simulating another node, with its own invalidator.
+     */
+    public static class OtherNodeRedisCache extends RedisCache {
+
+        protected static RedisCacheInvalidator otherNodeInvalidator;
+
+        public OtherNodeRedisCache(CacheDescriptor desc) {
+            super(desc);
+        }
+
+        @Override
+        protected RedisCacheInvalidator getInvalidator() {
+            return otherNodeInvalidator;
+        }
+    }
+
+    protected List<RedisCache> caches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue("Require a true Redis server with pubsub support",
+                "server".equals(Framework.getProperty("nuxeo.test.redis.mode")));
+        OtherNodeRedisCache.otherNodeInvalidator = new RedisCacheInvalidator();
+    }
+
+    @After
+    public void tearDown() {
+        for (RedisCache cache : caches) {
+            cache.invalidateAll();
+            cache.stop();
+        }
+    }
+
+    protected CacheDescriptor newDescriptor() {
+        CacheDescriptor desc = new CacheDescriptor();
+        desc.name = CACHE_NAME;
+        desc.ttl = 10;
+        desc.options.put(RedisCache.NEAR_CACHE_MAX_SIZE_OPTION, String.valueOf(NEAR_MAX_SIZE));
+        return desc;
+    }
+
+    protected RedisCache newCache() {
+        RedisCache cache = new RedisCache(newDescriptor());
+        caches.add(cache);
+        return cache;
+    }
+
+    protected RedisCache newOtherNodeCache() {
+        RedisCache cache = new OtherNodeRedisCache(newDescriptor());
+        caches.add(cache);
+        return cache;
+    }
+
+    protected static void waitForNearInvalidation(RedisCache cache, String key) throws InterruptedException {
+        for (int i = 0; i < 1000 && cache.nearCache.hasEntry(key); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse("Near cache not invalidated after 10s", cache.nearCache.hasEntry(key));
+    }
+
+    @Test
+    public void testNearCacheHits() {
+        RedisCache cache = newCache();
+        long nearHits = cache.nearHits.getCount();
+        long remoteHits = cache.remoteHits.getCount();
+        cache.put("a", "1");
+        assertEquals("1", cache.get("a"));
+        assertEquals("1", cache.get("a"));
+        // served by the near cache without going to Redis
+        assertEquals(nearHits + 2, cache.nearHits.getCount());
+        assertEquals(remoteHits, cache.remoteHits.getCount());
+
+        // a value read from Redis is kept in the near cache
+        cache.nearCache.invalidateAll();
+        assertEquals("1", cache.get("a"));
+        assertEquals(remoteHits + 1, cache.remoteHits.getCount());
+        assertEquals("1", cache.get("a"));
+        assertEquals(nearHits + 3, cache.nearHits.getCount());
+        assertEquals(remoteHits + 1, cache.remoteHits.getCount());
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testRemoteInvalidation() throws Exception {
+        RedisCache cache1 = newCache();
+        RedisCache cache2 = newOtherNodeCache();
+        cache1.put("a", "1");
+        assertEquals("1", cache2.get("a"));
+        assertTrue(cache2.nearCache.hasEntry("a"));
+
+        // change on node 1 invalidates the near cache of node 2
+        cache1.put("a", "2");
+        waitForNearInvalidation(cache2, "a");
+        assertEquals("2", cache2.get("a"));
+
+        // and the other way round
+        assertEquals("2", cache1.get("a"));
+        cache2.invalidate("a");
+        waitForNearInvalidation(cache1, "a");
+        assertNull(cache1.get("a"));
+
+        // invalidation of all the keys
+        cache1.put("b", "1");
+        assertEquals("1", cache2.get("b"));
+        cache1.invalidateAll();
+        waitForNearInvalidation(cache2, "b");
+        assertNull(cache2.get("b"));
+    }
+
+    @Test
+    public void testNearCacheBounds() {
+        RedisCache cache = newCache();
+        int n = NEAR_MAX_SIZE * 3;
+        for (int i = 0; i < n; i++) {
+            cache.put("k" + i, "v" + i);
+        }
+        assertTrue(cache.nearCache.getStatistics().getSize() <= NEAR_MAX_SIZE);
+        // evicted entries are still in Redis
+        for (int i = 0; i < n; i++) {
+            assertEquals("v" + i, cache.get("k" + i));
+        }
+        assertTrue(cache.nearCache.getStatistics().getSize() <= NEAR_MAX_SIZE);
+        assertTrue(cache.getStatistics().getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testNearCacheTtl() {
+        RedisCache cache = newCache();
+        CacheDescriptor desc = newDescriptor();
+        // defaults to the ttl of the cache
+        CacheDescriptor nearDesc = cache.newNearCacheDescriptor(desc);
+        assertEquals(desc.ttl, nearDesc.ttl);
+        assertEquals(String.valueOf(NEAR_MAX_SIZE), nearDesc.options.get("maxSize"));
+        desc.options.put(RedisCache.NEAR_CACHE_TTL_OPTION, "2");
+        nearDesc = cache.newNearCacheDescriptor(desc);
+        assertEquals(2, nearDesc.ttl);
+    }
+
+    @Test
+    public void testStopUnregisters() throws Exception {
+        RedisCacheInvalidator invalidator = OtherNodeRedisCache.otherNodeInvalidator;
+        RedisCache cache = newOtherNodeCache();
+        Thread thread = invalidator.subscriberThread;
+        assertNotNull(thread);
+        assertEquals(cache, invalidator.caches.get(CACHE_NAME));
+
+        cache.stop();
+        assertTrue(invalidator.caches.isEmpty());
+        assertNull(invalidator.subscriberThread);
+        assertFalse(thread.isAlive());
+
+        // registering again restarts the subscriber
+        RedisCache cache2 = newOtherNodeCache();
+        assertNotNull(invalidator.subscriberThread);
+        cache2.stop();
+        assertNull(invalidator.subscriberThread);
+    }
+
+}
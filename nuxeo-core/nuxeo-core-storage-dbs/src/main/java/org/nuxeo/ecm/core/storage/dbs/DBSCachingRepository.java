@@ -0,0 +1,502 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.Lock;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.PartialList;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.model.LockManager;
+import org.nuxeo.ecm.core.model.Session;
+import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.storage.FulltextConfiguration;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A {@link DBSRepository} wrapper keeping a size-bounded cache of {@link State}s shared by all the sessions of the
+ * repository.
+ * <p>
+ * Writes go through to the underlying repository and invalidate the written states. Invalidations are sent to other
+ * cluster nodes at the end of the transaction through a {@link DBSClusterInvalidator}, and received from them at the
+ * beginning of a transaction.
+ * <p>
+ * States are copied when put into and returned from the cache, as callers are allowed to modify them.
+ *
+ * @since 8.2
+ */
+public class DBSCachingRepository implements DBSRepository {
+
+    private static final Log log = LogFactory.getLog(DBSCachingRepository.class);
+
+    private static final Random RANDOM = new Random();
+
+    protected final DBSRepository repository;
+
+    protected final Cache<String, State> cache;
+
+    protected final DBSClusterInvalidator clusterInvalidator;
+
+    /**
+     * Incremented at each invalidation. A state read from the underlying repository is only put in the cache if no
+     * invalidation happened during the read, otherwise a stale state could be cached.
+     */
+    protected final AtomicLong invalidationCount = new AtomicLong();
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Counter cacheMissCount;
+
+    protected Counter invalidationsCount;
+
+    protected Timer cacheGetTimer;
+
+    protected Timer sorGetTimer;
+
+    public DBSCachingRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
+        this.repository = repository;
+        cache = CacheBuilder.newBuilder() //
+                            .maximumSize(descriptor.getCacheMaxSize())
+                            .expireAfterWrite(descriptor.getCacheTTL(), TimeUnit.MINUTES)
+                            .concurrencyLevel(descriptor.getCacheConcurrencyLevel())
+                            .build();
+        if (descriptor.isClusteringEnabled()) {
+            clusterInvalidator = createClusterInvalidator(descriptor);
+        } else {
+            clusterInvalidator = null;
+        }
+        setMetrics();
+        log.info("Repository " + getName() + " using a cache of " + descriptor.getCacheMaxSize() + " states"
+                + (clusterInvalidator == null ? "" : ", with cluster invalidator " + clusterInvalidator));
+    }
+
+    protected DBSClusterInvalidator createClusterInvalidator(DBSRepositoryDescriptor descriptor) {
+        Class<? extends DBSClusterInvalidator> klass = descriptor.clusterInvalidatorClass;
+        if (klass == null) {
+            throw new NuxeoException("Unable to get cluster invalidator class from descriptor of repository: "
+                    + getName() + ", clustering requires a <clusterInvalidatorClass>");
+        }
+        String nodeId = descriptor.clusterNodeId;
+        if (StringUtils.isBlank(nodeId)) {
+            nodeId = String.valueOf(RANDOM.nextInt(32768));
+            log.warn("Missing cluster node id configuration, please define it explicitly "
+                    + "(usually through repository.clustering.id). Using random cluster node id instead: " + nodeId);
+        } else {
+            nodeId = nodeId.trim();
+        }
+        DBSClusterInvalidator invalidator;
+        try {
+            invalidator = klass.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new NuxeoException(e);
+        }
+        invalidator.initialize(nodeId, getName());
+        return invalidator;
+    }
+
+    protected void setMetrics() {
+        String repositoryName = getName();
+        cacheHitCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "dbs", "hits"));
+        cacheMissCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "dbs", "misses"));
+        invalidationsCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "dbs", "invalidations"));
+        cacheGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "dbs",
+                "get"));
+        sorGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "dbs",
+                "sor", "get"));
+        String gaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "dbs", "size");
+        registry.remove(gaugeName);
+        registry.register(gaugeName, new Gauge<Long>() {
+            @Override
+            public Long getValue() {
+                return Long.valueOf(cache.size());
+            }
+        });
+    }
+
+    protected void removeMetrics() {
+        registry.remove(MetricRegistry.name("nuxeo", "repositories", getName(), "caches", "dbs", "size"));
+    }
+
+    /*
+     * ----- cache -----
+     */
+
+    protected State getFromCache(String id) {
+        Context context = cacheGetTimer.time();
+        try {
+            State state = cache.getIfPresent(id);
+            if (state == null) {
+                cacheMissCount.inc();
+                return null;
+            }
+            cacheHitCount.inc();
+            return StateHelper.deepCopy(state);
+        } finally {
+            context.stop();
+        }
+    }
+
+    protected void putInCache(State state, long count) {
+        if (state == null) {
+            return;
+        }
+        if (invalidationCount.get() != count) {
+            // an invalidation happened while we were reading, don't risk caching a stale state
+            return;
+        }
+        String id = (String) state.get(KEY_ID);
+        cache.put(id, StateHelper.deepCopy(state));
+    }
+
+    protected void invalidate(String id) {
+        invalidationCount.incrementAndGet();
+        cache.invalidate(id);
+        invalidationsCount.inc();
+    }
+
+    protected void invalidateAll(Collection<String> ids) {
+        invalidationCount.incrementAndGet();
+        cache.invalidateAll(ids);
+        invalidationsCount.inc(ids.size());
+    }
+
+    protected void invalidateAll() {
+        invalidationCount.incrementAndGet();
+        cache.invalidateAll();
+        invalidationsCount.inc();
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clearCache() {
+        invalidateAll();
+    }
+
+    @Override
+    public void receiveClusterInvalidations() {
+        if (clusterInvalidator == null) {
+            return;
+        }
+        DBSInvalidations invalidations = clusterInvalidator.receiveInvalidations();
+        if (invalidations == null || invalidations.isEmpty()) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Received cluster invalidations: " + invalidations);
+        }
+        if (invalidations.all) {
+            invalidateAll();
+        } else {
+            invalidateAll(invalidations.ids);
+        }
+    }
+
+    @Override
+    public void sendClusterInvalidations(DBSInvalidations invalidations) {
+        if (clusterInvalidator == null) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Sending cluster invalidations: " + invalidations);
+        }
+        clusterInvalidator.sendInvalidations(invalidations);
+    }
+
+    /*
+     * ----- reads -----
+     */
+
+    @Override
+    public State readState(String id) {
+        State state = getFromCache(id);
+        if (state != null) {
+            return state;
+        }
+        long count = invalidationCount.get();
+        Context context = sorGetTimer.time();
+        try {
+            state = repository.readState(id);
+        } finally {
+            context.stop();
+        }
+        putInCache(state, count);
+        return state;
+    }
+
+    @Override
+    public List<State> readStates(List<String> ids) {
+        List<State> states = new ArrayList<>(ids.size());
+        List<String> idsToFetch = new ArrayList<>();
+        for (String id : ids) {
+            State state = getFromCache(id);
+            if (state == null) {
+                idsToFetch.add(id);
+            } else {
+                states.add(state);
+            }
+        }
+        if (!idsToFetch.isEmpty()) {
+            long count = invalidationCount.get();
+            List<State> fetched;
+            Context context = sorGetTimer.time();
+            try {
+                fetched = repository.readStates(idsToFetch);
+            } finally {
+                context.stop();
+            }
+            for (State state : fetched) {
+                putInCache(state, count);
+                states.add(state);
+            }
+        }
+        return states;
+    }
+
+    /*
+     * ----- writes -----
+     */
+
+    @Override
+    public void createState(State state) {
+        repository.createState(state);
+        // in case a previous incarnation of the id is still cached (undo log replay)
+        invalidate((String) state.get(KEY_ID));
+    }
+
+    @Override
+    public void createStates(List<State> states) {
+        repository.createStates(states);
+        Set<String> ids = new HashSet<>();
+        for (State state : states) {
+            ids.add((String) state.get(KEY_ID));
+        }
+        invalidateAll(ids);
+    }
+
+    @Override
+    public void updateState(String id, StateDiff diff) {
+        repository.updateState(id, diff);
+        invalidate(id);
+    }
+
+    @Override
+    public void updateStates(Map<String, StateDiff> diffs) {
+        repository.updateStates(diffs);
+        invalidateAll(diffs.keySet());
+    }
+
+    @Override
+    public void deleteStates(Set<String> ids) {
+        repository.deleteStates(ids);
+        invalidateAll(ids);
+    }
+
+    /*
+     * ----- locks -----
+     */
+
+    @Override
+    public LockManager getLockManager() {
+        LockManager lockManager = repository.getLockManager();
+        // locks are stored in the document states if the repository is its own lock manager
+        return lockManager == repository ? this : lockManager;
+    }
+
+    @Override
+    public Lock getLock(String id) {
+        return repository.getLock(id);
+    }
+
+    @Override
+    public Lock setLock(String id, Lock lock) {
+        try {
+            return repository.setLock(id, lock);
+        } finally {
+            lockChanged(id);
+        }
+    }
+
+    @Override
+    public Lock removeLock(String id, String owner) {
+        try {
+            return repository.removeLock(id, owner);
+        } finally {
+            lockChanged(id);
+        }
+    }
+
+    /**
+     * Locks are not transactional, so the invalidation is sent to other cluster nodes immediately.
+     */
+    protected void lockChanged(String id) {
+        invalidate(id);
+        DBSInvalidations invalidations = new DBSInvalidations();
+        invalidations.add(id);
+        sendClusterInvalidations(invalidations);
+    }
+
+    @Override
+    public void closeLockManager() {
+        repository.closeLockManager();
+    }
+
+    @Override
+    public void clearLockManagerCaches() {
+        repository.clearLockManagerCaches();
+    }
+
+    /*
+     * ----- delegation -----
+     */
+
+    @Override
+    public String getName() {
+        return repository.getName();
+    }
+
+    @Override
+    public Session getSession() {
+        if (repository instanceof DBSRepositoryBase) {
+            // make sure sessions read through this cache
+            return ((DBSRepositoryBase) repository).getSession(this);
+        }
+        return repository.getSession();
+    }
+
+    @Override
+    public void shutdown() {
+        if (clusterInvalidator != null) {
+            clusterInvalidator.close();
+        }
+        removeMetrics();
+        cache.invalidateAll();
+        repository.shutdown();
+    }
+
+    @Override
+    public int getActiveSessionsCount() {
+        return repository.getActiveSessionsCount();
+    }
+
+    @Override
+    public void markReferencedBinaries() {
+        repository.markReferencedBinaries();
+    }
+
+    @Override
+    public BlobManager getBlobManager() {
+        return repository.getBlobManager();
+    }
+
+    @Override
+    public FulltextConfiguration getFulltextConfiguration() {
+        return repository.getFulltextConfiguration();
+    }
+
+    @Override
+    public boolean isFulltextDisabled() {
+        return repository.isFulltextDisabled();
+    }
+
+    @Override
+    public String getRootId() {
+        return repository.getRootId();
+    }
+
+    @Override
+    public String generateNewId() {
+        return repository.generateNewId();
+    }
+
+    @Override
+    public State readChildState(String parentId, String name, Set<String> ignored) {
+        return repository.readChildState(parentId, name, ignored);
+    }
+
+    @Override
+    public boolean hasChild(String parentId, String name, Set<String> ignored) {
+        return repository.hasChild(parentId, name, ignored);
+    }
+
+    @Override
+    public List<State> queryKeyValue(String key, Object value, Set<String> ignored) {
+        return repository.queryKeyValue(key, value, ignored);
+    }
+
+    @Override
+    public List<State> queryKeyValue(String key1, Object value1, String key2, Object value2, Set<String> ignored) {
+        return repository.queryKeyValue(key1, value1, key2, value2, ignored);
+    }
+
+    @Override
+    public void queryKeyValueArray(String key, Object value, Set<String> ids, Map<String, String> proxyTargets,
+            Map<String, Object[]> targetProxies) {
+        repository.queryKeyValueArray(key, value, ids, proxyTargets, targetProxies);
+    }
+
+    @Override
+    public boolean queryKeyValuePresence(String key, String value, Set<String> ignored) {
+        return repository.queryKeyValuePresence(key, value, ignored);
+    }
+
+    @Override
+    public PartialList<Map<String, Serializable>> queryAndFetch(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments, int limit, int offset, int countUpTo) {
+        return repository.queryAndFetch(evaluator, orderByClause, distinctDocuments, limit, offset, countUpTo);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + repository + ')';
+    }
+
+}
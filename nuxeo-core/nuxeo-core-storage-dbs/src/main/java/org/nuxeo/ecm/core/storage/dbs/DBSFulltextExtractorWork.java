@@ -19,6 +19,10 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.core.storage.DefaultFulltextParser;
 import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
@@ -40,6 +44,25 @@ public class DBSFulltextExtractorWork extends FulltextExtractorWork {
         super(repositoryName, docId, repositoryName + ':' + docId + ":dbsFulltextExtractor", true);
     }
 
+    /**
+     * Constructor used when decoding a compact serialized work.
+     *
+     * @since 8.2
+     */
+    protected DBSFulltextExtractorWork() {
+    }
+
+    @Override
+    public void writeCompact(DataOutput out) throws IOException {
+        // no state of its own
+        super.writeCompact(out);
+    }
+
+    @Override
+    public void readCompact(DataInput in, int version) throws IOException {
+        super.readCompact(in, version);
+    }
+
     @Override
     public void initFulltextConfigurationAndParser() {
         RepositoryService repositoryService = Framework.getService(RepositoryService.class);
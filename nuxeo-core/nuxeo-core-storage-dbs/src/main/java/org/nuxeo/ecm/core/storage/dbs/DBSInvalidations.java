@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A set of invalidations for a DBS repository cache.
+ * <p>
+ * Records either a set of document ids to invalidate, or the fact that everything must be invalidated.
+ *
+ * @since 8.2
+ */
+public class DBSInvalidations implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Maximum number of ids recorded before we switch to an "invalidate all".
+     */
+    public static final int MAX_SIZE = 10000;
+
+    /**
+     * Used locally when invalidating everything, or when too many ids are recorded.
+     */
+    public boolean all;
+
+    /**
+     * Ids to invalidate. {@code null} when empty or when {@link #all} is set.
+     */
+    public Set<String> ids;
+
+    public DBSInvalidations() {
+    }
+
+    public DBSInvalidations(boolean all) {
+        this.all = all;
+    }
+
+    public boolean isEmpty() {
+        return ids == null && !all;
+    }
+
+    public void clear() {
+        all = false;
+        ids = null;
+    }
+
+    protected void setAll() {
+        all = true;
+        ids = null;
+    }
+
+    protected void checkMaxSize() {
+        if (ids != null && ids.size() > MAX_SIZE) {
+            setAll();
+        }
+    }
+
+    /** only call this if it's to add at least one element in the set */
+    protected Set<String> ids() {
+        if (ids == null) {
+            ids = new HashSet<>();
+        }
+        return ids;
+    }
+
+    public void add(DBSInvalidations other) {
+        if (other == null) {
+            return;
+        }
+        if (all) {
+            return;
+        }
+        if (other.all) {
+            setAll();
+            return;
+        }
+        if (other.ids != null) {
+            ids().addAll(other.ids);
+        }
+        checkMaxSize();
+    }
+
+    public void add(String id) {
+        if (all) {
+            return;
+        }
+        ids().add(id);
+        checkMaxSize();
+    }
+
+    public void addAll(Collection<String> idsToAdd) {
+        if (all || idsToAdd.isEmpty()) {
+            return;
+        }
+        ids().addAll(idsToAdd);
+        checkMaxSize();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(getClass().getSimpleName() + '(');
+        if (all) {
+            sb.append("all=true");
+        }
+        if (ids != null) {
+            sb.append("ids=");
+            sb.append(ids);
+        }
+        sb.append(')');
+        return sb.toString();
+    }
+
+}
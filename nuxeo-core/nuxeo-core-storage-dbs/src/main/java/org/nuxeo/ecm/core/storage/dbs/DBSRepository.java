@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.dbs;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.nuxeo.ecm.core.api.PartialList;
@@ -102,6 +103,21 @@ public interface DBSRepository extends Repository, LockManager {
      */
     void createState(State state);
 
+    /**
+     * Creates documents.
+     * <p>
+     * The default implementation creates the documents one by one, implementations should override it to do fewer
+     * round-trips to the backend.
+     *
+     * @param states the document states, in creation order
+     * @since 8.2
+     */
+    default void createStates(List<State> states) {
+        for (State state : states) {
+            createState(state);
+        }
+    }
+
     /**
      * Updates a document.
      *
@@ -110,6 +126,21 @@ public interface DBSRepository extends Repository, LockManager {
      */
     void updateState(String id, StateDiff diff);
 
+    /**
+     * Updates documents.
+     * <p>
+     * The default implementation updates the documents one by one, implementations should override it to do fewer
+     * round-trips to the backend.
+     *
+     * @param diffs the diffs to apply, keyed by document id
+     * @since 8.2
+     */
+    default void updateStates(Map<String, StateDiff> diffs) {
+        for (Entry<String, StateDiff> en : diffs.entrySet()) {
+            updateState(en.getKey(), en.getValue());
+        }
+    }
+
     /**
      * Deletes a set of document.
      *
@@ -207,4 +238,25 @@ public interface DBSRepository extends Repository, LockManager {
      */
     LockManager getLockManager();
 
+    /**
+     * Processes the invalidations received from other cluster nodes.
+     * <p>
+     * Called at the beginning of a transaction. Does nothing if the repository has no cache.
+     *
+     * @since 8.2
+     */
+    default void receiveClusterInvalidations() {
+    }
+
+    /**
+     * Sends invalidations to other cluster nodes.
+     * <p>
+     * Called at the end of a transaction. Does nothing if the repository has no cache or if clustering is disabled.
+     *
+     * @param invalidations the invalidations to send
+     * @since 8.2
+     */
+    default void sendClusterInvalidations(DBSInvalidations invalidations) {
+    }
+
 }
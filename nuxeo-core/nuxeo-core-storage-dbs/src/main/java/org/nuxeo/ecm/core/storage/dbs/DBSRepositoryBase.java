@@ -280,6 +280,16 @@ public abstract class DBSRepositoryBase implements DBSRepository {
 
     @Override
     public Session getSession() {
+        return getSession(this);
+    }
+
+    /**
+     * Gets a session whose state is read from and written to the given repository, which may be a wrapper of this
+     * repository (for instance a {@link DBSCachingRepository}).
+     *
+     * @since 8.2
+     */
+    protected Session getSession(DBSRepository repository) {
         Transaction transaction;
         try {
             transaction = TransactionHelper.lookupTransactionManager().getTransaction();
@@ -292,19 +302,19 @@ public abstract class DBSRepositoryBase implements DBSRepository {
 
         if (transaction == null) {
             // no active transaction, use a regular session
-            return newSession();
+            return newSession(repository);
         }
 
         TransactionContext context = transactionContexts.get(transaction);
         if (context == null) {
-            context = new TransactionContext(transaction, newSession());
+            context = new TransactionContext(transaction, newSession(repository));
             context.init();
         }
         return context.newSession();
     }
 
-    protected DBSSession newSession() {
-        return new DBSSession(this);
+    protected DBSSession newSession(DBSRepository repository) {
+        return new DBSSession(repository);
     }
 
     public Map<Transaction, TransactionContext> transactionContexts = new ConcurrentHashMap<>();
@@ -27,6 +27,7 @@ import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.ecm.core.storage.FulltextDescriptor;
 import org.nuxeo.ecm.core.storage.FulltextDescriptor.FulltextIndexDescriptor;
+import org.nuxeo.ecm.core.storage.State;
 
 /**
  * DBS Repository Descriptor.
@@ -35,6 +36,12 @@ import org.nuxeo.ecm.core.storage.FulltextDescriptor.FulltextIndexDescriptor;
  */
 public class DBSRepositoryDescriptor implements Cloneable {
 
+    public static final long DEFAULT_CACHE_MAX_SIZE = 10000;
+
+    public static final long DEFAULT_CACHE_TTL = 10; // minutes
+
+    public static final int DEFAULT_CACHE_CONCURRENCY_LEVEL = 10;
+
     public DBSRepositoryDescriptor() {
     }
 
@@ -51,6 +58,66 @@ public class DBSRepositoryDescriptor implements Cloneable {
         return isDefault;
     }
 
+    @XNode("cache@enabled")
+    protected Boolean cacheEnabled;
+
+    /**
+     * Checks if the repository-level {@link State} cache is enabled.
+     *
+     * @since 8.2
+     */
+    public boolean isCacheEnabled() {
+        return defaultFalse(cacheEnabled);
+    }
+
+    /** @since 8.2 */
+    @XNode("cache@maxSize")
+    public Long cacheMaxSize;
+
+    /** @since 8.2 */
+    public long getCacheMaxSize() {
+        return cacheMaxSize == null ? DEFAULT_CACHE_MAX_SIZE : cacheMaxSize.longValue();
+    }
+
+    /** @since 8.2 */
+    @XNode("cache@ttl")
+    public Long cacheTTL;
+
+    /**
+     * Gets the time-to-live of cache entries, in minutes.
+     *
+     * @since 8.2
+     */
+    public long getCacheTTL() {
+        return cacheTTL == null ? DEFAULT_CACHE_TTL : cacheTTL.longValue();
+    }
+
+    /** @since 8.2 */
+    @XNode("cache@concurrencyLevel")
+    public Integer cacheConcurrencyLevel;
+
+    /** @since 8.2 */
+    public int getCacheConcurrencyLevel() {
+        return cacheConcurrencyLevel == null ? DEFAULT_CACHE_CONCURRENCY_LEVEL : cacheConcurrencyLevel.intValue();
+    }
+
+    /** @since 8.2 */
+    @XNode("clustering@id")
+    public String clusterNodeId;
+
+    /** @since 8.2 */
+    @XNode("clustering@enabled")
+    protected Boolean clusteringEnabled;
+
+    /** @since 8.2 */
+    public boolean isClusteringEnabled() {
+        return defaultFalse(clusteringEnabled);
+    }
+
+    /** @since 8.2 */
+    @XNode("clusterInvalidatorClass")
+    public Class<? extends DBSClusterInvalidator> clusterInvalidatorClass;
+
     protected FulltextDescriptor fulltextDescriptor = new FulltextDescriptor();
 
     public FulltextDescriptor getFulltextDescriptor() {
@@ -108,7 +175,33 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.isDefault != null) {
             isDefault = other.isDefault;
         }
+        if (other.cacheEnabled != null) {
+            cacheEnabled = other.cacheEnabled;
+        }
+        if (other.cacheMaxSize != null) {
+            cacheMaxSize = other.cacheMaxSize;
+        }
+        if (other.cacheTTL != null) {
+            cacheTTL = other.cacheTTL;
+        }
+        if (other.cacheConcurrencyLevel != null) {
+            cacheConcurrencyLevel = other.cacheConcurrencyLevel;
+        }
+        if (other.clusterNodeId != null) {
+            clusterNodeId = other.clusterNodeId;
+        }
+        if (other.clusteringEnabled != null) {
+            clusteringEnabled = other.clusteringEnabled;
+        }
+        if (other.clusterInvalidatorClass != null) {
+            clusterInvalidatorClass = other.clusterInvalidatorClass;
+        }
         fulltextDescriptor.merge(other.fulltextDescriptor);
     }
 
+    /** False if the boolean is null or FALSE, true otherwise. */
+    private static boolean defaultFalse(Boolean bool) {
+        return Boolean.TRUE.equals(bool);
+    }
+
 }
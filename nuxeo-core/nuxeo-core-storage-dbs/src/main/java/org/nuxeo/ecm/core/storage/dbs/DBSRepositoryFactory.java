@@ -47,6 +47,18 @@ public abstract class DBSRepositoryFactory implements RepositoryFactory {
         return descriptor;
     }
 
+    /**
+     * Wraps the repository with a {@link DBSCachingRepository} if a cache is configured in the descriptor.
+     *
+     * @since 8.2
+     */
+    protected DBSRepository wrapRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
+        if (descriptor.isCacheEnabled()) {
+            return new DBSCachingRepository(repository, descriptor);
+        }
+        return repository;
+    }
+
     /**
      * This is done so that the connection pool monitor has something to return. In the future we may have an actual
      * pool.
@@ -51,6 +51,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -121,6 +122,13 @@ public class DBSTransactionState {
 
     protected final Set<String> browsePermissions;
 
+    /**
+     * Ids of the documents written to the repository during this transaction, to be sent to other cluster nodes.
+     *
+     * @since 8.2
+     */
+    protected DBSInvalidations invalidations = new DBSInvalidations();
+
     public DBSTransactionState(DBSRepository repository, DBSSession session) {
         this.repository = repository;
         this.session = session;
@@ -527,11 +535,18 @@ public class DBSTransactionState {
             transientStates.remove(id);
         }
         repository.deleteStates(ids);
+        invalidations.addAll(ids);
+        if (undoLog == null) {
+            // no transaction, nobody will send them later
+            sendClusterInvalidations();
+        }
     }
 
     /**
      * Writes transient state to database.
      * <p>
+     * Creations and updates are each grouped into a single batch call to the repository.
+     * <p>
      * An undo log is kept in order to rollback the transaction later if needed.
      */
     public void save() {
@@ -543,14 +558,20 @@ public class DBSTransactionState {
         } else {
             works = Collections.emptyList();
         }
+        List<State> creates = new ArrayList<>(transientCreated.size());
         for (String id : transientCreated) { // ordered
             DBSDocumentState docState = transientStates.get(id);
             docState.setNotDirty();
             if (undoLog != null) {
                 undoLog.put(id, null); // marker to denote create
             }
-            repository.createState(docState.getState());
+            creates.add(docState.getState());
+            invalidations.add(id);
+        }
+        if (!creates.isEmpty()) {
+            repository.createStates(creates);
         }
+        Map<String, StateDiff> updates = new LinkedHashMap<>();
         for (DBSDocumentState docState : transientStates.values()) {
             String id = docState.getId();
             if (transientCreated.contains(id)) {
@@ -564,32 +585,43 @@ public class DBSTransactionState {
                     }
                     // else there's already a create or an update in the undo log so original info is enough
                 }
-                repository.updateState(id, diff);
+                updates.put(id, diff);
+                invalidations.add(id);
             }
             docState.setNotDirty();
         }
+        if (!updates.isEmpty()) {
+            repository.updateStates(updates);
+        }
         transientCreated.clear();
+        if (undoLog == null) {
+            // no transaction, nobody will send them later
+            sendClusterInvalidations();
+        }
         scheduleWork(works);
     }
 
     protected void applyUndoLog() {
+        List<State> creates = new ArrayList<>();
+        Map<String, StateDiff> updates = new LinkedHashMap<>();
         Set<String> deletes = new HashSet<>();
         for (Entry<String, State> es : undoLog.entrySet()) {
             String id = es.getKey();
             State state = es.getValue();
+            invalidations.add(id);
             if (state == null) {
                 deletes.add(id);
             } else {
                 boolean recreate = state.remove(KEY_UNDOLOG_CREATE) != null;
                 if (recreate) {
-                    repository.createState(state);
+                    creates.add(state);
                 } else {
                     // undo update
                     State currentState = repository.readState(id);
                     if (currentState != null) {
                         StateDiff diff = StateHelper.diff(currentState, state);
                         if (!diff.isEmpty()) {
-                            repository.updateState(id, diff);
+                            updates.put(id, diff);
                         }
                     }
                     // else we expected to read a current state but it was concurrently deleted...
@@ -597,6 +629,12 @@ public class DBSTransactionState {
                 }
             }
         }
+        if (!creates.isEmpty()) {
+            repository.createStates(creates);
+        }
+        if (!updates.isEmpty()) {
+            repository.updateStates(updates);
+        }
         if (!deletes.isEmpty()) {
             repository.deleteStates(deletes);
         }
@@ -705,6 +743,7 @@ public class DBSTransactionState {
      */
     public void begin() {
         undoLog = new HashMap<String, State>();
+        repository.receiveClusterInvalidations();
     }
 
     /**
@@ -724,6 +763,7 @@ public class DBSTransactionState {
         clearTransient();
         // the transaction ended, the proxied DBSSession will disappear and cannot be reused anyway
         undoLog = null;
+        sendClusterInvalidations();
     }
 
     /**
@@ -734,6 +774,20 @@ public class DBSTransactionState {
         applyUndoLog();
         // the transaction ended, the proxied DBSSession will disappear and cannot be reused anyway
         undoLog = null;
+        sendClusterInvalidations();
+    }
+
+    /**
+     * Sends to other cluster nodes the invalidations for the documents written so far.
+     *
+     * @since 8.2
+     */
+    protected void sendClusterInvalidations() {
+        if (!invalidations.isEmpty()) {
+            DBSInvalidations invals = invalidations;
+            invalidations = new DBSInvalidations();
+            repository.sendClusterInvalidations(invals);
+        }
     }
 
     protected void clearTransient() {
@@ -0,0 +1,236 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.nuxeo.runtime.test.NXRuntimeTestCase;
+
+public class TestDBSCachingRepository extends NXRuntimeTestCase {
+
+    protected static final String REPOSITORY_NAME = "test";
+
+    /**
+     * Cluster invalidator recording the invalidations sent, and returning the ones to receive.
+     */
+    public static class DummyClusterInvalidator implements DBSClusterInvalidator {
+
+        protected static final List<DBSInvalidations> sent = new ArrayList<>();
+
+        protected static DBSInvalidations toReceive;
+
+        @Override
+        public void initialize(String nodeId, String repositoryName) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public DBSInvalidations receiveInvalidations() {
+            DBSInvalidations invalidations = toReceive;
+            toReceive = null;
+            return invalidations;
+        }
+
+        @Override
+        public void sendInvalidations(DBSInvalidations invalidations) {
+            sent.add(invalidations);
+        }
+    }
+
+    /** The states of the underlying repository. */
+    protected Map<String, State> states;
+
+    /** The number of reads done on the underlying repository. */
+    protected int reads;
+
+    protected DBSCachingRepository repository;
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        deployBundle("org.nuxeo.ecm.core.schema");
+        deployBundle("org.nuxeo.ecm.core");
+        states = new HashMap<>();
+        reads = 0;
+        DummyClusterInvalidator.sent.clear();
+        DummyClusterInvalidator.toReceive = null;
+        DBSRepositoryDescriptor descriptor = new DBSRepositoryDescriptor();
+        descriptor.clusteringEnabled = Boolean.TRUE;
+        descriptor.clusterNodeId = "1";
+        descriptor.clusterInvalidatorClass = DummyClusterInvalidator.class;
+        repository = new DBSCachingRepository(newUnderlyingRepository(), descriptor);
+        createState("1", "foo");
+    }
+
+    /**
+     * Creates an in-memory repository supporting only the state reads and writes.
+     */
+    protected DBSRepository newUnderlyingRepository() {
+        return (DBSRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DBSRepository.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getName":
+                        return REPOSITORY_NAME;
+                    case "isFulltextDisabled":
+                        return Boolean.TRUE;
+                    case "readState":
+                        reads++;
+                        State read = states.get(args[0]);
+                        return read == null ? null : StateHelper.deepCopy(read);
+                    case "createState":
+                        State state = (State) args[0];
+                        states.put((String) state.get(KEY_ID), StateHelper.deepCopy(state));
+                        return null;
+                    case "createStates":
+                        for (Object st : (List<?>) args[0]) {
+                            states.put((String) ((State) st).get(KEY_ID), StateHelper.deepCopy((State) st));
+                        }
+                        return null;
+                    case "updateStates":
+                        @SuppressWarnings("unchecked")
+                        Map<String, StateDiff> diffs = (Map<String, StateDiff>) args[0];
+                        for (Entry<String, StateDiff> en : diffs.entrySet()) {
+                            for (Entry<String, Serializable> diff : en.getValue().entrySet()) {
+                                states.get(en.getKey()).put(diff.getKey(), diff.getValue());
+                            }
+                        }
+                        return null;
+                    case "deleteStates":
+                        states.keySet().removeAll((Set<?>) args[0]);
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    protected void createState(String id, String title) {
+        State state = new State();
+        state.put(KEY_ID, id);
+        state.put("dc:title", title);
+        repository.createState(state);
+    }
+
+    protected DBSTransactionState newTransactionState() {
+        return new DBSTransactionState(repository, null);
+    }
+
+    @Test
+    public void testCacheHit() {
+        assertEquals("foo", repository.readState("1").get("dc:title"));
+        assertEquals(1, reads);
+        assertEquals("foo", repository.readState("1").get("dc:title"));
+        assertEquals(1, reads);
+
+        // returned states are copies
+        repository.readState("1").put("dc:title", "bar");
+        assertEquals("foo", repository.readState("1").get("dc:title"));
+        assertEquals(1, reads);
+    }
+
+    @Test
+    public void testInvalidationOnLocalWrite() {
+        repository.readState("1");
+        StateDiff diff = new StateDiff();
+        diff.put("dc:title", "bar");
+        repository.updateStates(Collections.singletonMap("1", diff));
+
+        assertEquals("bar", repository.readState("1").get("dc:title"));
+        assertEquals(2, reads);
+
+        repository.deleteStates(Collections.singleton("1"));
+        assertEquals(null, repository.readState("1"));
+    }
+
+    @Test
+    public void testReceiveClusterInvalidations() {
+        repository.readState("1");
+        // changed by another node
+        states.get("1").put("dc:title", "bar");
+        DBSInvalidations invalidations = new DBSInvalidations();
+        invalidations.add("1");
+        DummyClusterInvalidator.toReceive = invalidations;
+
+        DBSTransactionState transactionState = newTransactionState();
+        transactionState.begin();
+        assertEquals("bar", transactionState.getStateForRead("1").get("dc:title"));
+        transactionState.commit();
+    }
+
+    @Test
+    public void testSendClusterInvalidationsOnCommit() {
+        DBSTransactionState transactionState = newTransactionState();
+        transactionState.begin();
+        transactionState.getStateForUpdate("1").put("dc:title", "bar");
+        transactionState.save();
+        // not sent before the end of the transaction
+        assertTrue(DummyClusterInvalidator.sent.isEmpty());
+
+        transactionState.commit();
+        assertEquals(1, DummyClusterInvalidator.sent.size());
+        assertEquals(Collections.singleton("1"), DummyClusterInvalidator.sent.get(0).ids);
+        assertEquals("bar", repository.readState("1").get("dc:title"));
+    }
+
+    @Test
+    public void testSendClusterInvalidationsOnRollback() {
+        DBSTransactionState transactionState = newTransactionState();
+        transactionState.begin();
+        transactionState.getStateForUpdate("1").put("dc:title", "bar");
+        transactionState.save();
+        transactionState.rollback();
+
+        // the other nodes may have read the saved state
+        assertEquals(1, DummyClusterInvalidator.sent.size());
+        assertEquals(Collections.singleton("1"), DummyClusterInvalidator.sent.get(0).ids);
+        assertEquals("foo", repository.readState("1").get("dc:title"));
+    }
+
+    @Test
+    public void testSendClusterInvalidationsWithoutTransaction() {
+        DBSTransactionState transactionState = newTransactionState();
+        transactionState.getStateForUpdate("1").put("dc:title", "bar");
+        transactionState.save();
+
+        assertEquals(1, DummyClusterInvalidator.sent.size());
+        assertEquals(Collections.singleton("1"), DummyClusterInvalidator.sent.get(0).ids);
+    }
+
+}
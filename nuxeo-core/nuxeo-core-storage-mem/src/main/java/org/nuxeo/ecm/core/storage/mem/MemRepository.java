@@ -162,6 +162,52 @@ public class MemRepository extends DBSRepositoryBase {
         applyDiff(state, diff);
     }
 
+    /**
+     * Creates all the states, after checking that none of them already exists, so that nothing is created if one of
+     * them fails.
+     */
+    @Override
+    public void createStates(List<State> newStates) {
+        for (State state : newStates) {
+            String id = (String) state.get(KEY_ID);
+            if (states.containsKey(id)) {
+                throw new NuxeoException("Already exists: " + id);
+            }
+        }
+        for (State state : newStates) {
+            String id = (String) state.get(KEY_ID);
+            if (log.isTraceEnabled()) {
+                log.trace("Mem: CREATE " + id + ": " + state);
+            }
+            state = StateHelper.deepCopy(state, true); // thread-safe
+            StateHelper.resetDeltas(state);
+            states.put(id, state);
+        }
+    }
+
+    /**
+     * Applies all the diffs, after checking that all the states exist, so that nothing is updated if one of them is
+     * missing.
+     */
+    @Override
+    public void updateStates(Map<String, StateDiff> diffs) {
+        List<State> toUpdate = new ArrayList<>(diffs.size());
+        for (String id : diffs.keySet()) {
+            State state = states.get(id);
+            if (state == null) {
+                throw new ConcurrentUpdateException("Missing: " + id);
+            }
+            toUpdate.add(state);
+        }
+        int i = 0;
+        for (Entry<String, StateDiff> en : diffs.entrySet()) {
+            if (log.isTraceEnabled()) {
+                log.trace("Mem: UPDATE " + en.getKey() + ": " + en.getValue());
+            }
+            applyDiff(toUpdate.get(i++), en.getValue());
+        }
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         if (log.isTraceEnabled()) {
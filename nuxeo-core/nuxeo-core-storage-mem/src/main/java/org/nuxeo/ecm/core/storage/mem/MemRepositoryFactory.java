@@ -19,10 +19,12 @@
 package org.nuxeo.ecm.core.storage.mem;
 
 import org.nuxeo.ecm.core.repository.RepositoryFactory;
+import org.nuxeo.ecm.core.storage.dbs.DBSCachingRepository;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryFactory;
 
 /**
- * In-memory implementation of a {@link RepositoryFactory}, creating a {@link MemRepository}.
+ * In-memory implementation of a {@link RepositoryFactory}, creating a {@link MemRepository}, possibly wrapped in a
+ * {@link DBSCachingRepository}.
  *
  * @since 5.9.4
  */
@@ -34,7 +36,8 @@ public class MemRepositoryFactory extends DBSRepositoryFactory {
 
     @Override
     public Object call() {
-        return new MemRepository(installPool(), (MemRepositoryDescriptor) getRepositoryDescriptor());
+        MemRepositoryDescriptor descriptor = (MemRepositoryDescriptor) getRepositoryDescriptor();
+        return wrapRepository(new MemRepository(installPool(), descriptor), descriptor);
     }
 
 }
@@ -85,6 +85,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSSession;
 import org.nuxeo.runtime.api.Framework;
 
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
@@ -526,6 +527,20 @@ public class MongoDBRepository extends DBSRepositoryBase {
         // throw new DocumentException("Already exists: " + id);
     }
 
+    @Override
+    public void createStates(List<State> states) {
+        List<DBObject> obs = new ArrayList<>(states.size());
+        for (State state : states) {
+            DBObject ob = stateToBson(state);
+            if (log.isTraceEnabled()) {
+                log.trace("MongoDB: CREATE " + ob.get(KEY_ID) + ": " + ob);
+            }
+            obs.add(ob);
+        }
+        // the driver sends the documents in as few batches as possible
+        coll.insert(obs);
+    }
+
     @Override
     public State readState(String id) {
         DBObject query = new BasicDBObject(KEY_ID, id);
@@ -551,6 +566,31 @@ public class MongoDBRepository extends DBSRepositoryBase {
         }
     }
 
+    @Override
+    public void updateStates(Map<String, StateDiff> diffs) {
+        // ordered, as several updates for the same document must be applied in sequence
+        BulkWriteOperation bulk = coll.initializeOrderedBulkOperation();
+        int n = 0;
+        for (Entry<String, StateDiff> en : diffs.entrySet()) {
+            String id = en.getKey();
+            DBObject query = new BasicDBObject(KEY_ID, id);
+            for (DBObject update : diffToBson(en.getValue())) {
+                if (log.isTraceEnabled()) {
+                    log.trace("MongoDB: UPDATE " + id + ": " + update);
+                }
+                bulk.find(query).updateOne(update);
+                n++;
+            }
+        }
+        if (n == 0) {
+            return;
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("MongoDB: BULK " + n + " updates for " + diffs.size() + " docs");
+        }
+        bulk.execute();
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         DBObject query = new BasicDBObject(KEY_ID, new BasicDBObject(QueryOperators.IN, ids));
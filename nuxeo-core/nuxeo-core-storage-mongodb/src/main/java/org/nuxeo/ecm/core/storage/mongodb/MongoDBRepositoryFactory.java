@@ -19,10 +19,12 @@
 package org.nuxeo.ecm.core.storage.mongodb;
 
 import org.nuxeo.ecm.core.repository.RepositoryFactory;
+import org.nuxeo.ecm.core.storage.dbs.DBSCachingRepository;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryFactory;
 
 /**
- * MongoDB implementation of a {@link RepositoryFactory}, creating a {@link MongoDBRepository}.
+ * MongoDB implementation of a {@link RepositoryFactory}, creating a {@link MongoDBRepository}, possibly wrapped in a
+ * {@link DBSCachingRepository}.
  *
  * @since 5.9.4
  */
@@ -34,7 +36,8 @@ public class MongoDBRepositoryFactory extends DBSRepositoryFactory {
 
     @Override
     public Object call() {
-        return new MongoDBRepository(installPool(), (MongoDBRepositoryDescriptor) getRepositoryDescriptor());
+        MongoDBRepositoryDescriptor descriptor = (MongoDBRepositoryDescriptor) getRepositoryDescriptor();
+        return wrapRepository(new MongoDBRepository(installPool(), descriptor), descriptor);
     }
 
 }
@@ -3972,6 +3972,41 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals(0, jdbc.executeCount);
     }
 
+    @Test
+    public void testGetChildrenBulkPrefetch() throws Exception {
+        int n = 100;
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        Node folder = session.addChildNode(root, "folder", null, "TestDoc", false);
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(folder, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", "title" + i);
+        }
+        session.save();
+        session.close();
+        session = repository.getConnection();
+        folder = session.getNodeByPath("/folder", null);
+
+        // clear the mapper cache so that everything is read from the database
+        ((SessionImpl) session).getMapper().clearCache();
+        JDBCConnection jdbc = (JDBCConnection) JDBCMapperConnector.unwrap(((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+
+        long t0 = System.nanoTime();
+        List<Node> children = session.getChildren(folder, null, false);
+        long t1 = System.nanoTime();
+        assertEquals(n, children.size());
+        for (Node node : children) {
+            assertTrue(node.getSimpleProperty("tst:title").getString().startsWith("title"));
+        }
+        int queries = jdbc.executeCount;
+        log.info(String.format("getChildren of %d documents: %d queries (%.2f per document), %.1f ms", n, queries,
+                (double) queries / n, (t1 - t0) / 1e6));
+        // children selection then one select per prefetched table, independently of the number of children
+        assertTrue("Too many queries: " + queries, queries < 20);
+    }
+
     @Test
     public void testPathDeep() throws Exception {
         Session session = repository.getConnection();
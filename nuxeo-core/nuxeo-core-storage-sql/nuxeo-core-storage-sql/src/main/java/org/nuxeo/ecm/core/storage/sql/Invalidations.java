@@ -18,16 +18,33 @@
  */
 package org.nuxeo.ecm.core.storage.sql;
 
+import static org.nuxeo.common.codec.CompactCodec.readSerializable;
+import static org.nuxeo.common.codec.CompactCodec.readString;
+import static org.nuxeo.common.codec.CompactCodec.readVarInt;
+import static org.nuxeo.common.codec.CompactCodec.writeSerializable;
+import static org.nuxeo.common.codec.CompactCodec.writeString;
+import static org.nuxeo.common.codec.CompactCodec.writeVarInt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
+import org.nuxeo.common.codec.CompactSerializable;
+
 /**
  * A set of invalidations.
  * <p>
  * Records both modified and deleted fragments, as well as "parents modified" fragments.
  */
-public class Invalidations implements Serializable {
+public class Invalidations implements CompactSerializable {
 
     private static final long serialVersionUID = 1L;
 
@@ -167,6 +184,79 @@ public class Invalidations implements Serializable {
         checkMaxSize();
     }
 
+    @Override
+    public int getCompactVersion() {
+        return 1;
+    }
+
+    @Override
+    public void writeCompact(DataOutput out) throws IOException {
+        out.writeBoolean(all);
+        writeRowIds(out, modified);
+        writeRowIds(out, deleted);
+    }
+
+    /**
+     * Writes row ids grouped by id, with table names written once, as the same id is usually invalidated for several
+     * tables.
+     */
+    protected static void writeRowIds(DataOutput out, Set<RowId> rowIds) throws IOException {
+        if (rowIds == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        Map<String, Integer> tableIndexes = new LinkedHashMap<>();
+        Map<Serializable, List<Integer>> tablesById = new LinkedHashMap<>();
+        for (RowId rowId : rowIds) {
+            Integer index = tableIndexes.get(rowId.tableName);
+            if (index == null) {
+                index = Integer.valueOf(tableIndexes.size());
+                tableIndexes.put(rowId.tableName, index);
+            }
+            tablesById.computeIfAbsent(rowId.id, k -> new ArrayList<>(4)).add(index);
+        }
+        writeVarInt(out, tableIndexes.size() + 1);
+        for (String tableName : tableIndexes.keySet()) {
+            writeString(out, tableName);
+        }
+        writeVarInt(out, tablesById.size());
+        for (Entry<Serializable, List<Integer>> es : tablesById.entrySet()) {
+            writeSerializable(out, es.getKey());
+            writeVarInt(out, es.getValue().size());
+            for (Integer index : es.getValue()) {
+                writeVarInt(out, index.intValue());
+            }
+        }
+    }
+
+    @Override
+    public void readCompact(DataInput in, int version) throws IOException {
+        all = in.readBoolean();
+        modified = readRowIds(in);
+        deleted = readRowIds(in);
+    }
+
+    protected static Set<RowId> readRowIds(DataInput in) throws IOException {
+        int ntables = readVarInt(in) - 1;
+        if (ntables < 0) {
+            return null;
+        }
+        String[] tableNames = new String[ntables];
+        for (int i = 0; i < ntables; i++) {
+            tableNames[i] = readString(in);
+        }
+        Set<RowId> rowIds = new HashSet<RowId>();
+        int nids = readVarInt(in);
+        for (int i = 0; i < nids; i++) {
+            Serializable id = readSerializable(in);
+            int n = readVarInt(in);
+            for (int j = 0; j < n; j++) {
+                rowIds.add(new RowId(tableNames[readVarInt(in)], id));
+            }
+        }
+        return rowIds;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + '(');
@@ -0,0 +1,397 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A bounded key/value store of byte arrays kept outside of the Java heap, in direct {@link ByteBuffer}s.
+ * <p>
+ * The store is split into segments, each with its own lock. Each segment owns a ring of fixed-size pages in which
+ * entries are appended, and an open-addressing index (primitive arrays) mapping the key hashes to the entry addresses.
+ * When all the pages of a segment are full, the oldest page is evicted entirely, which gives a FIFO eviction policy
+ * at page granularity. Entries that are replaced or removed leave garbage in their page until it is evicted.
+ * <p>
+ * The only heap usage is the index, about 12 bytes per entry, so that millions of entries can be stored without
+ * growing the heap. The total off-heap size is bounded by the max size given at construction, the JVM must be
+ * allowed to allocate it (see {@code -XX:MaxDirectMemorySize}).
+ *
+ * @since 8.2
+ */
+public class OffHeapRowStore {
+
+    protected static final int DEFAULT_PAGES_PER_SEGMENT = 8;
+
+    protected static final int MAX_PAGE_SIZE = 1 << 30;
+
+    protected static final int MIN_PAGE_SIZE = 4096;
+
+    protected static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    // entry header: key length, value length
+    protected static final int HEADER_SIZE = 8;
+
+    protected final Segment[] segments;
+
+    protected final long maxSize;
+
+    /**
+     * Constructs an off-heap store.
+     *
+     * @param maxSize the maximum number of bytes allocated off-heap
+     * @param concurrencyLevel the number of independently locked segments
+     */
+    public OffHeapRowStore(long maxSize, int concurrencyLevel) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        }
+        int nsegments = Math.max(1, Math.min(concurrencyLevel, 256));
+        long segmentSize = maxSize / nsegments;
+        int npages = (int) Math.max(DEFAULT_PAGES_PER_SEGMENT, (segmentSize + MAX_PAGE_SIZE - 1) / MAX_PAGE_SIZE);
+        int pageSize = (int) Math.max(MIN_PAGE_SIZE, segmentSize / npages);
+        segments = new Segment[nsegments];
+        for (int i = 0; i < nsegments; i++) {
+            segments[i] = new Segment(npages, pageSize);
+        }
+        this.maxSize = (long) nsegments * npages * pageSize;
+    }
+
+    protected static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        // murmur3 finalizer, to spread the bits
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    protected Segment segmentFor(int hash) {
+        // use the high bits, the low ones are used by the segment index
+        return segments[(hash >>> 24) % segments.length];
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @return the value, or {@code null} if absent
+     */
+    public byte[] get(byte[] key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(hash, key);
+    }
+
+    /**
+     * Stores a value for a key, replacing any previous one.
+     *
+     * @return {@code false} if the entry is too big to be stored (any previous value is removed)
+     */
+    public boolean put(byte[] key, byte[] value) {
+        int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value);
+    }
+
+    /**
+     * Removes the value stored for a key.
+     */
+    public void remove(byte[] key) {
+        int hash = hash(key);
+        segmentFor(hash).remove(hash, key);
+    }
+
+    /**
+     * Removes all the entries. The off-heap memory is kept allocated for reuse.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Removes all the entries and releases the off-heap memory, which is freed when the pages are garbage collected.
+     * The store must not be used afterwards.
+     */
+    public void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Gets the number of entries.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of bytes used in the pages, including entries that have been replaced but not yet evicted.
+     */
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.getUsedBytes();
+        }
+        return used;
+    }
+
+    /**
+     * Gets the maximum number of bytes allocated off-heap.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of entries evicted so far because of lack of space.
+     */
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.getEvictionCount();
+        }
+        return evictions;
+    }
+
+    /**
+     * A segment of the store, all methods are called under the segment lock.
+     */
+    protected static class Segment {
+
+        protected final int pageSize;
+
+        /** The pages, allocated lazily. */
+        protected final ByteBuffer[] pages;
+
+        /** The number of bytes written in each page. */
+        protected final int[] pageUsed;
+
+        protected int currentPage;
+
+        /** Entry addresses (page in high bits, offset in low bits) plus one, 0 for an empty slot. */
+        protected long[] addresses;
+
+        protected int[] hashes;
+
+        protected int count;
+
+        protected long evictionCount;
+
+        protected Segment(int npages, int pageSize) {
+            this.pageSize = pageSize;
+            pages = new ByteBuffer[npages];
+            pageUsed = new int[npages];
+            initIndex(INITIAL_INDEX_CAPACITY);
+        }
+
+        protected void initIndex(int capacity) {
+            addresses = new long[capacity];
+            hashes = new int[capacity];
+            count = 0;
+        }
+
+        protected int slotFor(int hash) {
+            return hash & (addresses.length - 1);
+        }
+
+        protected synchronized byte[] get(int hash, byte[] key) {
+            int slot = find(hash, key);
+            if (slot == -1) {
+                return null;
+            }
+            long address = addresses[slot] - 1;
+            ByteBuffer page = pages[(int) (address >>> 32)];
+            int offset = (int) address;
+            int keyLength = page.getInt(offset);
+            int valueLength = page.getInt(offset + 4);
+            byte[] value = new byte[valueLength];
+            page.position(offset + HEADER_SIZE + keyLength);
+            page.get(value);
+            return value;
+        }
+
+        protected synchronized boolean put(int hash, byte[] key, byte[] value) {
+            int slot = find(hash, key);
+            if (slot != -1) {
+                deleteSlot(slot);
+            }
+            int length = HEADER_SIZE + key.length + value.length;
+            if (length > pageSize) {
+                return false;
+            }
+            if (pageUsed[currentPage] + length > pageSize) {
+                nextPage();
+            }
+            ByteBuffer page = pages[currentPage];
+            if (page == null) {
+                page = pages[currentPage] = ByteBuffer.allocateDirect(pageSize);
+            }
+            int offset = pageUsed[currentPage];
+            page.position(offset);
+            page.putInt(key.length);
+            page.putInt(value.length);
+            page.put(key);
+            page.put(value);
+            pageUsed[currentPage] = offset + length;
+            insert(hash, (((long) currentPage) << 32 | offset) + 1);
+            return true;
+        }
+
+        protected synchronized void remove(int hash, byte[] key) {
+            int slot = find(hash, key);
+            if (slot != -1) {
+                deleteSlot(slot);
+            }
+        }
+
+        protected synchronized void clear() {
+            Arrays.fill(pageUsed, 0);
+            currentPage = 0;
+            initIndex(INITIAL_INDEX_CAPACITY);
+        }
+
+        protected synchronized void close() {
+            clear();
+            Arrays.fill(pages, null);
+        }
+
+        protected synchronized int size() {
+            return count;
+        }
+
+        protected synchronized long getUsedBytes() {
+            long used = 0;
+            for (int u : pageUsed) {
+                used += u;
+            }
+            return used;
+        }
+
+        protected synchronized long getEvictionCount() {
+            return evictionCount;
+        }
+
+        /**
+         * Moves to the next page in the ring, evicting its previous content.
+         */
+        protected void nextPage() {
+            currentPage = (currentPage + 1) % pages.length;
+            ByteBuffer page = pages[currentPage];
+            int used = pageUsed[currentPage];
+            int offset = 0;
+            while (offset < used) {
+                int keyLength = page.getInt(offset);
+                int valueLength = page.getInt(offset + 4);
+                byte[] key = new byte[keyLength];
+                page.position(offset + HEADER_SIZE);
+                page.get(key);
+                // remove from the index if this entry is still the live one
+                long address = (((long) currentPage) << 32 | offset) + 1;
+                for (int slot = slotFor(hash(key)); addresses[slot] != 0; slot = (slot + 1) & (addresses.length - 1)) {
+                    if (addresses[slot] == address) {
+                        deleteSlot(slot);
+                        evictionCount++;
+                        break;
+                    }
+                }
+                offset += HEADER_SIZE + keyLength + valueLength;
+            }
+            pageUsed[currentPage] = 0;
+        }
+
+        protected int find(int hash, byte[] key) {
+            int mask = addresses.length - 1;
+            for (int slot = hash & mask; addresses[slot] != 0; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && keyEquals(addresses[slot] - 1, key)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        protected boolean keyEquals(long address, byte[] key) {
+            ByteBuffer page = pages[(int) (address >>> 32)];
+            int offset = (int) address;
+            if (page.getInt(offset) != key.length) {
+                return false;
+            }
+            offset += HEADER_SIZE;
+            for (int i = 0; i < key.length; i++) {
+                if (page.get(offset + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected void insert(int hash, long address) {
+            if ((count + 1) * 4 > addresses.length * 3) {
+                rehash();
+            }
+            int mask = addresses.length - 1;
+            int slot = hash & mask;
+            while (addresses[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            addresses[slot] = address;
+            hashes[slot] = hash;
+            count++;
+        }
+
+        protected void rehash() {
+            long[] oldAddresses = addresses;
+            int[] oldHashes = hashes;
+            initIndex(oldAddresses.length * 2);
+            for (int i = 0; i < oldAddresses.length; i++) {
+                if (oldAddresses[i] != 0) {
+                    insert(oldHashes[i], oldAddresses[i]);
+                }
+            }
+        }
+
+        /**
+         * Deletes a slot, shifting back the following entries of the probe sequence.
+         */
+        protected void deleteSlot(int slot) {
+            int mask = addresses.length - 1;
+            int hole = slot;
+            for (int i = (hole + 1) & mask; addresses[i] != 0; i = (i + 1) & mask) {
+                int ideal = hashes[i] & mask;
+                // move the entry into the hole if its ideal slot is not cyclically in (hole, i]
+                boolean inRange = hole <= i ? (hole < ideal && ideal <= i) : (hole < ideal || ideal <= i);
+                if (!inRange) {
+                    addresses[hole] = addresses[i];
+                    hashes[hole] = hashes[i];
+                    hole = i;
+                }
+            }
+            addresses[hole] = 0;
+            hashes[hole] = 0;
+            count--;
+        }
+    }
+
+}
@@ -192,6 +192,27 @@ public class RepositoryDescriptor {
     @XNodeMap(value = "cachingMapper/property", key = "@name", type = HashMap.class, componentType = String.class)
     public Map<String, String> cachingMapperProperties = new HashMap<>();
 
+    /** @since 8.2 */
+    @XNode("cachingMapper@offHeap")
+    private Boolean cachingMapperOffHeap;
+
+    /**
+     * Checks if the unified caching mapper stores its rows off-heap.
+     *
+     * @since 8.2
+     */
+    public boolean getCachingMapperOffHeap() {
+        return defaultFalse(cachingMapperOffHeap);
+    }
+
+    /**
+     * The max size of the off-heap row store, in bytes or with a unit (for instance {@code 2GB}).
+     *
+     * @since 8.2
+     */
+    @XNode("cachingMapper@offHeapMaxSize")
+    public String cachingMapperOffHeapMaxSize;
+
     @XNode("ddlMode")
     private String ddlMode;
 
@@ -406,6 +427,8 @@ public class RepositoryDescriptor {
         cachingMapperClass = other.cachingMapperClass;
         cachingMapperEnabled = other.cachingMapperEnabled;
         cachingMapperProperties = new HashMap<>(other.cachingMapperProperties);
+        cachingMapperOffHeap = other.cachingMapperOffHeap;
+        cachingMapperOffHeapMaxSize = other.cachingMapperOffHeapMaxSize;
         noDDL = other.noDDL;
         ddlMode = other.ddlMode;
         sqlInitFiles = new ArrayList<>(other.sqlInitFiles);
@@ -456,6 +479,12 @@ public class RepositoryDescriptor {
             cachingMapperEnabled = other.cachingMapperEnabled;
         }
         cachingMapperProperties.putAll(other.cachingMapperProperties);
+        if (other.cachingMapperOffHeap != null) {
+            cachingMapperOffHeap = other.cachingMapperOffHeap;
+        }
+        if (other.cachingMapperOffHeapMaxSize != null) {
+            cachingMapperOffHeapMaxSize = other.cachingMapperOffHeapMaxSize;
+        }
         if (other.noDDL != null) {
             noDDL = other.noDDL;
         }
@@ -22,6 +22,8 @@ package org.nuxeo.ecm.core.storage.sql;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -179,22 +181,39 @@ public class RepositoryImpl implements Repository {
                 return mapper;
             }
             CachingMapper cachingMapper = cachingMapperClass.newInstance();
-            cachingMapper.initialize(getName(), model, mapper, invalidationsPropagator,
-                    repositoryDescriptor.cachingMapperProperties);
+            cachingMapper.initialize(getName(), model, mapper, invalidationsPropagator, getCachingMapperProperties());
             return cachingMapper;
         } catch (ReflectiveOperationException e) {
             throw new NuxeoException(e);
         }
     }
 
+    /**
+     * Gets the caching mapper properties, including the off-heap options from the descriptor.
+     *
+     * @since 8.2
+     */
+    protected Map<String, String> getCachingMapperProperties() {
+        Map<String, String> properties = new HashMap<>(repositoryDescriptor.cachingMapperProperties);
+        if (repositoryDescriptor.getCachingMapperOffHeap()) {
+            properties.put(UnifiedCachingRowMapper.OFF_HEAP_PROP, "true");
+        }
+        if (repositoryDescriptor.cachingMapperOffHeapMaxSize != null) {
+            properties.put(UnifiedCachingRowMapper.OFF_HEAP_MAX_SIZE_PROP,
+                    repositoryDescriptor.cachingMapperOffHeapMaxSize);
+        }
+        return properties;
+    }
+
     protected Class<? extends CachingMapper> getCachingMapperClass() {
         if (!repositoryDescriptor.getCachingMapperEnabled()) {
             return null;
         }
         Class<? extends CachingMapper> cachingMapperClass = repositoryDescriptor.cachingMapperClass;
         if (cachingMapperClass == null) {
-            // default cache
-            cachingMapperClass = SoftRefCachingMapper.class;
+            // default cache, the off-heap store is only available for the unified cache
+            cachingMapperClass = repositoryDescriptor.getCachingMapperOffHeap() ? UnifiedCachingMapper.class
+                    : SoftRefCachingMapper.class;
         }
         return cachingMapperClass;
     }
@@ -399,6 +418,7 @@ public class RepositoryImpl implements Repository {
         closeAllSessions();
         model = null;
         backend.shutdown();
+        UnifiedCachingRowMapper.closeOffHeapStore(getName());
 
         registry.remove(MetricRegistry.name(RepositoryImpl.class, getName(), "cache-size"));
         registry.remove(MetricRegistry.name(PersistenceContext.class, getName(), "cache-size"));
@@ -0,0 +1,375 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.apache.commons.lang.SerializationUtils;
+
+/**
+ * Compact binary serialization of {@link RowId}s and {@link Row}s.
+ * <p>
+ * The common column types (strings, numbers, booleans, calendars, arrays of them, and {@link ACLRow}s) are written
+ * with a type tag and variable-length integers. Any other value falls back to Java serialization.
+ * <p>
+ * The encoded row does not contain its table name and id, they are provided by the {@link RowId} at decoding time.
+ *
+ * @since 8.2
+ */
+public class RowCodec {
+
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte LONG = 2;
+
+    private static final byte INTEGER = 3;
+
+    private static final byte DOUBLE = 4;
+
+    private static final byte TRUE = 5;
+
+    private static final byte FALSE = 6;
+
+    private static final byte CALENDAR = 7;
+
+    private static final byte ACL = 8;
+
+    private static final byte OPAQUE = 9;
+
+    private static final byte ARRAY = 10;
+
+    private static final byte SERIALIZED = 11;
+
+    private static final byte SIMPLE_ROW = 1;
+
+    private static final byte COLLECTION_ROW = 2;
+
+    /** Array component types, indexed by their tag. */
+    private static final Class<?>[] COMPONENT_TYPES = { Serializable.class, String.class, Long.class, Integer.class,
+            Double.class, Boolean.class, Calendar.class, ACLRow.class };
+
+    private RowCodec() {
+        // utility class
+    }
+
+    /**
+     * Encodes a row id (table name and id).
+     */
+    public static byte[] encodeRowId(RowId rowId) {
+        Output out = new Output(32);
+        out.writeString(rowId.tableName);
+        writeValue(out, rowId.id);
+        return out.toByteArray();
+    }
+
+    /**
+     * Encodes the content of a row, without its table name and id.
+     */
+    public static byte[] encodeRow(Row row) {
+        Output out = new Output(128);
+        if (row.isCollection()) {
+            out.writeByte(COLLECTION_ROW);
+            writeValue(out, row.values);
+        } else {
+            out.writeByte(SIMPLE_ROW);
+            out.writeVarInt(row.size);
+            for (int i = 0; i < row.size; i++) {
+                out.writeString(row.keys[i]);
+                writeValue(out, row.values[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes the content of a row encoded with {@link #encodeRow}.
+     *
+     * @param rowId the row id of the row
+     * @param bytes the encoded content
+     * @return the decoded row
+     */
+    public static Row decodeRow(RowId rowId, byte[] bytes) {
+        Input in = new Input(bytes);
+        byte kind = in.readByte();
+        switch (kind) {
+        case COLLECTION_ROW:
+            return new Row(rowId.tableName, rowId.id, (Serializable[]) readValue(in));
+        case SIMPLE_ROW:
+            Row row = new Row(rowId.tableName, rowId.id);
+            int size = in.readVarInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readString();
+                row.putNew(key, readValue(in));
+            }
+            return row;
+        default:
+            throw new IllegalArgumentException("Invalid row kind: " + kind);
+        }
+    }
+
+    protected static void writeValue(Output out, Serializable value) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeVarLong(((Long) value).longValue());
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeVarLong(((Integer) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits(((Double) value).doubleValue()));
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value.getClass() == GregorianCalendar.class) {
+            Calendar cal = (Calendar) value;
+            out.writeByte(CALENDAR);
+            out.writeVarLong(cal.getTimeInMillis());
+            out.writeString(cal.getTimeZone().getID());
+        } else if (value instanceof ACLRow) {
+            ACLRow acl = (ACLRow) value;
+            out.writeByte(ACL);
+            out.writeVarLong(acl.pos);
+            writeValue(out, acl.name);
+            out.writeByte(acl.grant ? TRUE : FALSE);
+            writeValue(out, acl.permission);
+            writeValue(out, acl.user);
+            writeValue(out, acl.group);
+            writeValue(out, acl.creator);
+            writeValue(out, acl.begin);
+            writeValue(out, acl.end);
+            writeValue(out, acl.status);
+        } else if (value == Row.OPAQUE) {
+            out.writeByte(OPAQUE);
+        } else if (value instanceof Serializable[] && getComponentTag(value.getClass().getComponentType()) != -1) {
+            Serializable[] array = (Serializable[]) value;
+            out.writeByte(ARRAY);
+            out.writeByte((byte) getComponentTag(value.getClass().getComponentType()));
+            out.writeVarInt(array.length);
+            for (Serializable v : array) {
+                writeValue(out, v);
+            }
+        } else {
+            out.writeByte(SERIALIZED);
+            out.writeBytes(SerializationUtils.serialize(value));
+        }
+    }
+
+    protected static Serializable readValue(Input in) {
+        byte tag = in.readByte();
+        switch (tag) {
+        case NULL:
+            return null;
+        case STRING:
+            return in.readString();
+        case LONG:
+            return Long.valueOf(in.readVarLong());
+        case INTEGER:
+            return Integer.valueOf((int) in.readVarLong());
+        case DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        case CALENDAR:
+            long millis = in.readVarLong();
+            Calendar cal = new GregorianCalendar(TimeZone.getTimeZone(in.readString()));
+            cal.setTimeInMillis(millis);
+            return cal;
+        case ACL:
+            int pos = (int) in.readVarLong();
+            String name = (String) readValue(in);
+            boolean grant = in.readByte() == TRUE;
+            String permission = (String) readValue(in);
+            String user = (String) readValue(in);
+            String group = (String) readValue(in);
+            String creator = (String) readValue(in);
+            Calendar begin = (Calendar) readValue(in);
+            Calendar end = (Calendar) readValue(in);
+            Long status = (Long) readValue(in);
+            return new ACLRow(pos, name, grant, permission, user, group, creator, begin, end, status);
+        case OPAQUE:
+            return Row.OPAQUE;
+        case ARRAY:
+            Class<?> componentType = COMPONENT_TYPES[in.readByte()];
+            int length = in.readVarInt();
+            Serializable[] array = (Serializable[]) Array.newInstance(componentType, length);
+            for (int i = 0; i < length; i++) {
+                array[i] = readValue(in);
+            }
+            return array;
+        case SERIALIZED:
+            return (Serializable) SerializationUtils.deserialize(in.readBytes());
+        default:
+            throw new IllegalArgumentException("Invalid value tag: " + tag);
+        }
+    }
+
+    protected static int getComponentTag(Class<?> componentType) {
+        for (int i = 0; i < COMPONENT_TYPES.length; i++) {
+            if (COMPONENT_TYPES[i] == componentType) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    protected static class Output {
+
+        protected byte[] buf;
+
+        protected int pos;
+
+        protected Output(int size) {
+            buf = new byte[size];
+        }
+
+        protected void ensureCapacity(int n) {
+            if (pos + n > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+            }
+        }
+
+        protected void writeByte(byte b) {
+            ensureCapacity(1);
+            buf[pos++] = b;
+        }
+
+        protected void writeVarInt(int v) {
+            ensureCapacity(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        /** Zigzag-encoded so that small negative numbers are compact too. */
+        protected void writeVarLong(long v) {
+            v = (v << 1) ^ (v >> 63);
+            ensureCapacity(10);
+            while ((v & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        protected void writeLong(long v) {
+            ensureCapacity(8);
+            for (int i = 56; i >= 0; i -= 8) {
+                buf[pos++] = (byte) (v >>> i);
+            }
+        }
+
+        protected void writeBytes(byte[] bytes) {
+            writeVarInt(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        protected void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        protected byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * Input buffer.
+     */
+    protected static class Input {
+
+        protected final byte[] buf;
+
+        protected int pos;
+
+        protected Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        protected byte readByte() {
+            return buf[pos++];
+        }
+
+        protected int readVarInt() {
+            int v = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buf[pos++];
+                v |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return v;
+                }
+            }
+        }
+
+        protected long readVarLong() {
+            long v = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = buf[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        protected long readLong() {
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        protected byte[] readBytes() {
+            int length = readVarInt();
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        protected String readString() {
+            int length = readVarInt();
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+
+}
@@ -1039,12 +1039,18 @@ public class SessionImpl implements Session, XAResource {
     public List<Node> getChildren(Node parent, String name, boolean complexProp) {
         checkLive();
         List<SimpleFragment> fragments = context.getChildren(parent.getId(), name, complexProp);
-        List<Node> nodes = new ArrayList<Node>(fragments.size());
+        List<Serializable> ids = new ArrayList<Serializable>(fragments.size());
         for (SimpleFragment fragment : fragments) {
-            Node node = getNodeById(fragment.getId());
+            ids.add(fragment.getId());
+        }
+        // fetch the prefetched fragments of all the children in bulk (one select per table)
+        List<Node> childNodes = getNodesByIds(ids, true);
+        List<Node> nodes = new ArrayList<Node>(childNodes.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Node node = childNodes.get(i);
             if (node == null) {
                 // cannot happen
-                log.error("Child node cannot be created: " + fragment.getId());
+                log.error("Child node cannot be created: " + ids.get(i));
                 continue;
             }
             nodes.add(node);
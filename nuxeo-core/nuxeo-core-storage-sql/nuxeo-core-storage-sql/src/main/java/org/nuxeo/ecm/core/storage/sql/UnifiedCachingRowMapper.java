@@ -28,6 +28,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.MBeanServer;
@@ -45,6 +46,7 @@ import net.sf.ehcache.transaction.manager.TransactionManagerLookup;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.management.ServerLocator;
@@ -61,6 +63,10 @@ import com.codahale.metrics.Timer.Context;
  * A {@link RowMapper} that use an unified ehcache.
  * <p>
  * The cache only holds {@link Row}s that are known to be identical to what's in the underlying {@link RowMapper}.
+ * <p>
+ * When the {@value #OFF_HEAP_PROP} property is {@code true}, the rows are instead stored outside of the Java heap in an
+ * {@link OffHeapRowStore} shared by all the mappers of the repository, using the {@link RowCodec} serialization. The
+ * store lives until the repository is closed, see {@link #closeOffHeapStore}.
  */
 public class UnifiedCachingRowMapper implements RowMapper {
 
@@ -104,6 +110,41 @@ public class UnifiedCachingRowMapper implements RowMapper {
 
     private static AtomicInteger rowMapperCount = new AtomicInteger();
 
+    /**
+     * Property to store the rows off-heap instead of in ehcache.
+     *
+     * @since 8.2
+     */
+    public static final String OFF_HEAP_PROP = "offHeap";
+
+    /**
+     * Property for the max size of the off-heap store, in bytes or with a unit (for instance {@code 2GB}).
+     *
+     * @since 8.2
+     */
+    public static final String OFF_HEAP_MAX_SIZE_PROP = "offHeapMaxSize";
+
+    /**
+     * Property for the number of independently locked segments of the off-heap store.
+     *
+     * @since 8.2
+     */
+    public static final String OFF_HEAP_CONCURRENCY_LEVEL_PROP = "offHeapConcurrencyLevel";
+
+    public static final String OFF_HEAP_MAX_SIZE_DEFAULT = "256MB";
+
+    public static final int OFF_HEAP_CONCURRENCY_LEVEL_DEFAULT = 16;
+
+    /** Off-heap stores, by repository. */
+    protected static final Map<String, OffHeapRowStore> offHeapStores = new ConcurrentHashMap<>();
+
+    /**
+     * The off-heap store, or {@code null} if ehcache is used.
+     *
+     * @since 8.2
+     */
+    private OffHeapRowStore offHeapStore;
+
     /**
      * Cache statistics
      *
@@ -131,6 +172,12 @@ public class UnifiedCachingRowMapper implements RowMapper {
         this.rowMapper = rowMapper;
         this.invalidationsPropagator = invalidationsPropagator;
         invalidationsPropagator.addQueue(invalidationsQueue);
+        rowMapperCount.incrementAndGet();
+        if (Boolean.parseBoolean(properties.get(OFF_HEAP_PROP))) {
+            offHeapStore = offHeapStores.computeIfAbsent(repositoryName, k -> createOffHeapStore(k, properties));
+            setMetrics(repositoryName);
+            return;
+        }
         if (cacheManager == null) {
             if (properties.containsKey(EHCACHE_FILE_PROP)) {
                 String value = properties.get(EHCACHE_FILE_PROP);
@@ -145,11 +192,37 @@ public class UnifiedCachingRowMapper implements RowMapper {
             MBeanServer mBeanServer = Framework.getLocalService(ServerLocator.class).lookupServer();
             ManagementService.registerMBeans(cacheManager, mBeanServer, true, true, true, true);
         }
-        rowMapperCount.incrementAndGet();
         cache = cacheManager.getCache(CACHE_NAME);
         setMetrics(repositoryName);
     }
 
+    /**
+     * Closes the off-heap store of a repository, if any, releasing its memory. Called when the repository is closed, so
+     * that a reinitialized repository doesn't see rows cached before.
+     *
+     * @since 8.2
+     */
+    public static void closeOffHeapStore(String repositoryName) {
+        OffHeapRowStore store = offHeapStores.remove(repositoryName);
+        if (store != null) {
+            log.info("Closing off-heap row store for repository: " + repositoryName);
+            store.close();
+        }
+    }
+
+    protected static OffHeapRowStore createOffHeapStore(String repositoryName, Map<String, String> properties) {
+        String maxSizeStr = properties.get(OFF_HEAP_MAX_SIZE_PROP);
+        if (maxSizeStr == null || maxSizeStr.trim().isEmpty()) {
+            maxSizeStr = OFF_HEAP_MAX_SIZE_DEFAULT;
+        }
+        long maxSize = SizeUtils.parseSizeInBytes(maxSizeStr.trim());
+        String concurrencyLevelStr = properties.get(OFF_HEAP_CONCURRENCY_LEVEL_PROP);
+        int concurrencyLevel = concurrencyLevelStr == null ? OFF_HEAP_CONCURRENCY_LEVEL_DEFAULT
+                : Integer.parseInt(concurrencyLevelStr.trim());
+        log.info("Creating off-heap row store for repository: " + repositoryName + ", max size: " + maxSize);
+        return new OffHeapRowStore(maxSize, concurrencyLevel);
+    }
+
     protected void setMetrics(String repositoryName) {
         cacheHitCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
                 "unified", "hits"));
@@ -166,6 +239,10 @@ public class UnifiedCachingRowMapper implements RowMapper {
             registry.register(gaugeName, new Gauge<Integer>() {
                 @Override
                 public Integer getValue() {
+                    OffHeapRowStore store = offHeapStores.get(repositoryName);
+                    if (store != null) {
+                        return store.size();
+                    }
                     if (cacheManager != null) {
                         return cacheManager.getCache(CACHE_NAME).getSize();
                     }
@@ -173,6 +250,31 @@ public class UnifiedCachingRowMapper implements RowMapper {
                 }
             });
         }
+        if (offHeapStore != null) {
+            // the gauges don't keep a reference to the store, which may be closed and recreated
+            String bytesGaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "unified",
+                    "off-heap-bytes");
+            if (!gauges.containsKey(bytesGaugeName)) {
+                registry.register(bytesGaugeName, new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        OffHeapRowStore store = offHeapStores.get(repositoryName);
+                        return store == null ? 0 : store.getUsedBytes();
+                    }
+                });
+            }
+            String evictionsGaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                    "unified", "off-heap-evictions");
+            if (!gauges.containsKey(evictionsGaugeName)) {
+                registry.register(evictionsGaugeName, new Gauge<Long>() {
+                    @Override
+                    public Long getValue() {
+                        OffHeapRowStore store = offHeapStores.get(repositoryName);
+                        return store == null ? 0 : store.getEvictionCount();
+                    }
+                });
+            }
+        }
     }
 
     public void close() {
@@ -225,6 +327,9 @@ public class UnifiedCachingRowMapper implements RowMapper {
     }
 
     protected int ehCacheGetSize() {
+        if (offHeapStore != null) {
+            return offHeapStore.size();
+        }
         if (useEhCache()) {
             return cache.getSize();
         }
@@ -232,6 +337,10 @@ public class UnifiedCachingRowMapper implements RowMapper {
     }
 
     protected boolean ehCacheRemove(Serializable key) {
+        if (offHeapStore != null) {
+            offHeapStore.remove(RowCodec.encodeRowId((RowId) key));
+            return true;
+        }
         if (useEhCache()) {
             return cache.remove(key);
         }
@@ -239,11 +348,46 @@ public class UnifiedCachingRowMapper implements RowMapper {
     }
 
     protected void ehCacheRemoveAll() {
+        if (offHeapStore != null) {
+            offHeapStore.clear();
+            return;
+        }
         if (useEhCache()) {
             cache.removeAll();
         }
     }
 
+    /*
+     * ----- off-heap -----
+     */
+
+    /**
+     * Stores a row off-heap. An absent row is stored as an empty value.
+     *
+     * @since 8.2
+     */
+    protected void offHeapPut(RowId rowId, Row row) {
+        byte[] key = RowCodec.encodeRowId(rowId);
+        byte[] value = isAbsent(row) ? new byte[0] : RowCodec.encodeRow(row);
+        offHeapStore.put(key, value);
+    }
+
+    /**
+     * Gets a row from the off-heap store.
+     *
+     * @since 8.2
+     */
+    protected Row offHeapGet(RowId rowId) {
+        byte[] value = offHeapStore.get(RowCodec.encodeRowId(rowId));
+        if (value == null) {
+            return null;
+        }
+        if (value.length == 0) {
+            return new Row(ABSENT, (Serializable) null);
+        }
+        return RowCodec.decodeRow(rowId, value);
+    }
+
     /*
      * ----- Cache -----
      */
@@ -260,6 +404,10 @@ public class UnifiedCachingRowMapper implements RowMapper {
         if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
             row.values = sortACLRows((ACLRow[]) row.values);
         }
+        if (offHeapStore != null) {
+            offHeapPut(row, row);
+            return;
+        }
         Element element = new Element(new RowId(row), row);
         ehCachePut(element);
     }
@@ -272,6 +420,10 @@ public class UnifiedCachingRowMapper implements RowMapper {
     }
 
     protected void cachePutAbsent(RowId rowId) {
+        if (offHeapStore != null) {
+            offHeapPut(rowId, new Row(ABSENT, (Serializable) null));
+            return;
+        }
         Element element = new Element(new RowId(rowId), new Row(ABSENT, (Serializable) null));
         ehCachePut(element);
     }
@@ -295,13 +447,18 @@ public class UnifiedCachingRowMapper implements RowMapper {
     protected Row cacheGet(RowId rowId) {
         final Context context = cacheGetTimer.time();
         try {
-            Element element = ehCacheGet(rowId);
             Row row = null;
-            if (element != null) {
-                row = (Row) element.getObjectValue();
-            }
-            if (row != null && !isAbsent(row)) {
-                row = row.clone();
+            if (offHeapStore != null) {
+                // decoding already returns a new instance
+                row = offHeapGet(rowId);
+            } else {
+                Element element = ehCacheGet(rowId);
+                if (element != null) {
+                    row = (Row) element.getObjectValue();
+                }
+                if (row != null && !isAbsent(row)) {
+                    row = row.clone();
+                }
             }
             if (row != null) {
                 cacheHitCount.inc();
@@ -19,6 +19,10 @@
  */
 package org.nuxeo.ecm.core.storage.sql.coremodel;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.storage.DefaultFulltextParser;
@@ -42,6 +46,25 @@ public class SQLFulltextExtractorWork extends FulltextExtractorWork {
         super(repositoryName, docId, repositoryName + ':' + docId + ":sqlFulltextExtractor", true);
     }
 
+    /**
+     * Constructor used when decoding a compact serialized work.
+     *
+     * @since 8.2
+     */
+    protected SQLFulltextExtractorWork() {
+    }
+
+    @Override
+    public void writeCompact(DataOutput out) throws IOException {
+        // no state of its own
+        super.writeCompact(out);
+    }
+
+    @Override
+    public void readCompact(DataInput in, int version) throws IOException {
+        super.readCompact(in, version);
+    }
+
     private static final Log log = LogFactory.getLog(SQLFulltextExtractorWork.class);
 
     @Override
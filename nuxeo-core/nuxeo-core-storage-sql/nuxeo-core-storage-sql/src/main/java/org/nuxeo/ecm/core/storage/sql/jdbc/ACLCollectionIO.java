@@ -106,9 +106,8 @@ public class ACLCollectionIO implements CollectionIO {
             String sql, JDBCConnection connection) throws SQLException {
         List<Serializable> debugValues = connection.logger.isLogEnabled() ? new ArrayList<Serializable>() : null;
         String loggedSql = supportsBatchUpdates ? sql + " -- BATCHED" : sql;
-        int batch = 0;
+        int pending = 0; // statements added to the batch but not yet executed
         for (Row row : rows) {
-            batch++;
             Serializable id = row.id;
             Serializable[] array = row.values;
             for (int i = 0; i < array.length; i++) {
@@ -166,9 +165,9 @@ public class ACLCollectionIO implements CollectionIO {
                 }
                 if (supportsBatchUpdates) {
                     ps.addBatch();
-                    if (batch % JDBCRowMapper.UPDATE_BATCH_SIZE == 0) {
-                        ps.executeBatch();
-                        connection.countExecute();
+                    if (++pending == connection.getBatchSize()) {
+                        connection.executeBatch(ps, pending);
+                        pending = 0;
                     }
                 } else {
                     ps.execute();
@@ -176,9 +175,8 @@ public class ACLCollectionIO implements CollectionIO {
                 }
             }
         }
-        if (supportsBatchUpdates) {
-            ps.executeBatch();
-            connection.countExecute();
+        if (supportsBatchUpdates && pending > 0) {
+            connection.executeBatch(ps, pending);
         }
     }
 
@@ -19,6 +19,7 @@
 package org.nuxeo.ecm.core.storage.sql.jdbc;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -28,6 +29,7 @@ import javax.sql.XAConnection;
 import javax.sql.XADataSource;
 import javax.transaction.xa.XAResource;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.utils.JDBCUtils;
@@ -38,6 +40,11 @@ import org.nuxeo.ecm.core.storage.sql.Model;
 import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.datasource.ConnectionHelper;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 /**
  * Holds a connection to a JDBC database.
@@ -53,6 +60,16 @@ public class JDBCConnection {
 
     private static final String SET_CLIENT_INFO_DEFAULT = "false";
 
+    /**
+     * Maximum number of statements sent in a single JDBC batch.
+     *
+     * @since 8.2
+     */
+    public static final String BATCH_SIZE_PROP = "org.nuxeo.vcs.jdbc.batchSize";
+
+    /** @since 8.2 */
+    public static final int BATCH_SIZE_DEFAULT = 100;
+
     /** The model used to do the mapping. */
     protected final Model model;
 
@@ -95,6 +112,18 @@ public class JDBCConnection {
 
     protected boolean setClientInfo;
 
+    /**
+     * Maximum number of statements sent in a single JDBC batch.
+     *
+     * @since 8.2
+     */
+    protected int batchSize = BATCH_SIZE_DEFAULT;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 8.2 */
+    protected Histogram batchSizeHistogram;
+
     /**
      * Creates a new Mapper.
      *
@@ -109,6 +138,19 @@ public class JDBCConnection {
         this.noSharing = noSharing;
         dialect = sqlInfo.dialect;
         setClientInfo = Boolean.parseBoolean(Framework.getProperty(SET_CLIENT_INFO_PROP, SET_CLIENT_INFO_DEFAULT));
+        String bs = Framework.getProperty(BATCH_SIZE_PROP);
+        if (!StringUtils.isBlank(bs)) {
+            try {
+                batchSize = Integer.parseInt(bs.trim());
+            } catch (NumberFormatException e) {
+                log.error("Invalid value for " + BATCH_SIZE_PROP + ": " + bs);
+            }
+            if (batchSize < 1) {
+                batchSize = BATCH_SIZE_DEFAULT;
+            }
+        }
+        batchSizeHistogram = registry.histogram(MetricRegistry.name("nuxeo", "repositories", getRepositoryName(),
+                "jdbc", "batch-size"));
     }
 
     /**
@@ -138,6 +180,32 @@ public class JDBCConnection {
         }
     }
 
+    /**
+     * Gets the maximum number of statements sent in a single JDBC batch.
+     *
+     * @since 8.2
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Executes the pending batch of a statement, and records the batch size.
+     *
+     * @param ps the prepared statement
+     * @param size the number of statements in the batch
+     * @return the update counts
+     * @since 8.2
+     */
+    protected int[] executeBatch(PreparedStatement ps, int size) throws SQLException {
+        int[] counts = ps.executeBatch();
+        countExecute();
+        if (batchSizeHistogram != null && size > 0) {
+            batchSizeHistogram.update(size);
+        }
+        return counts;
+    }
+
     protected void openConnections() {
         try {
             openBaseConnection();
@@ -40,6 +40,7 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.sql.XADataSource;
 import javax.transaction.xa.XAException;
@@ -68,12 +69,21 @@ import org.nuxeo.ecm.core.storage.sql.jdbc.db.Column;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Table;
 import org.nuxeo.ecm.core.storage.sql.jdbc.db.Update;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.Timer.Context;
+
 /**
  * A {@link JDBCRowMapper} maps {@link Row}s to and from a JDBC database.
  */
 public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
-    public static final int UPDATE_BATCH_SIZE = 100; // also insert/delete
+    /**
+     * @deprecated since 8.2, use {@link #getBatchSize} which can be configured through {@value #BATCH_SIZE_PROP}
+     */
+    @Deprecated
+    public static final int UPDATE_BATCH_SIZE = BATCH_SIZE_DEFAULT; // also insert/delete
 
     public static final int DEBUG_MAX_TREE = 50;
 
@@ -85,11 +95,21 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     private final InvalidationsPropagator invalidationsPropagator;
 
+    /** @since 8.2 */
+    protected final Timer writeTimer;
+
+    /** @since 8.2 */
+    protected final Meter writtenRows;
+
     public JDBCRowMapper(Model model, SQLInfo sqlInfo, XADataSource xadatasource, ClusterInvalidator clusterInvalidator,
             InvalidationsPropagator invalidationsPropagator, boolean noSharing) {
         super(model, sqlInfo, xadatasource, noSharing);
         this.clusterInvalidator = clusterInvalidator;
         this.invalidationsPropagator = invalidationsPropagator;
+        writeTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", getRepositoryName(), "jdbc",
+                "write"));
+        writtenRows = registry.meter(MetricRegistry.name("nuxeo", "repositories", getRepositoryName(), "jdbc",
+                "rows"));
     }
 
     @Override
@@ -432,16 +452,32 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
 
     @Override
     public void write(RowBatch batch) {
-        if (!batch.creates.isEmpty()) {
-            writeCreates(batch.creates);
-        }
-        if (!batch.updates.isEmpty()) {
-            writeUpdates(batch.updates);
+        int rows = batch.creates.size() + batch.updates.size() + batch.deletes.size();
+        if (rows == 0) {
+            return;
         }
-        if (!batch.deletes.isEmpty()) {
-            writeDeletes(batch.deletes);
+        Context context = writeTimer.time();
+        try {
+            if (!batch.creates.isEmpty()) {
+                writeCreates(batch.creates);
+            }
+            if (!batch.updates.isEmpty()) {
+                writeUpdates(batch.updates);
+            }
+            if (!batch.deletes.isEmpty()) {
+                writeDeletes(batch.deletes);
+            }
+            // batch.deletesDependent not executed
+        } finally {
+            long elapsed = context.stop();
+            writtenRows.mark(rows);
+            if (logger.isLogEnabled()) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+                logger.log("write: " + batch.creates.size() + " creates, " + batch.updates.size() + " updates, "
+                        + batch.deletes.size() + " deletes in " + millis + "ms"
+                        + (millis == 0 ? "" : " (" + (rows * 1000 / millis) + " rows/s)"));
+            }
         }
-        // batch.deletesDependent not executed
     }
 
     protected void writeCreates(List<Row> creates) {
@@ -524,9 +560,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
         try {
             PreparedStatement ps = connection.prepareStatement(sql);
             try {
-                int batch = 0;
+                int pending = 0;
                 for (Row row : rows) {
-                    batch++;
                     if (logger.isLogEnabled()) {
                         logger.logSQL(loggedSql, columns, row);
                     }
@@ -536,18 +571,17 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                     }
                     if (supportsBatchUpdates) {
                         ps.addBatch();
-                        if (batch % UPDATE_BATCH_SIZE == 0) {
-                            ps.executeBatch();
-                            countExecute();
+                        if (++pending == batchSize) {
+                            executeBatch(ps, pending);
+                            pending = 0;
                         }
                     } else {
                         ps.execute();
                         countExecute();
                     }
                 }
-                if (supportsBatchUpdates) {
-                    ps.executeBatch();
-                    countExecute();
+                if (pending > 0) {
+                    executeBatch(ps, pending);
                 }
             } finally {
                 closeStatement(ps);
@@ -629,13 +663,13 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
             Collection<String> keys = keysByCanonKeys.get(ck);
             Set<String> deltas = deltasByCanonKeys.get(ck);
             SQLInfoSelect update = sqlInfo.getUpdateById(tableName, keys, deltas);
-            String loggedSql = supportsBatchUpdates && rows.size() > 1 ? update.sql + " -- BATCHED" : update.sql;
+            String loggedSql = supportsBatchUpdates && keysUpdates.size() > 1 ? update.sql + " -- BATCHED"
+                    : update.sql;
             try {
                 PreparedStatement ps = connection.prepareStatement(update.sql);
-                int batch = 0;
+                int pending = 0;
                 try {
                     for (RowUpdate rowu : keysUpdates) {
-                        batch++;
                         if (logger.isLogEnabled()) {
                             logger.logSQL(loggedSql, update.whatColumns, rowu.row, deltas);
                         }
@@ -649,9 +683,9 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                         }
                         if (supportsBatchUpdates) {
                             ps.addBatch();
-                            if (batch % UPDATE_BATCH_SIZE == 0) {
-                                int[] counts = ps.executeBatch();
-                                countExecute();
+                            if (++pending == batchSize) {
+                                int[] counts = executeBatch(ps, pending);
+                                pending = 0;
                                 logger.logCounts(counts);
                             }
                         } else {
@@ -660,9 +694,8 @@ public class JDBCRowMapper extends JDBCConnection implements RowMapper {
                             logger.logCount(count);
                         }
                     }
-                    if (supportsBatchUpdates) {
-                        int[] counts = ps.executeBatch();
-                        countExecute();
+                    if (pending > 0) {
+                        int[] counts = executeBatch(ps, pending);
                         logger.logCounts(counts);
                     }
                 } finally {
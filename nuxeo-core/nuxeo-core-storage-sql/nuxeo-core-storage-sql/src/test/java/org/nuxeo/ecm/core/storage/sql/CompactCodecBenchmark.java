@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.ecm.core.storage.sql.coremodel.SQLFulltextExtractorWork;
+
+/**
+ * Compares the payload size and encode/decode throughput of the compact codec and Java serialization for a fulltext
+ * extractor work and for invalidations. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.nuxeo.ecm.core.storage.sql.CompactCodecBenchmark [n]
+ * </pre>
+ *
+ * @since 8.2
+ */
+public class CompactCodecBenchmark {
+
+    protected static final int DEFAULT_N = 20000;
+
+    protected static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_N;
+        SQLFulltextExtractorWork work = new SQLFulltextExtractorWork("default", "4b6e0cfc-1f5e-4e1d-b4a4-8c0b1a3c5d7e");
+        for (Serializable object : Arrays.asList(work, TestCompactCodec.newInvalidations(100))) {
+            for (int round = 0; round < ROUNDS; round++) {
+                System.out.println(benchmark(object, true, n));
+                System.out.println(benchmark(object, false, n));
+            }
+        }
+    }
+
+    protected static String benchmark(Serializable object, boolean compact, int n) throws Exception {
+        byte[] bytes = null;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            bytes = CompactCodec.encode(object, compact);
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            CompactCodec.decode(bytes);
+        }
+        long t2 = System.nanoTime();
+        return String.format("%s %s: %d bytes, encode %d/s, decode %d/s", object.getClass().getSimpleName(),
+                compact ? "compact" : "java", bytes.length, n * 1000000000L / (t1 - t0),
+                n * 1000000000L / (t2 - t1));
+    }
+
+}
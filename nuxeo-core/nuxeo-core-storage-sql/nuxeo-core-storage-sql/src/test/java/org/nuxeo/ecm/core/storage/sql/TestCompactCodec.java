@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.ecm.core.storage.sql.coremodel.SQLFulltextExtractorWork;
+import org.nuxeo.ecm.core.work.api.Work.Progress;
+import org.nuxeo.ecm.core.work.api.Work.State;
+
+public class TestCompactCodec {
+
+    protected static Invalidations newInvalidations(int n) {
+        Invalidations invals = new Invalidations();
+        for (int i = 0; i < n; i++) {
+            String id = "4b6e0cfc-1f5e-4e1d-b4a4-" + String.format("%012d", Integer.valueOf(i));
+            invals.add(id, new String[] { "hierarchy", "dublincore", Invalidations.PARENT }, Invalidations.MODIFIED);
+        }
+        invals.addDeleted(new RowId("hierarchy", Long.valueOf(123)));
+        return invals;
+    }
+
+    @Test
+    public void testFulltextExtractorWork() throws Exception {
+        SQLFulltextExtractorWork work = new SQLFulltextExtractorWork("test", "12345678-abcd");
+        work.setWorkInstanceState(State.SCHEDULED);
+        work.setProgress(new Progress(3, 10));
+        work.setStatus("Extracting");
+
+        byte[] bytes = CompactCodec.encode(work);
+        assertTrue(CompactCodec.isCompact(bytes));
+        SQLFulltextExtractorWork decoded = (SQLFulltextExtractorWork) CompactCodec.decode(bytes);
+        assertEquals(work.getId(), decoded.getId());
+        assertEquals(State.SCHEDULED, decoded.getWorkInstanceState());
+        assertEquals(3, decoded.getProgress().getCurrent());
+        assertEquals(10, decoded.getProgress().getTotal());
+        assertEquals("Extracting", decoded.getStatus());
+        assertEquals(work.getDocument(), decoded.getDocument());
+        assertEquals(work.getSchedulingTime(), decoded.getSchedulingTime());
+        assertEquals(work.getCategory(), decoded.getCategory());
+
+        // Java serialization still readable
+        byte[] javaBytes = CompactCodec.encode(work, false);
+        assertFalse(CompactCodec.isCompact(javaBytes));
+        decoded = (SQLFulltextExtractorWork) CompactCodec.decode(javaBytes);
+        assertEquals(work.getId(), decoded.getId());
+        assertTrue(bytes.length < javaBytes.length);
+    }
+
+    @Test
+    public void testInvalidations() throws Exception {
+        Invalidations invals = newInvalidations(10);
+        byte[] bytes = CompactCodec.encode(invals);
+        Invalidations decoded = (Invalidations) CompactCodec.decode(bytes);
+        assertFalse(decoded.all);
+        assertEquals(invals.modified, decoded.modified);
+        assertEquals(invals.deleted, decoded.deleted);
+        assertTrue(bytes.length < CompactCodec.encode(invals, false).length);
+
+        decoded = (Invalidations) CompactCodec.decode(CompactCodec.encode(new Invalidations(true)));
+        assertTrue(decoded.all);
+        assertNull(decoded.modified);
+        assertNull(decoded.deleted);
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class TestOffHeapRowStore {
+
+    protected static byte[] bytes(String string) {
+        return string.getBytes(UTF_8);
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        OffHeapRowStore store = new OffHeapRowStore(1024 * 1024, 4);
+        assertNull(store.get(bytes("foo")));
+        assertTrue(store.put(bytes("foo"), bytes("bar")));
+        assertTrue(store.put(bytes("gee"), new byte[0]));
+        assertArrayEquals(bytes("bar"), store.get(bytes("foo")));
+        assertArrayEquals(new byte[0], store.get(bytes("gee")));
+        assertEquals(2, store.size());
+        // replace
+        assertTrue(store.put(bytes("foo"), bytes("moo")));
+        assertArrayEquals(bytes("moo"), store.get(bytes("foo")));
+        assertEquals(2, store.size());
+        store.remove(bytes("foo"));
+        assertNull(store.get(bytes("foo")));
+        assertEquals(1, store.size());
+        store.clear();
+        assertNull(store.get(bytes("gee")));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testManyEntries() {
+        OffHeapRowStore store = new OffHeapRowStore(16 * 1024 * 1024, 16);
+        int n = 50000;
+        for (int i = 0; i < n; i++) {
+            store.put(bytes("key" + i), bytes("value" + i));
+        }
+        assertEquals(n, store.size());
+        for (int i = 0; i < n; i++) {
+            assertArrayEquals(bytes("value" + i), store.get(bytes("key" + i)));
+        }
+        for (int i = 0; i < n; i += 2) {
+            store.remove(bytes("key" + i));
+        }
+        assertEquals(n / 2, store.size());
+        for (int i = 0; i < n; i++) {
+            byte[] value = store.get(bytes("key" + i));
+            if (i % 2 == 0) {
+                assertNull(value);
+            } else {
+                assertArrayEquals(bytes("value" + i), value);
+            }
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        // single segment, pages of 4096 bytes
+        OffHeapRowStore store = new OffHeapRowStore(8 * 4096, 1);
+        byte[] value = new byte[1000];
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(store.put(bytes("key" + i), value));
+        }
+        assertTrue(store.getUsedBytes() <= store.getMaxSize());
+        assertTrue(store.getEvictionCount() > 0);
+        assertEquals(1000 - store.getEvictionCount(), store.size());
+        // oldest are evicted first, most recent are still there
+        assertNull(store.get(bytes("key0")));
+        assertArrayEquals(value, store.get(bytes("key999")));
+        // too big
+        assertFalse(store.put(bytes("big"), new byte[5000]));
+        assertNull(store.get(bytes("big")));
+    }
+
+    @Test
+    public void testRowCodecSimpleRow() {
+        Calendar cal = new GregorianCalendar(TimeZone.getTimeZone("Europe/Paris"));
+        cal.setTimeInMillis(1234567890123L);
+        Row row = new Row("hierarchy", "id1");
+        row.putNew("name", "fooé");
+        row.putNew("pos", Long.valueOf(-3));
+        row.putNew("isversion", Boolean.TRUE);
+        row.putNew("size", Double.valueOf(1.5));
+        row.putNew("created", cal);
+        row.putNew("subjects", new String[] { "a", null, "c" });
+        row.putNew("nothing", null);
+        row.putNew("opaque", Row.OPAQUE);
+        RowId rowId = new RowId(row);
+        assertArrayEquals(RowCodec.encodeRowId(rowId), RowCodec.encodeRowId(new RowId("hierarchy", "id1")));
+
+        Row decoded = RowCodec.decodeRow(rowId, RowCodec.encodeRow(row));
+        assertEquals("hierarchy", decoded.tableName);
+        assertEquals("id1", decoded.id);
+        assertEquals(row.getKeys(), decoded.getKeys());
+        assertEquals("fooé", decoded.get("name"));
+        assertEquals(Long.valueOf(-3), decoded.get("pos"));
+        assertEquals(Boolean.TRUE, decoded.get("isversion"));
+        assertEquals(Double.valueOf(1.5), decoded.get("size"));
+        assertEquals(cal, decoded.get("created"));
+        assertArrayEquals(new String[] { "a", null, "c" }, (String[]) decoded.get("subjects"));
+        assertNull(decoded.get("nothing"));
+        assertSame(Row.OPAQUE, decoded.get("opaque"));
+    }
+
+    @Test
+    public void testRowCodecCollectionRow() {
+        Calendar begin = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        ACLRow acl1 = new ACLRow(0, "local", true, "Read", "bob", null, "admin", begin, null, Long.valueOf(1));
+        ACLRow acl2 = new ACLRow(1, "local", false, "Write", null, "members");
+        Row row = new Row("acls", Long.valueOf(12), new ACLRow[] { acl1, acl2 });
+        Row decoded = RowCodec.decodeRow(new RowId(row), RowCodec.encodeRow(row));
+        assertTrue(decoded.isCollection());
+        assertEquals(Long.valueOf(12), decoded.id);
+        ACLRow[] acls = (ACLRow[]) decoded.values;
+        assertEquals(2, acls.length);
+        assertEquals(acl1.toString(), acls[0].toString());
+        assertEquals(acl2.toString(), acls[1].toString());
+
+        Row strings = new Row("dc:subjects", "id1", new Serializable[] { "foo", "bar" });
+        decoded = RowCodec.decodeRow(new RowId(strings), RowCodec.encodeRow(strings));
+        assertArrayEquals(strings.values, decoded.values);
+        assertEquals(Serializable[].class, decoded.values.getClass());
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestUnifiedCachingRowMapperOffHeap {
+
+    protected static final String REPOSITORY_NAME = "testoffheap";
+
+    /** The rows of the underlying mapper. */
+    protected Map<RowId, Row> rows;
+
+    /** The number of reads done on the underlying mapper. */
+    protected int reads;
+
+    protected Map<String, String> properties;
+
+    @Before
+    public void setUp() {
+        rows = new HashMap<>();
+        reads = 0;
+        properties = new HashMap<>();
+        properties.put(UnifiedCachingRowMapper.OFF_HEAP_PROP, "true");
+        properties.put(UnifiedCachingRowMapper.OFF_HEAP_MAX_SIZE_PROP, "1MB");
+        Row row = new Row("hierarchy", "id1");
+        row.put("name", "foo");
+        rows.put(new RowId(row), row);
+    }
+
+    @After
+    public void tearDown() {
+        UnifiedCachingRowMapper.closeOffHeapStore(REPOSITORY_NAME);
+    }
+
+    /**
+     * Creates an in-memory row mapper supporting only simple row reads.
+     */
+    protected RowMapper newUnderlyingMapper() {
+        return (RowMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { RowMapper.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "readSimpleRow":
+                        reads++;
+                        Row row = rows.get(new RowId((RowId) args[0]));
+                        return row == null ? null : row.clone();
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    protected UnifiedCachingRowMapper newMapper() {
+        UnifiedCachingRowMapper mapper = new UnifiedCachingRowMapper();
+        mapper.initialize(REPOSITORY_NAME, null, newUnderlyingMapper(), new InvalidationsPropagator(), properties);
+        return mapper;
+    }
+
+    @Test
+    public void testStoreSharedByMappers() {
+        UnifiedCachingRowMapper mapper1 = newMapper();
+        UnifiedCachingRowMapper mapper2 = newMapper();
+        try {
+            RowId rowId = new RowId("hierarchy", "id1");
+            assertEquals("foo", mapper1.readSimpleRow(rowId).get("name"));
+            assertEquals(1, reads);
+            assertEquals("foo", mapper1.readSimpleRow(rowId).get("name"));
+            assertEquals(1, reads);
+            // second mapper of the same repository sees the cached row
+            assertEquals("foo", mapper2.readSimpleRow(rowId).get("name"));
+            assertEquals(1, reads);
+            // absent rows are cached too
+            assertNull(mapper2.readSimpleRow(new RowId("hierarchy", "id2")));
+            assertNull(mapper1.readSimpleRow(new RowId("hierarchy", "id2")));
+            assertEquals(2, reads);
+        } finally {
+            mapper1.close();
+            mapper2.close();
+        }
+    }
+
+    @Test
+    public void testStoreClosedWithRepository() {
+        RowId rowId = new RowId("hierarchy", "id1");
+        UnifiedCachingRowMapper mapper = newMapper();
+        OffHeapRowStore store = UnifiedCachingRowMapper.offHeapStores.get(REPOSITORY_NAME);
+        mapper.readSimpleRow(rowId);
+        assertEquals(1, store.size());
+        mapper.close();
+        UnifiedCachingRowMapper.closeOffHeapStore(REPOSITORY_NAME);
+        assertNull(UnifiedCachingRowMapper.offHeapStores.get(REPOSITORY_NAME));
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+
+        // row changed while the repository was down
+        rows.get(rowId).put("name", "bar");
+
+        // a reinitialized repository gets a new store and doesn't see stale rows
+        mapper = newMapper();
+        try {
+            assertNotSame(store, UnifiedCachingRowMapper.offHeapStores.get(REPOSITORY_NAME));
+            assertEquals("bar", mapper.readSimpleRow(rowId).get("name"));
+            assertEquals(2, reads);
+            assertEquals("bar", mapper.readSimpleRow(rowId).get("name"));
+            assertEquals(2, reads);
+        } finally {
+            mapper.close();
+        }
+    }
+
+}
@@ -19,6 +19,8 @@
  */
 package org.nuxeo.ecm.core.storage;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,6 +28,8 @@ import java.util.List;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.codec.CompactCodec;
+import org.nuxeo.common.codec.CompactSerializable;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.IdRef;
@@ -50,7 +54,7 @@ import org.nuxeo.runtime.api.Framework;
  *
  * @since 5.7
  */
-public abstract class FulltextExtractorWork extends AbstractWork {
+public abstract class FulltextExtractorWork extends AbstractWork implements CompactSerializable {
 
     private static final long serialVersionUID = 1L;
 
@@ -62,7 +66,7 @@ public abstract class FulltextExtractorWork extends AbstractWork {
 
     protected static final String TITLE = "fulltextExtractor";
 
-    protected final boolean excludeProxies;
+    protected boolean excludeProxies;
 
     protected transient FulltextConfiguration fulltextConfiguration;
 
@@ -74,6 +78,32 @@ public abstract class FulltextExtractorWork extends AbstractWork {
         this.excludeProxies = excludeProxies;
     }
 
+    /**
+     * Constructor used by the {@link CompactCodec}.
+     *
+     * @since 8.2
+     */
+    protected FulltextExtractorWork() {
+        super(null);
+    }
+
+    @Override
+    public int getCompactVersion() {
+        return 1;
+    }
+
+    @Override
+    public void writeCompact(DataOutput out) throws IOException {
+        writeCompactState(out);
+        out.writeBoolean(excludeProxies);
+    }
+
+    @Override
+    public void readCompact(DataInput in, int version) throws IOException {
+        readCompactState(in);
+        excludeProxies = in.readBoolean();
+    }
+
     @Override
     public String getCategory() {
         return CATEGORY;
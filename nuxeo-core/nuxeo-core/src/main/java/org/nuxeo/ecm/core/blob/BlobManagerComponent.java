@@ -409,6 +409,9 @@ public class BlobManagerComponent extends DefaultComponent implements BlobManage
             globalStatus.sizeBinaries += status.sizeBinaries;
             globalStatus.numBinariesGC += status.numBinariesGC;
             globalStatus.sizeBinariesGC += status.sizeBinariesGC;
+            globalStatus.numBinariesMarked += status.numBinariesMarked;
+            globalStatus.numDirectories += status.numDirectories;
+            globalStatus.numDirectoriesSwept += status.numDirectoriesSwept;
         }
         globalStatus.gcDuration = System.currentTimeMillis() - start;
         return globalStatus;
@@ -406,7 +406,7 @@ public class AESBinaryManager extends LocalBinaryManager {
 
         try {
             // get digest to use
-            MessageDigest messageDigest = MessageDigest.getInstance(digestAlgorithm);
+            MessageDigest messageDigest = getMessageDigest(digestAlgorithm);
 
             // secret key
             Key secret;
@@ -24,12 +24,31 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.xmap.XMap;
 import org.nuxeo.ecm.core.api.Blob;
 
@@ -40,18 +59,36 @@ import org.nuxeo.ecm.core.api.Blob;
  */
 public abstract class AbstractBinaryManager implements BinaryManager {
 
+    private static final Log log = LogFactory.getLog(AbstractBinaryManager.class);
+
     public static final String MD5_DIGEST = "MD5";
 
     public static final String SHA1_DIGEST = "SHA-1";
 
     public static final String SHA256_DIGEST = "SHA-256";
 
+    /** @since 8.2 */
+    public static final String SHA512_DIGEST = "SHA-512";
+
+    /**
+     * Non-cryptographic digest, see {@link XXH64MessageDigest}.
+     *
+     * @since 8.2
+     */
+    public static final String XXH64_DIGEST = XXH64MessageDigest.ALGORITHM;
+
     public static final int MD5_DIGEST_LENGTH = 32;
 
     public static final int SHA1_DIGEST_LENGTH = 40;
 
     public static final int SHA256_DIGEST_LENGTH = 64;
 
+    /** @since 8.2 */
+    public static final int SHA512_DIGEST_LENGTH = 128;
+
+    /** @since 8.2 */
+    public static final int XXH64_DIGEST_LENGTH = 16;
+
     /**
      * @since 7.4
      */
@@ -67,12 +104,58 @@ public abstract class AbstractBinaryManager implements BinaryManager {
 
     protected BinaryGarbageCollector garbageCollector;
 
+    /**
+     * The digest algorithm configured through {@link BinaryManager#PROP_DIGEST}, or {@code null} for the default.
+     *
+     * @since 8.2
+     */
+    protected String configuredDigest;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         this.blobProviderId = blobProviderId;
         DIGESTS_BY_LENGTH.put(MD5_DIGEST_LENGTH, MD5_DIGEST);
         DIGESTS_BY_LENGTH.put(SHA1_DIGEST_LENGTH, SHA1_DIGEST);
         DIGESTS_BY_LENGTH.put(SHA256_DIGEST_LENGTH, SHA256_DIGEST);
+        DIGESTS_BY_LENGTH.put(SHA512_DIGEST_LENGTH, SHA512_DIGEST);
+        DIGESTS_BY_LENGTH.put(XXH64_DIGEST_LENGTH, XXH64_DIGEST);
+        String digest = properties.get(PROP_DIGEST);
+        if (StringUtils.isNotBlank(digest)) {
+            configuredDigest = digest.trim();
+            try {
+                getMessageDigest(configuredDigest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("Unknown digest algorithm: " + configuredDigest, e);
+            }
+        }
+    }
+
+    /**
+     * Gets a new {@link MessageDigest} for the given algorithm.
+     * <p>
+     * Any algorithm available from the installed security providers can be used, as well as the non-cryptographic
+     * {@link #XXH64_DIGEST}.
+     *
+     * @since 8.2
+     */
+    public static MessageDigest getMessageDigest(String algorithm) throws NoSuchAlgorithmException {
+        if (XXH64_DIGEST.equals(algorithm)) {
+            return new XXH64MessageDigest();
+        }
+        return MessageDigest.getInstance(algorithm);
+    }
+
+    /**
+     * Gets a new {@link MessageDigest} for the digest algorithm of this binary manager.
+     *
+     * @since 8.2
+     */
+    protected MessageDigest newMessageDigest() throws IOException {
+        try {
+            return getMessageDigest(getDigestAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
     }
 
     /**
@@ -115,9 +198,12 @@ public abstract class AbstractBinaryManager implements BinaryManager {
             XMap xmap = new XMap();
             xmap.register(BinaryManagerRootDescriptor.class);
             desc = (BinaryManagerRootDescriptor) xmap.load(new FileInputStream(configFile));
+            if (configuredDigest != null && !configuredDigest.equals(desc.digest)) {
+                log.warn("Ignoring configured digest " + configuredDigest + " for existing binary store using "
+                        + desc.digest + ": " + configFile);
+            }
         } else {
             desc = new BinaryManagerRootDescriptor();
-            // TODO fetch from repo descriptor
             desc.digest = getDefaultDigestAlgorithm();
             desc.depth = DEFAULT_DEPTH;
             desc.write(configFile); // may throw IOException
@@ -130,12 +216,7 @@ public abstract class AbstractBinaryManager implements BinaryManager {
     public static final int MAX_BUF_SIZE = 64 * 1024; // 64 kB
 
     protected String storeAndDigest(InputStream in, OutputStream out) throws IOException {
-        MessageDigest digest;
-        try {
-            digest = MessageDigest.getInstance(getDigestAlgorithm());
-        } catch (NoSuchAlgorithmException e) {
-            throw (IOException) new IOException().initCause(e);
-        }
+        MessageDigest digest = newMessageDigest();
 
         int size = in.available();
         if (size == 0) {
@@ -160,6 +241,174 @@ public abstract class AbstractBinaryManager implements BinaryManager {
         return toHexString(digest.digest());
     }
 
+    /**
+     * Size of the direct buffers used by {@link #storeAndDigest(InputStream, WritableByteChannel)}.
+     *
+     * @since 8.2
+     */
+    public static final int STREAM_BUFFER_SIZE = 1024 * 1024; // 1 MB
+
+    /**
+     * Number of buffers in flight for one stream: while one is digested, the next ones are read and written.
+     *
+     * @since 8.2
+     */
+    public static final int STREAM_BUFFERS = 4;
+
+    protected static final int MAX_POOLED_BUFFERS = 64;
+
+    protected static final Queue<ByteBuffer> BUFFER_POOL = new ConcurrentLinkedQueue<>();
+
+    protected static final AtomicInteger BUFFER_POOL_SIZE = new AtomicInteger();
+
+    // marks the end of the stream for the digesting thread
+    protected static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    protected static final AtomicInteger DIGEST_THREAD_NUMBER = new AtomicInteger();
+
+    protected static final ExecutorService DIGEST_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "Nuxeo-BinaryDigest-" + DIGEST_THREAD_NUMBER.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected static ByteBuffer acquireBuffer() {
+        ByteBuffer buf = BUFFER_POOL.poll();
+        if (buf == null) {
+            return ByteBuffer.allocateDirect(STREAM_BUFFER_SIZE);
+        }
+        BUFFER_POOL_SIZE.decrementAndGet();
+        buf.clear();
+        return buf;
+    }
+
+    protected static void releaseBuffer(ByteBuffer buf) {
+        if (BUFFER_POOL_SIZE.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+            BUFFER_POOL.offer(buf);
+        } else {
+            BUFFER_POOL_SIZE.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copies the input stream to the output channel using direct buffers, while computing its digest on a separate
+     * thread from the same buffers.
+     * <p>
+     * Streams fitting in a single buffer are digested on the calling thread.
+     *
+     * @param in the input stream, not closed by this method
+     * @param out the output channel, not closed by this method
+     * @return the hex digest of the stream
+     * @since 8.2
+     */
+    protected String storeAndDigest(InputStream in, WritableByteChannel out) throws IOException {
+        MessageDigest digest = newMessageDigest();
+        ReadableByteChannel source = Channels.newChannel(in);
+        List<ByteBuffer> buffers = new ArrayList<>(STREAM_BUFFERS);
+        buffers.add(acquireBuffer());
+        boolean releaseBuffers = true;
+        try {
+            ByteBuffer buf = buffers.get(0);
+            boolean eof = fill(source, buf);
+            if (eof) {
+                // small stream, no need for another thread
+                write(out, buf);
+                buf.rewind();
+                digest.update(buf);
+                return toHexString(digest.digest());
+            }
+            BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(STREAM_BUFFERS);
+            BlockingQueue<ByteBuffer> toDigest = new ArrayBlockingQueue<>(STREAM_BUFFERS + 1);
+            for (int i = 1; i < STREAM_BUFFERS; i++) {
+                ByteBuffer b = acquireBuffer();
+                buffers.add(b);
+                free.add(b);
+            }
+            Future<byte[]> future = DIGEST_EXECUTOR.submit(() -> {
+                for (;;) {
+                    ByteBuffer b = toDigest.take();
+                    if (b == END_OF_STREAM) {
+                        return digest.digest();
+                    }
+                    digest.update(b);
+                    b.clear();
+                    free.add(b); // never full
+                }
+            });
+            try {
+                for (;;) {
+                    write(out, buf);
+                    buf.rewind();
+                    toDigest.add(buf); // never full
+                    if (eof) {
+                        break;
+                    }
+                    buf = takeFreeBuffer(free, future);
+                    eof = fill(source, buf);
+                }
+                toDigest.add(END_OF_STREAM);
+                return toHexString(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                if (!future.isDone()) {
+                    // error while reading or writing, the buffers may still be in use
+                    future.cancel(true);
+                    releaseBuffers = false;
+                }
+            }
+        } finally {
+            if (releaseBuffers) {
+                buffers.forEach(AbstractBinaryManager::releaseBuffer);
+            }
+        }
+    }
+
+    /**
+     * Fills the buffer from the source, and flips it.
+     *
+     * @return {@code true} if the end of the source was reached
+     */
+    protected static boolean fill(ReadableByteChannel source, ByteBuffer buf) throws IOException {
+        boolean eof = false;
+        while (buf.hasRemaining()) {
+            if (source.read(buf) == -1) {
+                eof = true;
+                break;
+            }
+        }
+        buf.flip();
+        return eof;
+    }
+
+    protected static void write(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            out.write(buf);
+        }
+    }
+
+    protected static ByteBuffer takeFreeBuffer(BlockingQueue<ByteBuffer> free, Future<byte[]> future)
+            throws InterruptedException, ExecutionException {
+        for (;;) {
+            ByteBuffer buf = free.poll(100, TimeUnit.MILLISECONDS);
+            if (buf != null) {
+                return buf;
+            }
+            if (future.isDone()) {
+                // the digesting thread failed, get the exception
+                future.get();
+                throw new ExecutionException(new IllegalStateException("Digest ended prematurely"));
+            }
+        }
+    }
+
     private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
 
     public static String toHexString(byte[] data) {
@@ -182,11 +431,15 @@ public abstract class AbstractBinaryManager implements BinaryManager {
     }
 
     /**
-     * Gets the default message digest to use to hash binaries.
+     * Gets the default message digest to use to hash binaries, or the one configured with
+     * {@link BinaryManager#PROP_DIGEST}.
      *
      * @since 6.0
      */
     protected String getDefaultDigestAlgorithm() {
+        if (configuredDigest != null) {
+            return configuredDigest;
+        }
         return DEFAULT_DIGEST;
     }
 
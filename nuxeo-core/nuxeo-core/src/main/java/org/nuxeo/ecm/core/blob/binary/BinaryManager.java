@@ -37,6 +37,13 @@ public interface BinaryManager {
     /** In the initialization properties, the property for a generic key. */
     String PROP_KEY = "key";
 
+    /**
+     * In the initialization properties, the property for the digest algorithm used for new binary stores.
+     *
+     * @since 8.2
+     */
+    String PROP_DIGEST = "digest";
+
     /**
      * Initializes the binary manager.
      *
@@ -33,6 +33,15 @@ public class BinaryManagerStatus {
 
     public long sizeBinariesGC;
 
+    /** @since 8.2 */
+    public long numBinariesMarked;
+
+    /** @since 8.2 */
+    public long numDirectories;
+
+    /** @since 8.2 */
+    public long numDirectoriesSwept;
+
     /**
      * The GC duration, in milliseconds
      */
@@ -68,6 +77,33 @@ public class BinaryManagerStatus {
         return sizeBinariesGC;
     }
 
+    /**
+     * The number of binaries marked as in use.
+     *
+     * @since 8.2
+     */
+    public long getNumBinariesMarked() {
+        return numBinariesMarked;
+    }
+
+    /**
+     * The number of top-level directories to sweep, for garbage collectors that report their progress.
+     *
+     * @since 8.2
+     */
+    public long getNumDirectories() {
+        return numDirectories;
+    }
+
+    /**
+     * The number of top-level directories already swept, for garbage collectors that report their progress.
+     *
+     * @since 8.2
+     */
+    public long getNumDirectoriesSwept() {
+        return numDirectoriesSwept;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -75,7 +111,10 @@ public class BinaryManagerStatus {
         .append(", numBinaries=").append(numBinaries) //
         .append(", sizeBinaries=").append(sizeBinaries) //
         .append(", numBinariesGC=").append(numBinariesGC) //
-        .append(", sizeBinariesGC=").append(sizeBinariesGC).append("]");
+        .append(", sizeBinariesGC=").append(sizeBinariesGC) //
+        .append(", numBinariesMarked=").append(numBinariesMarked) //
+        .append(", numDirectories=").append(numDirectories) //
+        .append(", numDirectoriesSwept=").append(numDirectoriesSwept).append("]");
         return builder.toString();
     }
 
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.blob.binary;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,10 +32,13 @@ import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.Environment;
 import org.nuxeo.common.file.FileCache;
 import org.nuxeo.common.file.LRUFileCache;
+import org.nuxeo.common.file.ShardedLRUFileCache;
 import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.runtime.api.Framework;
@@ -53,15 +57,68 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
 
     protected static final String LEN_DIGEST_SUFFIX = "-len";
 
+    /**
+     * Property to enable asynchronous write-behind to the {@link FileStorage}.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_WRITE_BEHIND = "writeBehind";
+
+    /**
+     * Property for the number of threads doing the write-behind.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_WRITE_BEHIND_THREADS = "writeBehindThreads";
+
+    /**
+     * Property for the persistent directory holding the files pending write-behind.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_WRITE_BEHIND_DIR = "writeBehindDir";
+
+    /** @since 8.2 */
+    public static final String DEFAULT_WRITE_BEHIND_DIR = "binaries-writebehind";
+
+    /**
+     * Property to use a {@link ShardedLRUFileCache} instead of a {@link LRUFileCache}.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_CACHE_SHARDED = "cacheSharded";
+
+    /**
+     * Property for a persistent cache directory, kept across restarts. Only used with a sharded cache. If absent a
+     * temporary directory is used.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_CACHE_DIR = "cacheDir";
+
     protected File cachedir;
 
+    /** @since 8.2 */
+    protected boolean cachedirPersistent;
+
     public FileCache fileCache;
 
     protected FileStorage fileStorage;
 
+    /** @since 8.2 */
+    protected Map<String, String> properties;
+
+    /**
+     * The write-behind storage, or {@code null} if files are stored synchronously.
+     *
+     * @since 8.2
+     */
+    protected WriteBehindFileStorage writeBehind;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         super.initialize(blobProviderId, properties);
+        this.properties = properties;
         descriptor = new BinaryManagerRootDescriptor();
         descriptor.digest = getDefaultDigestAlgorithm();
         log.info("Registering binary manager '" + blobProviderId + "' using " + getClass().getSimpleName());
@@ -78,8 +135,41 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
      * @since 5.9.2
      */
     protected void initializeCache(File dir, long maxSize, long maxCount, long minAge, FileStorage fileStorage) {
-        fileCache = new LRUFileCache(dir, maxSize, maxCount, minAge);
+        if (isCacheSharded()) {
+            fileCache = new ShardedLRUFileCache(dir, maxSize, maxCount, minAge);
+        } else {
+            fileCache = new LRUFileCache(dir, maxSize, maxCount, minAge);
+        }
         this.fileStorage = fileStorage;
+        if (properties != null && Boolean.parseBoolean(properties.get(PROP_WRITE_BEHIND))) {
+            try {
+                initializeWriteBehind();
+            } catch (IOException e) {
+                throw new NuxeoException(e);
+            }
+        }
+    }
+
+    /**
+     * Initializes the write-behind to the file storage, resuming the stores pending from a previous run.
+     *
+     * @since 8.2
+     */
+    protected void initializeWriteBehind() throws IOException {
+        String dirStr = properties.get(PROP_WRITE_BEHIND_DIR);
+        File dir;
+        if (StringUtils.isBlank(dirStr)) {
+            dir = new File(new File(Environment.getDefault().getData(), DEFAULT_WRITE_BEHIND_DIR), blobProviderId);
+        } else {
+            dir = new File(Framework.expandVars(dirStr.trim()));
+        }
+        String threadsStr = properties.get(PROP_WRITE_BEHIND_THREADS);
+        int threads = StringUtils.isBlank(threadsStr) ? WriteBehindFileStorage.DEFAULT_THREADS
+                : Integer.parseInt(threadsStr.trim());
+        // be sure FileTracker won't steal our files !
+        FileEventTracker.registerProtectedPath(dir.getAbsolutePath());
+        writeBehind = new WriteBehindFileStorage(blobProviderId, fileStorage, dir, threads);
+        log.info("Using write-behind for binary manager '" + blobProviderId + "' with pending directory: " + dir);
     }
 
     /**
@@ -108,9 +198,16 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
      */
     public void initializeCache(String maxSizeStr, String maxCountStr, String minAgeStr, FileStorage fileStorage)
             throws IOException {
-        cachedir = Framework.createTempFile("nxbincache.", "");
-        cachedir.delete();
-        cachedir.mkdir();
+        String cachedirStr = properties == null ? null : properties.get(PROP_CACHE_DIR);
+        if (isCacheSharded() && StringUtils.isNotBlank(cachedirStr)) {
+            cachedir = new File(Framework.expandVars(cachedirStr.trim()));
+            cachedir.mkdirs();
+            cachedirPersistent = true;
+        } else {
+            cachedir = Framework.createTempFile("nxbincache.", "");
+            cachedir.delete();
+            cachedir.mkdir();
+        }
         long maxSize = SizeUtils.parseSizeInBytes(maxSizeStr);
         long maxCount = Long.parseLong(maxCountStr);
         long minAge = Long.parseLong(minAgeStr);
@@ -122,8 +219,22 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         FileEventTracker.registerProtectedPath(cachedir.getAbsolutePath());
     }
 
+    /** @since 8.2 */
+    protected boolean isCacheSharded() {
+        return properties != null && Boolean.parseBoolean(properties.get(PROP_CACHE_SHARDED));
+    }
+
     @Override
     public void close() {
+        if (writeBehind != null) {
+            writeBehind.close();
+            writeBehind = null;
+        }
+        if (cachedirPersistent) {
+            // keep the cache for next startup
+            fileCache.close();
+            return;
+        }
         fileCache.clear();
         if (cachedir != null) {
             try {
@@ -158,7 +269,11 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
             tmp.delete();
         } else {
             // send the file to storage
-            fileStorage.storeFile(digest, tmp);
+            if (writeBehind != null) {
+                writeBehind.storeFile(digest, tmp);
+            } else {
+                fileStorage.storeFile(digest, tmp);
+            }
             // register the file in the file cache
             fileCache.putFile(digest, tmp);
         }
@@ -183,6 +298,17 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         if (file != null) {
             return file;
         }
+        // get file from write-behind journal
+        if (writeBehind != null) {
+            File pending = writeBehind.getPendingFile(digest);
+            if (pending != null) {
+                try (InputStream in = new FileInputStream(pending)) {
+                    return fileCache.putFile(digest, in);
+                } catch (FileNotFoundException e) {
+                    // stored in the meantime
+                }
+            }
+        }
         // fetch file from storage
         File tmp = fileCache.getTempFile();
         if (fileStorage.fetchFile(digest, tmp)) {
@@ -207,6 +333,13 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         if (length != null) {
             return length;
         }
+        // get length from write-behind journal
+        if (writeBehind != null) {
+            File pending = writeBehind.getPendingFile(digest);
+            if (pending != null) {
+                return Long.valueOf(pending.length());
+            }
+        }
         // fetch length from storage
         length = fileStorage.fetchLength(digest);
         // put length in cache
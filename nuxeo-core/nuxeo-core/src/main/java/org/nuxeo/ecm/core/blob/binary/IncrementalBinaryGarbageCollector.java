@@ -0,0 +1,513 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.binary.LocalBinaryManager.DefaultBinaryGarbageCollector;
+
+/**
+ * Garbage collector for a {@link LocalBinaryManager} that scales to very large binary stores.
+ * <p>
+ * Instead of touching each marked file, marked digests are accumulated in a bounded memory buffer that is sorted and
+ * spilled to disk when full. When the GC is stopped the spilled runs are merged into one sorted digest file per
+ * top-level directory of the store, then the top-level directories are swept in parallel, each one being walked in
+ * digest order and merge-joined against its sorted digest file. Memory usage is therefore independent of the number
+ * of binaries.
+ * <p>
+ * Progress is checkpointed after each swept top-level directory. If the GC is interrupted, the next GC (with the same
+ * {@code delete} flag) will skip the directories already swept. Marking is always redone from scratch, as it is driven
+ * by the repositories.
+ * <p>
+ * As with the {@link DefaultBinaryGarbageCollector}, files modified after the start of the GC are never deleted.
+ *
+ * @since 8.2
+ */
+public class IncrementalBinaryGarbageCollector implements BinaryGarbageCollector {
+
+    private static final Log log = LogFactory.getLog(IncrementalBinaryGarbageCollector.class);
+
+    public static final int DEFAULT_THREADS = 4;
+
+    public static final int DEFAULT_MARK_BUFFER_SIZE = 1_000_000;
+
+    protected static final String RUNS_DIR = "runs";
+
+    protected static final String MARKS_DIR = "marks";
+
+    protected static final String CHECKPOINT_FILE = "checkpoint.properties";
+
+    protected static final String CHECKPOINT_DELETE = "delete";
+
+    protected static final String CHECKPOINT_DONE = "done";
+
+    protected static final String CHECKPOINT_NUM_BINARIES = "numBinaries";
+
+    protected static final String CHECKPOINT_SIZE_BINARIES = "sizeBinaries";
+
+    protected static final String CHECKPOINT_NUM_BINARIES_GC = "numBinariesGC";
+
+    protected static final String CHECKPOINT_SIZE_BINARIES_GC = "sizeBinariesGC";
+
+    protected final LocalBinaryManager binaryManager;
+
+    protected final File workDir;
+
+    protected final int threads;
+
+    protected final int markBufferSize;
+
+    protected volatile long startTime;
+
+    protected BinaryManagerStatus status;
+
+    protected String[] markBuffer;
+
+    protected int markBufferCount;
+
+    protected int runCount;
+
+    /** Top-level directories already swept, protected by the status lock. */
+    protected Set<String> done;
+
+    /**
+     * Constructs a garbage collector for the given binary manager.
+     *
+     * @param binaryManager the binary manager
+     * @param workDir the directory where marks and checkpoints are stored, must be on a persistent filesystem
+     * @param threads the number of threads used to sweep
+     * @param markBufferSize the number of digests kept in memory before spilling them to disk
+     */
+    public IncrementalBinaryGarbageCollector(LocalBinaryManager binaryManager, File workDir, int threads,
+            int markBufferSize) {
+        this.binaryManager = binaryManager;
+        this.workDir = workDir;
+        this.threads = threads;
+        this.markBufferSize = markBufferSize;
+    }
+
+    @Override
+    public String getId() {
+        return binaryManager.getStorageDir().toURI().toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The status is updated while the GC is in progress, and can be used to follow its progress.
+     */
+    @Override
+    public BinaryManagerStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public boolean isInProgress() {
+        // volatile as this is designed to be called from another thread
+        return startTime != 0;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (startTime != 0) {
+            throw new NuxeoException("Already started");
+        }
+        try {
+            FileUtils.deleteDirectory(new File(workDir, RUNS_DIR));
+            FileUtils.deleteDirectory(new File(workDir, MARKS_DIR));
+            new File(workDir, RUNS_DIR).mkdirs();
+            new File(workDir, MARKS_DIR).mkdirs();
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        markBuffer = new String[markBufferSize];
+        markBufferCount = 0;
+        runCount = 0;
+        status = new BinaryManagerStatus();
+        startTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void mark(String digest) {
+        if (startTime == 0) {
+            throw new NuxeoException("Not started");
+        }
+        if (binaryManager.getFileForDigest(digest, false) == null) {
+            log.error("Invalid file digest: " + digest);
+            return;
+        }
+        markBuffer[markBufferCount++] = digest;
+        status.numBinariesMarked++;
+        if (markBufferCount == markBuffer.length) {
+            spillMarks();
+        }
+    }
+
+    /**
+     * Sorts the in-memory marks and writes them to a new run file.
+     */
+    protected void spillMarks() {
+        if (markBufferCount == 0) {
+            return;
+        }
+        Arrays.sort(markBuffer, 0, markBufferCount);
+        File run = new File(new File(workDir, RUNS_DIR), String.valueOf(runCount++));
+        try (BufferedWriter writer = Files.newBufferedWriter(run.toPath(), UTF_8)) {
+            for (int i = 0; i < markBufferCount; i++) {
+                writer.write(markBuffer[i]);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        Arrays.fill(markBuffer, 0, markBufferCount, null);
+        markBufferCount = 0;
+    }
+
+    protected static class RunReader implements Comparable<RunReader> {
+
+        protected final BufferedReader reader;
+
+        protected String current;
+
+        protected RunReader(File file) throws IOException {
+            reader = Files.newBufferedReader(file.toPath(), UTF_8);
+            current = reader.readLine();
+        }
+
+        protected void advance() throws IOException {
+            current = reader.readLine();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return current.compareTo(other.current);
+        }
+    }
+
+    /**
+     * Merges the sorted runs into one deduplicated sorted digest file per top-level directory.
+     */
+    protected void mergeMarks() throws IOException {
+        File runsDir = new File(workDir, RUNS_DIR);
+        File marksDir = new File(workDir, MARKS_DIR);
+        PriorityQueue<RunReader> queue = new PriorityQueue<>();
+        List<RunReader> readers = new ArrayList<>();
+        BufferedWriter writer = null;
+        try {
+            for (int i = 0; i < runCount; i++) {
+                RunReader reader = new RunReader(new File(runsDir, String.valueOf(i)));
+                readers.add(reader);
+                if (reader.current != null) {
+                    queue.add(reader);
+                }
+            }
+            String prefix = null;
+            String previous = null;
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                String digest = reader.current;
+                if (!digest.equals(previous)) {
+                    String p = getTopLevelDirectory(digest);
+                    if (!p.equals(prefix)) {
+                        if (writer != null) {
+                            writer.close();
+                        }
+                        writer = Files.newBufferedWriter(new File(marksDir, p).toPath(), UTF_8);
+                        prefix = p;
+                    }
+                    writer.write(digest);
+                    writer.newLine();
+                    previous = digest;
+                }
+                reader.advance();
+                if (reader.current != null) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+            for (RunReader reader : readers) {
+                reader.reader.close();
+            }
+        }
+        FileUtils.deleteDirectory(runsDir);
+    }
+
+    protected String getTopLevelDirectory(String digest) {
+        return digest.substring(0, 2);
+    }
+
+    @Override
+    public void stop(boolean delete) {
+        synchronized (this) {
+            if (startTime == 0) {
+                throw new NuxeoException("Not started");
+            }
+            spillMarks();
+            markBuffer = null;
+        }
+        try {
+            mergeMarks();
+            loadCheckpoint(delete);
+            sweep(startTime - DefaultBinaryGarbageCollector.TIME_RESOLUTION, delete);
+            // completed, no need to resume
+            new File(workDir, CHECKPOINT_FILE).delete();
+            FileUtils.deleteDirectory(new File(workDir, MARKS_DIR));
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        } finally {
+            status.gcDuration = System.currentTimeMillis() - startTime;
+            startTime = 0;
+        }
+    }
+
+    protected void sweep(long minTime, boolean delete) throws IOException {
+        File[] dirs = binaryManager.getStorageDir().listFiles(File::isDirectory);
+        if (dirs == null) {
+            throw new IOException("Cannot list: " + binaryManager.getStorageDir());
+        }
+        List<File> todo = new ArrayList<>();
+        synchronized (status) {
+            status.numDirectories = dirs.length;
+            for (File dir : dirs) {
+                if (!done.contains(dir.getName())) {
+                    todo.add(dir);
+                }
+            }
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-BinaryGC-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(todo.size());
+            for (File dir : todo) {
+                futures.add(executor.submit(() -> sweepTopLevelDirectory(dir, minTime, delete)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new NuxeoException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Counters for the sweep of one top-level directory. */
+    protected static class SweepStatus {
+
+        protected long numBinaries;
+
+        protected long sizeBinaries;
+
+        protected long numBinariesGC;
+
+        protected long sizeBinariesGC;
+    }
+
+    protected void sweepTopLevelDirectory(File dir, long minTime, boolean delete) {
+        String name = dir.getName();
+        File marks = new File(new File(workDir, MARKS_DIR), name);
+        SweepStatus sweepStatus = new SweepStatus();
+        try (BufferedReader reader = marks.exists() ? Files.newBufferedReader(marks.toPath(), UTF_8) : null) {
+            MarkCursor cursor = new MarkCursor(reader);
+            sweep(dir, cursor, minTime, delete, sweepStatus);
+            cursor.skipTo(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        synchronized (status) {
+            status.numBinaries += sweepStatus.numBinaries;
+            status.sizeBinaries += sweepStatus.sizeBinaries;
+            status.numBinariesGC += sweepStatus.numBinariesGC;
+            status.sizeBinariesGC += sweepStatus.sizeBinariesGC;
+            status.numDirectoriesSwept++;
+            done.add(name);
+            saveCheckpoint(delete);
+        }
+    }
+
+    /** Reads the sorted marks of a directory in parallel with the sorted walk of the directory. */
+    protected static class MarkCursor {
+
+        protected final BufferedReader reader;
+
+        protected String current;
+
+        protected MarkCursor(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            current = reader == null ? null : reader.readLine();
+        }
+
+        /**
+         * Advances to the given digest, returns {@code true} if it is marked. Marks skipped over have no file.
+         *
+         * @param digest the digest, or {@code null} to go to the end
+         */
+        protected boolean skipTo(String digest) throws IOException {
+            while (current != null && (digest == null || current.compareTo(digest) < 0)) {
+                log.error("Unknown file digest: " + current);
+                current = reader.readLine();
+            }
+            if (current != null && current.equals(digest)) {
+                current = reader.readLine();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Walks the directory in digest order, deleting the files older than minTime that are not marked.
+     */
+    protected void sweep(File file, MarkCursor cursor, long minTime, boolean delete, SweepStatus sweepStatus)
+            throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            if (files == null) {
+                throw new IOException("Cannot list: " + file);
+            }
+            Arrays.sort(files, (a, b) -> a.getName().compareTo(b.getName()));
+            for (File f : files) {
+                sweep(f, cursor, minTime, delete, sweepStatus);
+            }
+            String[] remaining = file.list();
+            if (remaining != null && remaining.length == 0) {
+                // empty directory
+                file.delete();
+            }
+        } else if (file.isFile() && file.canWrite()) {
+            long length = file.length();
+            if (cursor.skipTo(file.getName())) {
+                sweepStatus.sizeBinaries += length;
+                sweepStatus.numBinaries++;
+                return;
+            }
+            long lastModified = file.lastModified();
+            if (lastModified == 0) {
+                log.error("Cannot read last modified for file: " + file);
+            } else if (lastModified < minTime) {
+                sweepStatus.sizeBinariesGC += length;
+                sweepStatus.numBinariesGC++;
+                if (delete && !file.delete()) {
+                    log.warn("Cannot gc file: " + file);
+                }
+            } else {
+                // created or reused during the GC
+                sweepStatus.sizeBinaries += length;
+                sweepStatus.numBinaries++;
+            }
+        }
+    }
+
+    /**
+     * Loads the progress of a previous interrupted GC done with the same delete flag.
+     */
+    protected void loadCheckpoint(boolean delete) throws IOException {
+        done = new HashSet<>();
+        File file = new File(workDir, CHECKPOINT_FILE);
+        if (!file.exists()) {
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            props.load(in);
+        }
+        if (Boolean.parseBoolean(props.getProperty(CHECKPOINT_DELETE)) != delete) {
+            return;
+        }
+        for (String name : StringUtils.split(props.getProperty(CHECKPOINT_DONE, ""), ',')) {
+            done.add(name);
+        }
+        synchronized (status) {
+            status.numDirectoriesSwept = done.size();
+            status.numBinaries = Long.parseLong(props.getProperty(CHECKPOINT_NUM_BINARIES, "0"));
+            status.sizeBinaries = Long.parseLong(props.getProperty(CHECKPOINT_SIZE_BINARIES, "0"));
+            status.numBinariesGC = Long.parseLong(props.getProperty(CHECKPOINT_NUM_BINARIES_GC, "0"));
+            status.sizeBinariesGC = Long.parseLong(props.getProperty(CHECKPOINT_SIZE_BINARIES_GC, "0"));
+        }
+        log.info("Resuming binary GC of " + getId() + ", " + done.size() + " directories already swept");
+    }
+
+    /**
+     * Saves the progress. Called with the status lock held.
+     */
+    protected void saveCheckpoint(boolean delete) {
+        Properties props = new Properties();
+        props.setProperty(CHECKPOINT_DELETE, String.valueOf(delete));
+        props.setProperty(CHECKPOINT_DONE, StringUtils.join(done, ','));
+        props.setProperty(CHECKPOINT_NUM_BINARIES, String.valueOf(status.numBinaries));
+        props.setProperty(CHECKPOINT_SIZE_BINARIES, String.valueOf(status.sizeBinaries));
+        props.setProperty(CHECKPOINT_NUM_BINARIES_GC, String.valueOf(status.numBinariesGC));
+        props.setProperty(CHECKPOINT_SIZE_BINARIES_GC, String.valueOf(status.sizeBinariesGC));
+        File file = new File(workDir, CHECKPOINT_FILE);
+        File tmp = new File(workDir, CHECKPOINT_FILE + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp.toPath())) {
+                props.store(out, null);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // not fatal, the GC will just redo more work if resumed
+            log.error("Cannot save binary GC checkpoint: " + file, e);
+        }
+    }
+
+}
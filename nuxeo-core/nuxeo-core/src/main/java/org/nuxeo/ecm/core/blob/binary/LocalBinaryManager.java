@@ -26,6 +26,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -69,10 +71,47 @@ public class LocalBinaryManager extends AbstractBinaryManager {
 
     public static final String CONFIG_FILE = "config.xml";
 
+    /**
+     * Property to use the {@link IncrementalBinaryGarbageCollector}.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_GC_INCREMENTAL = "gcIncremental";
+
+    /**
+     * Property for the number of threads used by the {@link IncrementalBinaryGarbageCollector} to sweep.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_GC_THREADS = "gcThreads";
+
+    /**
+     * Property for the number of digests kept in memory by the {@link IncrementalBinaryGarbageCollector} before
+     * spilling them to disk.
+     *
+     * @since 8.2
+     */
+    public static final String PROP_GC_MARK_BUFFER_SIZE = "gcMarkBufferSize";
+
+    /** @since 8.2 */
+    public static final String GC = "gc";
+
     protected File storageDir;
 
     protected File tmpDir;
 
+    /** @since 8.2 */
+    protected File gcDir;
+
+    /** @since 8.2 */
+    protected boolean gcIncremental;
+
+    /** @since 8.2 */
+    protected int gcThreads;
+
+    /** @since 8.2 */
+    protected int gcMarkBufferSize;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         super.initialize(blobProviderId, properties);
@@ -111,6 +150,11 @@ public class LocalBinaryManager extends AbstractBinaryManager {
         storageDir.mkdirs();
         tmpDir.mkdirs();
         descriptor = getDescriptor(new File(base, CONFIG_FILE));
+        gcDir = new File(base, GC);
+        gcIncremental = Boolean.parseBoolean(properties.get(PROP_GC_INCREMENTAL));
+        gcThreads = getIntProperty(properties, PROP_GC_THREADS, IncrementalBinaryGarbageCollector.DEFAULT_THREADS);
+        gcMarkBufferSize = getIntProperty(properties, PROP_GC_MARK_BUFFER_SIZE,
+                IncrementalBinaryGarbageCollector.DEFAULT_MARK_BUFFER_SIZE);
         createGarbageCollector();
     }
 
@@ -181,17 +225,15 @@ public class LocalBinaryManager extends AbstractBinaryManager {
 
     protected String storeAndDigest(InputStream in) throws IOException {
         File tmp = File.createTempFile("create_", ".tmp", tmpDir);
-        OutputStream out = new FileOutputStream(tmp);
         /*
-         * First, write the input stream to a temporary file, while computing a digest.
+         * First, write the input stream to a temporary file, while computing a digest in parallel.
          */
         try {
             String digest;
-            try {
+            try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
                 digest = storeAndDigest(in, out);
             } finally {
                 in.close();
-                out.close();
             }
             /*
              * Move the tmp file to its destination.
@@ -246,8 +288,18 @@ public class LocalBinaryManager extends AbstractBinaryManager {
         }
     }
 
+    protected static int getIntProperty(Map<String, String> properties, String key, int defaultValue) {
+        String value = properties.get(key);
+        return StringUtils.isBlank(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
     protected void createGarbageCollector() {
-        garbageCollector = new DefaultBinaryGarbageCollector(this);
+        if (gcIncremental && descriptor.depth > 0) {
+            gcDir.mkdirs();
+            garbageCollector = new IncrementalBinaryGarbageCollector(this, gcDir, gcThreads, gcMarkBufferSize);
+        } else {
+            garbageCollector = new DefaultBinaryGarbageCollector(this);
+        }
     }
 
     public static class DefaultBinaryGarbageCollector implements BinaryGarbageCollector {
@@ -299,6 +351,7 @@ public class LocalBinaryManager extends AbstractBinaryManager {
                 log.error("Unknown file digest: " + digest);
                 return;
             }
+            status.numBinariesMarked++;
             touch(file);
         }
 
@@ -0,0 +1,273 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.SystemUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Asynchronous write-behind in front of a {@link FileStorage}.
+ * <p>
+ * Files to store are first durably recorded in a pending directory (the journal), then sent to the underlying
+ * {@link FileStorage} by a bounded pool of threads. Failed stores are retried with an exponential backoff, and pending
+ * files left over from a previous run are sent again on startup. A file is removed from the pending directory only
+ * once it has been stored.
+ * <p>
+ * Until it has been stored, a file is only available from the pending directory of the node that received it: in a
+ * cluster, the other nodes don't see it in the underlying storage yet, so the pending directory should not be used
+ * when other nodes may need the file before the write-behind catches up.
+ *
+ * @since 8.2
+ */
+public class WriteBehindFileStorage {
+
+    private static final Log log = LogFactory.getLog(WriteBehindFileStorage.class);
+
+    public static final int DEFAULT_THREADS = 4;
+
+    protected static final String TMP_SUFFIX = ".tmp";
+
+    protected static final long MIN_RETRY_DELAY = 1000; // 1s
+
+    protected static final long MAX_RETRY_DELAY = 5 * 60 * 1000; // 5min
+
+    protected static final long SHUTDOWN_DELAY = 10; // 10s
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected final String id;
+
+    protected final FileStorage fileStorage;
+
+    protected final File pendingDir;
+
+    protected final ScheduledThreadPoolExecutor executor;
+
+    /** The keys pending or being stored. */
+    protected final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    protected final String queueMetricName;
+
+    protected final Counter failures;
+
+    /**
+     * Creates the write-behind storage and resumes the pending stores of a previous run.
+     *
+     * @param id the identifier of the binary manager, used for metrics and thread names
+     * @param fileStorage the underlying storage
+     * @param pendingDir the journal directory, must be on a persistent filesystem
+     * @param threads the maximum number of concurrent stores
+     */
+    public WriteBehindFileStorage(String id, FileStorage fileStorage, File pendingDir, int threads)
+            throws IOException {
+        this.id = id;
+        this.fileStorage = fileStorage;
+        this.pendingDir = pendingDir;
+        pendingDir.mkdirs();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-BinaryWriteBehind-" + id + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // pending files are journaled, no need to wait for retries on shutdown
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        queueMetricName = MetricRegistry.name("nuxeo", "binarymanagers", id, "writebehind", "pending");
+        registry.remove(queueMetricName);
+        registry.register(queueMetricName, (Gauge<Integer>) this::getQueueDepth);
+        failures = registry.counter(MetricRegistry.name("nuxeo", "binarymanagers", id, "writebehind", "failures"));
+        recover();
+    }
+
+    /**
+     * Schedules again the files left pending by a previous run.
+     */
+    protected void recover() throws IOException {
+        File[] files = pendingDir.listFiles();
+        if (files == null) {
+            throw new IOException("Cannot list: " + pendingDir);
+        }
+        int n = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                // incomplete journal entry, the upload never returned
+                file.delete();
+            } else if (pending.add(file.getName())) {
+                schedule(file.getName(), 0);
+                n++;
+            }
+        }
+        if (n > 0) {
+            log.info("Resuming write-behind of " + n + " files for binary manager: " + id);
+        }
+    }
+
+    /**
+     * Gets the number of files not yet stored in the underlying storage.
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Durably records a file to store, then schedules its storage.
+     * <p>
+     * The file is linked (or copied if linking is not possible) into the journal, it is not modified and stays owned
+     * by the caller.
+     *
+     * @param key the file key
+     * @param file the file
+     */
+    public void storeFile(String key, File file) throws IOException {
+        if (!pending.add(key)) {
+            // already pending
+            return;
+        }
+        try {
+            Path journaled = getPendingPath(key);
+            if (!Files.exists(journaled)) {
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Path tmp = pendingDir.toPath().resolve(key + TMP_SUFFIX);
+                Files.deleteIfExists(tmp);
+                try {
+                    Files.createLink(tmp, file.toPath());
+                } catch (IOException | UnsupportedOperationException e) {
+                    // different filesystem
+                    Files.copy(file.toPath(), tmp);
+                    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                        channel.force(true);
+                    }
+                }
+                Files.move(tmp, journaled, StandardCopyOption.ATOMIC_MOVE);
+                // make the rename durable, otherwise the journal entry may be lost on a crash
+                syncPendingDir();
+            }
+        } catch (FileAlreadyExistsException e) {
+            // journaled concurrently
+        } catch (IOException | RuntimeException e) {
+            pending.remove(key);
+            throw e;
+        }
+        schedule(key, 0);
+    }
+
+    /**
+     * Gets the journaled file for a key not yet stored in the underlying storage.
+     * <p>
+     * The returned file may disappear at any time once it has been stored.
+     *
+     * @param key the file key
+     * @return the file, or {@code null} if it's not pending
+     */
+    public File getPendingFile(String key) {
+        if (!pending.contains(key)) {
+            return null;
+        }
+        File file = getPendingPath(key).toFile();
+        return file.exists() ? file : null;
+    }
+
+    /**
+     * Flushes the directory entries of the journal to disk.
+     */
+    protected void syncPendingDir() throws IOException {
+        if (SystemUtils.IS_OS_WINDOWS) {
+            // directories cannot be opened, and NTFS journals its metadata
+            return;
+        }
+        try (FileChannel dir = FileChannel.open(pendingDir.toPath(), StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    protected Path getPendingPath(String key) {
+        return pendingDir.toPath().resolve(key);
+    }
+
+    protected void schedule(String key, long delay) {
+        if (executor.isShutdown()) {
+            // will be resumed on next startup
+            return;
+        }
+        executor.schedule(() -> store(key, delay), delay, TimeUnit.MILLISECONDS);
+    }
+
+    protected void store(String key, long previousDelay) {
+        File file = getPendingPath(key).toFile();
+        if (!file.exists()) {
+            log.error("Journaled file disappeared: " + file + " for binary manager: " + id);
+            pending.remove(key);
+            return;
+        }
+        try {
+            fileStorage.storeFile(key, file);
+        } catch (IOException | RuntimeException e) {
+            failures.inc();
+            long delay = Math.min(Math.max(2 * previousDelay, MIN_RETRY_DELAY), MAX_RETRY_DELAY);
+            log.error("Cannot store file: " + key + " for binary manager: " + id + ", retrying in " + delay + "ms",
+                    e);
+            schedule(key, delay);
+            return;
+        }
+        file.delete();
+        pending.remove(key);
+    }
+
+    /**
+     * Stops the storage threads. Files not yet stored stay in the journal and will be stored on next startup.
+     */
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_DELAY, TimeUnit.SECONDS)) {
+                log.warn("Write-behind still running for binary manager: " + id + ", " + getQueueDepth()
+                        + " files pending");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        registry.remove(queueMetricName);
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.security.MessageDigest;
+
+/**
+ * {@link MessageDigest} computing the non-cryptographic xxHash64 hash (seed 0), in canonical big-endian form.
+ * <p>
+ * This hash is several times faster than MD5 or SHA-256 but is not collision-resistant: it must only be used for
+ * binary stores where the content is trusted and the number of binaries stays well below 2<sup>32</sup>.
+ *
+ * @since 8.2
+ */
+public class XXH64MessageDigest extends MessageDigest {
+
+    public static final String ALGORITHM = "XXH64";
+
+    private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+
+    private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long PRIME64_3 = 0x165667B19E3779F9L;
+
+    private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+
+    private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE = 32;
+
+    private long v1;
+
+    private long v2;
+
+    private long v3;
+
+    private long v4;
+
+    private long totalLength;
+
+    private final byte[] buffer = new byte[STRIPE];
+
+    private int bufferSize;
+
+    public XXH64MessageDigest() {
+        super(ALGORITHM);
+        engineReset();
+    }
+
+    @Override
+    protected int engineGetDigestLength() {
+        return 8;
+    }
+
+    @Override
+    protected void engineReset() {
+        v1 = PRIME64_1 + PRIME64_2;
+        v2 = PRIME64_2;
+        v3 = 0;
+        v4 = -PRIME64_1;
+        totalLength = 0;
+        bufferSize = 0;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        engineUpdate(new byte[] { input }, 0, 1);
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        totalLength += len;
+        int end = offset + len;
+        if (bufferSize > 0) {
+            int n = Math.min(STRIPE - bufferSize, len);
+            System.arraycopy(input, offset, buffer, bufferSize, n);
+            bufferSize += n;
+            offset += n;
+            if (bufferSize < STRIPE) {
+                return;
+            }
+            processStripe(buffer, 0);
+            bufferSize = 0;
+        }
+        for (; offset + STRIPE <= end; offset += STRIPE) {
+            processStripe(input, offset);
+        }
+        if (offset < end) {
+            bufferSize = end - offset;
+            System.arraycopy(input, offset, buffer, 0, bufferSize);
+        }
+    }
+
+    private void processStripe(byte[] b, int off) {
+        v1 = round(v1, readLong(b, off));
+        v2 = round(v2, readLong(b, off + 8));
+        v3 = round(v3, readLong(b, off + 16));
+        v4 = round(v4, readLong(b, off + 24));
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long h;
+        if (totalLength >= STRIPE) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = PRIME64_5;
+        }
+        h += totalLength;
+        int p = 0;
+        for (; p + 8 <= bufferSize; p += 8) {
+            h ^= round(0, readLong(buffer, p));
+            h = Long.rotateLeft(h, 27) * PRIME64_1 + PRIME64_4;
+        }
+        if (p + 4 <= bufferSize) {
+            h ^= (readInt(buffer, p) & 0xFFFFFFFFL) * PRIME64_1;
+            h = Long.rotateLeft(h, 23) * PRIME64_2 + PRIME64_3;
+            p += 4;
+        }
+        for (; p < bufferSize; p++) {
+            h ^= (buffer[p] & 0xFF) * PRIME64_5;
+            h = Long.rotateLeft(h, 11) * PRIME64_1;
+        }
+        h ^= h >>> 33;
+        h *= PRIME64_2;
+        h ^= h >>> 29;
+        h *= PRIME64_3;
+        h ^= h >>> 32;
+        byte[] digest = new byte[8];
+        for (int i = 0; i < 8; i++) {
+            digest[i] = (byte) (h >>> (56 - 8 * i));
+        }
+        engineReset();
+        return digest;
+    }
+
+    private static long round(long acc, long input) {
+        acc += input * PRIME64_2;
+        acc = Long.rotateLeft(acc, 31);
+        return acc * PRIME64_1;
+    }
+
+    private static long mergeRound(long acc, long val) {
+        acc ^= round(0, val);
+        return acc * PRIME64_1 + PRIME64_4;
+    }
+
+    private static long readLong(byte[] b, int off) {
+        return (b[off] & 0xFFL) //
+                | (b[off + 1] & 0xFFL) << 8 //
+                | (b[off + 2] & 0xFFL) << 16 //
+                | (b[off + 3] & 0xFFL) << 24 //
+                | (b[off + 4] & 0xFFL) << 32 //
+                | (b[off + 5] & 0xFFL) << 40 //
+                | (b[off + 6] & 0xFFL) << 48 //
+                | (b[off + 7] & 0xFFL) << 56;
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16 | (b[off + 3] & 0xFF) << 24;
+    }
+
+}
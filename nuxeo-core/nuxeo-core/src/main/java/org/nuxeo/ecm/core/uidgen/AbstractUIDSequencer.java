@@ -18,6 +18,13 @@
  */
 package org.nuxeo.ecm.core.uidgen;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * @since 7.4
  */
@@ -25,6 +32,21 @@ public abstract class AbstractUIDSequencer implements UIDSequencer {
 
     protected String name;
 
+    /**
+     * Minimum number of UIDs reserved at once by {@link #getNextBlock}, the UIDs not returned being kept in memory for
+     * the next calls.
+     *
+     * @since 8.2
+     */
+    protected int blockSize = 1;
+
+    /**
+     * UIDs reserved and not returned yet, by key.
+     *
+     * @since 8.2
+     */
+    protected final Map<String, Deque<Integer>> reservedIds = new ConcurrentHashMap<>();
+
     @Override
     public abstract void init();
 
@@ -44,8 +66,78 @@ public abstract class AbstractUIDSequencer implements UIDSequencer {
         this.name = name;
     }
 
+    /**
+     * @since 8.2
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the minimum number of UIDs reserved at once by {@link #getNextBlock}. A size greater than 1 avoids a
+     * round-trip to the sequence storage for most calls, but the UIDs still reserved when the sequencer is disposed are
+     * lost, and UIDs are not increasing across several nodes.
+     *
+     * @since 8.2
+     */
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    @Override
+    public List<Integer> getNextBlock(String key, int size) {
+        List<Integer> ids = new ArrayList<>(size);
+        Deque<Integer> reserved = reservedIds.computeIfAbsent(key, k -> new ArrayDeque<>());
+        synchronized (reserved) {
+            while (ids.size() < size && !reserved.isEmpty()) {
+                ids.add(reserved.poll());
+            }
+            int missing = size - ids.size();
+            if (missing > 0) {
+                List<Integer> block = reserveBlock(key, Math.max(missing, blockSize));
+                ids.addAll(block.subList(0, missing));
+                reserved.addAll(block.subList(missing, block.size()));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reserves a block of UIDs in the sequence storage.
+     * <p>
+     * The default implementation calls {@link #getNext} for each UID, implementations should override it to reserve
+     * the whole block at once.
+     *
+     * @param key the sequence key
+     * @param size the number of UIDs to reserve
+     * @return the reserved UIDs, in increasing order
+     * @since 8.2
+     */
+    protected List<Integer> reserveBlock(String key, int size) {
+        List<Integer> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(Integer.valueOf(getNext(key)));
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the consecutive UIDs ending with the given one.
+     *
+     * @since 8.2
+     */
+    protected static List<Integer> range(int last, int size) {
+        List<Integer> ids = new ArrayList<>(size);
+        for (int id = last - size + 1; id <= last; id++) {
+            ids.add(Integer.valueOf(id));
+        }
+        return ids;
+    }
+
     @Override
     public void initSequence(String key, int id) {
+        // reserved UIDs may be lower than the new start of the sequence
+        reservedIds.remove(key);
         while ((getNext(key)) < id) {
             continue;
         }
@@ -141,6 +141,9 @@ public class UIDGeneratorComponent extends DefaultComponent implements UIDGenera
                 UIDSequencer seq = seqDescriptor.getSequencer();
                 if (seq != null) {
                     seq.setName(name);
+                    if (seq instanceof AbstractUIDSequencer) {
+                        ((AbstractUIDSequencer) seq).setBlockSize(seqDescriptor.getBlockSize());
+                    }
                 }
                 sequencers.put(name, seq);
                 sequencerContribs.put(name, seqDescriptor);
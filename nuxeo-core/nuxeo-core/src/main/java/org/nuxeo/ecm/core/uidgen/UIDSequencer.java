@@ -18,6 +18,8 @@
  */
 package org.nuxeo.ecm.core.uidgen;
 
+import java.util.List;
+
 /**
  * UID Sequencer interface defines a method to retrieve next ids based on a given key.
  */
@@ -63,6 +65,20 @@ public interface UIDSequencer {
      */
     int getNext(String key);
 
+    /**
+     * For the given key returns a block of incremented UIDs, reserved with as few round-trips to the sequence storage
+     * as the implementation allows.
+     * <p>
+     * The UIDs are returned in increasing order, but are not guaranteed to be consecutive if some of them were reserved
+     * by a previous call.
+     *
+     * @param key the sequence key
+     * @param size the number of UIDs to return
+     * @return the UIDs
+     * @since 8.2
+     */
+    List<Integer> getNextBlock(String key, int size);
+
     /**
      * Cleanup callback
      *
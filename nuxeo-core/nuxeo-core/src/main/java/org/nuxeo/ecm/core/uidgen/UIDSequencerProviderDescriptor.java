@@ -37,6 +37,14 @@ public class UIDSequencerProviderDescriptor {
     @XNode("@class")
     protected Class<? extends UIDSequencer> sequencerClass;
 
+    /**
+     * Minimum number of UIDs reserved at once by {@link UIDSequencer#getNextBlock}.
+     *
+     * @since 8.2
+     */
+    @XNode("@blockSize")
+    protected int blockSize = 1;
+
     public UIDSequencer getSequencer() throws Exception {
 
         if (sequencerClass != null) {
@@ -53,6 +61,13 @@ public class UIDSequencerProviderDescriptor {
         return name;
     }
 
+    /**
+     * @since 8.2
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
     public boolean isIsdefault() {
         return isdefault;
     }
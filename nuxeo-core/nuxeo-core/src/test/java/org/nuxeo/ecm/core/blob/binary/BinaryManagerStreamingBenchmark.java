@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+/**
+ * Throughput of the channel-based streaming store of {@link AbstractBinaryManager} compared to the stream-based one,
+ * for 1 MB, 100 MB and 2 GB blobs. Not a unit test, run it manually:
+ *
+ * <pre>
+ * java -cp ... org.nuxeo.ecm.core.blob.binary.BinaryManagerStreamingBenchmark [sizeInMB...]
+ * </pre>
+ *
+ * @since 8.2
+ */
+public class BinaryManagerStreamingBenchmark {
+
+    protected static final long[] DEFAULT_LENGTHS = { 1L << 20, 100L << 20, 2L << 30 };
+
+    protected static final String[] ALGORITHMS = { "MD5", "SHA-256", "XXH64" };
+
+    protected static class StreamingBinaryManager extends LocalBinaryManager {
+
+        protected StreamingBinaryManager(String digest) {
+            descriptor = new BinaryManagerRootDescriptor();
+            descriptor.digest = digest;
+        }
+    }
+
+    /** Generates a deterministic stream of the given length without holding it in memory. */
+    protected static class GeneratedInputStream extends InputStream {
+
+        protected final byte[] pattern = new byte[8191];
+
+        protected long remaining;
+
+        protected int pos;
+
+        protected GeneratedInputStream(long length) {
+            new Random(length).nextBytes(pattern);
+            remaining = length;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int n = (int) Math.min(Math.min(len, remaining), pattern.length - pos);
+            System.arraycopy(pattern, pos, b, off, n);
+            pos = (pos + n) % pattern.length;
+            remaining -= n;
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long[] lengths = DEFAULT_LENGTHS;
+        if (args.length > 0) {
+            lengths = new long[args.length];
+            for (int i = 0; i < args.length; i++) {
+                lengths[i] = Long.parseLong(args[i]) << 20;
+            }
+        }
+        for (String algorithm : ALGORITHMS) {
+            // warm up
+            run(algorithm, 1L << 20);
+        }
+        for (String algorithm : ALGORITHMS) {
+            for (long length : lengths) {
+                System.out.println(run(algorithm, length));
+            }
+        }
+    }
+
+    protected static String run(String algorithm, long length) throws IOException {
+        StreamingBinaryManager binaryManager = new StreamingBinaryManager(algorithm);
+        File tmp = File.createTempFile("nxbench-", ".tmp");
+        try {
+            // stream-based, digest on the calling thread
+            long t0 = System.nanoTime();
+            try (InputStream in = new GeneratedInputStream(length);
+                    OutputStream out = Channels.newOutputStream(
+                            FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE))) {
+                binaryManager.storeAndDigest(in, out);
+            }
+            long t1 = System.nanoTime();
+            // channel-based, digest on another thread
+            try (InputStream in = new GeneratedInputStream(length);
+                    FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                binaryManager.storeAndDigest(in, out);
+            }
+            long t2 = System.nanoTime();
+            // digest only
+            try (InputStream in = new GeneratedInputStream(length)) {
+                binaryManager.storeAndDigest(in, NullOutputStream.NULL_OUTPUT_STREAM);
+            }
+            long t3 = System.nanoTime();
+            return String.format("%-8s %6d MB: stream %8.1f MB/s, streaming %8.1f MB/s, digest only %8.1f MB/s",
+                    algorithm, length >> 20, mbps(length, t1 - t0), mbps(length, t2 - t1), mbps(length, t3 - t2));
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    protected static double mbps(long length, long nanos) {
+        return (length / (1024.0 * 1024.0)) / (nanos / 1e9);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestBinaryManagerStreaming {
+
+    protected static class StreamingBinaryManager extends LocalBinaryManager {
+
+        protected StreamingBinaryManager(String digest) {
+            descriptor = new BinaryManagerRootDescriptor();
+            descriptor.digest = digest;
+        }
+    }
+
+    @Test
+    public void testXXH64() throws Exception {
+        MessageDigest digest = AbstractBinaryManager.getMessageDigest(AbstractBinaryManager.XXH64_DIGEST);
+        assertEquals("ef46db3751d8e999", AbstractBinaryManager.toHexString(digest.digest()));
+        assertEquals("44bc2cf5ad770999",
+                AbstractBinaryManager.toHexString(digest.digest("abc".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void testStreamingStoreAndDigest() throws Exception {
+        for (String algorithm : new String[] { "MD5", "SHA-256", "XXH64" }) {
+            StreamingBinaryManager binaryManager = new StreamingBinaryManager(algorithm);
+            int bufferSize = AbstractBinaryManager.STREAM_BUFFER_SIZE;
+            for (int length : new int[] { 0, 10, bufferSize, bufferSize + 1, 7 * bufferSize / 2 }) {
+                byte[] bytes = new byte[length];
+                new Random(length).nextBytes(bytes);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                String digest = binaryManager.storeAndDigest(new ByteArrayInputStream(bytes),
+                        Channels.newChannel(out));
+                MessageDigest expected = AbstractBinaryManager.getMessageDigest(algorithm);
+                assertEquals(algorithm + " " + length, AbstractBinaryManager.toHexString(expected.digest(bytes)),
+                        digest);
+                assertArrayEquals(bytes, out.toByteArray());
+            }
+        }
+    }
+
+}
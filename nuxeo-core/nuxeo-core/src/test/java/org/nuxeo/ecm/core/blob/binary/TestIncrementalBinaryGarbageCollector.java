@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+public class TestIncrementalBinaryGarbageCollector {
+
+    protected static class TestBinaryManager extends LocalBinaryManager {
+
+        protected TestBinaryManager(File base) {
+            storageDir = new File(base, DATA);
+            tmpDir = new File(base, TMP);
+            storageDir.mkdirs();
+            tmpDir.mkdirs();
+            descriptor = new BinaryManagerRootDescriptor();
+            descriptor.digest = MD5_DIGEST;
+            descriptor.depth = 2;
+        }
+    }
+
+    protected File base;
+
+    protected TestBinaryManager binaryManager;
+
+    protected List<String> digests;
+
+    @Before
+    public void setUp() throws IOException {
+        base = Files.createTempDirectory("nxgc-").toFile();
+        binaryManager = new TestBinaryManager(base);
+        digests = new ArrayList<>();
+        long old = System.currentTimeMillis() - 60_000;
+        for (int i = 0; i < 20; i++) {
+            byte[] bytes = ("content " + i).getBytes(StandardCharsets.UTF_8);
+            Binary binary = binaryManager.getBinary(new ByteArrayInputStream(bytes));
+            binary.getFile().setLastModified(old);
+            digests.add(binary.getDigest());
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(base);
+    }
+
+    protected IncrementalBinaryGarbageCollector newGC() {
+        // tiny mark buffer to exercise spilling and merging
+        return new IncrementalBinaryGarbageCollector(binaryManager, new File(base, "gc"), 3, 4);
+    }
+
+    protected void markEven(BinaryGarbageCollector gc) {
+        for (int i = 0; i < digests.size(); i += 2) {
+            gc.mark(digests.get(i));
+            gc.mark(digests.get(i)); // duplicates are fine
+        }
+    }
+
+    @Test
+    public void testGC() {
+        IncrementalBinaryGarbageCollector gc = newGC();
+
+        // dry run
+        gc.start();
+        assertTrue(gc.isInProgress());
+        markEven(gc);
+        gc.stop(false);
+        assertFalse(gc.isInProgress());
+        BinaryManagerStatus status = gc.getStatus();
+        assertEquals(20, status.getNumBinariesMarked());
+        assertEquals(10, status.getNumBinaries());
+        assertEquals(10, status.getNumBinariesGC());
+        assertEquals(status.getNumDirectories(), status.getNumDirectoriesSwept());
+        for (String digest : digests) {
+            assertTrue(binaryManager.getFileForDigest(digest, false).exists());
+        }
+
+        // real run
+        gc.start();
+        markEven(gc);
+        gc.stop(true);
+        status = gc.getStatus();
+        assertEquals(10, status.getNumBinaries());
+        assertEquals(10, status.getNumBinariesGC());
+        for (int i = 0; i < digests.size(); i++) {
+            assertEquals(i % 2 == 0, binaryManager.getFileForDigest(digests.get(i), false).exists());
+        }
+        assertFalse(new File(base, "gc/" + IncrementalBinaryGarbageCollector.CHECKPOINT_FILE).exists());
+    }
+
+    @Test
+    public void testRecentFilesAreKept() throws IOException {
+        IncrementalBinaryGarbageCollector gc = newGC();
+        gc.start();
+        // binary created during the GC is not marked but must be kept
+        Binary binary = binaryManager.getBinary(new ByteArrayInputStream("new".getBytes(StandardCharsets.UTF_8)));
+        gc.stop(true);
+        assertTrue(binary.getFile().exists());
+        assertEquals(1, gc.getStatus().getNumBinaries());
+        assertEquals(20, gc.getStatus().getNumBinariesGC());
+    }
+
+    @Test
+    public void testResume() {
+        List<String> swept = new ArrayList<>();
+        IncrementalBinaryGarbageCollector gc = new IncrementalBinaryGarbageCollector(binaryManager,
+                new File(base, "gc"), 1, 4) {
+            @Override
+            protected void sweepTopLevelDirectory(File dir, long minTime, boolean delete) {
+                if (swept.size() == 3) {
+                    throw new NuxeoException("interrupted");
+                }
+                super.sweepTopLevelDirectory(dir, minTime, delete);
+                swept.add(dir.getName());
+            }
+        };
+        gc.start();
+        markEven(gc);
+        try {
+            gc.stop(true);
+            fail();
+        } catch (NuxeoException e) {
+            assertFalse(gc.isInProgress());
+        }
+        assertEquals(3, gc.getStatus().getNumDirectoriesSwept());
+        long numDirectories = gc.getStatus().getNumDirectories();
+
+        // resumed GC skips the directories already swept
+        IncrementalBinaryGarbageCollector gc2 = newGC();
+        gc2.start();
+        markEven(gc2);
+        gc2.stop(true);
+        BinaryManagerStatus status = gc2.getStatus();
+        assertEquals(numDirectories, status.getNumDirectoriesSwept());
+        assertEquals(10, status.getNumBinaries());
+        assertEquals(10, status.getNumBinariesGC());
+        for (int i = 0; i < digests.size(); i++) {
+            assertEquals(i % 2 == 0, binaryManager.getFileForDigest(digests.get(i), false).exists());
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestWriteBehindFileStorage {
+
+    /** Storage failing its first stores. */
+    protected static class FlakyFileStorage implements FileStorage {
+
+        protected final Map<String, String> stored = new ConcurrentHashMap<>();
+
+        protected final AtomicInteger failures;
+
+        protected FlakyFileStorage(int failures) {
+            this.failures = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void storeFile(String key, File file) throws IOException {
+            if (failures.getAndDecrement() > 0) {
+                throw new IOException("unavailable");
+            }
+            stored.put(key, FileUtils.readFileToString(file, UTF_8));
+        }
+
+        @Override
+        public boolean fetchFile(String key, File file) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Long fetchLength(String key) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    protected File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("nxwb-").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    protected File createFile(String content) throws IOException {
+        File file = File.createTempFile("nxwb-", ".tmp", dir);
+        FileUtils.writeStringToFile(file, content, UTF_8);
+        return file;
+    }
+
+    protected static void waitForEmptyQueue(WriteBehindFileStorage storage) throws InterruptedException {
+        for (int i = 0; i < 100 && storage.getQueueDepth() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, storage.getQueueDepth());
+    }
+
+    @Test
+    public void testStoreWithRetry() throws Exception {
+        File pendingDir = new File(dir, "pending");
+        FlakyFileStorage fileStorage = new FlakyFileStorage(1);
+        WriteBehindFileStorage storage = new WriteBehindFileStorage("test", fileStorage, pendingDir, 2);
+        try {
+            File file = createFile("foo");
+            storage.storeFile("key1", file);
+            // the caller still owns its file
+            assertTrue(file.delete());
+            // first store fails, retried after a delay
+            File pending = storage.getPendingFile("key1");
+            assertNotNull(pending);
+            assertEquals("foo", FileUtils.readFileToString(pending, UTF_8));
+            waitForEmptyQueue(storage);
+            assertEquals("foo", fileStorage.stored.get("key1"));
+            assertNull(storage.getPendingFile("key1"));
+            assertEquals(0, pendingDir.list().length);
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    public void testResumeAfterRestart() throws Exception {
+        File pendingDir = new File(dir, "pending");
+        WriteBehindFileStorage storage = new WriteBehindFileStorage("test", new FlakyFileStorage(Integer.MAX_VALUE),
+                pendingDir, 1);
+        storage.storeFile("key1", createFile("foo"));
+        storage.storeFile("key2", createFile("bar"));
+        storage.close();
+        assertEquals(2, pendingDir.list().length);
+
+        // restart
+        FlakyFileStorage fileStorage = new FlakyFileStorage(0);
+        storage = new WriteBehindFileStorage("test", fileStorage, pendingDir, 1);
+        try {
+            waitForEmptyQueue(storage);
+            assertEquals("foo", fileStorage.stored.get("key1"));
+            assertEquals("bar", fileStorage.stored.get("key2"));
+            assertEquals(0, pendingDir.list().length);
+        } finally {
+            storage.close();
+        }
+    }
+
+}
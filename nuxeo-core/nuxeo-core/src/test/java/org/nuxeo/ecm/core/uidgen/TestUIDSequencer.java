@@ -21,6 +21,8 @@ package org.nuxeo.ecm.core.uidgen;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.nuxeo.runtime.api.Framework;
@@ -60,4 +62,23 @@ public class TestUIDSequencer extends NXRuntimeTestCase {
         assertTrue(seq.getNext("mySequence") > 10);
     }
 
+    @Test
+    public void testSequencerBlock() {
+
+        AbstractUIDSequencer seq = (AbstractUIDSequencer) service.getSequencer("dummySequencer");
+
+        assertEquals(Arrays.asList(1, 2, 3), seq.getNextBlock("myBlockSequence", 3));
+        assertEquals(4, seq.getNext("myBlockSequence"));
+
+        // reserved ids are kept for the next blocks
+        seq.setBlockSize(10);
+        assertEquals(Arrays.asList(5, 6), seq.getNextBlock("myBlockSequence", 2));
+        assertEquals(15, seq.getNext("myBlockSequence"));
+        assertEquals(Arrays.asList(7, 8, 9, 10, 11, 12, 13, 14, 16), seq.getNextBlock("myBlockSequence", 9));
+
+        // reserved ids are dropped when the sequence is initialized
+        seq.initSequence("myBlockSequence", 30);
+        assertTrue(seq.getNextBlock("myBlockSequence", 1).get(0).intValue() > 30);
+    }
+
 }
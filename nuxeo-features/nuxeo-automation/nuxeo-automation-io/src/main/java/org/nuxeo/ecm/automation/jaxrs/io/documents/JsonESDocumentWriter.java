@@ -117,6 +117,20 @@ public class JsonESDocumentWriter extends JsonDocumentWriter {
             jg.writeString(facet);
         }
         jg.writeEndArray();
+        writeTags(jg, doc);
+        jg.writeStringField("ecm:changeToken", doc.getChangeToken());
+        Long pos = doc.getPos();
+        if (pos != null) {
+            jg.writeNumberField("ecm:pos", pos);
+        }
+        writeACL(jg, doc);
+        writeBinaryFulltext(jg, doc);
+    }
+
+    /**
+     * @since 8.2
+     */
+    protected void writeTags(JsonGenerator jg, DocumentModel doc) throws IOException {
         TagService tagService = Framework.getService(TagService.class);
         if (tagService != null) {
             jg.writeArrayFieldStart("ecm:tag");
@@ -125,11 +139,12 @@ public class JsonESDocumentWriter extends JsonDocumentWriter {
             }
             jg.writeEndArray();
         }
-        jg.writeStringField("ecm:changeToken", doc.getChangeToken());
-        Long pos = doc.getPos();
-        if (pos != null) {
-            jg.writeNumberField("ecm:pos", pos);
-        }
+    }
+
+    /**
+     * @since 8.2
+     */
+    protected void writeACL(JsonGenerator jg, DocumentModel doc) throws IOException {
         // Add a positive ACL only
         SecurityService securityService = Framework.getService(SecurityService.class);
         List<String> browsePermissions = new ArrayList<String>(
@@ -154,6 +169,12 @@ public class JsonESDocumentWriter extends JsonDocumentWriter {
         }
 
         jg.writeEndArray();
+    }
+
+    /**
+     * @since 8.2
+     */
+    protected void writeBinaryFulltext(JsonGenerator jg, DocumentModel doc) throws IOException {
         Map<String, String> bmap = doc.getBinaryFulltext();
         if (bmap != null && !bmap.isEmpty()) {
             for (Map.Entry<String, String> item : bmap.entrySet()) {
@@ -199,4 +220,43 @@ public class JsonESDocumentWriter extends JsonDocumentWriter {
             Map<String, String> contextParameters) throws IOException {
         writeDoc(jg, doc, schemas, contextParameters, null);
     }
+
+    /**
+     * Writes the fields of a partial update of the document, merged by Elasticsearch into the indexed document.
+     *
+     * @param schemas the modified schemas, whose properties are written with the system properties changed by any
+     *            modification, or {@code null} if no schema was modified
+     * @param acl whether to write the ACL
+     * @param tags whether to write the tags
+     * @param binaryFulltext whether to write the fulltext extracted from the blobs
+     * @since 8.2
+     */
+    public void writeESDocumentUpdate(JsonGenerator jg, DocumentModel doc, String[] schemas, boolean acl,
+            boolean tags, boolean binaryFulltext) throws IOException {
+        jg.writeStartObject();
+        if (schemas != null) {
+            jg.writeStringField("ecm:title", doc.getTitle());
+            jg.writeBooleanField("ecm:isCheckedIn", !doc.isCheckedOut());
+            jg.writeArrayFieldStart("ecm:mixinType");
+            for (String facet : doc.getFacets()) {
+                jg.writeString(facet);
+            }
+            jg.writeEndArray();
+            jg.writeStringField("ecm:changeToken", doc.getChangeToken());
+            for (String schema : schemas) {
+                writeProperties(jg, doc, schema, null);
+            }
+        }
+        if (acl) {
+            writeACL(jg, doc);
+        }
+        if (tags) {
+            writeTags(jg, doc);
+        }
+        if (binaryFulltext) {
+            writeBinaryFulltext(jg, doc);
+        }
+        jg.writeEndObject();
+        jg.flush();
+    }
 }
@@ -306,10 +306,13 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         UIDGeneratorService uidGeneratorService = Framework.getService(UIDGeneratorService.class);
         UIDSequencer seq = uidGeneratorService.getSequencer();
 
+        // a single reservation for the whole bulk
+        Iterator<Integer> ids = seq.getNextBlock(SEQ_NAME, entries.size()).iterator();
+
         try {
 
             for (LogEntry entry : entries) {
-                entry.setId(seq.getNext(SEQ_NAME));
+                entry.setId(ids.next().intValue());
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Indexing log enry Id: %s, with logDate : %s, for docUUID: %s ",
                             entry.getId(), entry.getLogDate(), entry.getDocUUID()));
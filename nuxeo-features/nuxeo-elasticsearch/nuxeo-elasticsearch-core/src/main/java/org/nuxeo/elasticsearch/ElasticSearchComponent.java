@@ -22,6 +22,7 @@ package org.nuxeo.elasticsearch;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_ENABLED_PROPERTY;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_ON_STARTUP_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_RESUME_ON_STARTUP_PROPERTY;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -47,16 +48,21 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.nuxeo.ecm.automation.jaxrs.io.documents.JsonESDocumentWriter;
 import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.SortInfo;
 import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.State;
 import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
 import org.nuxeo.elasticsearch.api.ElasticSearchService;
 import org.nuxeo.elasticsearch.api.EsResult;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 import org.nuxeo.elasticsearch.config.ElasticSearchDocWriterDescriptor;
 import org.nuxeo.elasticsearch.config.ElasticSearchIndexConfig;
 import org.nuxeo.elasticsearch.config.ElasticSearchLocalConfig;
@@ -64,7 +70,9 @@ import org.nuxeo.elasticsearch.config.ElasticSearchRemoteConfig;
 import org.nuxeo.elasticsearch.core.ElasticSearchAdminImpl;
 import org.nuxeo.elasticsearch.core.ElasticSearchIndexingImpl;
 import org.nuxeo.elasticsearch.core.ElasticSearchServiceImpl;
+import org.nuxeo.elasticsearch.core.ReindexingPipeline;
 import org.nuxeo.elasticsearch.query.NxQueryBuilder;
+import org.nuxeo.elasticsearch.work.CheckpointedIndexingWorker;
 import org.nuxeo.elasticsearch.work.IndexingWorker;
 import org.nuxeo.elasticsearch.work.ScrollingIndexingWorker;
 import org.nuxeo.runtime.api.Framework;
@@ -181,6 +189,7 @@ public class ElasticSearchComponent extends DefaultComponent implements ElasticS
         initListenerThreadPool();
         processStackedCommands();
         reindexOnStartup();
+        resumeReindexingOnStartup();
     }
 
     private void reindexOnStartup() {
@@ -204,12 +213,28 @@ public class ElasticSearchComponent extends DefaultComponent implements ElasticS
         }
     }
 
+    protected void resumeReindexingOnStartup() {
+        if (!Boolean.parseBoolean(Framework.getProperty(REINDEX_RESUME_ON_STARTUP_PROPERTY, "true"))) {
+            return;
+        }
+        for (String repositoryName : esa.getRepositoryNames()) {
+            ReindexingCheckpoint checkpoint = esa.getReindexingCheckpoint(repositoryName);
+            if (checkpoint != null && !checkpoint.isCompleted()) {
+                log.warn("Resuming interrupted indexing of repository: " + repositoryName + " from " + checkpoint);
+                runCheckpointedReindexingWorker(repositoryName, false);
+            }
+        }
+    }
+
     protected boolean isElasticsearchEnabled() {
         return Boolean.parseBoolean(Framework.getProperty(ES_ENABLED_PROPERTY, "true"));
     }
 
     @Override
     public void deactivate(ComponentContext context) {
+        if (esi != null) {
+            esi.shutdown();
+        }
         if (esa != null) {
             esa.disconnect();
         }
@@ -233,6 +258,21 @@ public class ElasticSearchComponent extends DefaultComponent implements ElasticS
 
     // Es Admin ================================================================
 
+    @Override
+    public ReindexingCheckpoint getReindexingCheckpoint(String repositoryName) {
+        return esa.getReindexingCheckpoint(repositoryName);
+    }
+
+    @Override
+    public void saveReindexingCheckpoint(ReindexingCheckpoint checkpoint) {
+        esa.saveReindexingCheckpoint(checkpoint);
+    }
+
+    @Override
+    public void deleteReindexingCheckpoint(String repositoryName) {
+        esa.deleteReindexingCheckpoint(repositoryName);
+    }
+
     @Override
     public Client getClient() {
         return esa.getClient();
@@ -383,6 +423,19 @@ public class ElasticSearchComponent extends DefaultComponent implements ElasticS
         esi.indexNonRecursive(cmds);
     }
 
+    @Override
+    public void reindexDocuments(CoreSession session, List<String> ids, int bucketSize) {
+        if (!isReady()) {
+            List<IndexingCommand> cmds = new ArrayList<>(ids.size());
+            for (DocumentModel doc : ReindexingPipeline.fetchDocuments(session, ids)) {
+                cmds.add(new IndexingCommand(doc, Type.INSERT, false, false));
+            }
+            stackCommands(cmds);
+            return;
+        }
+        esi.reindexDocuments(session, ids, bucketSize);
+    }
+
     protected void stackCommands(List<IndexingCommand> cmds) {
         if (log.isDebugEnabled()) {
             log.debug("Delaying indexing commands: Waiting for Index to be initialized."
@@ -474,6 +527,22 @@ public class ElasticSearchComponent extends DefaultComponent implements ElasticS
         wm.schedule(worker);
     }
 
+    @Override
+    public boolean runCheckpointedReindexingWorker(String repositoryName, boolean restart) {
+        WorkManager wm = Framework.getLocalService(WorkManager.class);
+        State state = wm.getWorkState(CheckpointedIndexingWorker.ID_PREFIX + repositoryName);
+        if (state == State.SCHEDULED || state == State.RUNNING) {
+            log.warn("Re-indexing of repository: " + repositoryName + " already in progress, not started again");
+            return false;
+        }
+        if (restart) {
+            esa.deleteReindexingCheckpoint(repositoryName);
+        }
+        CheckpointedIndexingWorker worker = new CheckpointedIndexingWorker(repositoryName);
+        wm.schedule(worker, Scheduling.IF_NOT_RUNNING_OR_SCHEDULED);
+        return true;
+    }
+
     // ES Search ===============================================================
     @Override
     public DocumentModelList query(NxQueryBuilder queryBuilder) {
@@ -117,4 +117,37 @@ final public class ElasticSearchConstants {
     /** @since 7.4 */
     public static final String INDEXING_QUEUE_ID = "elasticSearchIndexing";
 
+    /** Maximum number of actions in a bulk request. @since 8.2 */
+    public static final String BULK_MAX_ACTIONS_PROPERTY = "elasticsearch.bulk.maxActions";
+
+    /** Maximum estimated size in bytes of a bulk request. @since 8.2 */
+    public static final String BULK_MAX_BYTES_PROPERTY = "elasticsearch.bulk.maxBytes";
+
+    /** Maximum number of bulk requests waiting for an Elasticsearch response on this node. @since 8.2 */
+    public static final String BULK_MAX_IN_FLIGHT_PROPERTY = "elasticsearch.bulk.maxInFlight";
+
+    /** Maximum number of retries of the actions rejected by Elasticsearch. @since 8.2 */
+    public static final String BULK_MAX_RETRIES_PROPERTY = "elasticsearch.bulk.maxRetries";
+
+    /** Delay in milliseconds before the first retry, doubled on each retry. @since 8.2 */
+    public static final String BULK_RETRY_BACKOFF_PROPERTY = "elasticsearch.bulk.retryBackoff";
+
+    /** Reindex with overlapping fetch, JSON rendering and bulk stages. @since 8.2 */
+    public static final String REINDEX_PARALLEL_PROPERTY = "elasticsearch.reindex.parallel";
+
+    /** Number of threads rendering documents to JSON in parallel reindexing, by default the number of CPUs. @since 8.2 */
+    public static final String REINDEX_RENDERING_THREADS_PROPERTY = "elasticsearch.reindex.renderingThreads";
+
+    /** Elasticsearch type of the checkpoints saved in the repository index by checkpointed reindexing. @since 8.2 */
+    public static final String REINDEX_CHECKPOINT_TYPE = "reindexCheckpoint";
+
+    /** Resume the interrupted checkpointed reindexing on startup, true by default. @since 8.2 */
+    public static final String REINDEX_RESUME_ON_STARTUP_PROPERTY = "elasticsearch.reindex.resumeOnStartup";
+
+    /**
+     * Send only the modified schemas, ACL, tags or binary fulltext of a document in an update request, instead of the
+     * whole document. Requires the whole document to be kept in the Elasticsearch {@code _source}. @since 8.2
+     */
+    public static final String INDEXING_PARTIAL_UPDATE_PROPERTY = "elasticsearch.indexing.partialUpdate";
+
 }
@@ -193,4 +193,26 @@ public interface ElasticSearchAdmin {
      */
     boolean isEmbedded();
 
+    /**
+     * Gets the checkpoint of the last checkpointed reindexing of a repository, giving its progress.
+     *
+     * @return the checkpoint, or {@code null} if no checkpointed reindexing was started since the index was created
+     * @since 8.2
+     */
+    ReindexingCheckpoint getReindexingCheckpoint(String repositoryName);
+
+    /**
+     * Saves the checkpoint of a checkpointed reindexing in the index of its repository.
+     *
+     * @since 8.2
+     */
+    void saveReindexingCheckpoint(ReindexingCheckpoint checkpoint);
+
+    /**
+     * Removes the checkpoint of a repository, so that the next checkpointed reindexing starts from the beginning.
+     *
+     * @since 8.2
+     */
+    void deleteReindexingCheckpoint(String repositoryName);
+
 }
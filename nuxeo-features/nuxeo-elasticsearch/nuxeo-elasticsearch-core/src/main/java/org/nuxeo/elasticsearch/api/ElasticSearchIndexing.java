@@ -22,6 +22,7 @@ package org.nuxeo.elasticsearch.api;
 
 import java.util.List;
 
+import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
 
 /**
@@ -75,4 +76,27 @@ public interface ElasticSearchIndexing {
      */
     void indexNonRecursive(List<IndexingCommand> cmds);
 
+    /**
+     * Reindexes documents without using {@link IndexingCommand}s: the documents are fetched by buckets with a single
+     * query while the previous buckets are rendered to JSON in parallel and sent in bulk requests.
+     *
+     * @param session the session used to fetch the documents
+     * @param ids the ids of the documents
+     * @param bucketSize the number of documents fetched at once
+     * @since 8.2
+     */
+    void reindexDocuments(CoreSession session, List<String> ids, int bucketSize);
+
+    /**
+     * Reindexes all the documents of a repository by increasing id, in an asynchronous job that saves a
+     * {@link ReindexingCheckpoint} after each bucket of documents. If a previous checkpointed reindexing of the
+     * repository was interrupted, it is resumed from its checkpoint unless {@code restart} is {@code true}.
+     *
+     * @param restart {@code true} to start from the beginning, ignoring the checkpoint of a previous reindexing
+     * @return {@code false} if a checkpointed reindexing of the repository is already scheduled or running, in which
+     *         case nothing is done
+     * @since 8.2
+     */
+    boolean runCheckpointedReindexingWorker(String repositoryName, boolean restart);
+
 }
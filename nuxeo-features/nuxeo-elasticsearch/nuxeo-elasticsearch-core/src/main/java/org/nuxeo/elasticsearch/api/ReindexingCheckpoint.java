@@ -0,0 +1,190 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.api;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The progress of a checkpointed reindexing of a repository, which walks the documents by increasing id.
+ * <p>
+ * The checkpoint is saved after each bucket of documents acknowledged by Elasticsearch, so that an interrupted
+ * reindexing resumes after the last document of that bucket.
+ *
+ * @since 8.2
+ */
+public class ReindexingCheckpoint {
+
+    protected static final String LAST_ID = "lastId";
+
+    protected static final String DONE = "done";
+
+    protected static final String TOTAL = "total";
+
+    protected static final String ELAPSED = "elapsed";
+
+    protected static final String START_TIME = "startTime";
+
+    protected static final String UPDATE_TIME = "updateTime";
+
+    protected static final String COMPLETED = "completed";
+
+    protected final String repositoryName;
+
+    protected String lastId;
+
+    protected long done;
+
+    protected long total;
+
+    protected long elapsed;
+
+    protected long startTime;
+
+    protected long updateTime;
+
+    protected boolean completed;
+
+    public ReindexingCheckpoint(String repositoryName, long total) {
+        this.repositoryName = repositoryName;
+        this.total = total;
+        startTime = updateTime = System.currentTimeMillis();
+    }
+
+    protected ReindexingCheckpoint(String repositoryName, Map<String, Object> map) {
+        this.repositoryName = repositoryName;
+        lastId = (String) map.get(LAST_ID);
+        done = getLong(map, DONE);
+        total = getLong(map, TOTAL);
+        elapsed = getLong(map, ELAPSED);
+        startTime = getLong(map, START_TIME);
+        updateTime = getLong(map, UPDATE_TIME);
+        completed = Boolean.TRUE.equals(map.get(COMPLETED));
+    }
+
+    protected static long getLong(Map<String, Object> map, String key) {
+        Number value = (Number) map.get(key);
+        return value == null ? 0 : value.longValue();
+    }
+
+    /**
+     * Reads a checkpoint from its Elasticsearch source.
+     */
+    public static ReindexingCheckpoint fromMap(String repositoryName, Map<String, Object> map) {
+        return new ReindexingCheckpoint(repositoryName, map);
+    }
+
+    /**
+     * Gets the Elasticsearch source of this checkpoint.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(LAST_ID, lastId);
+        map.put(DONE, Long.valueOf(done));
+        map.put(TOTAL, Long.valueOf(total));
+        map.put(ELAPSED, Long.valueOf(elapsed));
+        map.put(START_TIME, Long.valueOf(startTime));
+        map.put(UPDATE_TIME, Long.valueOf(updateTime));
+        map.put(COMPLETED, Boolean.valueOf(completed));
+        return map;
+    }
+
+    /**
+     * Records a bucket of documents acknowledged by Elasticsearch.
+     *
+     * @param lastId the greatest id of the bucket
+     * @param count the number of documents of the bucket
+     * @param millis the time spent on the bucket
+     */
+    public void bucketDone(String lastId, int count, long millis) {
+        this.lastId = lastId;
+        done += count;
+        elapsed += millis;
+        // documents created during the reindexing are counted too
+        total = Math.max(total, done);
+        updateTime = System.currentTimeMillis();
+    }
+
+    public void setCompleted() {
+        completed = true;
+        total = done;
+        updateTime = System.currentTimeMillis();
+    }
+
+    public String getRepositoryName() {
+        return repositoryName;
+    }
+
+    /**
+     * Gets the id of the last reindexed document, or {@code null} if none has been reindexed yet.
+     */
+    public String getLastId() {
+        return lastId;
+    }
+
+    public long getDone() {
+        return done;
+    }
+
+    /**
+     * Gets the number of documents in the repository when the reindexing started.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Gets the time spent reindexing, in milliseconds, excluding the time during which the reindexing was interrupted.
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getUpdateTime() {
+        return updateTime;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Gets the estimated time needed to reindex the remaining documents, in milliseconds, or {@code -1} if unknown.
+     */
+    public long getEta() {
+        if (completed) {
+            return 0;
+        }
+        if (done == 0) {
+            return -1;
+        }
+        return (long) ((double) elapsed / done * Math.max(0, total - done));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + repositoryName + ", " + done + "/" + total + ", lastId=" + lastId
+                + ", eta=" + getEta() + "ms" + (completed ? ", completed" : "") + ")";
+    }
+
+}
@@ -36,9 +36,12 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -56,6 +59,22 @@ public class IndexingCommand implements Serializable {
         INSERT, UPDATE, UPDATE_SECURITY, DELETE, UPDATE_DIRECT_CHILDREN,
     }
 
+    /**
+     * The parts of a document that can be sent to Elasticsearch in a partial update.
+     *
+     * @since 8.2
+     */
+    public enum Part {
+        /** The properties of the modified schemas, and the system properties changed by any modification. */
+        SCHEMAS,
+        /** The ACL. */
+        SECURITY,
+        /** The tags. */
+        TAGS,
+        /** The fulltext extracted from the blobs. */
+        BINARYTEXT,
+    }
+
     public static final String PREFIX = "IndexingCommand-";
 
     protected String id;
@@ -74,6 +93,9 @@ public class IndexingCommand implements Serializable {
 
     protected List<String> schemas;
 
+    // parts of a partial update, null to index the whole document
+    protected EnumSet<Part> parts;
+
     protected transient String sessionId;
 
     protected IndexingCommand() {
@@ -171,6 +193,7 @@ public class IndexingCommand implements Serializable {
     public boolean merge(IndexingCommand other) {
         if (canBeMerged(other)) {
             merge(other.sync, other.recurse);
+            mergeParts(other);
             return true;
         }
         return false;
@@ -181,6 +204,26 @@ public class IndexingCommand implements Serializable {
         this.recurse = this.recurse || recurse;
     }
 
+    /**
+     * Merges the parts updated by another command, the result is a partial update only if both are.
+     */
+    protected void mergeParts(IndexingCommand other) {
+        if (parts == null) {
+            return;
+        }
+        if (other.parts == null) {
+            parts = null;
+            schemas = other.schemas;
+            return;
+        }
+        parts.addAll(other.parts);
+        if (other.schemas != null) {
+            for (String schema : other.schemas) {
+                addSchemas(schema);
+            }
+        }
+    }
+
     protected boolean canBeMerged(IndexingCommand other) {
         if (type != other.type) {
             return false;
@@ -224,6 +267,20 @@ public class IndexingCommand implements Serializable {
         jsonGen.writeStringField("repo", getRepositoryName());
         jsonGen.writeBooleanField("recurse", recurse);
         jsonGen.writeBooleanField("sync", sync);
+        if (parts != null) {
+            jsonGen.writeArrayFieldStart("parts");
+            for (Part part : parts) {
+                jsonGen.writeString(part.name());
+            }
+            jsonGen.writeEndArray();
+            if (schemas != null) {
+                jsonGen.writeArrayFieldStart("schemas");
+                for (String schema : schemas) {
+                    jsonGen.writeString(schema);
+                }
+                jsonGen.writeEndArray();
+            }
+        }
         jsonGen.writeEndObject();
     }
 
@@ -266,6 +323,15 @@ public class IndexingCommand implements Serializable {
                 cmd.recurse = value.getBooleanValue();
             } else if ("sync".equals(key)) {
                 cmd.sync = value.getBooleanValue();
+            } else if ("parts".equals(key)) {
+                cmd.parts = EnumSet.noneOf(Part.class);
+                for (JsonNode part : value) {
+                    cmd.parts.add(Part.valueOf(part.getTextValue()));
+                }
+            } else if ("schemas".equals(key)) {
+                for (JsonNode schema : value) {
+                    cmd.addSchemas(schema.getTextValue());
+                }
             }
         }
         if (cmd.targetDocumentId == null) {
@@ -286,7 +352,49 @@ public class IndexingCommand implements Serializable {
     }
 
     public IndexingCommand clone(DocumentModel newDoc) {
-        return new IndexingCommand(newDoc, type, sync, recurse);
+        IndexingCommand cmd = new IndexingCommand(newDoc, type, sync, recurse);
+        if (parts != null) {
+            cmd.parts = EnumSet.copyOf(parts);
+            if (schemas != null) {
+                cmd.schemas = new ArrayList<>(schemas);
+            }
+        }
+        return cmd;
+    }
+
+    /**
+     * Restricts this command to a partial update of the given part of the document, merged by Elasticsearch into the
+     * indexed document instead of replacing it.
+     *
+     * @param schemas the modified schemas, for {@link Part#SCHEMAS}
+     * @since 8.2
+     */
+    public void setPartial(Part part, Collection<String> schemas) {
+        parts = EnumSet.of(part);
+        this.schemas = null;
+        if (schemas != null) {
+            for (String schema : schemas) {
+                addSchemas(schema);
+            }
+        }
+    }
+
+    /**
+     * Checks if this command is a partial update of the document.
+     *
+     * @since 8.2
+     */
+    public boolean isPartial() {
+        return parts != null;
+    }
+
+    /**
+     * Gets the parts of the document updated by a partial update, or {@code null} if the whole document is indexed.
+     *
+     * @since 8.2
+     */
+    public Set<Part> getParts() {
+        return parts;
     }
 
     public String[] getSchemas() {
@@ -20,6 +20,7 @@
 package org.nuxeo.elasticsearch.commands;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,6 +28,7 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Part;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 
 /*
@@ -55,6 +57,19 @@ public class IndexingCommands {
         add(cmd);
     }
 
+    /**
+     * Adds a command updating only a part of the document, or the whole document if the part is {@code null}.
+     *
+     * @since 8.2
+     */
+    public void add(Type type, boolean sync, boolean recurse, Part part, Collection<String> schemas) {
+        IndexingCommand cmd = new IndexingCommand(targetDocument, type, sync, recurse);
+        if (part != null) {
+            cmd.setPartial(part, schemas);
+        }
+        add(cmd);
+    }
+
     protected IndexingCommand find(Type command) {
         for (IndexingCommand cmd : commands) {
             if (cmd.type == command) {
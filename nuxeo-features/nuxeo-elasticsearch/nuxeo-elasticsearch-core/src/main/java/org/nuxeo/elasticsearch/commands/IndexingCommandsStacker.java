@@ -22,11 +22,17 @@ package org.nuxeo.elasticsearch.commands;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.DataModel;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.LifeCycleConstants;
 import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
 import org.nuxeo.elasticsearch.ElasticSearchConstants;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Part;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.BEFORE_DOC_UPDATE;
@@ -54,6 +60,15 @@ public abstract class IndexingCommandsStacker {
 
     protected abstract boolean isSyncIndexingByDefault();
 
+    /**
+     * Checks if the modifications limited to some parts of a document are indexed with partial updates.
+     *
+     * @since 8.2
+     */
+    protected boolean isPartialUpdateEnabled() {
+        return false;
+    }
+
     protected IndexingCommands getCommands(DocumentModel doc) {
         return getAllCommands().get(getDocKey(doc));
     }
@@ -130,13 +145,44 @@ public abstract class IndexingCommandsStacker {
             default:
                 return;
         }
+        Part part = isPartialUpdateEnabled() ? getUpdatedPart(eventId) : null;
+        Collection<String> schemas = part == Part.SCHEMAS ? getDirtySchemas(doc) : null;
         if (sync && recurse) {
             // split into 2 commands one sync and an async recurse
-            cmds.add(type, true, false);
-            cmds.add(type, false, true);
+            cmds.add(type, true, false, part, schemas);
+            cmds.add(type, false, true, part, schemas);
         } else {
-            cmds.add(type, sync, recurse);
+            cmds.add(type, sync, recurse, part, schemas);
+        }
+    }
+
+    /**
+     * Gets the only part of the document changed by an event, or {@code null} if the whole document must be indexed.
+     */
+    protected Part getUpdatedPart(String eventId) {
+        switch (eventId) {
+            case BEFORE_DOC_UPDATE:
+                return Part.SCHEMAS;
+            case DOCUMENT_SECURITY_UPDATED:
+                return Part.SECURITY;
+            case DOCUMENT_TAG_UPDATED:
+                return Part.TAGS;
+            case BINARYTEXT_UPDATED:
+                return Part.BINARYTEXT;
+            default:
+                return null;
+        }
+    }
+
+    protected Collection<String> getDirtySchemas(DocumentModel doc) {
+        List<String> schemas = new ArrayList<>();
+        // only the loaded data models can be dirty
+        for (DataModel dataModel : doc.getDataModelsCollection()) {
+            if (dataModel.isDirty()) {
+                schemas.add(dataModel.getSchema());
+            }
         }
+        return schemas;
     }
 
     private boolean isFolderish(DocumentModel doc) {
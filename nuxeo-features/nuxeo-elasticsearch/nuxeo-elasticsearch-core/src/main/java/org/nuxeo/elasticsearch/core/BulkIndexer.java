@@ -0,0 +1,336 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.core;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_MAX_ACTIONS_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_MAX_BYTES_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_MAX_IN_FLIGHT_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_MAX_RETRIES_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BULK_RETRY_BACKOFF_PROPERTY;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Sends index, update and delete requests to Elasticsearch in bulk requests bounded by number of actions and
+ * estimated size.
+ * <p>
+ * The number of bulk requests waiting for a response is bounded on the whole node: when Elasticsearch slows down,
+ * the indexing threads wait before sending more requests instead of piling them up. The actions rejected because the
+ * Elasticsearch queues are full are retried with an exponential backoff, the other failures are logged.
+ * <p>
+ * The actions on a given document are applied in the order they are added to a {@link Batch}.
+ *
+ * @since 8.2
+ */
+public class BulkIndexer {
+
+    private static final Log log = LogFactory.getLog(BulkIndexer.class);
+
+    // same as the Elasticsearch estimation of the size of an action in a bulk request
+    protected static final int REQUEST_OVERHEAD = 50;
+
+    protected final ElasticSearchAdminImpl esa;
+
+    protected final int maxActions;
+
+    protected final long maxBytes;
+
+    protected final int maxInFlight;
+
+    protected final int maxRetries;
+
+    protected final long retryBackoff;
+
+    protected final Semaphore inFlight;
+
+    protected final Counter rejectedCount;
+
+    protected final Counter retriedCount;
+
+    protected final Counter throttledCount;
+
+    public BulkIndexer(ElasticSearchAdminImpl esa) {
+        this(esa, Integer.parseInt(Framework.getProperty(BULK_MAX_ACTIONS_PROPERTY, "500")),
+                Long.parseLong(Framework.getProperty(BULK_MAX_BYTES_PROPERTY, String.valueOf(5 * 1024 * 1024))),
+                Integer.parseInt(Framework.getProperty(BULK_MAX_IN_FLIGHT_PROPERTY, "4")),
+                Integer.parseInt(Framework.getProperty(BULK_MAX_RETRIES_PROPERTY, "5")),
+                Long.parseLong(Framework.getProperty(BULK_RETRY_BACKOFF_PROPERTY, "100")));
+    }
+
+    protected BulkIndexer(ElasticSearchAdminImpl esa, int maxActions, long maxBytes, int maxInFlight, int maxRetries,
+            long retryBackoff) {
+        this.esa = esa;
+        this.maxActions = maxActions;
+        this.maxBytes = maxBytes;
+        this.maxInFlight = maxInFlight;
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        inFlight = new Semaphore(maxInFlight);
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        rejectedCount = registry.counter(MetricRegistry.name("nuxeo", "elasticsearch", "service", "bulk", "rejected"));
+        retriedCount = registry.counter(MetricRegistry.name("nuxeo", "elasticsearch", "service", "bulk", "retried"));
+        throttledCount = registry.counter(MetricRegistry.name("nuxeo", "elasticsearch", "service", "bulk",
+                "throttled"));
+        String gaugeName = MetricRegistry.name("nuxeo", "elasticsearch", "service", "bulk", "inflight");
+        registry.remove(gaugeName);
+        registry.register(gaugeName, (Gauge<Integer>) () -> Integer.valueOf(maxInFlight - inFlight.availablePermits()));
+    }
+
+    protected Client getClient() {
+        return esa.getClient();
+    }
+
+    /**
+     * Starts a new batch of actions, to be used by a single thread.
+     */
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    /** A bulk request sent to Elasticsearch and waiting for its response. */
+    protected static class InFlight {
+
+        protected final BulkRequest request;
+
+        protected final PlainActionFuture<BulkResponse> future;
+
+        protected final int attempt;
+
+        protected InFlight(BulkRequest request, PlainActionFuture<BulkResponse> future, int attempt) {
+            this.request = request;
+            this.future = future;
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * Actions added by a thread, sent in bulk requests as soon as the bounds are reached. The batch must be
+     * {@link #flush flushed} to wait for the completion of all its actions.
+     */
+    public class Batch {
+
+        protected BulkRequest current = new BulkRequest();
+
+        protected final Set<String> currentIds = new HashSet<>();
+
+        protected final Set<String> sentIds = new HashSet<>();
+
+        protected final Deque<InFlight> sent = new ArrayDeque<>();
+
+        protected final Set<String> missingIds = new HashSet<>();
+
+        public void add(IndexRequest request) {
+            add(request, request.id(), request.source().length() + REQUEST_OVERHEAD);
+        }
+
+        public void add(DeleteRequest request) {
+            add(request, request.id(), REQUEST_OVERHEAD);
+        }
+
+        public void add(UpdateRequest request) {
+            add(request, request.id(), request.doc().source().length() + REQUEST_OVERHEAD);
+        }
+
+        protected void add(ActionRequest<?> request, String id, long size) {
+            if (current.numberOfActions() > 0
+                    && (current.numberOfActions() >= maxActions || current.estimatedSizeInBytes() + size > maxBytes)) {
+                send();
+            }
+            if (sentIds.contains(id)) {
+                // wait for the previous action on this document to keep the order
+                send();
+                await();
+            }
+            current.add(request);
+            currentIds.add(id);
+        }
+
+        /**
+         * Sends the pending actions and waits for the completion of all the actions of the batch.
+         *
+         * @throws NuxeoException if some actions are still rejected after the maximum number of retries
+         */
+        public void flush() {
+            send();
+            await();
+        }
+
+        /**
+         * Gets the ids of the documents whose update failed since the last call because they are not in the index.
+         */
+        public Set<String> getMissingIds() {
+            Set<String> ids = new HashSet<>(missingIds);
+            missingIds.clear();
+            return ids;
+        }
+
+        protected void send() {
+            if (current.numberOfActions() == 0) {
+                return;
+            }
+            send(current, 0);
+            current = new BulkRequest();
+            sentIds.addAll(currentIds);
+            currentIds.clear();
+        }
+
+        protected void send(BulkRequest request, int attempt) {
+            if (!inFlight.tryAcquire()) {
+                throttledCount.inc();
+                try {
+                    inFlight.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NuxeoException(e);
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(String.format(
+                        "Send %d actions in bulk request: curl -XPOST 'http://localhost:9200/_bulk' -d '%s'",
+                        request.numberOfActions(), request.requests().toString()));
+            }
+            PlainActionFuture<BulkResponse> future = PlainActionFuture.newFuture();
+            try {
+                getClient().bulk(request, new ActionListener<BulkResponse>() {
+                    @Override
+                    public void onResponse(BulkResponse response) {
+                        inFlight.release();
+                        future.onResponse(response);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        inFlight.release();
+                        future.onFailure(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+            sent.add(new InFlight(request, future, attempt));
+        }
+
+        protected void await() {
+            InFlight bulk;
+            while ((bulk = sent.poll()) != null) {
+                List<ActionRequest<?>> rejected = getRejected(bulk);
+                if (!rejected.isEmpty()) {
+                    retry(rejected, bulk.attempt + 1);
+                }
+            }
+            sentIds.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        protected List<ActionRequest<?>> getRejected(InFlight bulk) {
+            List<ActionRequest<?>> requests = (List<ActionRequest<?>>) (List<?>) bulk.request.requests();
+            BulkResponse response;
+            try {
+                response = bulk.future.actionGet();
+            } catch (ElasticsearchException e) {
+                if (ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+                    rejectedCount.inc(requests.size());
+                    return requests;
+                }
+                throw e;
+            }
+            if (!response.hasFailures()) {
+                return new ArrayList<>();
+            }
+            List<ActionRequest<?>> rejected = new ArrayList<>();
+            for (BulkItemResponse item : response.getItems()) {
+                if (!item.isFailed()) {
+                    continue;
+                }
+                if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                    rejected.add(requests.get(item.getItemId()));
+                } else if (item.getFailure().getStatus() == RestStatus.NOT_FOUND
+                        && requests.get(item.getItemId()) instanceof UpdateRequest) {
+                    missingIds.add(item.getId());
+                } else {
+                    log.error(String.format("Fail to %s document %s in index %s: %s", item.getOpType(), item.getId(),
+                            item.getIndex(), item.getFailureMessage()));
+                }
+            }
+            rejectedCount.inc(rejected.size());
+            return rejected;
+        }
+
+        protected void retry(List<ActionRequest<?>> requests, int attempt) {
+            if (attempt > maxRetries) {
+                throw new NuxeoException(String.format("%d bulk actions still rejected by Elasticsearch after %d retries",
+                        requests.size(), maxRetries));
+            }
+            long delay = retryBackoff << (attempt - 1);
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Retry %d bulk actions rejected by Elasticsearch in %dms, attempt %d",
+                        requests.size(), delay, attempt));
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+            retriedCount.inc(requests.size());
+            BulkRequest request = new BulkRequest();
+            for (ActionRequest<?> action : requests) {
+                if (request.numberOfActions() >= maxActions || request.estimatedSizeInBytes() >= maxBytes) {
+                    send(request, attempt);
+                    request = new BulkRequest();
+                }
+                request.add(action);
+            }
+            send(request, attempt);
+        }
+    }
+
+}
@@ -21,6 +21,7 @@
 package org.nuxeo.elasticsearch.core;
 
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ALL_FIELDS;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_CHECKPOINT_TYPE;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
@@ -41,6 +42,7 @@ import org.apache.commons.logging.LogFactory;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.NoNodeAvailableException;
 import org.elasticsearch.client.transport.TransportClient;
@@ -48,9 +50,11 @@ import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.ImmutableSettings.Builder;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.node.NodeBuilder;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
 import org.nuxeo.elasticsearch.config.ElasticSearchIndexConfig;
 import org.nuxeo.elasticsearch.config.ElasticSearchLocalConfig;
 import org.nuxeo.elasticsearch.config.ElasticSearchRemoteConfig;
@@ -384,6 +388,38 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
         return Collections.unmodifiableList(new ArrayList<>(indexNames.keySet()));
     }
 
+    @Override
+    public ReindexingCheckpoint getReindexingCheckpoint(String repositoryName) {
+        GetResponse response;
+        try {
+            response = getClient().prepareGet(getIndexNameForRepository(repositoryName), REINDEX_CHECKPOINT_TYPE,
+                    repositoryName).get();
+        } catch (IndexMissingException e) {
+            return null;
+        }
+        if (!response.isExists()) {
+            return null;
+        }
+        return ReindexingCheckpoint.fromMap(repositoryName, response.getSourceAsMap());
+    }
+
+    @Override
+    public void saveReindexingCheckpoint(ReindexingCheckpoint checkpoint) {
+        String repositoryName = checkpoint.getRepositoryName();
+        getClient().prepareIndex(getIndexNameForRepository(repositoryName), REINDEX_CHECKPOINT_TYPE,
+                repositoryName).setSource(checkpoint.toMap()).get();
+    }
+
+    @Override
+    public void deleteReindexingCheckpoint(String repositoryName) {
+        try {
+            getClient().prepareDelete(getIndexNameForRepository(repositoryName), REINDEX_CHECKPOINT_TYPE,
+                    repositoryName).get();
+        } catch (IndexMissingException e) {
+            // nothing to delete
+        }
+    }
+
     void initIndex(ElasticSearchIndexConfig conf, boolean dropIfExists) {
         if (!conf.mustCreate()) {
             return;
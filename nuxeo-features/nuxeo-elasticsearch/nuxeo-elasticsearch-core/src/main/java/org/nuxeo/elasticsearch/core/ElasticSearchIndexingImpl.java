@@ -28,8 +28,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
-import org.elasticsearch.action.bulk.BulkRequestBuilder;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryRequestBuilder;
 import org.elasticsearch.action.deletebyquery.DeleteByQueryResponse;
@@ -37,23 +35,30 @@ import org.elasticsearch.action.deletebyquery.IndexDeleteByQueryResponse;
 import org.elasticsearch.action.get.GetRequestBuilder;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.nuxeo.ecm.automation.jaxrs.io.documents.JsonESDocumentWriter;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Part;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
+import org.nuxeo.elasticsearch.core.BulkIndexer.Batch;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.CHILDREN_FIELD;
@@ -66,6 +71,9 @@ import static org.nuxeo.elasticsearch.ElasticSearchConstants.PATH_FIELD;
 public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     private static final Log log = LogFactory.getLog(ElasticSearchIndexingImpl.class);
 
+    // partial updates of a document done concurrently by several threads
+    private static final int UPDATE_RETRY_ON_CONFLICT = 3;
+
     private final ElasticSearchAdminImpl esa;
 
     private final Timer deleteTimer;
@@ -76,8 +84,14 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
 
     private JsonESDocumentWriter jsonESDocumentWriter;
 
+    private final BulkIndexer bulkIndexer;
+
+    private final ReindexingPipeline reindexingPipeline;
+
     public ElasticSearchIndexingImpl(ElasticSearchAdminImpl esa) {
         this.esa = esa;
+        bulkIndexer = new BulkIndexer(esa);
+        reindexingPipeline = new ReindexingPipeline(this, bulkIndexer);
         MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
         indexTimer = registry.timer(MetricRegistry.name("nuxeo", "elasticsearch", "service", "index"));
         deleteTimer = registry.timer(MetricRegistry.name("nuxeo", "elasticsearch", "service", "delete"));
@@ -103,6 +117,29 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         throw new UnsupportedOperationException("Not implemented");
     }
 
+    @Override
+    public boolean runCheckpointedReindexingWorker(String repositoryName, boolean restart) {
+        throw new UnsupportedOperationException("Not implemented");
+    }
+
+    @Override
+    public void reindexDocuments(CoreSession session, List<String> ids, int bucketSize) {
+        Context stopWatch = bulkIndexTimer.time();
+        try {
+            reindexingPipeline.reindex(session, ids, bucketSize);
+        } finally {
+            stopWatch.stop();
+        }
+        esa.totalCommandProcessed.addAndGet(ids.size());
+    }
+
+    /**
+     * @since 8.2
+     */
+    public void shutdown() {
+        reindexingPipeline.shutdown();
+    }
+
     @Override
     public void indexNonRecursive(List<IndexingCommand> cmds) {
         int nbCommands = cmds.size();
@@ -125,12 +162,12 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     }
 
     void processBulkDeleteCommands(List<IndexingCommand> cmds) {
-        // Can be optimized with a single delete by query
+        // non recursive deletes are done in the bulk requests
         for (IndexingCommand cmd : cmds) {
-            if (cmd.getType() == Type.DELETE) {
+            if (cmd.getType() == Type.DELETE && cmd.isRecurse()) {
                 Context stopWatch = deleteTimer.time();
                 try {
-                    processDeleteCommand(cmd);
+                    processDeleteCommandRecursive(cmd);
                 } finally {
                     stopWatch.stop();
                 }
@@ -139,15 +176,31 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     }
 
     void processBulkIndexCommands(List<IndexingCommand> cmds) {
-        BulkRequestBuilder bulkRequest = esa.getClient().prepareBulk();
+        Batch batch = bulkIndexer.newBatch();
+        List<IndexingCommand> partialCmds = new ArrayList<>();
         for (IndexingCommand cmd : cmds) {
-            if (cmd.getType() == Type.DELETE || cmd.getType() == Type.UPDATE_DIRECT_CHILDREN) {
+            if (cmd.getType() == Type.UPDATE_DIRECT_CHILDREN) {
+                continue;
+            }
+            if (cmd.getType() == Type.DELETE) {
+                if (!cmd.isRecurse()) {
+                    String indexName = esa.getIndexNameForRepository(cmd.getRepositoryName());
+                    batch.add(esa.getClient().prepareDelete(indexName, DOC_TYPE, cmd.getTargetDocumentId()).request());
+                }
                 continue;
             }
             try {
+                if (cmd.isPartial()) {
+                    UpdateRequestBuilder updateRequest = buildEsUpdateRequest(cmd);
+                    if (updateRequest != null) {
+                        batch.add(updateRequest.request());
+                        partialCmds.add(cmd);
+                    }
+                    continue;
+                }
                 IndexRequestBuilder idxRequest = buildEsIndexingRequest(cmd);
                 if (idxRequest != null) {
-                    bulkRequest.add(idxRequest);
+                    batch.add(idxRequest.request());
                 }
             } catch (ConcurrentUpdateException e) {
                 throw e; // bubble up, usually until AbstractWork catches it and maybe retries
@@ -157,17 +210,38 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
                 log.error("Skip indexing command to bulk, fail to create request: " + cmd, e);
             }
         }
-        if (bulkRequest.numberOfActions() > 0) {
+        batch.flush();
+        if (!partialCmds.isEmpty()) {
+            indexMissingDocuments(batch, partialCmds);
+        }
+    }
+
+    /**
+     * Indexes the whole documents whose partial update failed because they were not yet in the index.
+     */
+    protected void indexMissingDocuments(Batch batch, List<IndexingCommand> partialCmds) {
+        Set<String> missingIds = batch.getMissingIds();
+        if (missingIds.isEmpty()) {
+            return;
+        }
+        for (IndexingCommand cmd : partialCmds) {
+            if (!missingIds.remove(cmd.getTargetDocumentId())) {
+                continue;
+            }
             if (log.isDebugEnabled()) {
-                log.debug(String.format(
-                        "Index %d docs in bulk request: curl -XPOST 'http://localhost:9200/_bulk' -d '%s'",
-                        bulkRequest.numberOfActions(), bulkRequest.request().requests().toString()));
+                log.debug("Document not in the index, indexing the whole document instead of: " + cmd);
             }
-            BulkResponse response = bulkRequest.execute().actionGet();
-            if (response.hasFailures()) {
-                log.error(response.buildFailureMessage());
+            try {
+                DocumentModel doc = cmd.getTargetDocument();
+                if (doc != null) {
+                    // the schemas of a partial command are only the updated ones
+                    batch.add(buildEsIndexingRequest(doc, null).request());
+                }
+            } catch (DocumentNotFoundException e) {
+                log.info("Skip indexing command to bulk, doc does not exists anymore: " + cmd);
             }
         }
+        batch.flush();
     }
 
     protected void refreshIfNeeded(List<IndexingCommand> cmds) {
@@ -211,6 +285,11 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     }
 
     void processIndexCommand(IndexingCommand cmd) {
+        if (cmd.isPartial()) {
+            // falls back to the whole document if it is not yet in the index
+            processBulkIndexCommands(Collections.singletonList(cmd));
+            return;
+        }
         IndexRequestBuilder request;
         try {
             request = buildEsIndexingRequest(cmd);
@@ -307,15 +386,55 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         if (doc == null) {
             return null;
         }
+        return buildEsIndexingRequest(doc, cmd.getSchemas());
+    }
+
+    /**
+     * Return a partial update request or null if the doc does not exists anymore.
+     *
+     * @since 8.2
+     */
+    UpdateRequestBuilder buildEsUpdateRequest(IndexingCommand cmd) {
+        DocumentModel doc = cmd.getTargetDocument();
+        if (doc == null) {
+            return null;
+        }
+        Set<Part> parts = cmd.getParts();
+        String[] schemas = null;
+        if (parts.contains(Part.SCHEMAS)) {
+            schemas = cmd.getSchemas();
+            if (schemas == null) {
+                schemas = new String[0];
+            }
+        }
+        try {
+            JsonFactory factory = new JsonFactory();
+            XContentBuilder builder = jsonBuilder();
+            JsonGenerator jsonGen = factory.createJsonGenerator(builder.stream());
+            jsonESDocumentWriter.writeESDocumentUpdate(jsonGen, doc, schemas, parts.contains(Part.SECURITY),
+                    parts.contains(Part.TAGS), parts.contains(Part.BINARYTEXT));
+            return esa.getClient().prepareUpdate(esa.getIndexNameForRepository(doc.getRepositoryName()), DOC_TYPE,
+                    doc.getId()).setDoc(builder).setRetryOnConflict(UPDATE_RETRY_ON_CONFLICT);
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to create update request for Document " + doc.getId(), e);
+        }
+    }
+
+    /**
+     * Return indexing request for an already fetched document.
+     *
+     * @since 8.2
+     */
+    IndexRequestBuilder buildEsIndexingRequest(DocumentModel doc, String[] schemas) {
         try {
             JsonFactory factory = new JsonFactory();
             XContentBuilder builder = jsonBuilder();
             JsonGenerator jsonGen = factory.createJsonGenerator(builder.stream());
-            jsonESDocumentWriter.writeESDocument(jsonGen, doc, cmd.getSchemas(), null);
-            return esa.getClient().prepareIndex(esa.getIndexNameForRepository(cmd.getRepositoryName()), DOC_TYPE,
-                    cmd.getTargetDocumentId()).setSource(builder);
+            jsonESDocumentWriter.writeESDocument(jsonGen, doc, schemas, null);
+            return esa.getClient().prepareIndex(esa.getIndexNameForRepository(doc.getRepositoryName()), DOC_TYPE,
+                    doc.getId()).setSource(builder);
         } catch (IOException e) {
-            throw new NuxeoException("Unable to create index request for Document " + cmd.getTargetDocumentId(), e);
+            throw new NuxeoException("Unable to create index request for Document " + doc.getId(), e);
         }
     }
 
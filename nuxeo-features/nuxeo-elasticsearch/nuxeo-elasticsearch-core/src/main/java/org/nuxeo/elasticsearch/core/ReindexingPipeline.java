@@ -0,0 +1,225 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.core;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_RENDERING_THREADS_PROPERTY;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentNotFoundException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.elasticsearch.core.BulkIndexer.Batch;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * Reindexes documents in three overlapping stages:
+ * <ul>
+ * <li>the calling thread fetches the documents of a bucket with a single query,</li>
+ * <li>the documents are rendered to JSON by a pool of threads, while the calling thread fetches the next bucket,</li>
+ * <li>the rendered documents are sent by the {@link BulkIndexer}, whose bulk requests are asynchronous.</li>
+ * </ul>
+ * The rendering threads use the session of the calling thread, each one in its own transaction. The time spent and
+ * the number of documents processed by each stage are reported in the {@code nuxeo.elasticsearch.reindex.*}
+ * metrics.
+ *
+ * @since 8.2
+ */
+public class ReindexingPipeline {
+
+    private static final Log log = LogFactory.getLog(ReindexingPipeline.class);
+
+    protected final ElasticSearchIndexingImpl esi;
+
+    protected final BulkIndexer bulkIndexer;
+
+    protected final int parallelism;
+
+    protected final ForkJoinPool pool;
+
+    protected final Timer fetchTimer;
+
+    protected final Timer renderTimer;
+
+    protected final Timer shipTimer;
+
+    protected final Meter fetchedDocs;
+
+    protected final Meter renderedDocs;
+
+    protected final Meter shippedDocs;
+
+    public ReindexingPipeline(ElasticSearchIndexingImpl esi, BulkIndexer bulkIndexer) {
+        this.esi = esi;
+        this.bulkIndexer = bulkIndexer;
+        parallelism = Integer.parseInt(Framework.getProperty(REINDEX_RENDERING_THREADS_PROPERTY,
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        pool = new ForkJoinPool(parallelism, p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("Nuxeo-ES-Rendering-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        fetchTimer = registry.timer(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "fetch"));
+        renderTimer = registry.timer(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "render"));
+        shipTimer = registry.timer(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "ship"));
+        fetchedDocs = registry.meter(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "fetch", "documents"));
+        renderedDocs = registry.meter(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "render", "documents"));
+        shippedDocs = registry.meter(MetricRegistry.name("nuxeo", "elasticsearch", "reindex", "ship", "documents"));
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Reindexes the documents, fetched by buckets of the given size.
+     */
+    public void reindex(CoreSession session, List<String> ids, int bucketSize) {
+        Batch batch = bulkIndexer.newBatch();
+        CompletableFuture<List<IndexRequest>> rendering = null;
+        for (int i = 0; i < ids.size(); i += bucketSize) {
+            List<String> bucket = ids.subList(i, Math.min(i + bucketSize, ids.size()));
+            List<DocumentModel> docs;
+            Timer.Context fetchContext = fetchTimer.time();
+            try {
+                docs = fetchDocuments(session, bucket);
+            } finally {
+                fetchContext.stop();
+            }
+            fetchedDocs.mark(docs.size());
+            CompletableFuture<List<IndexRequest>> next = render(docs);
+            if (rendering != null) {
+                ship(batch, rendering);
+            }
+            rendering = next;
+        }
+        if (rendering != null) {
+            ship(batch, rendering);
+        }
+        Timer.Context shipContext = shipTimer.time();
+        try {
+            batch.flush();
+        } finally {
+            shipContext.stop();
+        }
+    }
+
+    /**
+     * Fetches documents, including relations, with a single query.
+     */
+    public static List<DocumentModel> fetchDocuments(CoreSession session, List<String> ids) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT * FROM Document, Relation WHERE ecm:uuid IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sb.append(NXQL.escapeString(ids.get(i)));
+            if (i < ids.size() - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append(")");
+        // read invalidation
+        session.save();
+        return session.query(sb.toString());
+    }
+
+    /**
+     * Renders the documents on the pool, split in one chunk per thread.
+     */
+    protected CompletableFuture<List<IndexRequest>> render(List<DocumentModel> docs) {
+        int chunkSize = Math.max(1, (docs.size() + parallelism - 1) / parallelism);
+        List<CompletableFuture<List<IndexRequest>>> chunks = new ArrayList<>();
+        for (int i = 0; i < docs.size(); i += chunkSize) {
+            List<DocumentModel> chunk = docs.subList(i, Math.min(i + chunkSize, docs.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> renderChunk(chunk), pool));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[chunks.size()])).thenApply(v -> {
+            List<IndexRequest> requests = new ArrayList<>(docs.size());
+            for (CompletableFuture<List<IndexRequest>> chunk : chunks) {
+                requests.addAll(chunk.join());
+            }
+            return requests;
+        });
+    }
+
+    protected List<IndexRequest> renderChunk(List<DocumentModel> docs) {
+        List<IndexRequest> requests = new ArrayList<>(docs.size());
+        Timer.Context context = renderTimer.time();
+        // lazy loading of document parts needs a transaction on this thread
+        boolean tx = TransactionHelper.startTransaction();
+        try {
+            for (DocumentModel doc : docs) {
+                try {
+                    IndexRequestBuilder request = esi.buildEsIndexingRequest(doc, null);
+                    requests.add(request.request());
+                } catch (DocumentNotFoundException e) {
+                    log.info("Skip reindexing, doc does not exists anymore: " + doc.getId());
+                } catch (IllegalArgumentException e) {
+                    log.error("Skip reindexing, fail to create request for doc: " + doc.getId(), e);
+                }
+            }
+        } finally {
+            if (tx) {
+                TransactionHelper.commitOrRollbackTransaction();
+            }
+            context.stop();
+        }
+        renderedDocs.mark(requests.size());
+        return requests;
+    }
+
+    protected void ship(Batch batch, CompletableFuture<List<IndexRequest>> rendering) {
+        List<IndexRequest> requests;
+        try {
+            requests = rendering.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        Timer.Context context = shipTimer.time();
+        try {
+            for (IndexRequest request : requests) {
+                batch.add(request);
+            }
+        } finally {
+            context.stop();
+        }
+        shippedDocs.mark(requests.size());
+    }
+
+}
@@ -20,6 +20,8 @@
 
 package org.nuxeo.elasticsearch.listener;
 
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_PARTIAL_UPDATE_PROPERTY;
+
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -79,6 +81,11 @@ public class ElasticSearchInlineListener extends IndexingCommandsStacker impleme
         return ret;
     }
 
+    @Override
+    protected boolean isPartialUpdateEnabled() {
+        return Boolean.parseBoolean(Framework.getProperty(INDEXING_PARTIAL_UPDATE_PROPERTY, "false"));
+    }
+
     @Override
     public void handleEvent(Event event) {
         String eventId = event.getName();
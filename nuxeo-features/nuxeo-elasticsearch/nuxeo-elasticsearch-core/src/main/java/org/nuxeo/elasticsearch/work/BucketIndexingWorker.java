@@ -20,6 +20,7 @@
 package org.nuxeo.elasticsearch.work;
 
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_WRITE_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_PARALLEL_PROPERTY;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -29,11 +30,11 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentLocation;
 import org.nuxeo.ecm.core.api.DocumentModel;
-import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
+import org.nuxeo.elasticsearch.core.ReindexingPipeline;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -69,17 +70,24 @@ public class BucketIndexingWorker extends BaseIndexingWorker implements Work {
         openSystemSession();
         int bucketSize = Math.min(documentCount, getBucketSize());
         List<String> ids = new ArrayList<>(bucketSize);
-        for (DocumentLocation doc : getDocuments()) {
-            ids.add(doc.getIdRef().value);
-            if ((ids.size() % bucketSize) == 0) {
+        if (isParallel()) {
+            for (DocumentLocation doc : getDocuments()) {
+                ids.add(doc.getIdRef().value);
+            }
+            esi.reindexDocuments(session, ids, bucketSize);
+        } else {
+            for (DocumentLocation doc : getDocuments()) {
+                ids.add(doc.getIdRef().value);
+                if ((ids.size() % bucketSize) == 0) {
+                    esi.indexNonRecursive(getIndexingCommands(session, ids));
+                    ids.clear();
+                }
+            }
+            if (!ids.isEmpty()) {
                 esi.indexNonRecursive(getIndexingCommands(session, ids));
                 ids.clear();
             }
         }
-        if (!ids.isEmpty()) {
-            esi.indexNonRecursive(getIndexingCommands(session, ids));
-            ids.clear();
-        }
         if (warnAtEnd) {
             log.warn(String.format("Re-indexing job: %s completed.", getSchedulePath().getParentPath()));
         }
@@ -95,18 +103,16 @@ public class BucketIndexingWorker extends BaseIndexingWorker implements Work {
     }
 
     private List<DocumentModel> fetchDocuments(CoreSession session, List<String> ids) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("SELECT * FROM Document, Relation WHERE ecm:uuid IN (");
-        for (int i = 0; i < ids.size(); i++) {
-            sb.append(NXQL.escapeString(ids.get(i)));
-            if (i < ids.size() - 1) {
-                sb.append(", ");
-            }
-        }
-        sb.append(")");
-        // read invalidation
-        session.save();
-        return session.query(sb.toString());
+        return ReindexingPipeline.fetchDocuments(session, ids);
+    }
+
+    /**
+     * Checks if documents are reindexed with overlapping fetch, rendering and bulk stages.
+     *
+     * @since 8.2
+     */
+    protected boolean isParallel() {
+        return Boolean.parseBoolean(Framework.getProperty(REINDEX_PARALLEL_PROPERTY, "false"));
     }
 
     protected int getBucketSize() {
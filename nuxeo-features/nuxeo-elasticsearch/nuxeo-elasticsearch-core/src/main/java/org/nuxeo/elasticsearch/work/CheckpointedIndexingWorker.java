@@ -0,0 +1,155 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.work;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_READ_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_WRITE_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_PARALLEL_PROPERTY;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
+import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Worker to reindex a whole repository by increasing document id, resuming from the {@link ReindexingCheckpoint}
+ * saved after each bucket.
+ * <p>
+ * Each bucket is read with a query bounded by the last id of the previous bucket and the bucket size, and is processed
+ * in its own transaction, so that no cursor or transaction is kept open during the whole reindexing.
+ *
+ * @since 8.2
+ */
+public class CheckpointedIndexingWorker extends BaseIndexingWorker implements Work {
+    private static final Log log = LogFactory.getLog(CheckpointedIndexingWorker.class);
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String ID_PREFIX = "CheckpointedIndexingWorker-";
+
+    private static final String DEFAULT_BUCKET_READ_SIZE = "500";
+
+    private static final String DEFAULT_BUCKET_WRITE_SIZE = "50";
+
+    protected static final String QUERY = "SELECT * FROM Document";
+
+    protected long documentCount = 0;
+
+    public CheckpointedIndexingWorker(String repositoryName) {
+        // a single reindexing per repository
+        super(ID_PREFIX + repositoryName);
+        this.repositoryName = repositoryName;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Elasticsearch checkpointed indexer: " + repositoryName + ", processed " + documentCount;
+    }
+
+    @Override
+    protected void doWork() {
+        ElasticSearchAdmin esa = Framework.getLocalService(ElasticSearchAdmin.class);
+        ElasticSearchIndexing esi = Framework.getLocalService(ElasticSearchIndexing.class);
+        openSystemSession();
+        ReindexingCheckpoint checkpoint = esa.getReindexingCheckpoint(repositoryName);
+        if (checkpoint == null || checkpoint.isCompleted()) {
+            long total = session.query(QUERY, null, 1, 0, true).totalSize();
+            checkpoint = new ReindexingCheckpoint(repositoryName, total);
+            esa.saveReindexingCheckpoint(checkpoint);
+            log.warn(String.format("Re-indexing repository: %s started, %d documents", repositoryName, total));
+        } else {
+            log.warn("Re-indexing resumed from: " + checkpoint);
+        }
+        int readSize = getBucketSize(REINDEX_BUCKET_READ_PROPERTY, DEFAULT_BUCKET_READ_SIZE);
+        int writeSize = getBucketSize(REINDEX_BUCKET_WRITE_PROPERTY, DEFAULT_BUCKET_WRITE_SIZE);
+        boolean parallel = isParallel();
+        while (!isSuspending()) {
+            long start = System.currentTimeMillis();
+            DocumentModelList docs = session.query(getBucketQuery(checkpoint.getLastId()), null, readSize, 0, false);
+            if (docs.isEmpty()) {
+                checkpoint.setCompleted();
+                esa.saveReindexingCheckpoint(checkpoint);
+                log.warn("Re-indexing completed: " + checkpoint);
+                return;
+            }
+            List<String> ids = new ArrayList<>(docs.size());
+            for (DocumentModel doc : docs) {
+                ids.add(doc.getId());
+            }
+            if (parallel) {
+                esi.reindexDocuments(session, ids, writeSize);
+            } else {
+                List<IndexingCommand> cmds = new ArrayList<>(writeSize);
+                for (DocumentModel doc : docs) {
+                    cmds.add(new IndexingCommand(doc, Type.INSERT, false, false));
+                    if (cmds.size() == writeSize) {
+                        esi.indexNonRecursive(cmds);
+                        cmds = new ArrayList<>(writeSize);
+                    }
+                }
+                if (!cmds.isEmpty()) {
+                    esi.indexNonRecursive(cmds);
+                }
+            }
+            // the bulk requests are acknowledged, the bucket can be checkpointed
+            documentCount += ids.size();
+            checkpoint.bucketDone(ids.get(ids.size() - 1), ids.size(), System.currentTimeMillis() - start);
+            esa.saveReindexingCheckpoint(checkpoint);
+            setProgress(new Progress(checkpoint.getDone(), checkpoint.getTotal()));
+            if (log.isDebugEnabled()) {
+                log.debug("Re-indexing checkpoint: " + checkpoint);
+            }
+            // don't keep a transaction open on the whole repository
+            TransactionHelper.commitOrRollbackTransaction();
+            TransactionHelper.startTransaction();
+        }
+        log.info("Re-indexing suspended: " + checkpoint);
+        suspended();
+    }
+
+    protected String getBucketQuery(String lastId) {
+        StringBuilder query = new StringBuilder(QUERY);
+        if (lastId != null) {
+            query.append(" WHERE ").append(NXQL.ECM_UUID).append(" > ").append(NXQL.escapeString(lastId));
+        }
+        query.append(" ORDER BY ").append(NXQL.ECM_UUID);
+        return query.toString();
+    }
+
+    protected boolean isParallel() {
+        return Boolean.parseBoolean(Framework.getProperty(REINDEX_PARALLEL_PROPERTY, "false"));
+    }
+
+    protected int getBucketSize(String property, String defaultValue) {
+        return Integer.parseInt(Framework.getProperty(property, defaultValue));
+    }
+
+}
@@ -0,0 +1,389 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.elasticsearch.core.BulkIndexer.Batch;
+
+/**
+ * Tests the {@link BulkIndexer} against a client simulating the Elasticsearch bulk responses.
+ *
+ * @since 8.2
+ */
+public class TestBulkIndexer {
+
+    protected static final String INDEX = "nxutest";
+
+    protected static final String TYPE = "doc";
+
+    /** Simulates the responses of the bulk requests, possibly asynchronously. */
+    protected class FakeClient {
+
+        /** The ids of the actions of each bulk request received, in order. */
+        protected final List<List<String>> received = Collections.synchronizedList(new ArrayList<>());
+
+        /** The ids of the bulk requests sent and not yet answered. */
+        protected final List<List<String>> outstanding = new ArrayList<>();
+
+        protected int maxOutstanding;
+
+        /** Actions sent while a previous action on the same document was not answered. */
+        protected final List<String> misordered = Collections.synchronizedList(new ArrayList<>());
+
+        /** Status of the failure of an action, or {@code null} for a success. */
+        protected Function<String, RestStatus> failures = id -> null;
+
+        /** Failure of the whole bulk request, or {@code null} to answer item by item. */
+        protected Function<Integer, Throwable> requestFailures = n -> null;
+
+        /** Responses waiting to be released by the test, if responses are held. */
+        protected BlockingQueue<Runnable> held;
+
+        /** Delay before the responses, if not held. */
+        protected long delay;
+
+        protected final ExecutorService responder = Executors.newCachedThreadPool();
+
+        protected Client newClient() {
+            return (Client) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Client.class },
+                    (proxy, method, args) -> {
+                        if ("bulk".equals(method.getName()) && args.length == 2) {
+                            @SuppressWarnings("unchecked")
+                            ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) args[1];
+                            bulk((BulkRequest) args[0], listener);
+                            return null;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+
+        protected void bulk(BulkRequest request, ActionListener<BulkResponse> listener) {
+            List<String> ids = new ArrayList<>();
+            for (ActionRequest<?> action : request.requests()) {
+                ids.add(getId(action));
+            }
+            synchronized (outstanding) {
+                for (List<String> previous : outstanding) {
+                    for (String id : ids) {
+                        if (previous.contains(id)) {
+                            misordered.add(id);
+                        }
+                    }
+                }
+                outstanding.add(ids);
+                maxOutstanding = Math.max(maxOutstanding, outstanding.size());
+            }
+            received.add(ids);
+            int attempt = received.size();
+            Runnable respond = () -> {
+                synchronized (outstanding) {
+                    outstanding.remove(ids);
+                }
+                Throwable t = requestFailures.apply(Integer.valueOf(attempt));
+                if (t != null) {
+                    listener.onFailure(t);
+                } else {
+                    listener.onResponse(newResponse(request));
+                }
+            };
+            if (held != null) {
+                held.add(respond);
+            } else if (delay > 0) {
+                responder.execute(() -> {
+                    sleep(delay);
+                    respond.run();
+                });
+            } else {
+                respond.run();
+            }
+        }
+
+        protected BulkResponse newResponse(BulkRequest request) {
+            List<ActionRequest> requests = request.requests();
+            BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+            for (int i = 0; i < items.length; i++) {
+                ActionRequest<?> action = requests.get(i);
+                String id = getId(action);
+                boolean delete = action instanceof DeleteRequest;
+                String opType = delete ? "delete" : "index";
+                RestStatus status = failures.apply(id);
+                if (status != null) {
+                    items[i] = new BulkItemResponse(i, opType, new Failure(INDEX, TYPE, id, status.name(), status));
+                } else {
+                    ActionResponse response = delete ? new DeleteResponse(INDEX, TYPE, id, 1, true)
+                            : new IndexResponse(INDEX, TYPE, id, 1, true);
+                    items[i] = new BulkItemResponse(i, opType, response);
+                }
+            }
+            return new BulkResponse(items, 1);
+        }
+    }
+
+    protected FakeClient fakeClient;
+
+    @Before
+    public void setUp() {
+        fakeClient = new FakeClient();
+    }
+
+    @After
+    public void tearDown() {
+        fakeClient.responder.shutdownNow();
+    }
+
+    protected static String getId(ActionRequest<?> action) {
+        if (action instanceof IndexRequest) {
+            return ((IndexRequest) action).id();
+        }
+        return ((DeleteRequest) action).id();
+    }
+
+    protected static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected BulkIndexer newBulkIndexer(int maxActions, long maxBytes, int maxInFlight, int maxRetries,
+            long retryBackoff) {
+        Client client = fakeClient.newClient();
+        return new BulkIndexer(null, maxActions, maxBytes, maxInFlight, maxRetries, retryBackoff) {
+            @Override
+            protected Client getClient() {
+                return client;
+            }
+        };
+    }
+
+    protected static IndexRequest index(String id, int sourceSize) {
+        String source = "{\"f\":\"" + StringUtils.repeat("x", sourceSize - 8) + "\"}";
+        return new IndexRequest(INDEX, TYPE, id).source(source);
+    }
+
+    protected static IndexRequest index(String id) {
+        return index(id, 20);
+    }
+
+    protected static DeleteRequest delete(String id) {
+        return new DeleteRequest(INDEX, TYPE, id);
+    }
+
+    @Test
+    public void testSplitByMaxActions() {
+        Batch batch = newBulkIndexer(3, 1024 * 1024, 4, 5, 1).newBatch();
+        for (int i = 0; i < 7; i++) {
+            batch.add(index("id" + i));
+        }
+        // full bulks are sent without waiting for the flush
+        assertEquals(2, fakeClient.received.size());
+        batch.flush();
+        assertEquals(Arrays.asList(Arrays.asList("id0", "id1", "id2"), Arrays.asList("id3", "id4", "id5"),
+                Arrays.asList("id6")), fakeClient.received);
+    }
+
+    @Test
+    public void testSplitByMaxBytes() {
+        // each action is estimated to 100 bytes plus the overhead
+        long maxBytes = 2 * (100 + BulkIndexer.REQUEST_OVERHEAD) + 10;
+        Batch batch = newBulkIndexer(500, maxBytes, 4, 5, 1).newBatch();
+        for (int i = 0; i < 5; i++) {
+            batch.add(index("id" + i, 100));
+        }
+        batch.flush();
+        assertEquals(Arrays.asList(Arrays.asList("id0", "id1"), Arrays.asList("id2", "id3"), Arrays.asList("id4")),
+                fakeClient.received);
+
+        // an action bigger than the bound is sent alone
+        fakeClient.received.clear();
+        batch.add(index("small", 10));
+        batch.add(index("big", 1000));
+        batch.add(index("small2", 10));
+        batch.flush();
+        assertEquals(Arrays.asList(Arrays.asList("small"), Arrays.asList("big"), Arrays.asList("small2")),
+                fakeClient.received);
+    }
+
+    @Test
+    public void testOrderOfActionsOnSameDocument() {
+        fakeClient.delay = 50;
+        Batch batch = newBulkIndexer(2, 1024 * 1024, 4, 5, 1).newBatch();
+        batch.add(index("a"));
+        batch.add(index("b"));
+        batch.add(index("c"));
+        batch.add(delete("a"));
+        batch.add(index("d"));
+        batch.add(index("a"));
+        batch.flush();
+
+        // the actions on "a" are sent in order, each after the response to the previous one
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c"), Arrays.asList("a", "d"),
+                Arrays.asList("a")), fakeClient.received);
+        assertEquals(Collections.emptyList(), fakeClient.misordered);
+    }
+
+    @Test
+    public void testRetryRejectedActions() {
+        int[] rejections = { 0 };
+        fakeClient.failures = id -> {
+            if ("b".equals(id) && rejections[0] < 2) {
+                rejections[0]++;
+                return RestStatus.TOO_MANY_REQUESTS;
+            }
+            return null;
+        };
+        BulkIndexer indexer = newBulkIndexer(10, 1024 * 1024, 4, 5, 1);
+        long retried = indexer.retriedCount.getCount();
+        long rejected = indexer.rejectedCount.getCount();
+        Batch batch = indexer.newBatch();
+        batch.add(index("a"));
+        batch.add(index("b"));
+        batch.add(index("c"));
+        batch.flush();
+
+        // only the rejected action is sent again
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", "c"), Arrays.asList("b"), Arrays.asList("b")),
+                fakeClient.received);
+        assertEquals(2, indexer.retriedCount.getCount() - retried);
+        assertEquals(2, indexer.rejectedCount.getCount() - rejected);
+    }
+
+    @Test
+    public void testRetryRejectedRequest() {
+        fakeClient.requestFailures = attempt -> attempt.intValue() == 1 ? new EsRejectedExecutionException("full")
+                : null;
+        Batch batch = newBulkIndexer(10, 1024 * 1024, 4, 5, 1).newBatch();
+        batch.add(index("a"));
+        batch.add(index("b"));
+        batch.flush();
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("a", "b")), fakeClient.received);
+    }
+
+    @Test
+    public void testGiveUpAfterMaxRetries() {
+        fakeClient.failures = id -> RestStatus.TOO_MANY_REQUESTS;
+        long backoff = 20;
+        Batch batch = newBulkIndexer(10, 1024 * 1024, 4, 3, backoff).newBatch();
+        batch.add(index("a"));
+        long start = System.currentTimeMillis();
+        try {
+            batch.flush();
+            fail("Should give up retrying");
+        } catch (NuxeoException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("after 3 retries"));
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        // first request and 3 retries, with an exponential backoff
+        assertEquals(4, fakeClient.received.size());
+        assertTrue("Elapsed: " + elapsed, elapsed >= backoff + 2 * backoff + 4 * backoff);
+    }
+
+    @Test
+    public void testNoRetryOfOtherFailures() {
+        fakeClient.failures = id -> "b".equals(id) ? RestStatus.BAD_REQUEST : null;
+        Batch batch = newBulkIndexer(10, 1024 * 1024, 4, 5, 1).newBatch();
+        batch.add(index("a"));
+        batch.add(index("b"));
+        batch.flush();
+        assertEquals(1, fakeClient.received.size());
+    }
+
+    @Test
+    public void testInFlightBound() throws Exception {
+        fakeClient.held = new LinkedBlockingQueue<>();
+        BulkIndexer indexer = newBulkIndexer(1, 1024 * 1024, 2, 5, 1);
+        long throttled = indexer.throttledCount.getCount();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> future = executor.submit(() -> {
+                Batch batch = indexer.newBatch();
+                for (int i = 0; i < 5; i++) {
+                    batch.add(index("id" + i));
+                }
+                batch.flush();
+            });
+            waitForReceived(2);
+            // the third bulk request waits for a response
+            sleep(100);
+            assertEquals(2, fakeClient.received.size());
+            assertEquals(0, indexer.inFlight.availablePermits());
+            assertEquals(1, indexer.throttledCount.getCount() - throttled);
+
+            fakeClient.held.take().run();
+            waitForReceived(3);
+            while (!future.isDone()) {
+                Runnable respond = fakeClient.held.poll(10, TimeUnit.MILLISECONDS);
+                if (respond != null) {
+                    respond.run();
+                }
+            }
+            future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(5, fakeClient.received.size());
+        assertEquals(2, fakeClient.maxOutstanding);
+        assertEquals(2, indexer.inFlight.availablePermits());
+    }
+
+    protected void waitForReceived(int n) {
+        for (int i = 0; i < 1000 && fakeClient.received.size() < n; i++) {
+            sleep(10);
+        }
+        assertEquals(n, fakeClient.received.size());
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_READ_PROPERTY;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.LocalDeploy;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Test the reindexing of a repository resumed from a {@link ReindexingCheckpoint}.
+ *
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@LocalDeploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestCheckpointedReindexing {
+
+    protected static final int NB_DOCS = 10;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    @Inject
+    protected ElasticSearchIndexing esi;
+
+    @Inject
+    protected WorkManager workManager;
+
+    protected String repositoryName;
+
+    /** The ids of all the documents, in the order of the reindexing. */
+    protected List<String> ids;
+
+    @Before
+    public void setUp() throws Exception {
+        // several buckets for the documents left to index
+        Framework.getProperties().setProperty(REINDEX_BUCKET_READ_PROPERTY, "3");
+        repositoryName = session.getRepositoryName();
+        for (int i = 0; i < NB_DOCS; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "file" + i, "File");
+            doc.setPropertyValue("dc:title", "File" + i);
+            session.createDocument(doc);
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        TransactionHelper.startTransaction();
+        // start from an empty index
+        esa.initIndexes(true);
+        ids = new ArrayList<>();
+        for (DocumentModel doc : session.query("SELECT * FROM Document ORDER BY ecm:uuid")) {
+            ids.add(doc.getId());
+        }
+        Assert.assertTrue(ids.size() > NB_DOCS);
+    }
+
+    @After
+    public void tearDown() {
+        Framework.getProperties().remove(REINDEX_BUCKET_READ_PROPERTY);
+    }
+
+    protected void waitForCompletion() throws Exception {
+        workManager.awaitCompletion(20, TimeUnit.SECONDS);
+        esa.prepareWaitForIndexing().get(20, TimeUnit.SECONDS);
+        esa.refresh();
+    }
+
+    protected boolean isIndexed(String id) {
+        return esa.getClient().prepareGet(esa.getIndexNameForRepository(repositoryName), DOC_TYPE, id).get().isExists();
+    }
+
+    /**
+     * Saves a checkpoint as if a previous reindexing had been interrupted after the document at the given position.
+     */
+    protected void saveInterruptedCheckpoint(int last) {
+        ReindexingCheckpoint checkpoint = new ReindexingCheckpoint(repositoryName, ids.size());
+        checkpoint.bucketDone(ids.get(last), last + 1, 1000);
+        esa.saveReindexingCheckpoint(checkpoint);
+    }
+
+    @Test
+    public void shouldResumeFromCheckpoint() throws Exception {
+        int mid = ids.size() / 2;
+        saveInterruptedCheckpoint(mid);
+
+        Assert.assertTrue(esi.runCheckpointedReindexingWorker(repositoryName, false));
+        waitForCompletion();
+
+        // only the documents after the checkpoint are indexed
+        for (int i = 0; i < ids.size(); i++) {
+            Assert.assertEquals("Document " + i, i > mid, isIndexed(ids.get(i)));
+        }
+        ReindexingCheckpoint checkpoint = esa.getReindexingCheckpoint(repositoryName);
+        Assert.assertTrue(checkpoint.isCompleted());
+        Assert.assertEquals(ids.size(), checkpoint.getDone());
+        Assert.assertEquals(ids.get(ids.size() - 1), checkpoint.getLastId());
+    }
+
+    @Test
+    public void shouldRestartIgnoringCheckpoint() throws Exception {
+        saveInterruptedCheckpoint(ids.size() / 2);
+
+        Assert.assertTrue(esi.runCheckpointedReindexingWorker(repositoryName, true));
+        waitForCompletion();
+
+        for (String id : ids) {
+            Assert.assertTrue(isIndexed(id));
+        }
+        ReindexingCheckpoint checkpoint = esa.getReindexingCheckpoint(repositoryName);
+        Assert.assertTrue(checkpoint.isCompleted());
+        Assert.assertEquals(ids.size(), checkpoint.getDone());
+    }
+
+}
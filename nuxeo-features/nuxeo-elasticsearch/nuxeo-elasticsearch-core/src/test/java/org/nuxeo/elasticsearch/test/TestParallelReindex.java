@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_READ_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_BUCKET_WRITE_PROPERTY;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_PARALLEL_PROPERTY;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.LocalDeploy;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Test that the parallel reindexing indexes the same documents with the same contents as the sequential one.
+ *
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@LocalDeploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestParallelReindex {
+
+    protected static final int NB_FOLDERS = 3;
+
+    protected static final int NB_FILES = 7;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    @Inject
+    protected ElasticSearchIndexing esi;
+
+    @Inject
+    protected WorkManager workManager;
+
+    protected String repositoryName;
+
+    @Before
+    public void setUp() throws Exception {
+        // several buckets, several bulk requests per bucket
+        Framework.getProperties().setProperty(REINDEX_BUCKET_READ_PROPERTY, "10");
+        Framework.getProperties().setProperty(REINDEX_BUCKET_WRITE_PROPERTY, "4");
+        repositoryName = session.getRepositoryName();
+        for (int i = 0; i < NB_FOLDERS; i++) {
+            DocumentModel folder = session.createDocumentModel("/", "folder" + i, "Folder");
+            folder.setPropertyValue("dc:title", "Folder " + i);
+            folder = session.createDocument(folder);
+            ACP acp = folder.getACP();
+            ACL acl = acp.getOrCreateACL();
+            acl.add(new ACE("user" + i, "Read", true));
+            session.setACP(folder.getRef(), acp, true);
+            for (int j = 0; j < NB_FILES; j++) {
+                DocumentModel file = session.createDocumentModel(folder.getPathAsString(), "file" + j, "File");
+                file.setPropertyValue("dc:title", "File " + i + "-" + j);
+                file.setPropertyValue("dc:description", "Description " + j);
+                file.setPropertyValue("dc:subjects", new String[] { "subject" + i, "subject" + j });
+                file.setPropertyValue("file:content", new StringBlob("Content " + i + "-" + j));
+                session.createDocument(file);
+            }
+        }
+        DocumentModel note = session.createDocumentModel("/folder0", "note", "Note");
+        note.setPropertyValue("note:note", "Some note");
+        session.createDocument(note);
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        TransactionHelper.startTransaction();
+    }
+
+    @After
+    public void tearDown() {
+        Framework.getProperties().remove(REINDEX_BUCKET_READ_PROPERTY);
+        Framework.getProperties().remove(REINDEX_BUCKET_WRITE_PROPERTY);
+        Framework.getProperties().remove(REINDEX_PARALLEL_PROPERTY);
+    }
+
+    protected void waitForCompletion() throws Exception {
+        workManager.awaitCompletion(20, TimeUnit.SECONDS);
+        esa.prepareWaitForIndexing().get(20, TimeUnit.SECONDS);
+        esa.refresh();
+    }
+
+    protected void setParallel(boolean parallel) {
+        Framework.getProperties().setProperty(REINDEX_PARALLEL_PROPERTY, String.valueOf(parallel));
+    }
+
+    /**
+     * Gets the source of all the indexed documents by id.
+     */
+    protected Map<String, Map<String, Object>> getIndexedDocuments() {
+        SearchResponse response = esa.getClient().prepareSearch(esa.getIndexNameForRepository(repositoryName)).setTypes(
+                DOC_TYPE).setQuery(QueryBuilders.matchAllQuery()).setSize(1000).get();
+        Map<String, Map<String, Object>> docs = new HashMap<>();
+        for (SearchHit hit : response.getHits()) {
+            docs.put(hit.getId(), hit.getSource());
+        }
+        Assert.assertEquals(response.getHits().getTotalHits(), docs.size());
+        return docs;
+    }
+
+    protected Map<String, Map<String, Object>> reindex(boolean parallel) throws Exception {
+        setParallel(parallel);
+        esa.dropAndInitRepositoryIndex(repositoryName);
+        esi.runReindexingWorker(repositoryName, "SELECT ecm:uuid FROM Document");
+        waitForCompletion();
+        return getIndexedDocuments();
+    }
+
+    protected Map<String, Map<String, Object>> checkpointedReindex(boolean parallel) throws Exception {
+        setParallel(parallel);
+        esa.dropAndInitRepositoryIndex(repositoryName);
+        Assert.assertTrue(esi.runCheckpointedReindexingWorker(repositoryName, true));
+        waitForCompletion();
+        return getIndexedDocuments();
+    }
+
+    protected void assertSameDocuments(Map<String, Map<String, Object>> expected,
+            Map<String, Map<String, Object>> actual) {
+        Assert.assertTrue(expected.size() > NB_FOLDERS * NB_FILES);
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (String id : expected.keySet()) {
+            Assert.assertEquals("Document " + id, expected.get(id), actual.get(id));
+        }
+    }
+
+    @Test
+    public void shouldReindexLikeSequential() throws Exception {
+        Map<String, Map<String, Object>> sequential = reindex(false);
+        Map<String, Map<String, Object>> parallel = reindex(true);
+        assertSameDocuments(sequential, parallel);
+        long count = session.query("SELECT * FROM Document", null, 1, 0, true).totalSize();
+        Assert.assertEquals(count, parallel.size());
+    }
+
+    @Test
+    public void shouldCheckpointedReindexLikeSequential() throws Exception {
+        Map<String, Map<String, Object>> sequential = checkpointedReindex(false);
+        Map<String, Map<String, Object>> parallel = checkpointedReindex(true);
+        assertSameDocuments(sequential, parallel);
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_PARTIAL_UPDATE_PROPERTY;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.LocalDeploy;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Test the indexing of document changes with partial updates.
+ *
+ * @since 8.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@LocalDeploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestPartialUpdate {
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    @Inject
+    protected WorkManager workManager;
+
+    @Before
+    public void setUp() throws Exception {
+        Framework.getProperties().setProperty(INDEXING_PARTIAL_UPDATE_PROPERTY, "true");
+        esa.initIndexes(true);
+    }
+
+    @After
+    public void tearDown() {
+        Framework.getProperties().remove(INDEXING_PARTIAL_UPDATE_PROPERTY);
+    }
+
+    protected void nextTransaction() throws Exception {
+        TransactionHelper.commitOrRollbackTransaction();
+        workManager.awaitCompletion(20, TimeUnit.SECONDS);
+        esa.prepareWaitForIndexing().get(20, TimeUnit.SECONDS);
+        esa.refresh();
+        TransactionHelper.startTransaction();
+    }
+
+    protected Map<String, Object> getSource(DocumentModel doc) {
+        GetResponse response = esa.getClient().prepareGet(esa.getIndexNameForRepository(session.getRepositoryName()),
+                DOC_TYPE, doc.getId()).get();
+        Assert.assertTrue(response.isExists());
+        return response.getSourceAsMap();
+    }
+
+    protected DocumentModel createDocument() throws Exception {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.setPropertyValue("dc:title", "Title");
+        doc.setPropertyValue("common:icon", "icon.png");
+        doc = session.createDocument(doc);
+        nextTransaction();
+        return doc;
+    }
+
+    @Test
+    public void shouldUpdateChangedSchemas() throws Exception {
+        DocumentModel doc = createDocument();
+
+        doc.setPropertyValue("dc:description", "Description");
+        session.saveDocument(doc);
+        nextTransaction();
+
+        Map<String, Object> source = getSource(doc);
+        Assert.assertEquals("Description", source.get("dc:description"));
+        // fields not part of the update are kept
+        Assert.assertEquals("Title", source.get("dc:title"));
+        Assert.assertEquals("icon.png", source.get("common:icon"));
+        Assert.assertEquals("Title", source.get("ecm:title"));
+    }
+
+    @Test
+    public void shouldUpdateAcl() throws Exception {
+        DocumentModel doc = createDocument();
+
+        ACP acp = doc.getACP();
+        ACL acl = acp.getOrCreateACL();
+        acl.add(new ACE("bob", "Read", true));
+        session.setACP(doc.getRef(), acp, true);
+        nextTransaction();
+
+        Map<String, Object> source = getSource(doc);
+        Assert.assertTrue(((List<?>) source.get("ecm:acl")).contains("bob"));
+        Assert.assertEquals("Title", source.get("dc:title"));
+        Assert.assertEquals("icon.png", source.get("common:icon"));
+    }
+
+    @Test
+    public void shouldIndexWholeDocumentMissingFromIndex() throws Exception {
+        DocumentModel doc = createDocument();
+        esa.getClient().prepareDelete(esa.getIndexNameForRepository(session.getRepositoryName()), DOC_TYPE,
+                doc.getId()).get();
+        esa.refresh();
+
+        doc.setPropertyValue("dc:description", "Description");
+        session.saveDocument(doc);
+        nextTransaction();
+
+        // all the schemas are indexed, not only the updated one
+        Map<String, Object> source = getSource(doc);
+        Assert.assertEquals("Description", source.get("dc:description"));
+        Assert.assertEquals("Title", source.get("dc:title"));
+        Assert.assertEquals("icon.png", source.get("common:icon"));
+        Assert.assertNotNull(source.get("ecm:acl"));
+    }
+
+}
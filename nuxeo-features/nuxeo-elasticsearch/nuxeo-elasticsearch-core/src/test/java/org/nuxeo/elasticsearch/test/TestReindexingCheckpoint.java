@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright 2016 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
+
+public class TestReindexingCheckpoint {
+
+    @Test
+    public void testProgress() {
+        ReindexingCheckpoint checkpoint = new ReindexingCheckpoint("test", 1000);
+        assertNull(checkpoint.getLastId());
+        assertEquals(-1, checkpoint.getEta());
+        // 100 docs in 2s, 900 left
+        checkpoint.bucketDone("id100", 100, 2000);
+        assertEquals("id100", checkpoint.getLastId());
+        assertEquals(100, checkpoint.getDone());
+        assertEquals(18000, checkpoint.getEta());
+        checkpoint.bucketDone("id200", 100, 1000);
+        assertEquals(200, checkpoint.getDone());
+        assertEquals(12000, checkpoint.getEta());
+        checkpoint.setCompleted();
+        assertTrue(checkpoint.isCompleted());
+        assertEquals(200, checkpoint.getTotal());
+        assertEquals(0, checkpoint.getEta());
+    }
+
+    @Test
+    public void testMoreDocumentsThanCounted() {
+        ReindexingCheckpoint checkpoint = new ReindexingCheckpoint("test", 10);
+        checkpoint.bucketDone("id20", 20, 1000);
+        assertEquals(20, checkpoint.getTotal());
+        assertEquals(0, checkpoint.getEta());
+    }
+
+    @Test
+    public void testMapRoundTrip() {
+        ReindexingCheckpoint checkpoint = new ReindexingCheckpoint("test", 1000);
+        checkpoint.bucketDone("id100", 100, 2000);
+        ReindexingCheckpoint read = ReindexingCheckpoint.fromMap("test", checkpoint.toMap());
+        assertEquals("test", read.getRepositoryName());
+        assertEquals("id100", read.getLastId());
+        assertEquals(100, read.getDone());
+        assertEquals(1000, read.getTotal());
+        assertEquals(2000, read.getElapsed());
+        assertEquals(checkpoint.getStartTime(), read.getStartTime());
+        assertFalse(read.isCompleted());
+    }
+
+}
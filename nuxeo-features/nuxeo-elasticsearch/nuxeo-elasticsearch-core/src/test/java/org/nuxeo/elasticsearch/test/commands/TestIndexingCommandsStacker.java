@@ -19,6 +19,7 @@
 package org.nuxeo.elasticsearch.test.commands;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.event.DocumentEventTypes;
 import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.nuxeo.elasticsearch.commands.IndexingCommand.Part;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 import org.nuxeo.elasticsearch.commands.IndexingCommands;
 import org.nuxeo.elasticsearch.commands.IndexingCommandsStacker;
@@ -47,6 +49,8 @@ public class TestIndexingCommandsStacker extends IndexingCommandsStacker {
 
     protected List<IndexingCommand> flushedAsyncCommands;
 
+    protected boolean partialUpdate;
+
     @Override
     protected Map<String, IndexingCommands> getAllCommands() {
         return commands;
@@ -57,10 +61,16 @@ public class TestIndexingCommandsStacker extends IndexingCommandsStacker {
         return false;
     }
 
+    @Override
+    protected boolean isPartialUpdateEnabled() {
+        return partialUpdate;
+    }
+
     @Before
     public void reset() {
         flushedSyncCommands = new ArrayList<>();
         flushedAsyncCommands = new ArrayList<>();
+        partialUpdate = false;
     }
 
     protected void fireSyncIndexing(List<IndexingCommand> syncCommands) {
@@ -245,4 +255,39 @@ public class TestIndexingCommandsStacker extends IndexingCommandsStacker {
         Assert.assertEquals(1, flushedSyncCommands.size());
         Assert.assertEquals(1, flushedAsyncCommands.size());
     }
+
+    @Test
+    public void shouldMergePartialUpdates() throws Exception {
+        partialUpdate = true;
+        DocumentModel doc1 = new MockDocumentModel("1");
+        DocumentModel doc2 = new MockDocumentModel("2");
+
+        stackCommand(doc1, DocumentEventTypes.DOCUMENT_TAG_UPDATED, false);
+        stackCommand(doc1, DocumentEventTypes.BINARYTEXT_UPDATED, false);
+        stackCommand(doc2, DocumentEventTypes.DOCUMENT_TAG_UPDATED, false);
+        stackCommand(doc2, DocumentEventTypes.DOCUMENT_CHECKEDOUT, false);
+
+        IndexingCommands ic1 = getCommands(doc1);
+        Assert.assertEquals(1, ic1.getCommands().size());
+        IndexingCommand cmd1 = ic1.getCommands().get(0);
+        Assert.assertEquals(Type.UPDATE, cmd1.getType());
+        Assert.assertTrue(cmd1.isPartial());
+        Assert.assertEquals(EnumSet.of(Part.TAGS, Part.BINARYTEXT), cmd1.getParts());
+
+        // a full update wins over a partial one
+        IndexingCommands ic2 = getCommands(doc2);
+        Assert.assertEquals(1, ic2.getCommands().size());
+        Assert.assertFalse(ic2.getCommands().get(0).isPartial());
+    }
+
+    @Test
+    public void shouldNotStackPartialUpdatesByDefault() throws Exception {
+        DocumentModel doc = new MockDocumentModel("1");
+
+        stackCommand(doc, DocumentEventTypes.DOCUMENT_TAG_UPDATED, false);
+
+        IndexingCommands ic = getCommands(doc);
+        Assert.assertEquals(1, ic.getCommands().size());
+        Assert.assertFalse(ic.getCommands().get(0).isPartial());
+    }
 }
@@ -18,8 +18,14 @@
  */
 package org.nuxeo.elasticsearch.seqgen;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.client.Client;
 import org.nuxeo.ecm.core.api.NuxeoException;
@@ -36,6 +42,10 @@ import org.nuxeo.runtime.api.Framework;
  * of the version attribute as described in the <a href=
  * "http://blogs.perl.org/users/clinton_gormley/2011/10/elasticsearchsequence---a-blazing-fast-ticket-server.html"
  * >ElasticSearch::Sequence - a blazing fast ticket server</a> blog post.
+ * <p>
+ * A block of UIDs is reserved with a single bulk request made of one index request per UID, each of them incrementing
+ * the version like {@link #getNext} does. The UIDs of a block are therefore unique but not always consecutive, as
+ * concurrent increments may be interleaved.
  *
  * @since 7.3
  */
@@ -72,6 +82,27 @@ public class ESUIDSequencer extends AbstractUIDSequencer {
         return (int) res.getVersion();
     }
 
+    @Override
+    protected List<Integer> reserveBlock(String sequenceName, int size) {
+        String source = "{ \"ts\" : " + System.currentTimeMillis() + "}";
+        BulkRequestBuilder bulkRequest = getClient().prepareBulk();
+        for (int i = 0; i < size; i++) {
+            bulkRequest.add(getClient().prepareIndex(getESIndexName(), ElasticSearchConstants.SEQ_ID_TYPE,
+                    sequenceName).setSource(source));
+        }
+        BulkResponse bulkResponse = bulkRequest.execute().actionGet();
+        List<Integer> ids = new ArrayList<>(size);
+        for (BulkItemResponse response : bulkResponse.getItems()) {
+            if (response.isFailed()) {
+                throw new NuxeoException(String.format("Sequencer %s cannot reserve ids for %s: %s", getName(),
+                        sequenceName, response.getFailureMessage()));
+            }
+            ids.add(Integer.valueOf((int) response.getVersion()));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
     @Override
     public void init() {
         getClient();
@@ -22,6 +22,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -100,4 +103,48 @@ public class TestSequenceGeneratorWithElasticSearch {
         assertEquals(nbCalls + 1, seq.getNext(seqName));
     }
 
+    @Test
+    public void testBlock() {
+        UIDSequencer seq = uidGeneratorService.getSequencer();
+
+        assertEquals(1, seq.getNext("myblockseq"));
+        assertEquals(Arrays.asList(2, 3, 4), seq.getNextBlock("myblockseq", 3));
+        assertEquals(5, seq.getNext("myblockseq"));
+    }
+
+    @Test
+    public void testBlockConcurrency() throws Exception {
+        final String seqName = "mtblock";
+        int nbCalls = 500;
+        int blockSize = 10;
+
+        final UIDSequencer seq = uidGeneratorService.getSequencer();
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        ThreadPoolExecutor tpe = new ThreadPoolExecutor(5, 5, 500L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(nbCalls + 1));
+
+        for (int i = 0; i < nbCalls; i++) {
+            final boolean block = i % 2 == 0;
+            tpe.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (block) {
+                        ids.addAll(seq.getNextBlock(seqName, blockSize));
+                    } else {
+                        ids.add(Integer.valueOf(seq.getNext(seqName)));
+                    }
+                }
+            });
+        }
+
+        tpe.shutdown();
+        boolean finish = tpe.awaitTermination(20, TimeUnit.SECONDS);
+        assertTrue("timeout", finish);
+
+        // no id given twice
+        int expected = nbCalls / 2 * blockSize + nbCalls / 2;
+        assertEquals(expected, ids.size());
+        assertEquals(expected + 1, seq.getNext(seqName));
+    }
+
 }
@@ -19,6 +19,7 @@
 package org.nuxeo.elasticsearch.web.admin;
 
 import static org.jboss.seam.ScopeType.EVENT;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -35,6 +36,8 @@ import org.elasticsearch.index.query.QueryBuilders;
 import org.jboss.seam.annotations.In;
 import org.jboss.seam.annotations.Name;
 import org.jboss.seam.annotations.Scope;
+import org.jboss.seam.faces.FacesMessages;
+import org.jboss.seam.international.StatusMessage;
 import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
@@ -45,6 +48,7 @@ import org.nuxeo.ecm.platform.query.api.PageProviderDefinition;
 import org.nuxeo.ecm.platform.query.api.PageProviderService;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.elasticsearch.api.ReindexingCheckpoint;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 import org.nuxeo.runtime.api.Framework;
@@ -78,6 +82,9 @@ public class ElasticSearchManager {
     @In(create = true, required = false)
     protected transient CoreSession documentManager;
 
+    @In(create = true, required = false)
+    protected transient FacesMessages facesMessages;
+
     protected List<PageProviderStatus> ppStatuses = null;
 
     protected Timer indexTimer;
@@ -114,6 +121,27 @@ public class ElasticSearchManager {
         esi.runReindexingWorker(repositoryName, "SELECT ecm:uuid FROM Document");
     }
 
+    public void startCheckpointedReindexAll() {
+        log.warn("Re-indexing the entire repository from the beginning: " + repositoryName);
+        if (!esi.runCheckpointedReindexingWorker(repositoryName, true)) {
+            reportReindexingInProgress();
+        }
+    }
+
+    public void resumeCheckpointedReindexAll() {
+        log.warn("Resuming the re-indexing of the entire repository: " + repositoryName);
+        if (!esi.runCheckpointedReindexingWorker(repositoryName, false)) {
+            reportReindexingInProgress();
+        }
+    }
+
+    protected void reportReindexingInProgress() {
+        if (facesMessages != null) {
+            facesMessages.add(StatusMessage.Severity.WARN,
+                    "Re-indexing of repository " + repositoryName + " already in progress, wait for its completion");
+        }
+    }
+
     public void startReindexNxql() {
         log.warn(String.format("Re-indexing from a NXQL query: %s on repository: %s", getNxql(), repositoryName));
         esi.runReindexingWorker(repositoryName, getNxql());
@@ -192,10 +220,29 @@ public class ElasticSearchManager {
 
     public String getNumberOfDocuments() {
         String[] indices = getIndexNames();
-        CountResponse ret = esa.getClient().prepareCount(indices).setQuery(QueryBuilders.matchAllQuery()).get();
+        CountResponse ret = esa.getClient().prepareCount(indices).setTypes(DOC_TYPE).setQuery(
+                QueryBuilders.matchAllQuery()).get();
         return Long.valueOf(ret.getCount()).toString();
     }
 
+    public String getReindexingProgress() {
+        StringBuilder sb = new StringBuilder();
+        for (String repo : esa.getRepositoryNames()) {
+            ReindexingCheckpoint checkpoint = esa.getReindexingCheckpoint(repo);
+            if (checkpoint == null) {
+                continue;
+            }
+            sb.append(String.format("%s: %d/%d documents", repo, checkpoint.getDone(), checkpoint.getTotal()));
+            if (checkpoint.isCompleted()) {
+                sb.append(", completed");
+            } else if (checkpoint.getEta() >= 0) {
+                sb.append(String.format(", %d s left", checkpoint.getEta() / 1000));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
     private String[] getIndexNames() {
         String indices[]  = new String[esa.getRepositoryNames().size()];
         int i=0;
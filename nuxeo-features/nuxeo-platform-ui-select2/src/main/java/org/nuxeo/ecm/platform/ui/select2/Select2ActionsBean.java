@@ -24,6 +24,7 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -320,8 +321,21 @@ public class Select2ActionsBean implements Serializable {
                 final String label = Select2Common.getLabelFieldName(schema, dbl10n, labelFieldName,
                         locale.getLanguage());
 
+                // resolve all the entries with a single directory call
+                List<String> entryIds = new ArrayList<>(storedRefs.size());
                 for (String ref : storedRefs) {
-                    JSONObject obj = resolveDirectoryEntry(ref, keySeparator, session, schema, label, localize, dbl10n);
+                    if (!ref.isEmpty()) {
+                        entryIds.add(getEntryId(ref, keySeparator));
+                    }
+                }
+                Map<String, DocumentModel> entries = new HashMap<>();
+                for (DocumentModel entry : session.getEntries(entryIds, true)) {
+                    entries.put(entry.getId(), entry);
+                }
+
+                for (String ref : storedRefs) {
+                    JSONObject obj = resolveDirectoryEntry(ref, keySeparator, session, schema, label, localize, dbl10n,
+                            entries);
                     if (obj != null) {
                         result.add(obj);
                     }
@@ -534,6 +548,31 @@ public class Select2ActionsBean implements Serializable {
 
     protected JSONObject resolveDirectoryEntry(final String storedReference, String keySeparator,
             final Session session, final Schema schema, final String label, final boolean localize, final boolean dbl10n) {
+        return resolveDirectoryEntry(storedReference, keySeparator, session, schema, label, localize, dbl10n,
+                Collections.<String, DocumentModel> emptyMap());
+    }
+
+    /**
+     * Gets the id of the entry referenced by a stored reference, which is the last part of a hierarchical reference.
+     *
+     * @since 8.2
+     */
+    protected String getEntryId(String storedReference, String keySeparator) {
+        if (keySeparator == null || keySeparator.isEmpty()) {
+            keySeparator = Select2Common.DEFAULT_KEY_SEPARATOR;
+        }
+        return storedReference.substring(storedReference.lastIndexOf(keySeparator) + 1, storedReference.length());
+    }
+
+    /**
+     * Resolves a directory entry, looking it up first in the given already fetched entries.
+     *
+     * @param entries the already fetched entries, by id
+     * @since 8.2
+     */
+    protected JSONObject resolveDirectoryEntry(final String storedReference, String keySeparator,
+            final Session session, final Schema schema, final String label, final boolean localize,
+            final boolean dbl10n, Map<String, DocumentModel> entries) {
         if (storedReference == null || storedReference.isEmpty()) {
             log.trace("No reference provided ");
             return null;
@@ -543,10 +582,12 @@ public class Select2ActionsBean implements Serializable {
             keySeparator = Select2Common.DEFAULT_KEY_SEPARATOR;
         }
 
-        String entryId = storedReference.substring(storedReference.lastIndexOf(keySeparator) + 1,
-                storedReference.length());
+        String entryId = getEntryId(storedReference, keySeparator);
 
-        DocumentModel result = session.getEntry(entryId);
+        DocumentModel result = entries.get(entryId);
+        if (result == null) {
+            result = session.getEntry(entryId);
+        }
         if (result == null) {
             log.warn("Unable to resolve entry " + storedReference);
             return createNotFoundEntry(storedReference);
@@ -20,8 +20,11 @@
 package org.nuxeo.ecm.directory;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -93,22 +96,7 @@ public class DirectoryCache {
 
     public DocumentModel getEntry(String entryId, EntrySource source, boolean fetchReferences)
             throws DirectoryException {
-        if (!isCacheEnabled()) {
-            return source.getEntryFromSource(entryId, fetchReferences);
-        } else if (isCacheEnabled() && (getEntryCache() == null || getEntryCacheWithoutReferences() == null)) {
-
-            log.warn("Your directory configuration for cache is wrong, directory cache will not be used.");
-            if (getEntryCache() == null) {
-                log.warn(String.format(
-                        "The cache for entry '%s' has not been found, please check the cache name or make sure you have deployed it",
-                        entryCacheName));
-            }
-            if (getEntryCacheWithoutReferences() == null) {
-                log.warn(String.format(
-                        "The cache for entry without references '%s' has not been found, please check the cache name or make sure you have deployed it",
-                        entryCacheWithoutReferencesName));
-            }
-
+        if (!isCacheUsable()) {
             return source.getEntryFromSource(entryId, fetchReferences);
         }
 
@@ -134,6 +122,67 @@ public class DirectoryCache {
         } else {
             hitsCounter.inc();
         }
+        return cloneEntry(dm);
+    }
+
+    /**
+     * Gets several entries, looking them up in the cache with a single bulk call and fetching only the missing ones
+     * from the source, then caching these with a single bulk call.
+     *
+     * @return the found entries, in the order of the ids
+     * @since 8.2
+     */
+    public List<DocumentModel> getEntries(List<String> entryIds, EntrySource source, boolean fetchReferences)
+            throws DirectoryException {
+        List<DocumentModel> entries = new ArrayList<>(entryIds.size());
+        if (!isCacheUsable()) {
+            for (String entryId : entryIds) {
+                DocumentModel dm = source.getEntryFromSource(entryId, fetchReferences);
+                if (dm != null) {
+                    entries.add(dm);
+                }
+            }
+            return entries;
+        }
+
+        Cache cache = fetchReferences ? getEntryCache() : getEntryCacheWithoutReferences();
+        Map<String, Serializable> cached = cache.getAll(entryIds);
+        Map<String, Serializable> fetched = new HashMap<>();
+        for (String entryId : entryIds) {
+            Serializable entry = cached.get(entryId);
+            if (entry == null) {
+                entry = fetched.get(entryId);
+                if (entry == null) {
+                    // fetch the entry from the backend, cached below for later reuse
+                    DocumentModel dm = source.getEntryFromSource(entryId, fetchReferences);
+                    if (dm != null) {
+                        fetched.put(entryId, dm);
+                        if (fetchReferences) {
+                            sizeCounter.inc();
+                        }
+                    } else if (negativeCaching) {
+                        fetched.put(entryId, CACHE_MISS);
+                    }
+                    missesCounter.inc();
+                    entry = dm;
+                }
+            } else if (CACHE_MISS.equals(entry)) {
+                negativeHitsCounter.inc();
+                continue;
+            } else {
+                hitsCounter.inc();
+            }
+            if (entry instanceof DocumentModel) {
+                entries.add(cloneEntry((DocumentModel) entry));
+            }
+        }
+        if (!fetched.isEmpty()) {
+            cache.putAll(fetched);
+        }
+        return entries;
+    }
+
+    protected DocumentModel cloneEntry(DocumentModel dm) {
         try {
             if (dm == null) {
                 return null;
@@ -151,15 +200,38 @@ public class DirectoryCache {
         }
     }
 
+    /**
+     * Checks that the cache is enabled and that the configured caches exist.
+     */
+    protected boolean isCacheUsable() {
+        if (!isCacheEnabled()) {
+            return false;
+        } else if (getEntryCache() == null || getEntryCacheWithoutReferences() == null) {
+
+            log.warn("Your directory configuration for cache is wrong, directory cache will not be used.");
+            if (getEntryCache() == null) {
+                log.warn(String.format(
+                        "The cache for entry '%s' has not been found, please check the cache name or make sure you have deployed it",
+                        entryCacheName));
+            }
+            if (getEntryCacheWithoutReferences() == null) {
+                log.warn(String.format(
+                        "The cache for entry without references '%s' has not been found, please check the cache name or make sure you have deployed it",
+                        entryCacheWithoutReferencesName));
+            }
+
+            return false;
+        }
+        return true;
+    }
+
     public void invalidate(List<String> entryIds) {
         if (isCacheEnabled()) {
             synchronized (this) {
-                for (String entryId : entryIds) {
-                    getEntryCache().invalidate(entryId);
-                    getEntryCacheWithoutReferences().invalidate(entryId);
-                    sizeCounter.dec();
-                    invalidationsCounter.inc();
-                }
+                getEntryCache().invalidateAll(entryIds);
+                getEntryCacheWithoutReferences().invalidateAll(entryIds);
+                sizeCounter.dec(entryIds.size());
+                invalidationsCounter.inc(entryIds.size());
             }
         }
     }
@@ -22,6 +22,7 @@ package org.nuxeo.ecm.directory;
 
 import java.io.Closeable;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +63,27 @@ public interface Session extends AutoCloseable {
      */
     DocumentModel getEntry(String id, boolean fetchReferences) throws DirectoryException;
 
+    /**
+     * Retrieves several directory entries using their ids. Directories having an entry cache look up the ids in the
+     * cache with a single call.
+     *
+     * @param ids the entry ids
+     * @param fetchReferences boolean stating if references have to be fetched
+     * @return the found entries, in the order of the ids
+     * @throws DirectoryException
+     * @since 8.2
+     */
+    default List<DocumentModel> getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        List<DocumentModel> entries = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            DocumentModel entry = getEntry(id, fetchReferences);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
     /**
      * Retrieves all the entries in the directory. If the remote server issues a size limit exceeded error while sending
      * partial results up to that limit, the method {@code DocumentModelList#totalsize} on the returned list will return
@@ -253,6 +253,14 @@ public class LDAPSession extends BaseSession implements EntrySource {
         return null;
     }
 
+    @Override
+    public List<DocumentModel> getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        if (isCurrentUserAllowed(SecurityConstants.READ)) {
+            return directory.getCache().getEntries(ids, this, fetchReferences);
+        }
+        return new ArrayList<>();
+    }
+
     @Override
     public DocumentModel getEntryFromSource(String id, boolean fetchReferences) throws DirectoryException {
         try {
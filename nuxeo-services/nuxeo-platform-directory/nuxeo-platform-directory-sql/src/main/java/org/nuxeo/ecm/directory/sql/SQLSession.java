@@ -342,6 +342,14 @@ public class SQLSession extends BaseSession implements EntrySource {
         return null;
     }
 
+    @Override
+    public List<DocumentModel> getEntries(List<String> ids, boolean fetchReferences) throws DirectoryException {
+        if (isCurrentUserAllowed(SecurityConstants.READ)) {
+            return directory.getCache().getEntries(ids, this, fetchReferences);
+        }
+        return new ArrayList<>();
+    }
+
     protected String addFilterWhereClause(String whereClause) throws DirectoryException {
         if (staticFilters.length == 0) {
             return whereClause;
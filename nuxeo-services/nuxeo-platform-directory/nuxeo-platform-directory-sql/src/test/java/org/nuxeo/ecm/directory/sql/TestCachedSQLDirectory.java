@@ -24,6 +24,10 @@ package org.nuxeo.ecm.directory.sql;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
 
 import javax.inject.Inject;
 
@@ -115,6 +119,57 @@ public class TestCachedSQLDirectory extends SQLDirectoryTestSuite {
         assertEquals(baseMissesCount + 1, missesCounter.getCount());
     }
 
+    @Test
+    public void testGetEntriesFromCache() throws Exception {
+        MetricRegistry metrics = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        Counter hitsCounter = metrics.counter(
+                MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "hits"));
+        Counter missesCounter = metrics.counter(
+                MetricRegistry.name("nuxeo", "directories", "userDirectory", "cache", "misses"));
+        long baseHitsCount = hitsCounter.getCount();
+        long baseMissesCount = missesCounter.getCount();
+        List<String> ids = Arrays.asList("user_1", "NO_SUCH_USER", "Administrator");
+        getSQLDirectory().getCache().invalidateAll();
+
+        try (Session sqlSession = getSQLDirectory().getSession()) {
+            // only user_1 is cached
+            sqlSession.getEntry("user_1");
+            assertEquals(baseMissesCount + 1, missesCounter.getCount());
+
+            // mixed hits and misses
+            List<DocumentModel> entries = sqlSession.getEntries(ids, true);
+            assertEquals(2, entries.size());
+            assertEquals("user_1", entries.get(0).getId());
+            assertEquals("Administrator", entries.get(1).getId());
+            assertTrue(((List<?>) entries.get(0).getProperty("user", "groups")).contains("group_1"));
+            assertEquals(baseHitsCount + 1, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 3, missesCounter.getCount());
+
+            // now all hits, except the missing entry
+            entries = sqlSession.getEntries(ids, true);
+            assertEquals(2, entries.size());
+            assertEquals("user_1", entries.get(0).getId());
+            assertEquals("Administrator", entries.get(1).getId());
+            assertEquals(baseHitsCount + 3, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 4, missesCounter.getCount());
+
+            // entries without references are cached separately
+            entries = sqlSession.getEntries(ids, false);
+            assertEquals(2, entries.size());
+            assertEquals("user_1", entries.get(0).getId());
+            List<?> groups = (List<?>) entries.get(0).getProperty("user", "groups");
+            assertTrue(groups == null || groups.isEmpty());
+            assertEquals(baseHitsCount + 3, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 7, missesCounter.getCount());
+
+            entries = sqlSession.getEntries(ids, false);
+            assertEquals(2, entries.size());
+            assertEquals("Administrator", entries.get(1).getId());
+            assertEquals(baseHitsCount + 5, hitsCounter.getCount());
+            assertEquals(baseMissesCount + 8, missesCounter.getCount());
+        }
+    }
+
     @Test
     public void testNegativeCaching() throws Exception {
         DirectoryCache cache = getSQLDirectory().getCache();
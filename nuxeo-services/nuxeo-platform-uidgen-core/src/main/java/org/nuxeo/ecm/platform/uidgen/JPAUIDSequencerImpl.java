@@ -18,6 +18,7 @@
  */
 package org.nuxeo.ecm.platform.uidgen;
 
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -106,19 +107,29 @@ public class JPAUIDSequencerImpl extends AbstractUIDSequencer {
 
         protected final String key;
 
+        protected final int size;
+
         protected int result;
 
         protected boolean completed = false;
 
         public SeqRunner(final String key) {
+            this(key, 1);
+        }
+
+        /**
+         * @since 8.2
+         */
+        public SeqRunner(final String key, int size) {
             this.key = key;
+            this.size = size;
         }
 
         @Override
         public void run() {
             TransactionHelper.startTransaction();
             try {
-                result = doGetNext(key);
+                result = doGetNext(key, size);
                 completed = true;
             } finally {
                 TransactionHelper.commitOrRollbackTransaction();
@@ -138,8 +149,15 @@ public class JPAUIDSequencerImpl extends AbstractUIDSequencer {
 
     @Override
     public int getNext(final String key) {
+        return run(new SeqRunner(key));
+    }
 
-        SeqRunner runner = new SeqRunner(key);
+    @Override
+    protected List<Integer> reserveBlock(String key, int size) {
+        return range(run(new SeqRunner(key, size)), size);
+    }
+
+    protected int run(SeqRunner runner) {
 
         Future<?> future = tpe.submit(runner);
 
@@ -154,17 +172,33 @@ public class JPAUIDSequencerImpl extends AbstractUIDSequencer {
 
     }
 
-    @SuppressWarnings("boxing")
     protected int doGetNext(final String key) {
+        return doGetNext(key, 1);
+    }
+
+    /**
+     * @since 8.2
+     */
+    @SuppressWarnings("boxing")
+    protected int doGetNext(final String key, final int size) {
         return getOrCreatePersistenceProvider().run(true, new RunCallback<Integer>() {
             @Override
             public Integer runWith(EntityManager em) {
-                return getNext(em, key);
+                return getNext(em, key, size);
             }
         });
     }
 
     protected int getNext(EntityManager em, String key) {
+        return getNext(em, key, 1);
+    }
+
+    /**
+     * Increments the sequence by the given size and returns its new value.
+     *
+     * @since 8.2
+     */
+    protected int getNext(EntityManager em, String key, int size) {
         UIDSequenceBean seq;
         try {
             seq = (UIDSequenceBean) em.createNamedQuery("UIDSequence.findByKey").setParameter("key", key).getSingleResult();
@@ -173,7 +207,7 @@ public class JPAUIDSequencerImpl extends AbstractUIDSequencer {
             seq = new UIDSequenceBean(key);
             em.persist(seq);
         }
-        return seq.nextIndex();
+        return seq.nextIndex(size);
     }
 
 }
@@ -97,7 +97,16 @@ public class UIDSequenceBean {
     }
 
     public int nextIndex() {
-        index += 1;
+        return nextIndex(1);
+    }
+
+    /**
+     * Increments the index by the given size, reserving the indexes up to the returned one.
+     *
+     * @since 8.2
+     */
+    public int nextIndex(int size) {
+        index += size;
         log.debug("updated to " + this);
         return index;
     }
@@ -23,12 +23,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import javax.inject.Inject;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.uidgen.AbstractUIDSequencer;
 import org.nuxeo.ecm.core.uidgen.UIDGeneratorService;
 import org.nuxeo.ecm.core.uidgen.UIDSequencer;
 import org.nuxeo.runtime.api.Framework;
@@ -69,4 +72,24 @@ public class TestJPAUIDSequencer {
         assertTrue(seq.getNext("mySequence") > 10);
     }
 
+    @Test
+    public void testSequencerBlock() {
+
+        AbstractUIDSequencer seq = (AbstractUIDSequencer) service.getSequencer("hibernateSequencer");
+
+        assertEquals(1, seq.getNext("myBlockSequence"));
+        assertEquals(Arrays.asList(2, 3, 4), seq.getNextBlock("myBlockSequence", 3));
+        assertEquals(5, seq.getNext("myBlockSequence"));
+
+        // the remainder of a reserved block serves the next calls
+        seq.setBlockSize(10);
+        try {
+            assertEquals(Arrays.asList(6, 7), seq.getNextBlock("myBlockSequence", 2));
+            assertEquals(16, seq.getNext("myBlockSequence"));
+            assertEquals(Arrays.asList(8, 9, 10), seq.getNextBlock("myBlockSequence", 3));
+        } finally {
+            seq.setBlockSize(1);
+        }
+    }
+
 }
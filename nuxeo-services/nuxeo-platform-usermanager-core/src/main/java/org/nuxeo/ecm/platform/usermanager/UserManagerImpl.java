@@ -25,6 +25,7 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -1133,6 +1134,24 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         }
     }
 
+    /**
+     * Gets the models of several groups with a single directory call, the groups that don't exist being skipped.
+     *
+     * @since 8.2
+     */
+    protected List<DocumentModel> getGroupModels(Collection<String> groupIds, DocumentModel context) {
+        List<String> groupNames = new ArrayList<String>(groupIds.size());
+        for (String groupId : groupIds) {
+            String groupName = multiTenantManagement.groupnameTranformer(this, groupId, context);
+            if (groupName != null) {
+                groupNames.add(groupName.trim());
+            }
+        }
+        try (Session groupDir = dirService.open(groupDirectoryName, context)) {
+            return groupDir.getEntries(groupNames, true);
+        }
+    }
+
     @Override
     public DocumentModel getUserModel(String userName, DocumentModel context) {
         if (userName == null) {
@@ -1362,8 +1381,8 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         appendSubgroups(groupId, groups, context);
 
         Set<String> users = new HashSet<String>();
-        for (String groupid : groups) {
-            users.addAll(getGroup(groupid, context).getMemberUsers());
+        for (DocumentModel groupModel : getGroupModels(groups, context)) {
+            users.addAll(makeGroup(groupModel).getMemberUsers());
         }
 
         return new ArrayList<String>(users);